@@ -9,6 +9,9 @@ export const API_CONFIG = {
 export const WS_CONFIG = {
   BASE_URL: import.meta.env.VITE_WS_URL || 'ws://localhost:8080/api/ws',
   SOCKJS_URL: import.meta.env.VITE_SOCKJS_URL || 'http://localhost:8080/api/ws',
+  NATIVE_URL: import.meta.env.VITE_WS_NATIVE_URL || 'ws://localhost:8080/api/ws-native',
+  // 'native' uses /ws-native; 'sockjs' falls back to the SockJS endpoint for networks that block WebSocket upgrades
+  TRANSPORT: import.meta.env.VITE_WS_TRANSPORT || 'native',
   RECONNECT_INTERVAL: 5000, // 5 seconds
   MAX_RECONNECT_ATTEMPTS: 5
 };
@@ -5,10 +5,10 @@ import { Send } from '@mui/icons-material';
 import { useAuth } from '../contexts/AuthContext';
 import PageHeader from '../components/PageHeader';
 import PageContainer from '../components/PageContainer';
-import { WS_CONFIG, STORAGE_KEYS } from '../config/config';
-import SockJS from 'sockjs-client';
+import { STORAGE_KEYS } from '../config/config';
 import { Client } from '@stomp/stompjs';
 import { chatAPI, usersAPI } from '../services/api';
+import { createWebSocket } from '../services/stompTransport';
 
 const ChatRoom = () => {
   const { planId } = useParams();
@@ -61,15 +61,8 @@ const ChatRoom = () => {
       return;
     }
 
-    // Create SockJS connection with authentication headers
-    const socket = new SockJS(WS_CONFIG.SOCKJS_URL, null, {
-      headers: {
-        'Authorization': `Bearer ${token}`
-      }
-    });
-
     const client = new Client({
-      webSocketFactory: () => socket,
+      webSocketFactory: () => createWebSocket(token),
       connectHeaders: { 
         'Authorization': `Bearer ${token}` 
       },
@@ -98,7 +91,8 @@ const ChatRoom = () => {
 
     client.onStompError = (frame) => {
       console.error('WebSocket error:', frame);
-      setError('Connection error. Please refresh the page.');
+      // The server explains rejected sends (e.g. rate limits) in the message header; the client reconnects on its own
+      setError(frame.headers?.message || 'Connection error. Please refresh the page.');
       setSnackbarOpen(true);
     };
 
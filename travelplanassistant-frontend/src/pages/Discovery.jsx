@@ -9,6 +9,7 @@ import { useAuth } from '../contexts/AuthContext';
 import PageHeader from '../components/PageHeader';
 import PageContainer from '../components/PageContainer';
 import { travelPlansAPI } from '../services/api';
+import { subscribeToDiscovery } from '../services/planEvents';
 import PlanCard from '../components/PlanCard';
 
 const Discovery = () => {
@@ -25,7 +26,7 @@ const Discovery = () => {
     const loadDiscovery = async () => {
       try {
         const results = await travelPlansAPI.getDiscoveryPlans();
-        setPlans(Array.isArray(results) ? results : []);
+        setPlans(results && Array.isArray(results.plans) ? results.plans : []);
       } catch (e) {
         console.error('Failed to load discovery plans:', e);
         setPlans([]);
@@ -34,12 +35,12 @@ const Discovery = () => {
     loadDiscovery();
   }, []);
 
-  // Polling for new travel plans every 15 seconds
+  // Refetch new travel plans when the server pushes a discovery change
   useEffect(() => {
     const pollNewPlans = async () => {
       try {
         const results = await travelPlansAPI.getDiscoveryPlans();
-        const newPlans = Array.isArray(results) ? results : [];
+        const newPlans = results && Array.isArray(results.plans) ? results.plans : [];
         
         setPlans(prevPlans => {
           // Only update if there are actual changes to avoid unnecessary re-renders
@@ -83,16 +84,8 @@ const Discovery = () => {
       }
     };
 
-    // Initial poll after a short delay
-    const initialTimeout = setTimeout(pollNewPlans, 5000);
-
-    // Set up polling interval
-    const pollInterval = setInterval(pollNewPlans, 15000); // Poll every 15 seconds
-
-    return () => {
-      clearTimeout(initialTimeout);
-      clearInterval(pollInterval);
-    };
+    // Refresh when the server pushes a change to the set of discoverable plans
+    return subscribeToDiscovery(pollNewPlans);
   }, []);
 
   useEffect(() => {
@@ -1,6 +1,8 @@
 import React, { useState, useEffect, useCallback } from 'react';
 import { useNavigate } from 'react-router-dom';
 import { travelPlansAPI } from '../services/api';
+import { subscribeToPlan, subscribeToUser } from '../services/planEvents';
+import { useAuth } from '../contexts/AuthContext';
 import { Box, Container, Typography, Grid, Paper, Fab, Tabs, Tab, Tooltip, Snackbar, Alert } from '@mui/material';
 import {
   Add
@@ -11,6 +13,7 @@ import PlanCard from '../components/PlanCard';
 
 const MyPlans = () => {
   const navigate = useNavigate();
+  const { user } = useAuth();
   const [activeTab, setActiveTab] = useState(0);
   // const [plans, setPlans] = useState([]);
   const [currentPlans, setCurrentPlans] = useState([]);
@@ -23,7 +26,9 @@ const MyPlans = () => {
     loadPlans();
   }, []);
 
-  // Polling for plan updates every 12 seconds to reflect changes in current/history plans
+  const currentPlanIds = currentPlans.map(p => p.id).join(',');
+
+  // Refetch plans on pushed events to reflect changes in current/history plans
   useEffect(() => {
     const pollPlanUpdates = async () => {
       try {
@@ -56,7 +61,7 @@ const MyPlans = () => {
               setSnackbarOpen(true);
             }
             
-            console.log('MyPlans: Current plans updated via polling', { 
+            console.log('MyPlans: Current plans updated via push', { 
               previous: prevCurrent.length, 
               current: currentPlansData.length 
             });
@@ -94,17 +99,14 @@ const MyPlans = () => {
       }
     };
 
-    // Initial poll after a short delay
-    const initialTimeout = setTimeout(pollPlanUpdates, 4000);
-
-    // Set up polling interval
-    const pollInterval = setInterval(pollPlanUpdates, 12000); // Poll every 12 seconds
+    // Refresh when the user's own membership changes or anything changes on a current plan
+    const unsubscribers = [
+      ...(user ? [subscribeToUser(user.id, pollPlanUpdates)] : []),
+      ...currentPlanIds.split(',').filter(Boolean).map(id => subscribeToPlan(id, pollPlanUpdates))
+    ];
 
-    return () => {
-      clearTimeout(initialTimeout);
-      clearInterval(pollInterval);
-    };
-  }, []);
+    return () => unsubscribers.forEach(unsubscribe => unsubscribe());
+  }, [user, currentPlanIds]);
 
   const loadPlans = useCallback(async ()  => {
     const currentPlans = await travelPlansAPI.getCurrentPlans() || JSON.parse( '[]');
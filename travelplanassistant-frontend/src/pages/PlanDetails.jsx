@@ -35,6 +35,7 @@ import {
 } from '@mui/icons-material';
 import { useAuth } from '../contexts/AuthContext';
 import { travelPlansAPI, usersAPI } from '../services/api';
+import { subscribeToPlan } from '../services/planEvents';
 import PageHeader from '../components/PageHeader';
 import PageContainer from '../components/PageContainer';
 import UserInfoDialog from '../components/UserInfoDialog';
@@ -94,7 +95,7 @@ const PlanDetails = () => {
         const userPlanData = fetchedPlan.members?.find(m => m.userId === user?.id) || null;
         setUserPlan(userPlanData);
         
-        // Initialize member count for polling comparison
+        // Initialize member count for refresh comparison
         const initialMemberCount = fetchedPlan.members?.filter(m => 
           ['OWNED', 'APPLIED_ACCEPTED', 'INVITED_ACCEPTED'].includes((m.userPlanStatus || '').toString().toUpperCase())
         ).length || 0;
@@ -110,7 +111,7 @@ const PlanDetails = () => {
     }
   }, [planId, user]);
 
-  // Polling for plan updates every 10 seconds to reflect member list changes
+  // Refetch the plan on pushed events to reflect member list changes
   useEffect(() => {
     if (!planId || !user) return;
 
@@ -158,16 +159,8 @@ const PlanDetails = () => {
       }
     };
 
-    // Initial poll after a short delay
-    const initialTimeout = setTimeout(pollPlanUpdates, 3000);
-
-    // Set up polling interval
-    const pollInterval = setInterval(pollPlanUpdates, 10000); // Poll every 10 seconds
-
-    return () => {
-      clearTimeout(initialTimeout);
-      clearInterval(pollInterval);
-    };
+    // Refresh when the server pushes a plan or member change
+    return subscribeToPlan(planId, pollPlanUpdates);
   }, [planId, user]);
 
   const handleApply = async () => {
@@ -32,6 +32,7 @@ import { useAuth } from '../contexts/AuthContext';
 import PageHeader from '../components/PageHeader';
 import PageContainer from '../components/PageContainer';
 import { pollsAPI, usersAPI } from '../services/api';
+import { subscribeToPlan } from '../services/planEvents';
 
 const Poll = () => {
   const { planId } = useParams();
@@ -48,7 +49,7 @@ const Poll = () => {
     loadPolls();
   }, [planId]);
 
-  // Polling for poll updates every 8 seconds to reflect new votes and polls
+  // Refetch polls on pushed events to reflect new votes and polls
   useEffect(() => {
     if (!planId) return;
 
@@ -117,16 +118,12 @@ const Poll = () => {
       }
     };
 
-    // Initial poll after a short delay
-    const initialTimeout = setTimeout(pollUpdates, 3000);
-
-    // Set up polling interval
-    const pollInterval = setInterval(pollUpdates, 8000); // Poll every 8 seconds
-
-    return () => {
-      clearTimeout(initialTimeout);
-      clearInterval(pollInterval);
-    };
+    // Refresh when the server pushes a poll change for this plan
+    return subscribeToPlan(planId, (event) => {
+      if (!event || event.type.startsWith('POLL_')) {
+        pollUpdates();
+      }
+    });
   }, [planId]);
 
   const loadPolls = async () => {
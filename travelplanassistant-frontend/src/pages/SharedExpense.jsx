@@ -26,6 +26,7 @@ import { useAuth } from '../contexts/AuthContext';
 import PageHeader from '../components/PageHeader';
 import PageContainer from '../components/PageContainer';
 import { expensesAPI } from '../services/api';
+import { subscribeToPlan } from '../services/planEvents';
 
 const SharedExpense = () => {
   const { planId } = useParams();
@@ -76,7 +77,7 @@ const SharedExpense = () => {
     }
   }, [planId]);
 
-  // Polling for expense updates every 10 seconds to reflect new expenses and payment changes
+  // Refetch expenses on pushed events to reflect new expenses and payment changes
   useEffect(() => {
     if (!planId) return;
 
@@ -143,16 +144,12 @@ const SharedExpense = () => {
       }
     };
 
-    // Initial poll after a short delay
-    const initialTimeout = setTimeout(pollExpenseUpdates, 4000);
-
-    // Set up polling interval
-    const pollInterval = setInterval(pollExpenseUpdates, 10000); // Poll every 10 seconds
-
-    return () => {
-      clearTimeout(initialTimeout);
-      clearInterval(pollInterval);
-    };
+    // Refresh when the server pushes an expense change for this plan
+    return subscribeToPlan(planId, (event) => {
+      if (!event || event.type.startsWith('EXPENSE_')) {
+        pollExpenseUpdates();
+      }
+    });
   }, [planId]);
 
   const calculatePerPerson = (totalAmount, personCount) => {
@@ -130,9 +130,13 @@ export const travelPlansAPI = {
     return apiRequest(endpoint);
   },
 
-  // Discovery plans
-  getDiscoveryPlans: async () => {
-    return apiRequest('/travel-plans/discovery');
+  // Discovery plans (keyset-paginated; pass nextCursor from the previous page to continue)
+  getDiscoveryPlans: async (cursor, size) => {
+    const params = new URLSearchParams();
+    if (cursor) params.append('cursor', cursor);
+    if (size) params.append('size', size);
+    const query = params.toString();
+    return apiRequest(query ? `/travel-plans/discovery?${query}` : '/travel-plans/discovery');
   },
 
   // Get current travel plans
@@ -227,6 +231,14 @@ export const travelPlansAPI = {
     });
   },
 
+  // Invite several users at once; returns an outcome per email
+  inviteUsers: async (planId, emails) => {
+    return apiRequest(`/travel-plans/${planId}/invitations:batch`, {
+      method: 'POST',
+      body: JSON.stringify({ emails })
+    });
+  },
+
   // Accept invitation
   acceptInvitation: async (planId) => {
     return apiRequest(`/travel-plans/${planId}/invite/accept`, {
@@ -244,9 +256,14 @@ export const travelPlansAPI = {
 
 // Chat API
 export const chatAPI = {
-  // Get chat messages for a plan
-  getMessages: async (planId) => {
-    return apiRequest(`/chat/${planId}/messages`);
+  // Get a page of chat messages for a plan; pass before/after message ids to page through history
+  getMessages: async (planId, { before, after, limit } = {}) => {
+    const params = new URLSearchParams();
+    if (before) params.append('before', before);
+    if (after) params.append('after', after);
+    if (limit) params.append('limit', limit);
+    const query = params.toString();
+    return apiRequest(`/chat/${planId}/messages${query ? `?${query}` : ''}`);
   },
 
   // Get recent chat messages with limit
@@ -362,6 +379,37 @@ export const usersAPI = {
   }
 };
 
+// In-app notifications API
+export const notificationsAPI = {
+  // Get a page of the current user's notifications, newest first; pass the last id as before for the next page
+  getFeed: async ({ before, limit } = {}) => {
+    const params = new URLSearchParams();
+    if (before) params.append('before', before);
+    if (limit) params.append('limit', limit);
+    const query = params.toString();
+    return apiRequest(`/notifications/feed${query ? `?${query}` : ''}`);
+  },
+
+  // Get the number of unread notifications
+  getUnreadCount: async () => {
+    return apiRequest('/notifications/unread-count');
+  },
+
+  // Mark one notification read
+  markRead: async (notificationId) => {
+    return apiRequest(`/notifications/${notificationId}/read`, {
+      method: 'PUT'
+    });
+  },
+
+  // Mark all notifications read
+  markAllRead: async () => {
+    return apiRequest('/notifications/read-all', {
+      method: 'PUT'
+    });
+  }
+};
+
 // WebSocket connection for real-time chat
 export const createWebSocketConnection = (planId, onMessage) => {
   const token = getAuthToken();
@@ -396,5 +444,6 @@ export default {
   pollsAPI,
   expensesAPI,
   usersAPI,
+  notificationsAPI,
   createWebSocketConnection
 }; 
\ No newline at end of file
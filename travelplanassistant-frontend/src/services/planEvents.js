@@ -0,0 +1,105 @@
+import { Client } from '@stomp/stompjs';
+import { WS_CONFIG, STORAGE_KEYS } from '../config/config';
+import { createWebSocket } from './stompTransport';
+
+// Shared STOMP connection for server-pushed change events.
+// Pages subscribe to a topic and refetch when an event arrives instead of polling.
+
+let client = null;
+let nextListenerId = 1;
+// destination -> { listeners: Map<id, callback>, subscription }
+const topics = new Map();
+
+const subscribeTopic = (destination, topic) => {
+  topic.subscription = client.subscribe(destination, (message) => {
+    let payload = null;
+    try {
+      payload = JSON.parse(message.body);
+    } catch (err) {
+      console.error('Error parsing plan event:', err);
+    }
+    topic.listeners.forEach((callback) => callback(payload));
+  });
+};
+
+const ensureClient = () => {
+  if (client) return client;
+
+  const token = localStorage.getItem(STORAGE_KEYS.AUTH_TOKEN);
+  if (!token) return null;
+
+  client = new Client({
+    webSocketFactory: () => createWebSocket(token),
+    connectHeaders: {
+      'Authorization': `Bearer ${token}`
+    },
+    reconnectDelay: WS_CONFIG.RECONNECT_INTERVAL,
+    debug: () => {}
+  });
+
+  client.onConnect = () => {
+    topics.forEach((topic, destination) => {
+      subscribeTopic(destination, topic);
+      // Events may have been missed while disconnected, so let listeners resync once
+      topic.listeners.forEach((callback) => callback(null));
+    });
+  };
+
+  client.onStompError = (frame) => {
+    console.error('Plan events connection error:', frame);
+  };
+
+  client.activate();
+  return client;
+};
+
+const releaseClient = () => {
+  if (client && topics.size === 0) {
+    try {
+      client.deactivate();
+    } catch (err) {
+      console.error('Error deactivating plan events connection:', err);
+    }
+    client = null;
+  }
+};
+
+// Subscribe to a destination; returns a function that removes the subscription
+export const subscribe = (destination, callback) => {
+  if (!ensureClient()) return () => {};
+
+  let topic = topics.get(destination);
+  if (!topic) {
+    topic = { listeners: new Map(), subscription: null };
+    topics.set(destination, topic);
+    if (client.connected) {
+      subscribeTopic(destination, topic);
+    }
+  }
+
+  const id = nextListenerId++;
+  topic.listeners.set(id, callback);
+
+  return () => {
+    topic.listeners.delete(id);
+    if (topic.listeners.size === 0) {
+      if (topic.subscription && client?.connected) {
+        topic.subscription.unsubscribe();
+      }
+      topics.delete(destination);
+      releaseClient();
+    }
+  };
+};
+
+// Plan, member, poll and expense changes for one plan
+export const subscribeToPlan = (planId, callback) => subscribe(`/topic/plan/${planId}/events`, callback);
+
+// Changes to the current user's own status on any plan
+export const subscribeToUser = (userId, callback) => subscribe(`/topic/user/${userId}/events`, callback);
+
+// New and read in-app notifications for the current user, with the unread count
+export const subscribeToNotifications = (userId, callback) => subscribe(`/topic/user/${userId}/notifications`, callback);
+
+// Plans appearing in or dropping out of discovery
+export const subscribeToDiscovery = (callback) => subscribe('/topic/plans/events', callback);
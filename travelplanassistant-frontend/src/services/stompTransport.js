@@ -0,0 +1,15 @@
+import SockJS from 'sockjs-client';
+import { WS_CONFIG } from '../config/config';
+
+// Opens the socket a STOMP client runs over; called again on every reconnect
+export const createWebSocket = (token) => {
+  if (WS_CONFIG.TRANSPORT === 'sockjs') {
+    return new SockJS(WS_CONFIG.SOCKJS_URL, null, {
+      headers: {
+        'Authorization': `Bearer ${token}`
+      }
+    });
+  }
+  // Browsers cannot set headers on a WebSocket handshake; the token goes in the STOMP CONNECT frame
+  return new WebSocket(WS_CONFIG.NATIVE_URL);
+};
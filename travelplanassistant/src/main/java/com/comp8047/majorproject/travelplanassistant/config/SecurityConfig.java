@@ -40,7 +40,7 @@ public class SecurityConfig {
                 .requestMatchers("/actuator/**").permitAll()
                 .requestMatchers("/swagger-ui/**", "/v3/api-docs/**").permitAll()
                 // Permit WebSocket/SockJS handshake endpoints
-                .requestMatchers("/ws/**", "/api/ws/**").permitAll()
+                .requestMatchers("/ws/**", "/api/ws/**", "/ws-native", "/api/ws-native").permitAll()
                 .anyRequest().authenticated()
             )
             .sessionManagement()
@@ -0,0 +1,96 @@
+package com.comp8047.majorproject.travelplanassistant.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Carrier-thread pinning diagnostic for the virtual-threads profile. Streams the JFR jdk.VirtualThreadPinned
+ * event (a virtual thread blocking inside synchronized code, e.g. in the JDBC driver) into metrics, and logs
+ * the stack of each distinct pinning site once. Virtual threads need a Java 21 runtime; on older runtimes
+ * Spring Boot keeps platform threads and this only logs a warning.
+ */
+@Component
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadDiagnostics {
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final int LOGGED_FRAMES = 12;
+    private static final int MAX_LOGGED_SITES = 100;
+
+    private final long thresholdMs;
+    private final Counter pinnedCount;
+    private final Timer pinnedTime;
+
+    // Top frames of pinning sites already logged
+    private final Set<String> loggedSites = ConcurrentHashMap.newKeySet();
+
+    private RecordingStream recordingStream;
+
+    @Autowired
+    public VirtualThreadDiagnostics(MeterRegistry meterRegistry,
+                                    @Value("${app.virtual-threads.pinning-threshold-ms:20}") long thresholdMs) {
+        this.thresholdMs = thresholdMs;
+        this.pinnedCount = Counter.builder("jvm.threads.virtual.pinned")
+                .description("Virtual threads pinned to their carrier longer than the threshold").register(meterRegistry);
+        this.pinnedTime = Timer.builder("jvm.threads.virtual.pinned.time")
+                .description("Time virtual threads spent pinned to their carrier").register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (Runtime.version().feature() < 21) {
+            System.err.println("spring.threads.virtual.enabled is set but Java " + Runtime.version().feature()
+                    + " has no virtual threads; running on platform threads");
+            return;
+        }
+        recordingStream = new RecordingStream();
+        recordingStream.enable(PINNED_EVENT).withThreshold(Duration.ofMillis(thresholdMs)).withStackTrace();
+        recordingStream.onEvent(PINNED_EVENT, this::onPinned);
+        recordingStream.startAsync();
+        System.out.println("Virtual thread pinning diagnostic started (threshold " + thresholdMs + " ms)");
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (recordingStream != null) {
+            recordingStream.close();
+        }
+    }
+
+    private void onPinned(RecordedEvent event) {
+        pinnedCount.increment();
+        pinnedTime.record(event.getDuration());
+        RecordedStackTrace stackTrace = event.getStackTrace();
+        if (stackTrace == null || stackTrace.getFrames().isEmpty()) {
+            return;
+        }
+        String stack = stackTrace.getFrames().stream()
+                .limit(LOGGED_FRAMES)
+                .map(VirtualThreadDiagnostics::describe)
+                .collect(Collectors.joining("\n    at "));
+        String site = describe(stackTrace.getFrames().get(0));
+        if (loggedSites.size() < MAX_LOGGED_SITES && loggedSites.add(site)) {
+            System.err.println("Virtual thread pinned for " + event.getDuration().toMillis() + " ms:\n    at " + stack);
+        }
+    }
+
+    private static String describe(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+    }
+}
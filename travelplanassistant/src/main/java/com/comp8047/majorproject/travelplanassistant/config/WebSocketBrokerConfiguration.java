@@ -0,0 +1,38 @@
+package com.comp8047.majorproject.travelplanassistant.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.lang.NonNull;
+import org.springframework.messaging.support.AbstractSubscribableChannel;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.config.annotation.DelegatingWebSocketMessageBrokerConfiguration;
+import org.springframework.web.socket.messaging.SubProtocolWebSocketHandler;
+
+/**
+ * The STOMP broker configuration @EnableWebSocketMessageBroker would import, applying the
+ * WebSocketMessageBrokerConfigurer beans (WebSocketConfig), except that the send buffer the sub-protocol handler
+ * wraps around each session is handed to WebSocketSessionMetrics
+ */
+@Configuration
+public class WebSocketBrokerConfiguration extends DelegatingWebSocketMessageBrokerConfiguration {
+
+    @Autowired
+    private WebSocketSessionMetrics webSocketSessionMetrics;
+
+    @Override
+    @Bean
+    public WebSocketHandler subProtocolWebSocketHandler(AbstractSubscribableChannel clientInboundChannel,
+                                                        AbstractSubscribableChannel clientOutboundChannel) {
+        SubProtocolWebSocketHandler handler = new SubProtocolWebSocketHandler(clientInboundChannel, clientOutboundChannel) {
+            @Override
+            @NonNull
+            protected WebSocketSession decorateSession(@NonNull WebSocketSession session) {
+                return webSocketSessionMetrics.trackSendBuffer(super.decorateSession(session));
+            }
+        };
+        handler.setPhase(getPhase());
+        return handler;
+    }
+}
@@ -1,8 +1,15 @@
 package com.comp8047.majorproject.travelplanassistant.config;
 
+import com.comp8047.majorproject.travelplanassistant.entity.User;
 import com.comp8047.majorproject.travelplanassistant.security.JwtTokenUtil;
+import com.comp8047.majorproject.travelplanassistant.service.ChatMembershipCache;
+import com.comp8047.majorproject.travelplanassistant.service.ChatRateLimiter;
+import com.comp8047.majorproject.travelplanassistant.service.TopicSubscriptionGuard;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.core.Ordered;
 import org.springframework.core.annotation.Order;
 import org.springframework.lang.NonNull;
@@ -10,39 +17,146 @@ import org.springframework.messaging.Message;
 import org.springframework.messaging.MessageChannel;
 import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.messaging.simp.config.StompBrokerRelayRegistration;
 import org.springframework.messaging.simp.stomp.StompCommand;
 import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
 import org.springframework.messaging.support.ChannelInterceptor;
 import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
-import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
+import org.springframework.web.socket.messaging.StompSubProtocolErrorHandler;
 
+// The broker itself is set up by WebSocketBrokerConfiguration, which applies this configurer
 @Configuration
-@EnableWebSocketMessageBroker
 @Order(Ordered.HIGHEST_PRECEDENCE + 50)
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    private static final String SESSION_USER_ATTRIBUTE = "user";
+
+    /**
+     * Where topic subscriptions live: SIMPLE keeps them in this JVM, RELAY forwards to an external STOMP broker
+     * (RabbitMQ, ActiveMQ, ...), DATABASE keeps the simple broker and relays messages between nodes through BrokerFanout
+     */
+    public enum BrokerMode { SIMPLE, RELAY, DATABASE }
+
+    @Value("${app.websocket.broker.mode:SIMPLE}")
+    private BrokerMode brokerMode;
+
+    @Value("${app.websocket.broker.relay.host:localhost}")
+    private String relayHost;
+
+    @Value("${app.websocket.broker.relay.port:61613}")
+    private int relayPort;
+
+    @Value("${app.websocket.broker.relay.login:guest}")
+    private String relayLogin;
+
+    @Value("${app.websocket.broker.relay.passcode:guest}")
+    private String relayPasscode;
+
+    @Value("${app.websocket.broker.relay.virtual-host:}")
+    private String relayVirtualHost;
+
+    @Value("${app.websocket.heartbeat-ms:10000}")
+    private long heartbeatMs;
+
+    @Value("${app.websocket.transport.message-size-limit:65536}")
+    private int messageSizeLimit;
+
+    @Value("${app.websocket.transport.send-buffer-size-limit:524288}")
+    private int sendBufferSizeLimit;
+
+    @Value("${app.websocket.transport.send-time-limit-ms:10000}")
+    private int sendTimeLimitMs;
+
+    @Value("${app.websocket.transport.time-to-first-message-ms:60000}")
+    private int timeToFirstMessageMs;
+
+    @Autowired
+    private WebSocketSessionMetrics webSocketSessionMetrics;
+
+    // Lazy because the scheduler is defined by the broker configuration this class contributes to
+    @Autowired
+    @Lazy
+    @Qualifier("messageBrokerTaskScheduler")
+    private TaskScheduler messageBrokerTaskScheduler;
+
     @Autowired
     private JwtTokenUtil jwtTokenUtil;
 
     @Autowired
     private UserDetailsService userDetailsService;
 
+    @Autowired
+    private ChatMembershipCache chatMembershipCache;
+
+    @Autowired
+    private TopicSubscriptionGuard topicSubscriptionGuard;
+
+    @Autowired
+    private ChatRateLimiter chatRateLimiter;
+
     @Override
     public void configureMessageBroker(@NonNull MessageBrokerRegistry config) {
-        config.enableSimpleBroker("/topic");
+        if (brokerMode == BrokerMode.RELAY) {
+            StompBrokerRelayRegistration relay = config.enableStompBrokerRelay("/topic")
+                    .setRelayHost(relayHost)
+                    .setRelayPort(relayPort)
+                    .setClientLogin(relayLogin)
+                    .setClientPasscode(relayPasscode)
+                    .setSystemLogin(relayLogin)
+                    .setSystemPasscode(relayPasscode)
+                    .setSystemHeartbeatSendInterval(heartbeatMs)
+                    .setSystemHeartbeatReceiveInterval(heartbeatMs);
+            if (!relayVirtualHost.isBlank()) {
+                relay.setVirtualHost(relayVirtualHost);
+            }
+        } else {
+            // Heartbeats let the broker drop connections whose client went away without closing
+            config.enableSimpleBroker("/topic")
+                    .setHeartbeatValue(new long[] {heartbeatMs, heartbeatMs})
+                    .setTaskScheduler(messageBrokerTaskScheduler);
+        }
         config.setApplicationDestinationPrefixes("/app");
     }
 
     @Override
     public void registerStompEndpoints(@NonNull StompEndpointRegistry registry) {
+        // Native WebSocket endpoint, without SockJS framing
+        registry.addEndpoint("/ws-native").setAllowedOriginPatterns("*");
         // SockJS fallback endpoint
         registry.addEndpoint("/ws").setAllowedOriginPatterns("*").withSockJS();
+
+        // Report rate limit and subscription rejections with their own message rather than the generic channel failure
+        registry.setErrorHandler(new StompSubProtocolErrorHandler() {
+            @Override
+            public Message<byte[]> handleClientMessageProcessingError(Message<byte[]> clientMessage, @NonNull Throwable ex) {
+                for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+                    if (cause instanceof ChatRateLimiter.RateLimitExceededException
+                            || cause instanceof TopicSubscriptionGuard.SubscriptionDeniedException) {
+                        return super.handleClientMessageProcessingError(clientMessage, cause);
+                    }
+                }
+                return super.handleClientMessageProcessingError(clientMessage, ex);
+            }
+        });
+    }
+
+    @Override
+    public void configureWebSocketTransport(@NonNull WebSocketTransportRegistration registration) {
+        // A client that cannot keep up is disconnected once its outbound buffer or a single send exceeds
+        // the limits, instead of holding a broadcast thread or growing the buffer without bound
+        registration.setMessageSizeLimit(messageSizeLimit)
+                .setSendBufferSizeLimit(sendBufferSizeLimit)
+                .setSendTimeLimit(sendTimeLimitMs)
+                .setTimeToFirstMessage(timeToFirstMessageMs)
+                .addDecoratorFactory(webSocketSessionMetrics);
     }
 
     @Override
@@ -66,6 +180,7 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
                                         new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
                                     accessor.setUser(auth);
                                     SecurityContextHolder.getContext().setAuthentication(auth);
+                                    trackSession(accessor, userDetails);
                                 }
                             } catch (Exception e) {
                                 // Invalid token, continue without authentication
@@ -74,6 +189,9 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
                     }
                     // Handle MESSAGE commands - preserve authentication from session or re-authenticate
                     else if (StompCommand.SEND.equals(accessor.getCommand())) {
+                        // Reject floods before any authentication or handler work
+                        chatRateLimiter.checkSend(accessor.getSessionId(), accessor.getDestination());
+
                         UserDetails userDetails = null;
                         
                         // Try to get user from session first
@@ -83,6 +201,10 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
                                 userDetails = (UserDetails) auth.getPrincipal();
                             }
                         } 
+                        // Then a user already resolved from a header on an earlier SEND in this session
+                        else if (sessionAttribute(accessor, SESSION_USER_ATTRIBUTE) instanceof UserDetails) {
+                            userDetails = (UserDetails) sessionAttribute(accessor, SESSION_USER_ATTRIBUTE);
+                        }
                         // Fallback: check for Authorization header in message
                         else {
                             String authToken = accessor.getFirstNativeHeader("Authorization");
@@ -92,6 +214,10 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
                                     String username = extractUsernameFromToken(token);
                                     if (username != null) {
                                         userDetails = userDetailsService.loadUserByUsername(username);
+                                        if (accessor.getSessionAttributes() != null) {
+                                            accessor.getSessionAttributes().put(SESSION_USER_ATTRIBUTE, userDetails);
+                                        }
+                                        trackSession(accessor, userDetails);
                                     }
                                 } catch (Exception e) {
                                     // Invalid token, continue without authentication
@@ -107,12 +233,34 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
                             SecurityContextHolder.getContext().setAuthentication(auth);
                         }
                     }
+                    // Only let users subscribe to their own and their plans' topics
+                    else if (StompCommand.SUBSCRIBE.equals(accessor.getCommand())) {
+                        topicSubscriptionGuard.checkSubscribe(accessor.getDestination(), authenticatedUser(accessor));
+                    }
                 }
                 return message;
             }
         });
     }
 
+    private void trackSession(StompHeaderAccessor accessor, UserDetails userDetails) {
+        if (userDetails instanceof User && accessor.getSessionId() != null) {
+            chatMembershipCache.sessionOpened(accessor.getSessionId(), ((User) userDetails).getId());
+        }
+    }
+
+    private Object sessionAttribute(StompHeaderAccessor accessor, String name) {
+        return accessor.getSessionAttributes() == null ? null : accessor.getSessionAttributes().get(name);
+    }
+
+    // The user authenticated at CONNECT, or from a header on an earlier SEND in this session
+    private User authenticatedUser(StompHeaderAccessor accessor) {
+        if (accessor.getUser() instanceof UsernamePasswordAuthenticationToken auth && auth.getPrincipal() instanceof User user) {
+            return user;
+        }
+        return sessionAttribute(accessor, SESSION_USER_ATTRIBUTE) instanceof User user ? user : null;
+    }
+
     private String extractUsernameFromToken(String token) {
         try {
             return jwtTokenUtil.extractUsername(token);
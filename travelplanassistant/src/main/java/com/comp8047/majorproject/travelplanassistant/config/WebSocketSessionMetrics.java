@@ -0,0 +1,162 @@
+package com.comp8047.majorproject.travelplanassistant.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.adapter.NativeWebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketHandlerDecoratorFactory;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+import org.springframework.web.socket.messaging.SubProtocolWebSocketHandler;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-session send metrics for STOMP connections. Each session's transport writes are timed, and the send
+ * buffer that sendBufferSizeLimit bounds (the ConcurrentWebSocketSessionDecorator the sub-protocol handler wraps
+ * around each session, handed over by WebSocketBrokerConfiguration) is sampled, so slow clients show up as
+ * buffered bytes and stalled sessions. Sessions the broker closed for exceeding the send buffer or time limit
+ * are counted from the sub-protocol handler's stats. Values are aggregated across sessions (total and largest
+ * buffer) to keep the meter count fixed.
+ */
+@Component
+public class WebSocketSessionMetrics implements WebSocketHandlerDecoratorFactory {
+
+    // Tomcat's blocking send timeout, so a write to a dead client frees its outbound thread at the send time limit
+    private static final String BLOCKING_SEND_TIMEOUT = "org.apache.tomcat.websocket.BLOCKING_SEND_TIMEOUT";
+
+    private final MeterRegistry meterRegistry;
+    private final long sendTimeLimitMs;
+    private final Timer sendTimer;
+
+    // sessionId -> session with its in-progress write and send buffer
+    private final Map<String, MeteredSession> sessions = new ConcurrentHashMap<>();
+
+    @Autowired
+    public WebSocketSessionMetrics(MeterRegistry meterRegistry,
+                                   @Value("${app.websocket.transport.send-time-limit-ms:10000}") long sendTimeLimitMs) {
+        this.meterRegistry = meterRegistry;
+        this.sendTimeLimitMs = sendTimeLimitMs;
+        this.sendTimer = Timer.builder("websocket.session.send")
+                .description("Time to write one message to a WebSocket session").register(meterRegistry);
+        Gauge.builder("websocket.sessions.open", sessions, Map::size)
+                .description("Open WebSocket sessions").register(meterRegistry);
+        Gauge.builder("websocket.sessions.send.buffer.bytes", this, WebSocketSessionMetrics::sendBufferBytes)
+                .description("Bytes waiting in session send buffers across sessions").register(meterRegistry);
+        Gauge.builder("websocket.sessions.send.buffer.max.bytes", this, WebSocketSessionMetrics::maxSendBufferBytes)
+                .description("Bytes waiting in the fullest session send buffer").register(meterRegistry);
+        Gauge.builder("websocket.sessions.send.stalled", this, WebSocketSessionMetrics::stalledSessions)
+                .description("Sessions with a write running longer than half the send time limit").register(meterRegistry);
+    }
+
+    @Override
+    @NonNull
+    public WebSocketHandler decorate(@NonNull WebSocketHandler handler) {
+        if (handler instanceof SubProtocolWebSocketHandler subProtocolHandler) {
+            FunctionCounter.builder("websocket.sessions.closed.limit_exceeded", subProtocolHandler,
+                            h -> h.getStats().getLimitExceededSessions())
+                    .description("Sessions closed for exceeding the send buffer or send time limit").register(meterRegistry);
+            FunctionCounter.builder("websocket.sessions.closed.transport_error", subProtocolHandler,
+                            h -> h.getStats().getTransportErrorSessions())
+                    .description("Sessions closed after a transport error").register(meterRegistry);
+        }
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(@NonNull WebSocketSession session) throws Exception {
+                applySendTimeout(session);
+                MeteredSession metered = new MeteredSession(session);
+                sessions.put(session.getId(), metered);
+                super.afterConnectionEstablished(metered);
+            }
+
+            @Override
+            public void afterConnectionClosed(@NonNull WebSocketSession session, @NonNull CloseStatus closeStatus) throws Exception {
+                sessions.remove(session.getId());
+                super.afterConnectionClosed(session, closeStatus);
+            }
+        };
+    }
+
+    public int sessionCount() {
+        return sessions.size();
+    }
+
+    /**
+     * Sample the send buffer the sub-protocol handler wrapped around a metered session; returns the session as is
+     */
+    public WebSocketSession trackSendBuffer(WebSocketSession session) {
+        if (session instanceof ConcurrentWebSocketSessionDecorator sendBuffer) {
+            MeteredSession metered = sessions.get(session.getId());
+            if (metered != null) {
+                metered.sendBuffer = sendBuffer;
+            }
+        }
+        return session;
+    }
+
+    public long sendBufferBytes() {
+        return sessions.values().stream().mapToLong(MeteredSession::sendBufferBytes).sum();
+    }
+
+    public long maxSendBufferBytes() {
+        return sessions.values().stream().mapToLong(MeteredSession::sendBufferBytes).max().orElse(0);
+    }
+
+    public long stalledSessions() {
+        long now = System.currentTimeMillis();
+        return sessions.values().stream()
+                .filter(session -> session.sendStartedAt != 0 && now - session.sendStartedAt > sendTimeLimitMs / 2)
+                .count();
+    }
+
+    private void applySendTimeout(WebSocketSession session) {
+        if (session instanceof NativeWebSocketSession nativeSession
+                && nativeSession.getNativeSession() instanceof jakarta.websocket.Session standardSession) {
+            standardSession.getUserProperties().put(BLOCKING_SEND_TIMEOUT, sendTimeLimitMs);
+        }
+    }
+
+    /**
+     * Times each write and exposes when the one in progress started. The send buffer around this session
+     * serialises writes, so at most one is in flight at a time.
+     */
+    private final class MeteredSession extends WebSocketSessionDecorator {
+
+        private volatile long sendStartedAt;
+        private volatile ConcurrentWebSocketSessionDecorator sendBuffer;
+
+        private MeteredSession(WebSocketSession session) {
+            super(session);
+        }
+
+        @Override
+        public void sendMessage(@NonNull WebSocketMessage<?> message) throws IOException {
+            long start = System.nanoTime();
+            sendStartedAt = System.currentTimeMillis();
+            try {
+                super.sendMessage(message);
+            } finally {
+                sendStartedAt = 0;
+                sendTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        private long sendBufferBytes() {
+            ConcurrentWebSocketSessionDecorator buffer = sendBuffer;
+            return buffer != null ? buffer.getBufferSize() : 0;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.comp8047.majorproject.travelplanassistant.controller;
 
+import com.comp8047.majorproject.travelplanassistant.dto.ChatHistoryPageResponse;
 import com.comp8047.majorproject.travelplanassistant.dto.ChatMessageResponse;
 import com.comp8047.majorproject.travelplanassistant.entity.User;
 import com.comp8047.majorproject.travelplanassistant.service.ChatService;
@@ -21,10 +22,14 @@ public class ChatController {
     private ChatService chatService;
 
     @GetMapping("/{planId}/messages")
-    public ResponseEntity<?> getMessages(@PathVariable Long planId, @AuthenticationPrincipal User user) {
+    public ResponseEntity<?> getMessages(@PathVariable Long planId,
+                                         @RequestParam(required = false) Long before,
+                                         @RequestParam(required = false) Long after,
+                                         @RequestParam(required = false) Integer limit,
+                                         @AuthenticationPrincipal User user) {
         try {
-            List<ChatMessageResponse> messages = chatService.getMessages(planId, user);
-            return ResponseEntity.ok(messages);
+            ChatHistoryPageResponse page = chatService.getMessages(planId, before, after, limit, user);
+            return ResponseEntity.ok(page);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
         }
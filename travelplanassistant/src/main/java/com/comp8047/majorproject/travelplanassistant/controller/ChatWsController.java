@@ -27,6 +27,7 @@ public class ChatWsController {
                                   @Payload ChatMessageRequest request,
                                   @Header("user") User user) {
         if (user != null) {
+            // The message is committed, or queued with the write-behind writer, and in the room's history buffer
             ChatMessageResponse response = chatService.sendMessage(planId, request, user);
             // Broadcast to subscribers of /topic/chat/{planId}
             messagingTemplate.convertAndSend("/topic/chat/" + planId, response);
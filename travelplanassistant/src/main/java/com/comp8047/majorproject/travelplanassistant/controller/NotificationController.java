@@ -1,8 +1,12 @@
 package com.comp8047.majorproject.travelplanassistant.controller;
 
+import com.comp8047.majorproject.travelplanassistant.dto.NotificationFeedPageResponse;
+import com.comp8047.majorproject.travelplanassistant.entity.User;
+import com.comp8047.majorproject.travelplanassistant.service.NotificationFeedService;
 import com.comp8047.majorproject.travelplanassistant.service.NotificationService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
@@ -19,6 +23,45 @@ public class NotificationController {
     @Autowired
     private NotificationService notificationService;
 
+    @Autowired
+    private NotificationFeedService notificationFeedService;
+
+    /**
+     * Get a page of the current user's in-app notifications, newest first
+     */
+    @GetMapping("/feed")
+    public ResponseEntity<NotificationFeedPageResponse> getFeed(@RequestParam(required = false) Long before,
+                                                                @RequestParam(required = false) Integer limit,
+                                                                @AuthenticationPrincipal User user) {
+        return ResponseEntity.ok(notificationFeedService.getFeed(user, before, limit));
+    }
+
+    /**
+     * Get the current user's unread notification count
+     */
+    @GetMapping("/unread-count")
+    public ResponseEntity<Map<String, Long>> getUnreadCount(@AuthenticationPrincipal User user) {
+        return ResponseEntity.ok(Map.of("unreadCount", notificationFeedService.getUnreadCount(user.getId())));
+    }
+
+    /**
+     * Mark one of the current user's notifications read and return the remaining unread count
+     */
+    @PutMapping("/{notificationId}/read")
+    public ResponseEntity<Map<String, Long>> markRead(@PathVariable Long notificationId, @AuthenticationPrincipal User user) {
+        notificationFeedService.markRead(user.getId(), notificationId);
+        return ResponseEntity.ok(Map.of("unreadCount", notificationFeedService.getUnreadCount(user.getId())));
+    }
+
+    /**
+     * Mark all of the current user's notifications read
+     */
+    @PutMapping("/read-all")
+    public ResponseEntity<Map<String, Long>> markAllRead(@AuthenticationPrincipal User user) {
+        notificationFeedService.markAllRead(user.getId());
+        return ResponseEntity.ok(Map.of("unreadCount", 0L));
+    }
+
     /**
      * Send custom notification email
      */
@@ -31,7 +74,7 @@ public class NotificationController {
         try {
             notificationService.sendCustomNotification(toEmail, subject, content);
             Map<String, String> response = new HashMap<>();
-            response.put("message", "Notification sent successfully");
+            response.put("message", "Notification queued successfully");
             response.put("to", toEmail);
             return ResponseEntity.ok(response);
         } catch (Exception e) {
@@ -77,7 +120,7 @@ public class NotificationController {
             notificationService.sendCustomNotification(toEmail, testSubject, testContent);
             
             Map<String, String> response = new HashMap<>();
-            response.put("message", "Test email sent successfully");
+            response.put("message", "Test email queued successfully");
             response.put("to", toEmail);
             return ResponseEntity.ok(response);
         } catch (Exception e) {
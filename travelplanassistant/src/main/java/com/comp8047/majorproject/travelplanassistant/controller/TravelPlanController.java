@@ -1,5 +1,8 @@
 package com.comp8047.majorproject.travelplanassistant.controller;
 
+import com.comp8047.majorproject.travelplanassistant.dto.BulkInviteRequest;
+import com.comp8047.majorproject.travelplanassistant.dto.BulkInviteResponse;
+import com.comp8047.majorproject.travelplanassistant.dto.DiscoveryPageResponse;
 import com.comp8047.majorproject.travelplanassistant.dto.TravelPlanRequest;
 import com.comp8047.majorproject.travelplanassistant.dto.TravelPlanResponse;
 import com.comp8047.majorproject.travelplanassistant.entity.User;
@@ -41,14 +44,16 @@ public class TravelPlanController {
     }
     
     /**
-     * Get all public new plans not associated with the current user
+     * Get a page of public new plans not associated with the current user
      */
     @GetMapping("/discovery")
     public ResponseEntity<?> getPublicNewPlans(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
             @AuthenticationPrincipal User user) {
         try {
-            List<TravelPlanResponse> plans = travelPlanService.getPublicNewPlans(user.getId());
-            return ResponseEntity.ok(plans);
+            DiscoveryPageResponse page = travelPlanService.getPublicNewPlans(user.getId(), cursor, size);
+            return ResponseEntity.ok(page);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
         }
@@ -190,6 +195,22 @@ public class TravelPlanController {
         }
     }
     
+    /**
+     * Invite several users to travel plan (owner only), with an outcome per email
+     */
+    @PostMapping("/{planId}/invitations:batch")
+    public ResponseEntity<?> inviteUsers(
+            @Valid @RequestBody BulkInviteRequest request,
+            @PathVariable Long planId,
+            @AuthenticationPrincipal User owner) {
+        try {
+            BulkInviteResponse response = travelPlanService.inviteUsers(planId, request.getEmails(), owner);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        }
+    }
+    
     /**
      * Accept invitation to travel plan
      */
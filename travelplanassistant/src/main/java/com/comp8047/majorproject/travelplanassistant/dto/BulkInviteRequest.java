@@ -0,0 +1,31 @@
+package com.comp8047.majorproject.travelplanassistant.dto;
+
+import jakarta.validation.constraints.Email;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public class BulkInviteRequest {
+
+    @NotEmpty(message = "At least one email is required")
+    @Size(max = 50, message = "At most 50 users can be invited at once")
+    private List<@NotBlank(message = "Email is required") @Email(message = "Email should be valid") String> emails;
+
+    // Constructors
+    public BulkInviteRequest() {}
+
+    public BulkInviteRequest(List<String> emails) {
+        this.emails = emails;
+    }
+
+    // Getters and Setters
+    public List<String> getEmails() {
+        return emails;
+    }
+
+    public void setEmails(List<String> emails) {
+        this.emails = emails;
+    }
+}
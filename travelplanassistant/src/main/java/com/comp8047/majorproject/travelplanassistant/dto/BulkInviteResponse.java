@@ -0,0 +1,58 @@
+package com.comp8047.majorproject.travelplanassistant.dto;
+
+import java.util.List;
+
+public class BulkInviteResponse {
+    // One result per requested email, in request order
+    private List<InviteResult> results;
+    private int invitedCount;
+    private TravelPlanResponse plan;
+
+    public enum Outcome {
+        INVITED, USER_NOT_FOUND, CURRENT_PLAN, ALREADY_RELATED, DUPLICATE, INVALID_EMAIL
+    }
+
+    public static class InviteResult {
+        private String email;
+        private Outcome outcome;
+        private String message;
+
+        public InviteResult() {}
+
+        public InviteResult(String email) {
+            this.email = email;
+        }
+
+        public InviteResult(String email, Outcome outcome, String message) {
+            this.email = email;
+            this.outcome = outcome;
+            this.message = message;
+        }
+
+        public String getEmail() { return email; }
+        public void setEmail(String email) { this.email = email; }
+
+        public Outcome getOutcome() { return outcome; }
+        public void setOutcome(Outcome outcome) { this.outcome = outcome; }
+
+        public String getMessage() { return message; }
+        public void setMessage(String message) { this.message = message; }
+    }
+
+    public BulkInviteResponse() {}
+
+    public BulkInviteResponse(List<InviteResult> results, int invitedCount, TravelPlanResponse plan) {
+        this.results = results;
+        this.invitedCount = invitedCount;
+        this.plan = plan;
+    }
+
+    public List<InviteResult> getResults() { return results; }
+    public void setResults(List<InviteResult> results) { this.results = results; }
+
+    public int getInvitedCount() { return invitedCount; }
+    public void setInvitedCount(int invitedCount) { this.invitedCount = invitedCount; }
+
+    public TravelPlanResponse getPlan() { return plan; }
+    public void setPlan(TravelPlanResponse plan) { this.plan = plan; }
+}
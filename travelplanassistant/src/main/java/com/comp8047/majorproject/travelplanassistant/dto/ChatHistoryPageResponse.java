@@ -0,0 +1,22 @@
+package com.comp8047.majorproject.travelplanassistant.dto;
+
+import java.util.List;
+
+public class ChatHistoryPageResponse {
+    // Oldest first; the first id is the next "before" cursor and the last id the next "after" cursor
+    private List<ChatMessageResponse> messages;
+    private boolean hasMore;
+
+    public ChatHistoryPageResponse() {}
+
+    public ChatHistoryPageResponse(List<ChatMessageResponse> messages, boolean hasMore) {
+        this.messages = messages;
+        this.hasMore = hasMore;
+    }
+
+    public List<ChatMessageResponse> getMessages() { return messages; }
+    public void setMessages(List<ChatMessageResponse> messages) { this.messages = messages; }
+
+    public boolean isHasMore() { return hasMore; }
+    public void setHasMore(boolean hasMore) { this.hasMore = hasMore; }
+}
@@ -0,0 +1,26 @@
+package com.comp8047.majorproject.travelplanassistant.dto;
+
+import java.util.List;
+
+public class DiscoveryPageResponse {
+    private List<TravelPlanResponse> plans;
+    private String nextCursor;
+    private boolean hasMore;
+
+    public DiscoveryPageResponse() {}
+
+    public DiscoveryPageResponse(List<TravelPlanResponse> plans, String nextCursor, boolean hasMore) {
+        this.plans = plans;
+        this.nextCursor = nextCursor;
+        this.hasMore = hasMore;
+    }
+
+    public List<TravelPlanResponse> getPlans() { return plans; }
+    public void setPlans(List<TravelPlanResponse> plans) { this.plans = plans; }
+
+    public String getNextCursor() { return nextCursor; }
+    public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+
+    public boolean isHasMore() { return hasMore; }
+    public void setHasMore(boolean hasMore) { this.hasMore = hasMore; }
+}
@@ -0,0 +1,44 @@
+package com.comp8047.majorproject.travelplanassistant.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * In-app feed change pushed over STOMP to the recipient. unreadCount is null when the server does not hold
+ * the user's count; clients then fetch it.
+ */
+public class NotificationFeedEvent {
+    public enum Type {
+        NOTIFICATION_CREATED, NOTIFICATION_READ, ALL_READ
+    }
+
+    private Type type;
+    private NotificationFeedItem notification;
+    private Long notificationId;
+    private Long unreadCount;
+    private LocalDateTime occurredAt;
+
+    public NotificationFeedEvent() {}
+
+    public NotificationFeedEvent(Type type, NotificationFeedItem notification, Long notificationId, Long unreadCount) {
+        this.type = type;
+        this.notification = notification;
+        this.notificationId = notificationId;
+        this.unreadCount = unreadCount;
+        this.occurredAt = LocalDateTime.now();
+    }
+
+    public Type getType() { return type; }
+    public void setType(Type type) { this.type = type; }
+
+    public NotificationFeedItem getNotification() { return notification; }
+    public void setNotification(NotificationFeedItem notification) { this.notification = notification; }
+
+    public Long getNotificationId() { return notificationId; }
+    public void setNotificationId(Long notificationId) { this.notificationId = notificationId; }
+
+    public Long getUnreadCount() { return unreadCount; }
+    public void setUnreadCount(Long unreadCount) { this.unreadCount = unreadCount; }
+
+    public LocalDateTime getOccurredAt() { return occurredAt; }
+    public void setOccurredAt(LocalDateTime occurredAt) { this.occurredAt = occurredAt; }
+}
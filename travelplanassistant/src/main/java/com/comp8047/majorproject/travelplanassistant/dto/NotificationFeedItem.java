@@ -0,0 +1,51 @@
+package com.comp8047.majorproject.travelplanassistant.dto;
+
+import com.comp8047.majorproject.travelplanassistant.entity.Notification;
+
+import java.time.LocalDateTime;
+
+/**
+ * One entry of a user's in-app notification feed. The email body is left out; clients link to the plan.
+ */
+public class NotificationFeedItem {
+    private Long id;
+    private Notification.NotificationType type;
+    private String subject;
+    private Long travelPlanId;
+    private Long senderUserId;
+    private LocalDateTime createdAt;
+    private boolean read;
+
+    public NotificationFeedItem() {}
+
+    public NotificationFeedItem(Notification notification) {
+        this.id = notification.getId();
+        this.type = notification.getNotificationType();
+        this.subject = notification.getSubject();
+        this.travelPlanId = notification.getTravelPlanId();
+        this.senderUserId = notification.getSenderUserId();
+        this.createdAt = notification.getCreatedAt();
+        this.read = notification.getReadAt() != null;
+    }
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Notification.NotificationType getType() { return type; }
+    public void setType(Notification.NotificationType type) { this.type = type; }
+
+    public String getSubject() { return subject; }
+    public void setSubject(String subject) { this.subject = subject; }
+
+    public Long getTravelPlanId() { return travelPlanId; }
+    public void setTravelPlanId(Long travelPlanId) { this.travelPlanId = travelPlanId; }
+
+    public Long getSenderUserId() { return senderUserId; }
+    public void setSenderUserId(Long senderUserId) { this.senderUserId = senderUserId; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    public boolean isRead() { return read; }
+    public void setRead(boolean read) { this.read = read; }
+}
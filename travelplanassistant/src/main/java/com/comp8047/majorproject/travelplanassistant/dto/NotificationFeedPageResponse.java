@@ -0,0 +1,27 @@
+package com.comp8047.majorproject.travelplanassistant.dto;
+
+import java.util.List;
+
+public class NotificationFeedPageResponse {
+    // Newest first; the last id is the next "before" cursor
+    private List<NotificationFeedItem> notifications;
+    private boolean hasMore;
+    private long unreadCount;
+
+    public NotificationFeedPageResponse() {}
+
+    public NotificationFeedPageResponse(List<NotificationFeedItem> notifications, boolean hasMore, long unreadCount) {
+        this.notifications = notifications;
+        this.hasMore = hasMore;
+        this.unreadCount = unreadCount;
+    }
+
+    public List<NotificationFeedItem> getNotifications() { return notifications; }
+    public void setNotifications(List<NotificationFeedItem> notifications) { this.notifications = notifications; }
+
+    public boolean isHasMore() { return hasMore; }
+    public void setHasMore(boolean hasMore) { this.hasMore = hasMore; }
+
+    public long getUnreadCount() { return unreadCount; }
+    public void setUnreadCount(long unreadCount) { this.unreadCount = unreadCount; }
+}
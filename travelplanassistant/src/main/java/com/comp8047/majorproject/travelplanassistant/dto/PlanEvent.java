@@ -0,0 +1,47 @@
+package com.comp8047.majorproject.travelplanassistant.dto;
+
+import com.comp8047.majorproject.travelplanassistant.entity.UserPlanStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * Compact change notification pushed over STOMP. Clients refetch the affected resource on receipt.
+ */
+public class PlanEvent {
+    public enum Type {
+        PLAN_UPDATED, MEMBERS_CHANGED, MEMBERSHIP_CHANGED,
+        POLL_CREATED, POLL_UPDATED, POLL_DELETED,
+        EXPENSE_CREATED, EXPENSE_UPDATED, EXPENSE_DELETED
+    }
+
+    private Type type;
+    private Long planId;
+    private Long entityId;
+    private UserPlanStatus.Status userPlanStatus;
+    private LocalDateTime occurredAt;
+
+    public PlanEvent() {}
+
+    public PlanEvent(Type type, Long planId, Long entityId, UserPlanStatus.Status userPlanStatus) {
+        this.type = type;
+        this.planId = planId;
+        this.entityId = entityId;
+        this.userPlanStatus = userPlanStatus;
+        this.occurredAt = LocalDateTime.now();
+    }
+
+    public Type getType() { return type; }
+    public void setType(Type type) { this.type = type; }
+
+    public Long getPlanId() { return planId; }
+    public void setPlanId(Long planId) { this.planId = planId; }
+
+    public Long getEntityId() { return entityId; }
+    public void setEntityId(Long entityId) { this.entityId = entityId; }
+
+    public UserPlanStatus.Status getUserPlanStatus() { return userPlanStatus; }
+    public void setUserPlanStatus(UserPlanStatus.Status userPlanStatus) { this.userPlanStatus = userPlanStatus; }
+
+    public LocalDateTime getOccurredAt() { return occurredAt; }
+    public void setOccurredAt(LocalDateTime occurredAt) { this.occurredAt = occurredAt; }
+}
@@ -44,6 +44,9 @@ public class UserRequest {
     
     private String profilePicture;
     
+    // Left unchanged when not given
+    private Boolean emailDigest;
+    
     // Constructors
     public UserRequest() {}
     
@@ -135,4 +138,12 @@ public class UserRequest {
     public void setProfilePicture(String profilePicture) {
         this.profilePicture = profilePicture;
     }
+    
+    public Boolean getEmailDigest() {
+        return emailDigest;
+    }
+    
+    public void setEmailDigest(Boolean emailDigest) {
+        this.emailDigest = emailDigest;
+    }
 } 
\ No newline at end of file
@@ -26,6 +26,7 @@ public class UserResponse {
     private LocalDateTime lastLogin;
     private Boolean isActive;
     private User.Role role;
+    private Boolean emailDigest;
     private String token;
     
     // Constructors
@@ -52,6 +53,7 @@ public class UserResponse {
         this.lastLogin = user.getLastLogin();
         this.isActive = user.getIsActive();
         this.role = user.getRole();
+        this.emailDigest = user.getEmailDigest();
     }
 
     public UserResponse(User user, String token) {
@@ -219,6 +221,14 @@ public class UserResponse {
     public void setRole(User.Role role) {
         this.role = role;
     }
+    
+    public Boolean getEmailDigest() {
+        return emailDigest;
+    }
+    
+    public void setEmailDigest(Boolean emailDigest) {
+        this.emailDigest = emailDigest;
+    }
 
     public String getToken() {
         return token;
@@ -0,0 +1,84 @@
+package com.comp8047.majorproject.travelplanassistant.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * A broker message published on one app node, kept briefly so the other nodes can deliver it
+ * to their own subscribers. Written and read by BrokerFanout with plain JDBC.
+ */
+@Entity
+@Table(name = "broker_fanout_messages", indexes = {
+        @Index(name = "idx_broker_fanout_created_at", columnList = "created_at")
+})
+public class BrokerFanoutMessage {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "origin", nullable = false, length = 64)
+    private String origin;
+
+    @Column(name = "destination", nullable = false)
+    private String destination;
+
+    @Column(name = "content_type", length = 100)
+    private String contentType;
+
+    @Column(name = "payload", nullable = false, columnDefinition = "TEXT")
+    private String payload;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    public BrokerFanoutMessage() {}
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getOrigin() {
+        return origin;
+    }
+
+    public void setOrigin(String origin) {
+        this.origin = origin;
+    }
+
+    public String getDestination() {
+        return destination;
+    }
+
+    public void setDestination(String destination) {
+        this.destination = destination;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public void setContentType(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    public void setPayload(String payload) {
+        this.payload = payload;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
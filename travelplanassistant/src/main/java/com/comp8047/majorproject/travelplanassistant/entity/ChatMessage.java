@@ -7,7 +7,9 @@ import jakarta.validation.constraints.NotNull;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "chat_messages")
+@Table(name = "chat_messages", indexes = {
+        @Index(name = "idx_chat_messages_plan_id", columnList = "travel_plan_id, id")
+})
 public class ChatMessage {
     
     @Id
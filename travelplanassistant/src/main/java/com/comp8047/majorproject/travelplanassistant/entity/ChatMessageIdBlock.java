@@ -0,0 +1,43 @@
+package com.comp8047.majorproject.travelplanassistant.entity;
+
+import jakarta.persistence.*;
+
+/**
+ * High-water mark for chat message ids handed out ahead of insert by the write-behind writer.
+ * Holds a single row; each instance reserves a block of ids by advancing next_id under a row lock.
+ */
+@Entity
+@Table(name = "chat_message_id_blocks")
+public class ChatMessageIdBlock {
+
+    public static final int CHAT_MESSAGES = 1;
+
+    @Id
+    private Integer id;
+
+    @Column(name = "next_id", nullable = false)
+    private Long nextId;
+
+    public ChatMessageIdBlock() {}
+
+    public ChatMessageIdBlock(Integer id, Long nextId) {
+        this.id = id;
+        this.nextId = nextId;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    public Long getNextId() {
+        return nextId;
+    }
+
+    public void setNextId(Long nextId) {
+        this.nextId = nextId;
+    }
+}
@@ -43,6 +43,18 @@ public class Notification {
     @Column(name = "error_message", columnDefinition = "TEXT")
     private String errorMessage;
 
+    // When an outbox worker claimed the notification for sending
+    @Column(name = "claimed_at")
+    private LocalDateTime claimedAt;
+
+    // Earliest time the retry worker sends a FAILED notification again
+    @Column(name = "next_attempt_at")
+    private LocalDateTime nextAttemptAt;
+
+    // When the recipient read it in the in-app feed; null while unread
+    @Column(name = "read_at")
+    private LocalDateTime readAt;
+
     @Column(name = "retry_count")
     private Integer retryCount = 0;
 
@@ -88,15 +100,22 @@ public class Notification {
         APPLICATION_STATUS_UPDATE,
         INVITATION_NOTIFICATION,
         CUSTOM_NOTIFICATION,
-        SYSTEM_NOTIFICATION
+        SYSTEM_NOTIFICATION,
+        DIGEST
     }
 
     public enum NotificationStatus {
         PENDING,
+        SENDING,
         SENT,
         FAILED,
         RETRYING,
-        CANCELLED
+        CANCELLED,
+        DEAD_LETTER,
+        // Held for the recipient's next digest email
+        DIGEST_PENDING,
+        // Delivered as part of a digest email instead of on its own
+        DIGESTED
     }
 
     // Getters and Setters
@@ -180,6 +199,30 @@ public class Notification {
         this.errorMessage = errorMessage;
     }
 
+    public LocalDateTime getClaimedAt() {
+        return claimedAt;
+    }
+
+    public void setClaimedAt(LocalDateTime claimedAt) {
+        this.claimedAt = claimedAt;
+    }
+
+    public LocalDateTime getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+
+    public void setNextAttemptAt(LocalDateTime nextAttemptAt) {
+        this.nextAttemptAt = nextAttemptAt;
+    }
+
+    public LocalDateTime getReadAt() {
+        return readAt;
+    }
+
+    public void setReadAt(LocalDateTime readAt) {
+        this.readAt = readAt;
+    }
+
     public Integer getRetryCount() {
         return retryCount;
     }
@@ -0,0 +1,55 @@
+package com.comp8047.majorproject.travelplanassistant.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Lease on a scheduled job, so that with several app nodes only one runs it at a time. A node holds the
+ * lease until lease_until and renews it while running; an expired lease can be taken by any node.
+ */
+@Entity
+@Table(name = "scheduler_leases")
+public class SchedulerLease {
+
+    @Id
+    @Column(name = "name", length = 64)
+    private String name;
+
+    @Column(name = "owner", nullable = false, length = 64)
+    private String owner;
+
+    @Column(name = "lease_until", nullable = false)
+    private LocalDateTime leaseUntil;
+
+    public SchedulerLease() {}
+
+    public SchedulerLease(String name, String owner, LocalDateTime leaseUntil) {
+        this.name = name;
+        this.owner = owner;
+        this.leaseUntil = leaseUntil;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public void setOwner(String owner) {
+        this.owner = owner;
+    }
+
+    public LocalDateTime getLeaseUntil() {
+        return leaseUntil;
+    }
+
+    public void setLeaseUntil(LocalDateTime leaseUntil) {
+        this.leaseUntil = leaseUntil;
+    }
+}
@@ -11,7 +11,10 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "travel_plans")
+@Table(name = "travel_plans", indexes = {
+        @Index(name = "idx_travel_plans_discovery", columnList = "plan_type, status, created_at, id"),
+        @Index(name = "idx_travel_plans_updated_at", columnList = "updated_at")
+})
 public class TravelPlan {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -83,6 +86,10 @@ public class TravelPlan {
     @Column(name = "language")
     private String language;
 
+    // Denormalized count of OWNED/APPLIED_ACCEPTED/INVITED_ACCEPTED members; only changed by conditional UPDATEs in TravelPlanRepository
+    @Column(name = "active_member_count", nullable = false, updatable = false)
+    private Integer activeMemberCount = 0;
+
     @Enumerated(EnumType.STRING)
     @Column(name = "status", nullable = false)
     private Status status = Status.NEW;
@@ -202,6 +209,9 @@ public class TravelPlan {
     public String getLanguage() { return language; }
     public void setLanguage(String language) { this.language = language; }
 
+    public Integer getActiveMemberCount() { return activeMemberCount; }
+    public void setActiveMemberCount(Integer activeMemberCount) { this.activeMemberCount = activeMemberCount; }
+
     public Status getStatus() { return status; }
     public void setStatus(Status status) { this.status = status; }
 
@@ -237,14 +247,10 @@ public class TravelPlan {
     public boolean isPending() { return status == Status.NEW; }
     public boolean isCompleted() { return status == Status.COMPLETED; }
     public boolean isCancelled() { return status == Status.CANCELLED; }
-    public int getCurrentMemberCount() {
-        return (int) userPlanStatuses.stream()
-                .filter(ups -> ups.getStatus() == UserPlanStatus.Status.OWNED || 
-                              ups.getStatus() == UserPlanStatus.Status.APPLIED_ACCEPTED ||
-                              ups.getStatus() == UserPlanStatus.Status.INVITED_ACCEPTED)
-                .count();
-    }
+    public int getCurrentMemberCount() { return activeMemberCount == null ? 0 : activeMemberCount; }
     public boolean isFull() { return getCurrentMemberCount() >= maxMembers; }
+    @PrePersist
+    protected void onCreate() { this.updatedAt = LocalDateTime.now(); }
     @PreUpdate
     protected void onUpdate() { this.updatedAt = LocalDateTime.now(); }
 
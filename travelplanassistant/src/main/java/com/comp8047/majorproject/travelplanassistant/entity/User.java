@@ -87,6 +87,10 @@ public class User implements UserDetails {
     @Column(nullable = false)
     private Role role = Role.USER;
     
+    // Batch non-urgent notification emails into a periodic digest
+    @Column(name = "email_digest", nullable = false)
+    private Boolean emailDigest = false;
+    
     // Constructors
     public User() {
         this.createdAt = LocalDateTime.now();
@@ -291,6 +295,14 @@ public class User implements UserDetails {
         this.role = role;
     }
     
+    public Boolean getEmailDigest() {
+        return emailDigest;
+    }
+    
+    public void setEmailDigest(Boolean emailDigest) {
+        this.emailDigest = emailDigest;
+    }
+    
     // Helper methods
     public String getFullName() {
         return firstName + " " + lastName;
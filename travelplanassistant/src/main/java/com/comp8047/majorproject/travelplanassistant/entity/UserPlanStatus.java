@@ -6,7 +6,10 @@ import jakarta.validation.constraints.NotNull;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "user_plan_status")
+@Table(name = "user_plan_status", indexes = {
+        @Index(name = "idx_ups_plan_user", columnList = "travel_plan_id, user_id"),
+        @Index(name = "idx_ups_plan_status", columnList = "travel_plan_id, status")
+})
 public class UserPlanStatus {
     
     @Id
@@ -0,0 +1,20 @@
+package com.comp8047.majorproject.travelplanassistant.repository;
+
+import com.comp8047.majorproject.travelplanassistant.entity.ChatMessageIdBlock;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface ChatMessageIdBlockRepository extends JpaRepository<ChatMessageIdBlock, Integer> {
+
+    // Lock the row so concurrent instances reserve disjoint id blocks
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM ChatMessageIdBlock b WHERE b.id = :id")
+    Optional<ChatMessageIdBlock> findByIdForUpdate(@Param("id") Integer id);
+}
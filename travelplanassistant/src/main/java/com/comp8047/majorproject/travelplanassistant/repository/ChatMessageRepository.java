@@ -3,6 +3,7 @@ package com.comp8047.majorproject.travelplanassistant.repository;
 import com.comp8047.majorproject.travelplanassistant.entity.ChatMessage;
 import com.comp8047.majorproject.travelplanassistant.entity.TravelPlan;
 import com.comp8047.majorproject.travelplanassistant.entity.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -14,9 +15,6 @@ import java.util.List;
 @Repository
 public interface ChatMessageRepository extends JpaRepository<ChatMessage, Long> {
     
-    // Find all messages for a specific travel plan
-    List<ChatMessage> findByTravelPlanOrderByCreatedAtAsc(TravelPlan travelPlan);
-    
     // Find messages for a travel plan after a specific time
     List<ChatMessage> findByTravelPlanAndCreatedAtAfterOrderByCreatedAtAsc(TravelPlan travelPlan, LocalDateTime after);
     
@@ -26,9 +24,21 @@ public interface ChatMessageRepository extends JpaRepository<ChatMessage, Long>
     // Find messages by sender and travel plan
     List<ChatMessage> findBySenderAndTravelPlanOrderByCreatedAtAsc(User sender, TravelPlan travelPlan);
     
-    // Find recent messages for a travel plan (last N messages)
-    @Query("SELECT cm FROM ChatMessage cm WHERE cm.travelPlan = :travelPlan ORDER BY cm.createdAt DESC")
-    List<ChatMessage> findRecentMessagesByTravelPlan(@Param("travelPlan") TravelPlan travelPlan);
+    // Newest messages for a travel plan, newest first; walks idx_chat_messages_plan_id backwards
+    @Query("SELECT cm FROM ChatMessage cm JOIN FETCH cm.sender WHERE cm.travelPlan.id = :planId ORDER BY cm.id DESC")
+    List<ChatMessage> findLatestByTravelPlanId(@Param("planId") Long planId, Pageable pageable);
+    
+    // Messages older than a cursor message id, newest first
+    @Query("SELECT cm FROM ChatMessage cm JOIN FETCH cm.sender WHERE cm.travelPlan.id = :planId AND cm.id < :beforeId ORDER BY cm.id DESC")
+    List<ChatMessage> findByTravelPlanIdBefore(@Param("planId") Long planId, @Param("beforeId") Long beforeId, Pageable pageable);
+    
+    // Messages newer than a cursor message id, oldest first
+    @Query("SELECT cm FROM ChatMessage cm JOIN FETCH cm.sender WHERE cm.travelPlan.id = :planId AND cm.id > :afterId ORDER BY cm.id ASC")
+    List<ChatMessage> findByTravelPlanIdAfter(@Param("planId") Long planId, @Param("afterId") Long afterId, Pageable pageable);
+    
+    // Highest message id, used as a floor when reserving ids ahead of insert
+    @Query("SELECT COALESCE(MAX(cm.id), 0) FROM ChatMessage cm")
+    Long findMaxId();
     
     // Count messages for a travel plan
     long countByTravelPlan(TravelPlan travelPlan);
@@ -1,7 +1,9 @@
 package com.comp8047.majorproject.travelplanassistant.repository;
 
 import com.comp8047.majorproject.travelplanassistant.entity.Notification;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -125,4 +127,29 @@ public interface NotificationRepository extends JpaRepository<Notification, Long
      */
     List<Notification> findByRecipientUserIdAndTravelPlanIdOrderByCreatedAtDesc(
             Long recipientUserId, Long travelPlanId);
+
+    /**
+     * In-app feed page: a user's notifications older than the id cursor, newest first, without digest emails
+     */
+    @Query("SELECT n FROM Notification n WHERE n.recipientUserId = :userId AND n.id < :beforeId " +
+           "AND n.notificationType <> 'DIGEST' ORDER BY n.id DESC")
+    List<Notification> findFeedBefore(@Param("userId") Long userId, @Param("beforeId") Long beforeId, Pageable pageable);
+
+    /**
+     * Count a user's unread in-app notifications
+     */
+    @Query("SELECT COUNT(n) FROM Notification n WHERE n.recipientUserId = :userId AND n.readAt IS NULL " +
+           "AND n.notificationType <> 'DIGEST'")
+    long countUnreadByRecipientUserId(@Param("userId") Long userId);
+
+    // Returns 0 when the notification is not the user's or was already read
+    @Modifying
+    @Query("UPDATE Notification n SET n.readAt = :readAt WHERE n.id = :id AND n.recipientUserId = :userId " +
+           "AND n.readAt IS NULL AND n.notificationType <> 'DIGEST'")
+    int markRead(@Param("id") Long id, @Param("userId") Long userId, @Param("readAt") LocalDateTime readAt);
+
+    @Modifying
+    @Query("UPDATE Notification n SET n.readAt = :readAt WHERE n.recipientUserId = :userId AND n.readAt IS NULL " +
+           "AND n.notificationType <> 'DIGEST'")
+    int markAllRead(@Param("userId") Long userId, @Param("readAt") LocalDateTime readAt);
 }
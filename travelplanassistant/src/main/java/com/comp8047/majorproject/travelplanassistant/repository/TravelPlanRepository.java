@@ -2,12 +2,15 @@ package com.comp8047.majorproject.travelplanassistant.repository;
 
 import com.comp8047.majorproject.travelplanassistant.entity.TravelPlan;
 import com.comp8047.majorproject.travelplanassistant.entity.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -83,18 +86,79 @@ public interface TravelPlanRepository extends JpaRepository<TravelPlan, Long> {
     // Find by plan type and status
     List<TravelPlan> findByPlanTypeAndStatus(TravelPlan.PlanType planType, TravelPlan.Status status);
 
-    // Check if user has any current plan (status NEW or IN_PROGRESS)
-    @Query("SELECT COUNT(tp) > 0 FROM TravelPlan tp JOIN tp.userPlanStatuses ups WHERE ups.user.id = :userId AND tp.status IN ('NEW', 'IN_PROGRESS') AND ups.status IN ('OWNED', 'APPLIED', 'APPLIED_ACCEPTED', 'INVITED', 'INVITED_ACCEPTED')")
-    boolean userHasCurrentPlan(@Param("userId") Long userId);
+    // Plans created or changed after the given time, for the search index refresh on multi-node brokers
+    List<TravelPlan> findByUpdatedAtAfter(LocalDateTime since);
+
+    // Discovery page: public NEW plans the user is eligible for and not yet related to, keyset-paginated on (createdAt, id)
+    @Query("SELECT tp FROM TravelPlan tp JOIN FETCH tp.owner " +
+           "WHERE tp.planType = 'PUBLIC' AND tp.status = 'NEW' " +
+           "AND NOT EXISTS (SELECT 1 FROM UserPlanStatus own WHERE own.travelPlan = tp AND own.user.id = :userId) " +
+           "AND tp.activeMemberCount < tp.maxMembers " +
+           "AND (tp.gender IS NULL OR tp.gender = 'ANY' OR :gender IS NULL OR tp.gender = :gender) " +
+           "AND (:age IS NULL OR ((tp.ageMin IS NULL OR tp.ageMin <= :age) AND (tp.ageMax IS NULL OR tp.ageMax >= :age))) " +
+           "AND (tp.language IS NULL OR TRIM(tp.language) = '' OR LOWER(tp.language) = LOWER(:language)) " +
+           "AND (:cursorCreatedAt IS NULL OR tp.createdAt < :cursorCreatedAt OR (tp.createdAt = :cursorCreatedAt AND tp.id < :cursorId)) " +
+           "ORDER BY tp.createdAt DESC, tp.id DESC")
+    List<TravelPlan> findDiscoveryPlans(@Param("userId") Long userId,
+                                        @Param("gender") TravelPlan.GenderPreference gender,
+                                        @Param("age") Integer age,
+                                        @Param("language") String language,
+                                        @Param("cursorCreatedAt") LocalDateTime cursorCreatedAt,
+                                        @Param("cursorId") Long cursorId,
+                                        Pageable pageable);
+
+    // Take one member slot only if the plan still has room; returns 0 when the plan is already full
+    @Modifying
+    @Query("UPDATE TravelPlan tp SET tp.activeMemberCount = tp.activeMemberCount + 1 WHERE tp.id = :planId AND tp.activeMemberCount < tp.maxMembers")
+    int incrementActiveMemberCountIfNotFull(@Param("planId") Long planId);
+
+    // Reset every drifted active member counter to the real number of active members; returns the number of plans repaired
+    @Modifying
+    @Query("UPDATE TravelPlan tp SET tp.updatedAt = CURRENT_TIMESTAMP, tp.activeMemberCount = " +
+           "(SELECT COUNT(ups) FROM UserPlanStatus ups WHERE ups.travelPlan = tp AND ups.status IN ('OWNED', 'APPLIED_ACCEPTED', 'INVITED_ACCEPTED')) " +
+           "WHERE tp.activeMemberCount <> " +
+           "(SELECT COUNT(ups) FROM UserPlanStatus ups WHERE ups.travelPlan = tp AND ups.status IN ('OWNED', 'APPLIED_ACCEPTED', 'INVITED_ACCEPTED'))")
+    int reconcileActiveMemberCounts();
+
+    // Discovery candidates shared by every user of an eligibility cohort: (id, createdAt, ageMin, ageMax) in discovery order
+    @Query("SELECT tp.id, tp.createdAt, tp.ageMin, tp.ageMax FROM TravelPlan tp " +
+           "WHERE tp.planType = 'PUBLIC' AND tp.status = 'NEW' " +
+           "AND tp.activeMemberCount < tp.maxMembers " +
+           "AND (tp.gender IS NULL OR tp.gender = 'ANY' OR :gender IS NULL OR tp.gender = :gender) " +
+           "AND (tp.language IS NULL OR TRIM(tp.language) = '' OR LOWER(tp.language) = LOWER(:language)) " +
+           "ORDER BY tp.createdAt DESC, tp.id DESC")
+    List<Object[]> findDiscoveryCandidates(@Param("gender") TravelPlan.GenderPreference gender,
+                                           @Param("language") String language,
+                                           Pageable pageable);
+
+    // Load search hits with owner data eagerly loaded
+    @Query("SELECT tp FROM TravelPlan tp JOIN FETCH tp.owner WHERE tp.id IN :ids")
+    List<TravelPlan> findWithOwnerByIdIn(@Param("ids") List<Long> ids);
+
+    // The user's current plans (status NEW or IN_PROGRESS) as [planId, user's status], newest membership first
+    @Query("SELECT tp.id, ups.status FROM TravelPlan tp JOIN tp.userPlanStatuses ups WHERE ups.user.id = :userId AND tp.status IN ('NEW', 'IN_PROGRESS') AND ups.status IN ('OWNED', 'APPLIED', 'APPLIED_ACCEPTED', 'INVITED', 'INVITED_ACCEPTED') ORDER BY ups.id DESC")
+    List<Object[]> findCurrentPlanStatuses(@Param("userId") Long userId);
+
+    // Which of the given users have a current plan, for checking many invitees in one query
+    @Query("SELECT DISTINCT ups.user.id FROM TravelPlan tp JOIN tp.userPlanStatuses ups WHERE ups.user.id IN :userIds AND tp.status IN ('NEW', 'IN_PROGRESS') AND ups.status IN ('OWNED', 'APPLIED', 'APPLIED_ACCEPTED', 'INVITED', 'INVITED_ACCEPTED')")
+    List<Long> findUserIdsWithCurrentPlan(@Param("userIds") Collection<Long> userIds);
     
-    @Query("SELECT tp FROM TravelPlan tp JOIN tp.userPlanStatuses ups WHERE tp.status IN ('NEW', 'IN_PROGRESS') AND ups.user.id = :userId AND ups.status IN ('OWNED', 'APPLIED', 'APPLIED_ACCEPTED', 'INVITED', 'INVITED_ACCEPTED')")
+    @Query("SELECT tp FROM TravelPlan tp JOIN FETCH tp.owner JOIN tp.userPlanStatuses ups WHERE tp.status IN ('NEW', 'IN_PROGRESS') AND ups.user.id = :userId AND ups.status IN ('OWNED', 'APPLIED', 'APPLIED_ACCEPTED', 'INVITED', 'INVITED_ACCEPTED')")
     List<TravelPlan> getCurrentPlans(@Param("userId") Long userId);
 
-    // Find plans starting today that are still NEW
-    @Query("SELECT tp FROM TravelPlan tp WHERE tp.status = 'NEW' AND DATE(tp.startDate) = CURRENT_DATE")
-    List<TravelPlan> findPlansToStartToday();
+    // Ids of NEW plans whose start time has passed, including any missed while the application was down, in id chunks after afterId
+    @Query("SELECT tp.id FROM TravelPlan tp WHERE tp.status = 'NEW' AND tp.startDate <= :now AND tp.id > :afterId ORDER BY tp.id")
+    List<Long> findPlanIdsToStart(@Param("now") LocalDateTime now, @Param("afterId") Long afterId, Pageable pageable);
 
-    // Find plans ending today that are currently IN_PROGRESS
-    @Query("SELECT tp FROM TravelPlan tp WHERE tp.status = 'IN_PROGRESS' AND DATE(tp.endDate) = CURRENT_DATE")
-    List<TravelPlan> findPlansToCompleteToday();
+    // Ids of IN_PROGRESS plans whose end time has passed, in id chunks after afterId
+    @Query("SELECT tp.id FROM TravelPlan tp WHERE tp.status = 'IN_PROGRESS' AND tp.endDate <= :now AND tp.id > :afterId ORDER BY tp.id")
+    List<Long> findPlanIdsToComplete(@Param("now") LocalDateTime now, @Param("afterId") Long afterId, Pageable pageable);
+
+    // Distinct start times of NEW plans in (from, to], a range scan of (status, start_date)
+    @Query("SELECT DISTINCT tp.startDate FROM TravelPlan tp WHERE tp.status = 'NEW' AND tp.startDate > :from AND tp.startDate <= :to")
+    List<LocalDateTime> findStartTimesBetween(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    // Distinct end times of NEW and IN_PROGRESS plans in (from, to], a range scan of (status, end_date)
+    @Query("SELECT DISTINCT tp.endDate FROM TravelPlan tp WHERE tp.status IN ('NEW', 'IN_PROGRESS') AND tp.endDate > :from AND tp.endDate <= :to")
+    List<LocalDateTime> findEndTimesBetween(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
 } 
\ No newline at end of file
@@ -3,12 +3,16 @@ package com.comp8047.majorproject.travelplanassistant.repository;
 import com.comp8047.majorproject.travelplanassistant.entity.TravelPlan;
 import com.comp8047.majorproject.travelplanassistant.entity.User;
 import com.comp8047.majorproject.travelplanassistant.entity.UserPlanStatus;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -223,16 +227,25 @@ public interface UserPlanStatusRepository extends JpaRepository<UserPlanStatus,
     Optional<UserPlanStatus> findByUserAndTravelPlanAndStatus(User user, TravelPlan travelPlan, UserPlanStatus.Status status);
     
     /**
-     * Find pending applications for a travel plan with user data eagerly loaded
+     * Lock the pending applications and invitations for a travel plan and return [userId, status] for each
      */
-    @Query("SELECT ups FROM UserPlanStatus ups JOIN FETCH ups.user WHERE ups.travelPlan = :travelPlan AND ups.status = 'APPLIED'")
-    List<UserPlanStatus> findPendingApplications(@Param("travelPlan") TravelPlan travelPlan);
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT ups.user.id, ups.status FROM UserPlanStatus ups WHERE ups.travelPlan.id = :planId AND ups.status IN ('APPLIED', 'INVITED')")
+    List<Object[]> findPendingForUpdate(@Param("planId") Long planId);
     
     /**
-     * Find pending invitations for a travel plan with user data eagerly loaded
+     * Move every status of a travel plan from one value to another in a single statement; returns the rows changed
      */
-    @Query("SELECT ups FROM UserPlanStatus ups JOIN FETCH ups.user WHERE ups.travelPlan = :travelPlan AND ups.status = 'INVITED'")
-    List<UserPlanStatus> findPendingInvitations(@Param("travelPlan") TravelPlan travelPlan);
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE UserPlanStatus ups SET ups.status = :to, ups.updatedAt = :now WHERE ups.travelPlan.id = :planId AND ups.status = :from")
+    int updateStatusForPlan(@Param("planId") Long planId, @Param("from") UserPlanStatus.Status from,
+                            @Param("to") UserPlanStatus.Status to, @Param("now") LocalDateTime now);
+    
+    /**
+     * Existing statuses of the given users on a travel plan as [userId, status]
+     */
+    @Query("SELECT ups.user.id, ups.status FROM UserPlanStatus ups WHERE ups.travelPlan.id = :planId AND ups.user.id IN :userIds")
+    List<Object[]> findStatusesByPlanIdAndUserIds(@Param("planId") Long planId, @Param("userIds") Collection<Long> userIds);
     
     /**
      * Find accepted members for a travel plan with user data eagerly loaded
@@ -288,6 +301,30 @@ public interface UserPlanStatusRepository extends JpaRepository<UserPlanStatus,
     @Query("SELECT ups FROM UserPlanStatus ups WHERE ups.user.email = :email AND ups.travelPlan = :travelPlan")
     Optional<UserPlanStatus> findByUserEmailAndTravelPlan(@Param("email") String email, @Param("travelPlan") TravelPlan travelPlan);
     
+    /**
+     * Find statuses for a batch of travel plans with user data eagerly loaded (member hydration for plan lists)
+     */
+    @Query("SELECT ups FROM UserPlanStatus ups JOIN FETCH ups.user WHERE ups.travelPlan.id IN :planIds AND ups.status IN :statuses ORDER BY ups.id")
+    List<UserPlanStatus> findByTravelPlanIdsWithUser(@Param("planIds") List<Long> planIds, @Param("statuses") List<UserPlanStatus.Status> statuses);
+    
+    /**
+     * Find every travel plan the user has any status for
+     */
+    @Query("SELECT ups.travelPlan.id FROM UserPlanStatus ups WHERE ups.user.id = :userId")
+    List<Long> findPlanIdsByUserId(@Param("userId") Long userId);
+    
+    /**
+     * Find which of the given travel plans the user already has any status for
+     */
+    @Query("SELECT ups.travelPlan.id FROM UserPlanStatus ups WHERE ups.user.id = :userId AND ups.travelPlan.id IN :planIds")
+    List<Long> findRelatedPlanIds(@Param("userId") Long userId, @Param("planIds") List<Long> planIds);
+    
+    /**
+     * Find a user's memberships in COMPLETED or CANCELLED plans with plan and owner eagerly loaded
+     */
+    @Query("SELECT ups FROM UserPlanStatus ups JOIN FETCH ups.travelPlan tp JOIN FETCH tp.owner WHERE ups.user = :user AND tp.status IN ('COMPLETED', 'CANCELLED') AND ups.status IN ('OWNED', 'APPLIED_ACCEPTED', 'INVITED_ACCEPTED')")
+    List<UserPlanStatus> findHistoryMemberships(@Param("user") User user);
+    
     /**
      * Check if user has any current plan
      */
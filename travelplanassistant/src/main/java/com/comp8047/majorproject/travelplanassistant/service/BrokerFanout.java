@@ -0,0 +1,278 @@
+package com.comp8047.majorproject.travelplanassistant.service;
+
+import com.comp8047.majorproject.travelplanassistant.config.WebSocketConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.lang.NonNull;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.AbstractSubscribableChannel;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cross-node fanout for broker mode DATABASE: every node keeps its in-process simple broker, and messages
+ * published to /topic on one node are relayed to the others through the broker_fanout_messages table.
+ * A single background thread batch-inserts this node's messages and polls for rows written by other nodes,
+ * delivering them to the local broker. Rows are deleted once older than the retention window.
+ */
+@Component
+public class BrokerFanout implements ChannelInterceptor {
+
+    /**
+     * Header marking a message delivered from another node, so it is not relayed again
+     */
+    public static final String ORIGIN_HEADER = "fanoutOrigin";
+
+    private static final String TOPIC_PREFIX = "/topic/";
+
+    private static final String INSERT_SQL = "INSERT INTO broker_fanout_messages "
+            + "(origin, destination, content_type, payload, created_at) VALUES (?, ?, ?, ?, ?)";
+    private static final String SELECT_SQL = "SELECT id, origin, destination, content_type, payload "
+            + "FROM broker_fanout_messages WHERE id > ? ORDER BY id LIMIT ?";
+    private static final String DELETE_SQL = "DELETE FROM broker_fanout_messages WHERE created_at < ?";
+
+    // How long a missing id may hold back the cursor before it is taken as a rolled back insert
+    private static final long GAP_TIMEOUT_MS = 2000;
+    private static final long CLEANUP_INTERVAL_MS = 10000;
+
+    private record OutgoingMessage(String destination, String contentType, String payload, LocalDateTime createdAt) {}
+
+    private record FanoutRow(long id, String origin, String destination, String contentType, String payload) {}
+
+    private static final RowMapper<FanoutRow> ROW_MAPPER = (rs, rowNum) -> new FanoutRow(rs.getLong("id"),
+            rs.getString("origin"), rs.getString("destination"), rs.getString("content_type"), rs.getString("payload"));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AbstractSubscribableChannel brokerChannel;
+    private final boolean enabled;
+    private final long pollIntervalMs;
+    private final long retentionSeconds;
+    private final int batchSize;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final BlockingQueue<OutgoingMessage> outgoing;
+
+    private final Counter published;
+    private final Counter received;
+    private final Counter dropped;
+
+    // Only touched by the fanout thread
+    private long cursor;
+    private long gapSince;
+    private final Set<Long> deliveredPastGap = new HashSet<>();
+    private long lastCleanup;
+
+    private volatile boolean running;
+    private Thread fanoutThread;
+
+    @Autowired
+    public BrokerFanout(JdbcTemplate jdbcTemplate,
+                        @Qualifier("brokerChannel") AbstractSubscribableChannel brokerChannel,
+                        MeterRegistry meterRegistry,
+                        @Value("${app.websocket.broker.mode:SIMPLE}") WebSocketConfig.BrokerMode brokerMode,
+                        @Value("${app.websocket.broker.fanout.poll-interval-ms:100}") long pollIntervalMs,
+                        @Value("${app.websocket.broker.fanout.retention-seconds:60}") long retentionSeconds,
+                        @Value("${app.websocket.broker.fanout.queue-capacity:10000}") int queueCapacity,
+                        @Value("${app.websocket.broker.fanout.batch-size:200}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.brokerChannel = brokerChannel;
+        this.enabled = brokerMode == WebSocketConfig.BrokerMode.DATABASE;
+        this.pollIntervalMs = pollIntervalMs;
+        this.retentionSeconds = retentionSeconds;
+        this.batchSize = batchSize;
+        this.outgoing = new ArrayBlockingQueue<>(queueCapacity);
+        this.published = Counter.builder("broker.fanout.messages").tag("result", "published")
+                .description("Broker messages relayed between app nodes").register(meterRegistry);
+        this.received = Counter.builder("broker.fanout.messages").tag("result", "received")
+                .description("Broker messages relayed between app nodes").register(meterRegistry);
+        this.dropped = Counter.builder("broker.fanout.messages").tag("result", "dropped")
+                .description("Broker messages relayed between app nodes").register(meterRegistry);
+        Gauge.builder("broker.fanout.queue.size", outgoing, BlockingQueue::size)
+                .description("Broker messages waiting to be relayed to other nodes").register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        // Only relay what is published from now on
+        Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM broker_fanout_messages", Long.class);
+        cursor = maxId != null ? maxId : 0;
+        brokerChannel.addInterceptor(this);
+        running = true;
+        fanoutThread = new Thread(this::fanoutLoop, "broker-fanout");
+        fanoutThread.setDaemon(true);
+        fanoutThread.start();
+        System.out.println("Broker fanout started on node " + nodeId);
+    }
+
+    /**
+     * Stop relaying, after publishing whatever is still queued
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (fanoutThread == null) {
+            return;
+        }
+        brokerChannel.removeInterceptor(this);
+        running = false;
+        fanoutThread.join(pollIntervalMs * 10);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Queue each message this node publishes to /topic for the other nodes
+     */
+    @Override
+    public Message<?> preSend(@NonNull Message<?> message, @NonNull MessageChannel channel) {
+        MessageHeaders headers = message.getHeaders();
+        String destination = SimpMessageHeaderAccessor.getDestination(headers);
+        if (SimpMessageHeaderAccessor.getMessageType(headers) != SimpMessageType.MESSAGE
+                || headers.containsKey(ORIGIN_HEADER)
+                || destination == null || !destination.startsWith(TOPIC_PREFIX)
+                || !(message.getPayload() instanceof byte[] payload)) {
+            return message;
+        }
+        Object contentType = headers.get(MessageHeaders.CONTENT_TYPE);
+        OutgoingMessage relayed = new OutgoingMessage(destination, contentType != null ? contentType.toString() : null,
+                new String(payload, StandardCharsets.UTF_8), LocalDateTime.now());
+        if (!outgoing.offer(relayed)) {
+            dropped.increment();
+            System.err.println("Broker fanout queue is full, message to " + destination + " reaches this node only");
+        }
+        return message;
+    }
+
+    private void fanoutLoop() {
+        List<OutgoingMessage> batch = new ArrayList<>(batchSize);
+        while (running || !outgoing.isEmpty()) {
+            try {
+                // Waiting on the queue doubles as the poll interval, so local sends go out without delay
+                OutgoingMessage first = outgoing.poll(pollIntervalMs, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    outgoing.drainTo(batch, batchSize - 1);
+                    publish(batch);
+                }
+                receive();
+                cleanUp();
+            } catch (InterruptedException e) {
+                // Keep going; stop() ends the loop once the queue is empty
+            } catch (RuntimeException e) {
+                System.err.println("Broker fanout failed: " + e.getMessage());
+                sleepQuietly(pollIntervalMs);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void publish(List<OutgoingMessage> batch) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, batch, batch.size(), (statement, message) -> {
+            statement.setString(1, nodeId);
+            statement.setString(2, message.destination());
+            statement.setString(3, message.contentType());
+            statement.setString(4, message.payload());
+            statement.setTimestamp(5, Timestamp.valueOf(message.createdAt()));
+        });
+        published.increment(batch.size());
+    }
+
+    /**
+     * Deliver rows published by other nodes since the cursor. Ids from concurrent inserts on different
+     * nodes can commit out of order, so the cursor stops at a missing id until it shows up or times out;
+     * rows past the gap are delivered once and remembered so the re-read does not repeat them.
+     */
+    private void receive() {
+        List<FanoutRow> rows = jdbcTemplate.query(SELECT_SQL, ROW_MAPPER, cursor, batchSize);
+        long now = System.currentTimeMillis();
+        boolean contiguous = true;
+        for (FanoutRow row : rows) {
+            if (contiguous && row.id() != cursor + 1) {
+                if (gapSince == 0) {
+                    gapSince = now;
+                }
+                if (now - gapSince < GAP_TIMEOUT_MS) {
+                    contiguous = false;
+                } else {
+                    gapSince = 0;
+                }
+            }
+            if (contiguous) {
+                cursor = row.id();
+                if (!deliveredPastGap.remove(row.id())) {
+                    deliver(row);
+                }
+            } else if (deliveredPastGap.add(row.id())) {
+                deliver(row);
+            }
+        }
+        if (contiguous) {
+            gapSince = 0;
+        }
+    }
+
+    private void deliver(FanoutRow row) {
+        if (nodeId.equals(row.origin())) {
+            return;
+        }
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination(row.destination());
+        if (row.contentType() != null) {
+            accessor.setContentType(MimeTypeUtils.parseMimeType(row.contentType()));
+        }
+        accessor.setHeader(ORIGIN_HEADER, row.origin());
+        brokerChannel.send(MessageBuilder.createMessage(row.payload().getBytes(StandardCharsets.UTF_8), accessor.getMessageHeaders()));
+        received.increment();
+    }
+
+    private void cleanUp() {
+        long now = System.currentTimeMillis();
+        if (now - lastCleanup < CLEANUP_INTERVAL_MS) {
+            return;
+        }
+        lastCleanup = now;
+        jdbcTemplate.update(DELETE_SQL, Timestamp.valueOf(LocalDateTime.now().minusSeconds(retentionSeconds)));
+    }
+
+    private void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
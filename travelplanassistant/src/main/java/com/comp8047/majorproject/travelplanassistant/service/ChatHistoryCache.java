@@ -0,0 +1,193 @@
+package com.comp8047.majorproject.travelplanassistant.service;
+
+import com.comp8047.majorproject.travelplanassistant.dto.ChatMessageResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Per-plan ring buffer of the newest chat messages, so opening or reconnecting to an active room
+ * does not read history from the database. Rooms are loaded lazily on a miss, appended to on send,
+ * and the least recently used rooms are dropped once the total number of buffered messages
+ * exceeds the global cap. Only appends made on this node are seen, so the buffer is switched off
+ * unless the in-process simple broker is used (a single node).
+ */
+@Component
+public class ChatHistoryCache {
+
+    private static final int LOAD_STRIPES = 64;
+
+    private final int messagesPerRoom;
+    private final int maxMessages;
+    private final boolean enabled;
+
+    private final Counter hits;
+    private final Counter misses;
+
+    // Access-ordered so the least recently used room is dropped first
+    private final LinkedHashMap<Long, Room> rooms = new LinkedHashMap<>(16, 0.75f, true);
+
+    private int totalMessages;
+
+    // Bumped on every write to a plan's stripe; a load only installs if its stripe did not move meanwhile
+    private final AtomicLongArray writeStamps = new AtomicLongArray(LOAD_STRIPES);
+
+    @Autowired
+    public ChatHistoryCache(MeterRegistry meterRegistry,
+                            @Value("${app.chat.cache.messages-per-room:200}") int messagesPerRoom,
+                            @Value("${app.chat.cache.max-messages:50000}") int maxMessages,
+                            @Value("#{'${app.websocket.broker.mode:SIMPLE}' == 'SIMPLE'}") boolean enabled) {
+        this.messagesPerRoom = messagesPerRoom;
+        this.maxMessages = maxMessages;
+        this.enabled = enabled;
+        this.hits = Counter.builder("chat.history.cache.requests").tag("result", "hit")
+                .description("Chat history cache lookups").register(meterRegistry);
+        this.misses = Counter.builder("chat.history.cache.requests").tag("result", "miss")
+                .description("Chat history cache lookups").register(meterRegistry);
+        Gauge.builder("chat.history.cache.rooms", this, ChatHistoryCache::size)
+                .description("Chat rooms held in the history cache").register(meterRegistry);
+        Gauge.builder("chat.history.cache.messages", this, ChatHistoryCache::messageCount)
+                .description("Chat messages held in the history cache").register(meterRegistry);
+    }
+
+    /**
+     * Buffered messages for one room, oldest first; complete is true when the room has no older messages
+     */
+    private static final class Room {
+        private final ArrayDeque<ChatMessageResponse> messages = new ArrayDeque<>();
+        private boolean complete;
+    }
+
+    /**
+     * Number of newest messages loaded into a room on a miss
+     */
+    public int getMessagesPerRoom() {
+        return messagesPerRoom;
+    }
+
+    /**
+     * Get up to count messages older than beforeId (or the newest when beforeId is null), newest first.
+     * Empty when the buffer cannot answer authoritatively and the caller must read the database.
+     */
+    public synchronized Optional<List<ChatMessageResponse>> getLatest(Long planId, Long beforeId, int count) {
+        Room room = rooms.get(planId);
+        if (room == null) {
+            misses.increment();
+            return Optional.empty();
+        }
+        List<ChatMessageResponse> result = new ArrayList<>(Math.min(count, room.messages.size()));
+        Iterator<ChatMessageResponse> newestFirst = room.messages.descendingIterator();
+        while (newestFirst.hasNext() && result.size() < count) {
+            ChatMessageResponse message = newestFirst.next();
+            if (beforeId == null || message.getId() < beforeId) {
+                result.add(message);
+            }
+        }
+        if (result.size() < count && !room.complete) {
+            misses.increment();
+            return Optional.empty();
+        }
+        hits.increment();
+        return Optional.of(result);
+    }
+
+    /**
+     * Stamp to pass to load; taken before reading the database
+     */
+    public long loadStamp(Long planId) {
+        return writeStamps.get(stripe(planId));
+    }
+
+    /**
+     * Install the newest messages of a room (newest first) read from the database.
+     * Skipped if the room is already loaded or a write raced with the read.
+     */
+    public synchronized void load(Long planId, List<ChatMessageResponse> newestFirst, boolean complete, long stamp) {
+        if (!enabled || rooms.containsKey(planId) || writeStamps.get(stripe(planId)) != stamp) {
+            return;
+        }
+        Room room = new Room();
+        for (int i = Math.min(newestFirst.size(), messagesPerRoom) - 1; i >= 0; i--) {
+            room.messages.addLast(newestFirst.get(i));
+        }
+        room.complete = complete && newestFirst.size() <= messagesPerRoom;
+        rooms.put(planId, room);
+        totalMessages += room.messages.size();
+        evictIdleRooms();
+    }
+
+    /**
+     * Add a newly sent message to its room, if the room is loaded
+     */
+    public synchronized void append(ChatMessageResponse message) {
+        Long planId = message.getTravelPlanId();
+        writeStamps.incrementAndGet(stripe(planId));
+        Room room = rooms.get(planId);
+        if (room == null) {
+            return;
+        }
+        // Sends can commit out of id order, so insert by id and skip a message the load already saw
+        List<ChatMessageResponse> newer = new ArrayList<>();
+        while (!room.messages.isEmpty() && room.messages.peekLast().getId() >= message.getId()) {
+            newer.add(room.messages.pollLast());
+        }
+        boolean duplicate = !newer.isEmpty() && newer.get(newer.size() - 1).getId().equals(message.getId());
+        if (!duplicate) {
+            room.messages.addLast(message);
+            totalMessages++;
+        }
+        for (int i = newer.size() - 1; i >= 0; i--) {
+            room.messages.addLast(newer.get(i));
+        }
+        if (room.messages.size() > messagesPerRoom) {
+            room.messages.pollFirst();
+            room.complete = false;
+            totalMessages--;
+        }
+        evictIdleRooms();
+    }
+
+    /**
+     * Drop a deleted message from its room
+     */
+    public synchronized void remove(Long planId, Long messageId) {
+        writeStamps.incrementAndGet(stripe(planId));
+        Room room = rooms.get(planId);
+        if (room != null && room.messages.removeIf(message -> message.getId().equals(messageId))) {
+            totalMessages--;
+        }
+    }
+
+    public synchronized int size() {
+        return rooms.size();
+    }
+
+    public synchronized int messageCount() {
+        return totalMessages;
+    }
+
+    private void evictIdleRooms() {
+        Iterator<Map.Entry<Long, Room>> eldest = rooms.entrySet().iterator();
+        // Always keep the most recently used room even if it alone exceeds the cap
+        while (totalMessages > maxMessages && rooms.size() > 1 && eldest.hasNext()) {
+            totalMessages -= eldest.next().getValue().messages.size();
+            eldest.remove();
+        }
+    }
+
+    private static int stripe(Long planId) {
+        return (int) Math.floorMod(planId, (long) LOAD_STRIPES);
+    }
+}
@@ -0,0 +1,139 @@
+package com.comp8047.majorproject.travelplanassistant.service;
+
+import com.comp8047.majorproject.travelplanassistant.entity.UserPlanStatus;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Chat membership of users with an open STOMP session, so chat sends and reads do not repeat the
+ * plan and membership lookups. Entries are filled at SUBSCRIBE or first use, live as long as the
+ * user has a session open, and are invalidated when TravelPlanService changes a membership.
+ * Invalidation is node-local, so nothing is cached unless the in-process simple broker is used (a single node).
+ */
+@Component
+public class ChatMembershipCache {
+
+    private static final int INVALIDATION_STRIPES = 64;
+
+    /**
+     * Cached membership; status is null when the user has no relationship with the plan
+     */
+    public record Membership(UserPlanStatus.Status status) {}
+
+    // sessionId -> userId
+    private final Map<String, Long> sessionUsers = new ConcurrentHashMap<>();
+
+    // userId -> open session ids
+    private final Map<Long, Set<String>> userSessions = new ConcurrentHashMap<>();
+
+    // userId -> (planId -> membership)
+    private final Map<Long, Map<Long, Membership>> memberships = new ConcurrentHashMap<>();
+
+    // Bumped on every invalidation of a user's stripe; a put only lands if its stripe did not move meanwhile
+    private final AtomicLongArray invalidationStamps = new AtomicLongArray(INVALIDATION_STRIPES);
+
+    private final boolean enabled;
+
+    @Autowired
+    public ChatMembershipCache(@Value("#{'${app.websocket.broker.mode:SIMPLE}' == 'SIMPLE'}") boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Track a newly authenticated STOMP session
+     */
+    public void sessionOpened(String sessionId, Long userId) {
+        sessionUsers.put(sessionId, userId);
+        userSessions.compute(userId, (id, sessions) -> {
+            Set<String> open = sessions != null ? sessions : ConcurrentHashMap.newKeySet();
+            open.add(sessionId);
+            return open;
+        });
+    }
+
+    /**
+     * Forget a closed session, and the user's memberships once their last session is gone
+     */
+    public void sessionClosed(String sessionId) {
+        Long userId = sessionUsers.remove(sessionId);
+        if (userId == null) {
+            return;
+        }
+        userSessions.computeIfPresent(userId, (id, sessions) -> {
+            sessions.remove(sessionId);
+            if (sessions.isEmpty()) {
+                memberships.remove(userId);
+                return null;
+            }
+            return sessions;
+        });
+    }
+
+    @EventListener
+    public void onSessionDisconnect(SessionDisconnectEvent event) {
+        sessionClosed(event.getSessionId());
+    }
+
+    @EventListener
+    public void onMembershipChanged(PlanEventPublisher.MembershipChangedEvent event) {
+        invalidate(event.userId(), event.planId());
+    }
+
+    /**
+     * Get the cached membership, or null on a miss
+     */
+    public Membership get(Long userId, Long planId) {
+        Map<Long, Membership> plans = memberships.get(userId);
+        return plans == null ? null : plans.get(planId);
+    }
+
+    /**
+     * Stamp to pass to put; taken before reading the membership from the database
+     */
+    public long stamp(Long userId) {
+        return invalidationStamps.get(stripe(userId));
+    }
+
+    /**
+     * Cache a membership read from the database. Only users with an open session are cached,
+     * and the value is dropped if the membership changed after the stamp was taken.
+     */
+    public void put(Long userId, Long planId, Membership membership, long stamp) {
+        if (!enabled) {
+            return;
+        }
+        userSessions.computeIfPresent(userId, (id, sessions) -> {
+            if (invalidationStamps.get(stripe(userId)) == stamp) {
+                memberships.computeIfAbsent(userId, key -> new ConcurrentHashMap<>()).put(planId, membership);
+            }
+            return sessions;
+        });
+    }
+
+    /**
+     * Drop a user's cached membership of a plan
+     */
+    public void invalidate(Long userId, Long planId) {
+        invalidationStamps.incrementAndGet(stripe(userId));
+        Map<Long, Membership> plans = memberships.get(userId);
+        if (plans != null) {
+            plans.remove(planId);
+        }
+    }
+
+    public int sessionCount() {
+        return sessionUsers.size();
+    }
+
+    private static int stripe(Long userId) {
+        return (int) Math.floorMod(userId, (long) INVALIDATION_STRIPES);
+    }
+}
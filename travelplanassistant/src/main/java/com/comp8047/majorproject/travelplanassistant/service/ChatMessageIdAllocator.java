@@ -0,0 +1,74 @@
+package com.comp8047.majorproject.travelplanassistant.service;
+
+import com.comp8047.majorproject.travelplanassistant.entity.ChatMessageIdBlock;
+import com.comp8047.majorproject.travelplanassistant.repository.ChatMessageIdBlockRepository;
+import com.comp8047.majorproject.travelplanassistant.repository.ChatMessageRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Hands out chat message ids before the row is written, so a message can be broadcast before it is persisted.
+ * Ids come from blocks reserved in chat_message_id_blocks; every block starts above the current max id,
+ * so ids never collide with rows inserted through the identity column. Ids are unique across instances, but
+ * each instance hands out its own block, so only a single instance keeps ids in send order; ChatWriteBehindWriter
+ * is therefore limited to broker mode SIMPLE.
+ */
+@Component
+public class ChatMessageIdAllocator {
+
+    private final ChatMessageIdBlockRepository chatMessageIdBlockRepository;
+    private final ChatMessageRepository chatMessageRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int blockSize;
+
+    // Current block is [nextId, blockEnd)
+    private long nextId;
+    private long blockEnd;
+
+    @Autowired
+    public ChatMessageIdAllocator(ChatMessageIdBlockRepository chatMessageIdBlockRepository,
+                                  ChatMessageRepository chatMessageRepository,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${app.chat.write-behind.id-block-size:1000}") int blockSize) {
+        this.chatMessageIdBlockRepository = chatMessageIdBlockRepository;
+        this.chatMessageRepository = chatMessageRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * Next unused chat message id
+     */
+    public synchronized long nextId() {
+        if (nextId >= blockEnd) {
+            nextId = reserveBlock();
+            blockEnd = nextId + blockSize;
+        }
+        return nextId++;
+    }
+
+    private long reserveBlock() {
+        try {
+            return transactionTemplate.execute(status -> advanceBlock());
+        } catch (DataIntegrityViolationException e) {
+            // Another instance created the block row first; its row lock now serializes us
+            return transactionTemplate.execute(status -> advanceBlock());
+        }
+    }
+
+    private long advanceBlock() {
+        long floor = chatMessageRepository.findMaxId() + 1;
+        ChatMessageIdBlock block = chatMessageIdBlockRepository.findByIdForUpdate(ChatMessageIdBlock.CHAT_MESSAGES)
+                .orElseGet(() -> new ChatMessageIdBlock(ChatMessageIdBlock.CHAT_MESSAGES, floor));
+        long first = Math.max(block.getNextId(), floor);
+        block.setNextId(first + blockSize);
+        chatMessageIdBlockRepository.saveAndFlush(block);
+        return first;
+    }
+}
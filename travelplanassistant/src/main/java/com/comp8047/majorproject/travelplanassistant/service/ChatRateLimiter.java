@@ -0,0 +1,150 @@
+package com.comp8047.majorproject.travelplanassistant.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token-bucket limits on STOMP SENDs, per session and per chat room. Enforced by the inbound channel
+ * interceptor before the frame reaches the chat controller; a rejected frame is answered with a STOMP ERROR.
+ * Buckets are updated with a single compare-and-set, so the check takes no locks. Limits are per node.
+ */
+@Component
+public class ChatRateLimiter {
+
+    private static final String CHAT_DESTINATION_PREFIX = "/app/chat/";
+
+    /**
+     * Thrown for a SEND over its session or room limit; the message is shown to the client
+     */
+    public static class RateLimitExceededException extends IllegalStateException {
+        public RateLimitExceededException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Token bucket kept as the time at which it will be full again (the GCRA form), so taking a token
+     * is one compare-and-set on a single long
+     */
+    static final class TokenBucket {
+        private final long intervalNanos;
+        private final long burstNanos;
+        private final AtomicLong fullAt;
+
+        TokenBucket(int burst, double refillPerSecond, long now) {
+            this.intervalNanos = (long) (1_000_000_000L / refillPerSecond);
+            this.burstNanos = burst * intervalNanos;
+            this.fullAt = new AtomicLong(now);
+        }
+
+        boolean tryAcquire(long now) {
+            while (true) {
+                long current = fullAt.get();
+                long next = Math.max(current, now) + intervalNanos;
+                if (next - now > burstNanos) {
+                    return false;
+                }
+                if (fullAt.compareAndSet(current, next)) {
+                    return true;
+                }
+            }
+        }
+
+        boolean isFull(long now) {
+            return fullAt.get() - now <= 0;
+        }
+    }
+
+    private final boolean enabled;
+    private final int sessionBurst;
+    private final double sessionRefillPerSecond;
+    private final int roomBurst;
+    private final double roomRefillPerSecond;
+
+    private final Map<String, TokenBucket> sessionBuckets = new ConcurrentHashMap<>();
+    private final Map<Long, TokenBucket> roomBuckets = new ConcurrentHashMap<>();
+
+    private final Counter sessionRejected;
+    private final Counter roomRejected;
+
+    @Autowired
+    public ChatRateLimiter(MeterRegistry meterRegistry,
+                           @Value("${app.chat.rate-limit.enabled:true}") boolean enabled,
+                           @Value("${app.chat.rate-limit.session.burst:20}") int sessionBurst,
+                           @Value("${app.chat.rate-limit.session.refill-per-second:5}") double sessionRefillPerSecond,
+                           @Value("${app.chat.rate-limit.room.burst:100}") int roomBurst,
+                           @Value("${app.chat.rate-limit.room.refill-per-second:30}") double roomRefillPerSecond) {
+        this.enabled = enabled;
+        this.sessionBurst = sessionBurst;
+        this.sessionRefillPerSecond = sessionRefillPerSecond;
+        this.roomBurst = roomBurst;
+        this.roomRefillPerSecond = roomRefillPerSecond;
+        this.sessionRejected = Counter.builder("chat.rate_limit.rejected").tag("scope", "session")
+                .description("STOMP sends rejected by the rate limiter").register(meterRegistry);
+        this.roomRejected = Counter.builder("chat.rate_limit.rejected").tag("scope", "room")
+                .description("STOMP sends rejected by the rate limiter").register(meterRegistry);
+        Gauge.builder("chat.rate_limit.buckets", this, ChatRateLimiter::bucketCount)
+                .description("Active rate limit buckets").register(meterRegistry);
+    }
+
+    /**
+     * Take a token for a SEND from the session's bucket and, for chat destinations, the room's bucket
+     */
+    public void checkSend(String sessionId, String destination) {
+        checkSend(sessionId, destination, System.nanoTime());
+    }
+
+    void checkSend(String sessionId, String destination, long now) {
+        if (!enabled) {
+            return;
+        }
+        if (sessionId != null && !bucket(sessionBuckets, sessionId, sessionBurst, sessionRefillPerSecond, now).tryAcquire(now)) {
+            sessionRejected.increment();
+            throw new RateLimitExceededException("Too many messages, please slow down");
+        }
+        Long planId = chatPlanId(destination);
+        if (planId != null && !bucket(roomBuckets, planId, roomBurst, roomRefillPerSecond, now).tryAcquire(now)) {
+            roomRejected.increment();
+            throw new RateLimitExceededException("This chat room is busy, please try again shortly");
+        }
+    }
+
+    /**
+     * Drop buckets that have refilled completely; a new one starts full, so nothing is lost
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void evictIdleBuckets() {
+        long now = System.nanoTime();
+        sessionBuckets.values().removeIf(bucket -> bucket.isFull(now));
+        roomBuckets.values().removeIf(bucket -> bucket.isFull(now));
+    }
+
+    public int bucketCount() {
+        return sessionBuckets.size() + roomBuckets.size();
+    }
+
+    private static <K> TokenBucket bucket(Map<K, TokenBucket> buckets, K key, int burst, double refillPerSecond, long now) {
+        TokenBucket bucket = buckets.get(key);
+        return bucket != null ? bucket : buckets.computeIfAbsent(key, k -> new TokenBucket(burst, refillPerSecond, now));
+    }
+
+    private static Long chatPlanId(String destination) {
+        if (destination == null || !destination.startsWith(CHAT_DESTINATION_PREFIX)) {
+            return null;
+        }
+        try {
+            return Long.valueOf(destination.substring(CHAT_DESTINATION_PREFIX.length()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
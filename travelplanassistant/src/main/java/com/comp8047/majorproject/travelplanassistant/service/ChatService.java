@@ -1,5 +1,6 @@
 package com.comp8047.majorproject.travelplanassistant.service;
 
+import com.comp8047.majorproject.travelplanassistant.dto.ChatHistoryPageResponse;
 import com.comp8047.majorproject.travelplanassistant.dto.ChatMessageRequest;
 import com.comp8047.majorproject.travelplanassistant.dto.ChatMessageResponse;
 import com.comp8047.majorproject.travelplanassistant.entity.ChatMessage;
@@ -10,18 +11,36 @@ import com.comp8047.majorproject.travelplanassistant.repository.ChatMessageRepos
 import com.comp8047.majorproject.travelplanassistant.repository.TravelPlanRepository;
 import com.comp8047.majorproject.travelplanassistant.repository.UserPlanStatusRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 @Service
 @Transactional
 public class ChatService {
     
+    private static final int DEFAULT_HISTORY_PAGE_SIZE = 50;
+    private static final int MAX_HISTORY_PAGE_SIZE = 100;
+    
     @Autowired
     private ChatMessageRepository chatMessageRepository;
     
@@ -31,113 +50,189 @@ public class ChatService {
     @Autowired
     private UserPlanStatusRepository userPlanStatusRepository;
     
+    @Autowired
+    private ChatHistoryCache chatHistoryCache;
+    
+    @Autowired
+    private ChatWriteBehindWriter chatWriteBehindWriter;
+    
+    @Autowired
+    private ChatMessageIdAllocator chatMessageIdAllocator;
+    
+    @Autowired
+    private ChatMembershipCache chatMembershipCache;
+    
+    // Lazy because the WebSocket configuration depends on this service through TopicSubscriptionGuard
+    @Autowired
+    @Lazy
+    private SimpMessagingTemplate messagingTemplate;
+    
     /**
-     * Send a chat message
+     * A message queued with the write-behind writer; persisted completes once it is committed or has failed
      */
+    private record UnflushedMessage(ChatMessageResponse response, CompletableFuture<Void> persisted) {}
+    
+    // Messages queued with the write-behind writer and not yet committed, by id
+    private final Map<Long, UnflushedMessage> unflushedMessages = new ConcurrentHashMap<>();
+    
+    /**
+     * Send a chat message and add it to the room's recent history buffer once it is committed or queued
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
     public ChatMessageResponse sendMessage(Long planId, ChatMessageRequest request, User sender) {
-        Optional<TravelPlan> planOpt = travelPlanRepository.findById(planId);
-        if (planOpt.isEmpty()) {
-            throw new IllegalArgumentException("Travel plan not found");
-        }
-        
-        TravelPlan plan = planOpt.get();
-        
-        // Check if user is a member of the plan
-        Optional<UserPlanStatus> userStatusOpt = userPlanStatusRepository.findByUserAndTravelPlan(sender, plan);
-        if (userStatusOpt.isEmpty()) {
-            throw new IllegalStateException("User is not a member of this travel plan");
+        // Check if user is an active member of the plan
+        UserPlanStatus.Status status = requireMembership(planId, sender);
+        if (!isActiveMember(status)) {
+            throw new IllegalStateException("User is not an active member of this travel plan");
         }
         
-        UserPlanStatus userStatus = userStatusOpt.get();
-        if (!isActiveMember(userStatus.getStatus())) {
-            throw new IllegalStateException("User is not an active member of this travel plan");
+        if (chatWriteBehindWriter.isEnabled()) {
+            return queueMessage(planId, request, sender);
         }
         
         ChatMessage message = new ChatMessage();
         message.setContent(request.getContent());
         message.setMessageType(request.getMessageType());
-        message.setTravelPlan(plan);
+        // The membership check already loaded the plan or proved it exists
+        message.setTravelPlan(travelPlanRepository.getReferenceById(planId));
         message.setSender(sender);
         
         ChatMessage savedMessage = chatMessageRepository.save(message);
         
-        return convertToResponse(savedMessage);
+        ChatMessageResponse response = convertToResponse(savedMessage);
+        TransactionCallbacks.afterCommit(() -> chatHistoryCache.append(response));
+        return response;
+    }
+    
+    /**
+     * Assign the message id up front and hand the insert to the write-behind writer
+     */
+    private ChatMessageResponse queueMessage(Long planId, ChatMessageRequest request, User sender) {
+        ChatMessageResponse response = new ChatMessageResponse();
+        response.setId(chatMessageIdAllocator.nextId());
+        response.setContent(request.getContent());
+        response.setMessageType(request.getMessageType() != null ? request.getMessageType() : ChatMessage.MessageType.TEXT);
+        response.setUserId(sender.getId());
+        response.setUserName(sender.getFirstName() + " " + sender.getLastName());
+        response.setUserAvatar(sender.getProfilePicture());
+        response.setTravelPlanId(planId);
+        response.setCreatedAt(LocalDateTime.now());
+        
+        Long id = response.getId();
+        UnflushedMessage unflushed = new UnflushedMessage(response, new CompletableFuture<>());
+        unflushedMessages.put(id, unflushed);
+        // Appended before the insert can fail, so a failed insert always finds it to remove
+        chatHistoryCache.append(response);
+        try {
+            chatWriteBehindWriter.submit(new ChatWriteBehindWriter.PendingChatMessage(id, response.getContent(),
+                    response.getMessageType(), sender.getId(), planId, response.getCreatedAt()))
+                    .whenComplete((ignored, e) -> {
+                        unflushedMessages.remove(id);
+                        if (e != null) {
+                            messageLost(response);
+                            unflushed.persisted().completeExceptionally(e);
+                        } else {
+                            unflushed.persisted().complete(null);
+                        }
+                    });
+        } catch (RuntimeException e) {
+            unflushedMessages.remove(id);
+            chatHistoryCache.remove(planId, id);
+            unflushed.persisted().completeExceptionally(e);
+            throw e;
+        }
+        return response;
     }
     
     /**
-     * Get all messages for a travel plan
+     * A queued message was broadcast but its insert failed for good: drop it from the history buffer and
+     * tell the room, so clients do not keep a message that will be gone after a reload
      */
-    public List<ChatMessageResponse> getMessages(Long planId, User user) {
-        Optional<TravelPlan> planOpt = travelPlanRepository.findById(planId);
-        if (planOpt.isEmpty()) {
-            throw new IllegalArgumentException("Travel plan not found");
+    private void messageLost(ChatMessageResponse message) {
+        System.err.println("Chat message " + message.getId() + " in plan " + message.getTravelPlanId() + " could not be saved");
+        chatHistoryCache.remove(message.getTravelPlanId(), message.getId());
+        ChatMessageResponse notice = new ChatMessageResponse();
+        notice.setContent("A message from " + message.getUserName() + " could not be saved and was removed");
+        notice.setMessageType(ChatMessage.MessageType.SYSTEM);
+        notice.setTravelPlanId(message.getTravelPlanId());
+        notice.setCreatedAt(LocalDateTime.now());
+        try {
+            messagingTemplate.convertAndSend("/topic/chat/" + message.getTravelPlanId(), notice);
+        } catch (RuntimeException e) {
+            System.err.println("Failed to notify plan " + message.getTravelPlanId() + " of a lost chat message: " + e.getMessage());
         }
-        
-        TravelPlan plan = planOpt.get();
+    }
+    
+    /**
+     * Get a page of messages for a travel plan, oldest first.
+     * With no cursor returns the newest page; "before" pages back through older messages
+     * and "after" fetches messages newer than the given message id.
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public ChatHistoryPageResponse getMessages(Long planId, Long before, Long after, Integer limit, User user) {
+        if (before != null && after != null) {
+            throw new IllegalArgumentException("Only one of before or after can be given");
+        }
+        // Taken before any read so a message committed after our snapshot keeps a stale page out of the cache
+        long loadStamp = chatHistoryCache.loadStamp(planId);
         
         // Check if user is a member of the plan
-        Optional<UserPlanStatus> userStatusOpt = userPlanStatusRepository.findByUserAndTravelPlan(user, plan);
-        if (userStatusOpt.isEmpty()) {
-            throw new IllegalStateException("User is not a member of this travel plan");
+        requireMembership(planId, user);
+        
+        int pageSize = resolveHistoryPageSize(limit);
+        // Fetch one extra row to know whether another page exists
+        List<ChatMessageResponse> messages;
+        if (after != null) {
+            // Taken before the read: a queued message missing from it is either still here or already committed
+            List<ChatMessageResponse> unflushed = unflushedMessages(planId, message -> message.getId() > after);
+            messages = chatMessageRepository.findByTravelPlanIdAfter(planId, after, PageRequest.of(0, pageSize + 1)).stream()
+                    .map(this::convertToResponse)
+                    .collect(Collectors.toList());
+            messages = mergeUnflushed(messages, unflushed, Comparator.naturalOrder(), pageSize + 1);
+        } else {
+            messages = getLatestMessages(planId, before, pageSize + 1, loadStamp);
         }
         
-        List<ChatMessage> messages = chatMessageRepository.findByTravelPlanOrderByCreatedAtAsc(plan);
-        return messages.stream()
-                .map(this::convertToResponse)
-                .collect(Collectors.toList());
+        boolean hasMore = messages.size() > pageSize;
+        List<ChatMessageResponse> responses = new ArrayList<>(messages.subList(0, Math.min(pageSize, messages.size())));
+        if (after == null) {
+            // Backward pages come newest first
+            Collections.reverse(responses);
+        }
+        return new ChatHistoryPageResponse(responses, hasMore);
     }
     
     /**
      * Get recent messages for a travel plan (last N messages)
      */
+    @Transactional(propagation = Propagation.SUPPORTS)
     public List<ChatMessageResponse> getRecentMessages(Long planId, int limit, User user) {
-        Optional<TravelPlan> planOpt = travelPlanRepository.findById(planId);
-        if (planOpt.isEmpty()) {
-            throw new IllegalArgumentException("Travel plan not found");
-        }
-        
-        TravelPlan plan = planOpt.get();
-        
+        long loadStamp = chatHistoryCache.loadStamp(planId);
         // Check if user is a member of the plan
-        Optional<UserPlanStatus> userStatusOpt = userPlanStatusRepository.findByUserAndTravelPlan(user, plan);
-        if (userStatusOpt.isEmpty()) {
-            throw new IllegalStateException("User is not a member of this travel plan");
-        }
+        requireMembership(planId, user);
         
-        List<ChatMessage> messages = chatMessageRepository.findRecentMessagesByTravelPlan(plan);
-        return messages.stream()
-                .limit(limit)
-                .map(this::convertToResponse)
-                .collect(Collectors.toList());
+        return getLatestMessages(planId, null, resolveHistoryPageSize(limit), loadStamp);
     }
     
     /**
      * Get messages after a specific time
      */
     public List<ChatMessageResponse> getMessagesAfter(Long planId, LocalDateTime after, User user) {
-        Optional<TravelPlan> planOpt = travelPlanRepository.findById(planId);
-        if (planOpt.isEmpty()) {
-            throw new IllegalArgumentException("Travel plan not found");
-        }
-        
-        TravelPlan plan = planOpt.get();
-        
         // Check if user is a member of the plan
-        Optional<UserPlanStatus> userStatusOpt = userPlanStatusRepository.findByUserAndTravelPlan(user, plan);
-        if (userStatusOpt.isEmpty()) {
-            throw new IllegalStateException("User is not a member of this travel plan");
-        }
+        requireMembership(planId, user);
         
-        List<ChatMessage> messages = chatMessageRepository.findByTravelPlanAndCreatedAtAfterOrderByCreatedAtAsc(plan, after);
-        return messages.stream()
+        List<ChatMessageResponse> unflushed = unflushedMessages(planId, message -> message.getCreatedAt().isAfter(after));
+        List<ChatMessageResponse> messages = chatMessageRepository.findByTravelPlanAndCreatedAtAfterOrderByCreatedAtAsc(travelPlanRepository.getReferenceById(planId), after).stream()
                 .map(this::convertToResponse)
                 .collect(Collectors.toList());
+        return mergeUnflushed(messages, unflushed, Comparator.naturalOrder(), Integer.MAX_VALUE);
     }
     
     /**
      * Delete a chat message (only sender can delete)
      */
     public void deleteMessage(Long messageId, User user) {
+        awaitUnflushed(messageId, user);
         Optional<ChatMessage> messageOpt = chatMessageRepository.findById(messageId);
         if (messageOpt.isEmpty()) {
             throw new IllegalArgumentException("Message not found");
@@ -150,7 +245,113 @@ public class ChatService {
             throw new IllegalStateException("Only message sender can delete the message");
         }
         
+        Long planId = message.getTravelPlan().getId();
         chatMessageRepository.delete(message);
+        TransactionCallbacks.afterCommit(() -> chatHistoryCache.remove(planId, messageId));
+    }
+    
+    /**
+     * Up to count messages older than beforeId (newest when null), newest first.
+     * Served from the room's ring buffer when it can answer; a newest-page miss loads the buffer.
+     */
+    private List<ChatMessageResponse> getLatestMessages(Long planId, Long beforeId, int count, long loadStamp) {
+        Optional<List<ChatMessageResponse>> cached = chatHistoryCache.getLatest(planId, beforeId, count);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+        if (beforeId != null) {
+            return chatMessageRepository.findByTravelPlanIdBefore(planId, beforeId, PageRequest.of(0, count)).stream()
+                    .map(this::convertToResponse)
+                    .collect(Collectors.toList());
+        }
+        
+        int loadSize = Math.max(count, chatHistoryCache.getMessagesPerRoom());
+        // Taken before the read: a queued message missing from it is either still here or already committed
+        List<ChatMessageResponse> unflushed = unflushedMessages(planId, message -> true);
+        List<ChatMessageResponse> read = chatMessageRepository.findLatestByTravelPlanId(planId, PageRequest.of(0, loadSize)).stream()
+                .map(this::convertToResponse)
+                .collect(Collectors.toList());
+        // Queued messages were already broadcast and appended, so the buffer must hold them before they reach the table
+        List<ChatMessageResponse> latest = mergeUnflushed(read, unflushed, Comparator.reverseOrder(), loadSize);
+        boolean complete = read.size() < loadSize && read.size() + unflushed.size() <= loadSize;
+        chatHistoryCache.load(planId, latest, complete, loadStamp);
+        return latest.size() > count ? new ArrayList<>(latest.subList(0, count)) : latest;
+    }
+    
+    private List<ChatMessageResponse> unflushedMessages(Long planId, Predicate<ChatMessageResponse> filter) {
+        if (unflushedMessages.isEmpty()) {
+            return List.of();
+        }
+        return unflushedMessages.values().stream()
+                .map(UnflushedMessage::response)
+                .filter(message -> message.getTravelPlanId().equals(planId) && filter.test(message))
+                .collect(Collectors.toList());
+    }
+    
+    /**
+     * Add queued messages the read did not return, keeping the read's id order and at most limit messages
+     */
+    private List<ChatMessageResponse> mergeUnflushed(List<ChatMessageResponse> read, List<ChatMessageResponse> unflushed,
+                                                     Comparator<Long> idOrder, int limit) {
+        if (unflushed.isEmpty()) {
+            return read;
+        }
+        Map<Long, ChatMessageResponse> merged = new TreeMap<>(idOrder);
+        read.forEach(message -> merged.put(message.getId(), message));
+        unflushed.forEach(message -> merged.putIfAbsent(message.getId(), message));
+        return merged.values().stream().limit(limit).collect(Collectors.toList());
+    }
+    
+    /**
+     * Wait for a message still queued with the write-behind writer to be committed, so it can be deleted
+     */
+    private void awaitUnflushed(Long messageId, User user) {
+        UnflushedMessage unflushed = unflushedMessages.get(messageId);
+        if (unflushed == null) {
+            return;
+        }
+        if (!unflushed.response().getUserId().equals(user.getId())) {
+            throw new IllegalStateException("Only message sender can delete the message");
+        }
+        try {
+            unflushed.persisted().get(chatWriteBehindWriter.getFlushTimeoutMs(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while deleting chat message");
+        } catch (ExecutionException e) {
+            // The insert failed for good, so the message is already gone
+            throw new IllegalArgumentException("Message not found");
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("Message is still being saved, please try again");
+        }
+    }
+    
+    private int resolveHistoryPageSize(Integer limit) {
+        if (limit == null || limit <= 0) {
+            return DEFAULT_HISTORY_PAGE_SIZE;
+        }
+        return Math.min(limit, MAX_HISTORY_PAGE_SIZE);
+    }
+    
+    /**
+     * Get the user's status on the plan, from the membership cache when the user has a chat session open.
+     * Throws if the plan does not exist or the user has no relationship with it.
+     */
+    public UserPlanStatus.Status requireMembership(Long planId, User user) {
+        ChatMembershipCache.Membership membership = chatMembershipCache.get(user.getId(), planId);
+        if (membership == null) {
+            long stamp = chatMembershipCache.stamp(user.getId());
+            TravelPlan plan = travelPlanRepository.findById(planId)
+                    .orElseThrow(() -> new IllegalArgumentException("Travel plan not found"));
+            membership = new ChatMembershipCache.Membership(userPlanStatusRepository.findByUserAndTravelPlan(user, plan)
+                    .map(UserPlanStatus::getStatus)
+                    .orElse(null));
+            chatMembershipCache.put(user.getId(), planId, membership, stamp);
+        }
+        if (membership.status() == null) {
+            throw new IllegalStateException("User is not a member of this travel plan");
+        }
+        return membership.status();
     }
     
     /**
@@ -0,0 +1,220 @@
+package com.comp8047.majorproject.travelplanassistant.service;
+
+import com.comp8047.majorproject.travelplanassistant.entity.ChatMessage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Optional write-behind persistence for chat messages. Messages are queued in a bounded buffer and a single
+ * writer thread drains it with JDBC batch inserts, one transaction per batch. The queue is flushed on shutdown.
+ * Durability ENQUEUE acknowledges a send once it is queued; FLUSH waits until its batch has committed.
+ * Only available in broker mode SIMPLE: ids come from per-node blocks, so with several nodes ids would not
+ * follow send order, and queued messages are only merged into history loads on the node that queued them.
+ */
+@Component
+public class ChatWriteBehindWriter {
+
+    public enum Durability { ENQUEUE, FLUSH }
+
+    private static final String INSERT_SQL = "INSERT INTO chat_messages "
+            + "(id, content, message_type, sender_id, travel_plan_id, is_system_message, is_edited, is_deleted, created_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final long ENQUEUE_TIMEOUT_MS = 500;
+    private static final long POLL_INTERVAL_MS = 100;
+    private static final int MAX_FLUSH_ATTEMPTS = 3;
+
+    /**
+     * A message waiting to be inserted
+     */
+    public record PendingChatMessage(Long id, String content, ChatMessage.MessageType messageType,
+                                     Long senderId, Long travelPlanId, LocalDateTime createdAt) {}
+
+    private record QueuedMessage(PendingChatMessage message, CompletableFuture<Void> persisted) {}
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final Durability durability;
+    private final int batchSize;
+    private final long flushTimeoutMs;
+    private final BlockingQueue<QueuedMessage> queue;
+
+    private final Counter flushed;
+    private final Counter failed;
+
+    private volatile boolean running;
+    private Thread writerThread;
+
+    @Autowired
+    public ChatWriteBehindWriter(JdbcTemplate jdbcTemplate,
+                                 PlatformTransactionManager transactionManager,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${app.chat.write-behind.enabled:false}") boolean enabled,
+                                 @Value("#{'${app.websocket.broker.mode:SIMPLE}' == 'SIMPLE'}") boolean singleNode,
+                                 @Value("${app.chat.write-behind.durability:ENQUEUE}") Durability durability,
+                                 @Value("${app.chat.write-behind.queue-capacity:10000}") int queueCapacity,
+                                 @Value("${app.chat.write-behind.batch-size:200}") int batchSize,
+                                 @Value("${app.chat.write-behind.flush-timeout-ms:5000}") long flushTimeoutMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        if (enabled && !singleNode) {
+            System.err.println("Chat write-behind requires broker mode SIMPLE; writing chat messages directly");
+        }
+        this.enabled = enabled && singleNode;
+        this.durability = durability;
+        this.batchSize = batchSize;
+        this.flushTimeoutMs = flushTimeoutMs;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.flushed = Counter.builder("chat.write_behind.messages").tag("result", "flushed")
+                .description("Chat messages written by the write-behind writer").register(meterRegistry);
+        this.failed = Counter.builder("chat.write_behind.messages").tag("result", "failed")
+                .description("Chat messages written by the write-behind writer").register(meterRegistry);
+        Gauge.builder("chat.write_behind.queue.size", queue, BlockingQueue::size)
+                .description("Chat messages waiting to be written").register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        writerThread = new Thread(this::drainLoop, "chat-write-behind");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        System.out.println("Chat write-behind writer started (durability " + durability + ", batch size " + batchSize + ")");
+    }
+
+    /**
+     * Stop accepting messages and flush whatever is still queued
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (writerThread == null) {
+            return;
+        }
+        running = false;
+        writerThread.join(flushTimeoutMs * MAX_FLUSH_ATTEMPTS);
+        if (!queue.isEmpty()) {
+            System.err.println("Chat write-behind writer stopped with " + queue.size() + " unwritten messages");
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public long getFlushTimeoutMs() {
+        return flushTimeoutMs;
+    }
+
+    /**
+     * Queue a message for insert; the returned future completes once it is committed or has failed for good.
+     * Under FLUSH durability, returns only once the message has been committed.
+     */
+    public CompletableFuture<Void> submit(PendingChatMessage message) {
+        if (!running) {
+            throw new IllegalStateException("Chat message writer is not running");
+        }
+        CompletableFuture<Void> persisted = new CompletableFuture<>();
+        try {
+            if (!queue.offer(new QueuedMessage(message, persisted), ENQUEUE_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                throw new IllegalStateException("Chat is busy, please try again");
+            }
+            if (durability == Durability.FLUSH) {
+                persisted.get(flushTimeoutMs, TimeUnit.MILLISECONDS);
+            }
+            return persisted;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while saving chat message");
+        } catch (ExecutionException | TimeoutException e) {
+            throw new IllegalStateException("Failed to save chat message");
+        }
+    }
+
+    private void drainLoop() {
+        List<QueuedMessage> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                QueuedMessage first = queue.poll(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                flush(batch);
+            } catch (InterruptedException e) {
+                // Keep draining; stop() ends the loop once the queue is empty
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Insert one batch, retrying transient failures before giving up on it
+     */
+    private void flush(List<QueuedMessage> batch) {
+        for (int attempt = 1; attempt <= MAX_FLUSH_ATTEMPTS; attempt++) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> insertBatch(batch));
+                flushed.increment(batch.size());
+                batch.forEach(queued -> queued.persisted().complete(null));
+                return;
+            } catch (RuntimeException e) {
+                System.err.println("Failed to write " + batch.size() + " chat messages (attempt " + attempt + "): " + e.getMessage());
+                if (attempt < MAX_FLUSH_ATTEMPTS) {
+                    sleepQuietly(attempt * POLL_INTERVAL_MS);
+                } else {
+                    failed.increment(batch.size());
+                    batch.forEach(queued -> queued.persisted().completeExceptionally(e));
+                }
+            }
+        }
+    }
+
+    private void insertBatch(List<QueuedMessage> batch) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, batch, batch.size(), (statement, queued) -> {
+            PendingChatMessage message = queued.message();
+            statement.setLong(1, message.id());
+            statement.setString(2, message.content());
+            statement.setString(3, message.messageType().name());
+            statement.setLong(4, message.senderId());
+            statement.setLong(5, message.travelPlanId());
+            statement.setBoolean(6, false);
+            statement.setBoolean(7, false);
+            statement.setBoolean(8, false);
+            statement.setTimestamp(9, Timestamp.valueOf(message.createdAt()));
+        });
+    }
+
+    private void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.comp8047.majorproject.travelplanassistant.service;
+
+import com.comp8047.majorproject.travelplanassistant.entity.UserPlanStatus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionExecution;
+import org.springframework.transaction.TransactionExecutionListener;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounded cache of each user's current plan (a NEW or IN_PROGRESS plan they own, joined, applied to or were
+ * invited to) and their status on it, so the one-current-plan checks do not query on every request.
+ * Filled by the caller on a miss; a user's entry is dropped when their membership changes and every entry
+ * for a plan is dropped when it is cancelled or completed. Invalidation is node-local, so nothing is cached
+ * unless the in-process simple broker is used (a single node).
+ * Inside a transaction the stamp is the one taken when the transaction began: under REPEATABLE READ the
+ * database snapshot can predate a stamp taken at the read, so an invalidation in between would go unnoticed.
+ */
+@Component
+public class CurrentPlanCache implements TransactionExecutionListener {
+
+    /**
+     * A user's current plan and status; planId is null when the user has no current plan
+     */
+    public record CurrentPlan(Long planId, UserPlanStatus.Status status) {
+        public static final CurrentPlan NONE = new CurrentPlan(null, null);
+
+        public boolean exists() {
+            return planId != null;
+        }
+    }
+
+    private final int maxUsers;
+    private final boolean enabled;
+
+    private final Counter hits;
+    private final Counter misses;
+
+    // Access-ordered so the least recently used user is dropped first
+    private final LinkedHashMap<Long, CurrentPlan> entries;
+
+    // Bumped on every invalidation; a put only lands if no invalidation happened since its stamp was taken
+    private long version;
+
+    // Stamps of the transactions open on this thread, innermost last
+    private final ThreadLocal<List<TransactionStamp>> transactionStamps = ThreadLocal.withInitial(ArrayList::new);
+
+    private record TransactionStamp(TransactionExecution transaction, long stamp) {}
+
+    @Autowired
+    public CurrentPlanCache(MeterRegistry meterRegistry,
+                            @Value("${app.current-plan.cache.max-users:10000}") int maxUsers,
+                            @Value("#{'${app.websocket.broker.mode:SIMPLE}' == 'SIMPLE'}") boolean enabled) {
+        this.maxUsers = maxUsers;
+        this.enabled = enabled;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, CurrentPlan> eldest) {
+                return size() > CurrentPlanCache.this.maxUsers;
+            }
+        };
+        this.hits = Counter.builder("current.plan.cache.requests").tag("result", "hit")
+                .description("Current plan cache lookups").register(meterRegistry);
+        this.misses = Counter.builder("current.plan.cache.requests").tag("result", "miss")
+                .description("Current plan cache lookups").register(meterRegistry);
+        Gauge.builder("current.plan.cache.size", this, CurrentPlanCache::size)
+                .description("Users with a cached current plan").register(meterRegistry);
+    }
+
+    /**
+     * Get the user's cached current plan, or null on a miss
+     */
+    public synchronized CurrentPlan get(Long userId) {
+        CurrentPlan current = entries.get(userId);
+        if (current == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return current;
+    }
+
+    /**
+     * Stamp to pass to put; taken before reading the current plan from the database.
+     * Inside a transaction this is the stamp from when the transaction began.
+     */
+    public long stamp() {
+        List<TransactionStamp> stamps = transactionStamps.get();
+        if (!stamps.isEmpty()) {
+            return stamps.get(stamps.size() - 1).stamp();
+        }
+        synchronized (this) {
+            return version;
+        }
+    }
+
+    @Override
+    public void afterBegin(TransactionExecution transaction, Throwable beginFailure) {
+        if (beginFailure == null) {
+            long stamp;
+            synchronized (this) {
+                stamp = version;
+            }
+            transactionStamps.get().add(new TransactionStamp(transaction, stamp));
+        }
+    }
+
+    @Override
+    public void afterCommit(TransactionExecution transaction, Throwable commitFailure) {
+        transactionEnded(transaction);
+    }
+
+    @Override
+    public void afterRollback(TransactionExecution transaction, Throwable rollbackFailure) {
+        transactionEnded(transaction);
+    }
+
+    /**
+     * Cache a current plan read from the database, unless something was invalidated after the stamp was taken
+     */
+    public synchronized void put(Long userId, CurrentPlan current, long stamp) {
+        if (enabled && version == stamp) {
+            entries.put(userId, current);
+        }
+    }
+
+    @EventListener
+    public void onMembershipChanged(PlanEventPublisher.MembershipChangedEvent event) {
+        invalidate(event.userId());
+    }
+
+    /**
+     * Drop the user's entry once the surrounding transaction commits
+     */
+    public void userChanged(Long userId) {
+        TransactionCallbacks.afterCommit(() -> invalidate(userId));
+    }
+
+    /**
+     * Drop every entry pointing at a plan that is no longer current, once the surrounding transaction commits
+     */
+    public void planEnded(Long planId) {
+        TransactionCallbacks.afterCommit(() -> {
+            synchronized (this) {
+                version++;
+                entries.values().removeIf(current -> planId.equals(current.planId()));
+            }
+        });
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private void transactionEnded(TransactionExecution transaction) {
+        List<TransactionStamp> stamps = transactionStamps.get();
+        stamps.removeIf(stamp -> stamp.transaction() == transaction);
+        if (stamps.isEmpty()) {
+            transactionStamps.remove();
+        }
+    }
+
+    private synchronized void invalidate(Long userId) {
+        version++;
+        entries.remove(userId);
+    }
+}
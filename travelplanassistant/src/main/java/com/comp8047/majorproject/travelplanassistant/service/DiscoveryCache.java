@@ -0,0 +1,167 @@
+package com.comp8047.majorproject.travelplanassistant.service;
+
+import com.comp8047.majorproject.travelplanassistant.entity.TravelPlan;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Bounded, TTL-based cache of discovery candidates keyed by eligibility cohort (gender, language).
+ * Holds only ordered candidates with their age limits; the age filter, per-user exclusions and member data
+ * are applied by the caller.
+ */
+@Component
+public class DiscoveryCache {
+
+    private final int maxCohorts;
+    private final long ttlMillis;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+
+    // Access-ordered so the least recently used cohort is dropped first
+    private final LinkedHashMap<Cohort, Entry> entries;
+
+    // Bumped on every eviction; a put only lands if no eviction happened since its stamp was taken
+    private long version;
+
+    @Autowired
+    public DiscoveryCache(MeterRegistry meterRegistry,
+                          @Value("${app.discovery.cache.max-cohorts:1000}") int maxCohorts,
+                          @Value("${app.discovery.cache.ttl-seconds:30}") long ttlSeconds) {
+        this.maxCohorts = maxCohorts;
+        this.ttlMillis = ttlSeconds * 1000;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Cohort, Entry> eldest) {
+                return size() > DiscoveryCache.this.maxCohorts;
+            }
+        };
+        this.hits = Counter.builder("discovery.cache.requests").tag("result", "hit")
+                .description("Discovery cache lookups").register(meterRegistry);
+        this.misses = Counter.builder("discovery.cache.requests").tag("result", "miss")
+                .description("Discovery cache lookups").register(meterRegistry);
+        this.evictions = Counter.builder("discovery.cache.evictions")
+                .description("Discovery cohorts invalidated by plan lifecycle changes").register(meterRegistry);
+        Gauge.builder("discovery.cache.size", this, DiscoveryCache::size)
+                .description("Cached discovery cohorts").register(meterRegistry);
+    }
+
+    /**
+     * Eligibility cohort: users with the same gender and language see the same candidate list.
+     * Age is left out so users of every age share it; Candidate.admitsAge filters it per request.
+     */
+    public record Cohort(TravelPlan.GenderPreference gender, String language) {
+        public static Cohort of(TravelPlan.GenderPreference gender, String language) {
+            return new Cohort(gender, language == null ? null : language.toLowerCase(Locale.ROOT));
+        }
+
+        /**
+         * Same gender and language rules as TravelPlanRepository.findDiscoveryPlans
+         */
+        boolean isEligible(TravelPlan plan) {
+            boolean genderMatches = plan.getGender() == null || plan.getGender() == TravelPlan.GenderPreference.ANY
+                    || gender == null || plan.getGender() == gender;
+            boolean languageMatches = plan.getLanguage() == null || plan.getLanguage().isBlank()
+                    || plan.getLanguage().equalsIgnoreCase(language);
+            return genderMatches && languageMatches;
+        }
+    }
+
+    /**
+     * A candidate plan in discovery order (createdAt DESC, id DESC) with the plan's age limits
+     */
+    public record Candidate(Long id, LocalDateTime createdAt, Integer ageMin, Integer ageMax) {
+        /**
+         * Same age rule as TravelPlanRepository.findDiscoveryPlans
+         */
+        public boolean admitsAge(Integer age) {
+            return age == null || ((ageMin == null || ageMin <= age) && (ageMax == null || ageMax >= age));
+        }
+    }
+
+    /**
+     * Cached candidates for a cohort; complete is false when the list was truncated at the load limit
+     */
+    public record Entry(List<Candidate> candidates, boolean complete, long expiresAt) {}
+
+    /**
+     * Get the cached candidates for a cohort, or null on a miss
+     */
+    public synchronized Entry get(Cohort cohort) {
+        Entry entry = entries.get(cohort);
+        if (entry == null || entry.expiresAt() <= System.currentTimeMillis()) {
+            if (entry != null) {
+                entries.remove(cohort);
+            }
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry;
+    }
+
+    /**
+     * Stamp to pass to put; taken before reading the candidates from the database
+     */
+    public synchronized long stamp() {
+        return version;
+    }
+
+    /**
+     * Cache the candidates for a cohort, unless something was evicted after the stamp was taken:
+     * the list may then predate that change and would be served stale for the whole TTL
+     */
+    public synchronized Entry put(Cohort cohort, List<Candidate> candidates, boolean complete, long stamp) {
+        Entry entry = new Entry(List.copyOf(candidates), complete, System.currentTimeMillis() + ttlMillis);
+        if (version == stamp) {
+            entries.put(cohort, entry);
+        }
+        return entry;
+    }
+
+    /**
+     * Drop every cohort the plan is (or was) visible to. Inside a transaction this happens after commit.
+     */
+    public void evict(TravelPlan plan) {
+        // Copy the eligibility fields now so the entity is not touched after commit
+        TravelPlan snapshot = new TravelPlan();
+        snapshot.setGender(plan.getGender());
+        snapshot.setLanguage(plan.getLanguage());
+        TransactionCallbacks.afterCommit(() -> {
+            synchronized (this) {
+                version++;
+                int before = entries.size();
+                entries.keySet().removeIf(cohort -> cohort.isEligible(snapshot));
+                evictions.increment(before - entries.size());
+            }
+        });
+    }
+
+    /**
+     * Drop every cached cohort
+     */
+    public void invalidateAll() {
+        TransactionCallbacks.afterCommit(() -> {
+            synchronized (this) {
+                version++;
+                evictions.increment(entries.size());
+                entries.clear();
+            }
+        });
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+}
@@ -0,0 +1,113 @@
+package com.comp8047.majorproject.travelplanassistant.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An HTML email template parsed once into static segments and named {{slot}} placeholders.
+ * bind fills some slots up front (the plan-level fields shared by every member) and returns a smaller template
+ * with the neighbouring segments merged; render fills the rest per recipient into a reused per-thread buffer.
+ * Values are inserted as given, with null rendered as "null" like String.format.
+ */
+public final class EmailTemplate {
+
+    private static final String SLOT_START = "{{";
+    private static final String SLOT_END = "}}";
+    private static final int MAX_RETAINED_BUFFER = 64 * 1024;
+
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(8192));
+
+    // segments.length == slots.length + 1; output is segments[0] slots[0] segments[1] ... segments[n]
+    private final String[] segments;
+    private final String[] slots;
+    private final int staticLength;
+
+    private EmailTemplate(String[] segments, String[] slots) {
+        this.segments = segments;
+        this.slots = slots;
+        int length = 0;
+        for (String segment : segments) {
+            length += segment.length();
+        }
+        this.staticLength = length;
+    }
+
+    /**
+     * Parse a template with {{name}} slots
+     */
+    public static EmailTemplate compile(String source) {
+        List<String> segments = new ArrayList<>();
+        List<String> slots = new ArrayList<>();
+        int position = 0;
+        while (true) {
+            int start = source.indexOf(SLOT_START, position);
+            if (start < 0) {
+                segments.add(source.substring(position));
+                break;
+            }
+            int end = source.indexOf(SLOT_END, start + SLOT_START.length());
+            if (end < 0) {
+                throw new IllegalArgumentException("Unclosed template slot at offset " + start);
+            }
+            String name = source.substring(start + SLOT_START.length(), end).trim();
+            if (name.isEmpty()) {
+                throw new IllegalArgumentException("Empty template slot at offset " + start);
+            }
+            segments.add(source.substring(position, start));
+            slots.add(name);
+            position = end + SLOT_END.length();
+        }
+        return new EmailTemplate(segments.toArray(new String[0]), slots.toArray(new String[0]));
+    }
+
+    /**
+     * Fill the slots named in values and return the template for the remaining ones
+     */
+    public EmailTemplate bind(Map<String, ?> values) {
+        List<String> boundSegments = new ArrayList<>();
+        List<String> boundSlots = new ArrayList<>();
+        StringBuilder segment = new StringBuilder(segments[0]);
+        for (int i = 0; i < slots.length; i++) {
+            if (values.containsKey(slots[i])) {
+                segment.append(values.get(slots[i])).append(segments[i + 1]);
+            } else {
+                boundSegments.add(segment.toString());
+                boundSlots.add(slots[i]);
+                segment.setLength(0);
+                segment.append(segments[i + 1]);
+            }
+        }
+        boundSegments.add(segment.toString());
+        return new EmailTemplate(boundSegments.toArray(new String[0]), boundSlots.toArray(new String[0]));
+    }
+
+    /**
+     * Render with every remaining slot filled from values
+     */
+    public String render(Map<String, ?> values) {
+        StringBuilder buffer = BUFFER.get();
+        buffer.setLength(0);
+        buffer.ensureCapacity(staticLength + 256);
+        buffer.append(segments[0]);
+        for (int i = 0; i < slots.length; i++) {
+            Object value = values.get(slots[i]);
+            if (value == null && !values.containsKey(slots[i])) {
+                throw new IllegalArgumentException("No value for template slot " + slots[i]);
+            }
+            buffer.append(value).append(segments[i + 1]);
+        }
+        String result = buffer.toString();
+        if (buffer.capacity() > MAX_RETAINED_BUFFER) {
+            BUFFER.remove();
+        }
+        return result;
+    }
+
+    /**
+     * Names of the slots still to be filled, in order
+     */
+    public List<String> getSlots() {
+        return List.of(slots);
+    }
+}
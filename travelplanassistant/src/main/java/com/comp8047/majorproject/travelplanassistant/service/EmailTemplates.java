@@ -0,0 +1,67 @@
+package com.comp8047.majorproject.travelplanassistant.service;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The notification email templates under email-templates/, compiled once at startup
+ */
+@Component
+public class EmailTemplates {
+
+    private static final String LOCATION = "email-templates/";
+
+    private final EmailTemplate travelPlanStart;
+    private final EmailTemplate travelPlanCompletion;
+    private final EmailTemplate applicationStatus;
+    private final EmailTemplate invitation;
+    private final EmailTemplate digest;
+    private final EmailTemplate digestItem;
+
+    public EmailTemplates() {
+        this.travelPlanStart = load("travel-plan-start.html");
+        this.travelPlanCompletion = load("travel-plan-completion.html");
+        this.applicationStatus = load("application-status.html");
+        this.invitation = load("invitation.html");
+        this.digest = load("digest.html");
+        this.digestItem = load("digest-item.html");
+    }
+
+    public EmailTemplate travelPlanStart() {
+        return travelPlanStart;
+    }
+
+    public EmailTemplate travelPlanCompletion() {
+        return travelPlanCompletion;
+    }
+
+    public EmailTemplate applicationStatus() {
+        return applicationStatus;
+    }
+
+    public EmailTemplate invitation() {
+        return invitation;
+    }
+
+    public EmailTemplate digest() {
+        return digest;
+    }
+
+    /**
+     * One list entry of the digest email's {{items}}
+     */
+    public EmailTemplate digestItem() {
+        return digestItem;
+    }
+
+    private static EmailTemplate load(String name) {
+        try {
+            return EmailTemplate.compile(new ClassPathResource(LOCATION + name).getContentAsString(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new IllegalStateException("Email template " + LOCATION + name + " could not be read", e);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.comp8047.majorproject.travelplanassistant.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Sends the notifications held for digest users. Once a recipient's oldest DIGEST_PENDING notification is
+ * older than the digest window, their held notifications are locked with SELECT ... FOR UPDATE SKIP LOCKED,
+ * coalesced into one PENDING DIGEST notification for the outbox and marked DIGESTED, in one transaction.
+ * A single held notification is released as it is rather than wrapped in a digest.
+ */
+@Component
+public class NotificationDigestWorker {
+
+    private static final String DUE_RECIPIENTS_SQL = "SELECT recipient_email FROM notifications "
+            + "WHERE status = 'DIGEST_PENDING' GROUP BY recipient_email "
+            + "HAVING MIN(created_at) <= ? ORDER BY MIN(created_at) LIMIT ?";
+    private static final String CLAIM_SQL = "SELECT id, recipient_name, recipient_user_id, subject, created_at "
+            + "FROM notifications WHERE status = 'DIGEST_PENDING' AND recipient_email = ? "
+            + "ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED";
+    private static final String RELEASE_SQL = "UPDATE notifications SET status = 'PENDING' WHERE id = ?";
+    private static final String MARK_DIGESTED_SQL = "UPDATE notifications SET status = 'DIGESTED' WHERE id = ?";
+
+    record HeldRow(long id, String recipientName, Long recipientUserId, String subject, LocalDateTime createdAt) {}
+
+    private static final RowMapper<HeldRow> ROW_MAPPER = (rs, rowNum) -> new HeldRow(rs.getLong("id"),
+            rs.getString("recipient_name"), rs.getObject("recipient_user_id", Long.class), rs.getString("subject"),
+            rs.getTimestamp("created_at").toLocalDateTime());
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final NotificationService notificationService;
+    private final boolean enabled;
+    private final long windowMinutes;
+    private final int batchSize;
+    private final int maxItems;
+
+    private final Counter digests;
+    private final DistributionSummary digestSizes;
+
+    @Autowired
+    public NotificationDigestWorker(JdbcTemplate jdbcTemplate,
+                                    PlatformTransactionManager transactionManager,
+                                    NotificationService notificationService,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${app.notification.digest.enabled:true}") boolean enabled,
+                                    @Value("${app.notification.digest.window-minutes:60}") long windowMinutes,
+                                    @Value("${app.notification.digest.batch-size:100}") int batchSize,
+                                    @Value("${app.notification.digest.max-items:50}") int maxItems) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.notificationService = notificationService;
+        this.enabled = enabled;
+        this.windowMinutes = windowMinutes;
+        this.batchSize = batchSize;
+        this.maxItems = maxItems;
+        this.digests = Counter.builder("notification.digest.emails")
+                .description("Digest emails queued").register(meterRegistry);
+        this.digestSizes = DistributionSummary.builder("notification.digest.size")
+                .description("Held notifications sent per digest run for one recipient").register(meterRegistry);
+    }
+
+    /**
+     * Flush the recipients whose oldest held notification has waited a full window, up to the batch size
+     */
+    @Scheduled(fixedDelayString = "${app.notification.digest.interval-ms:60000}")
+    public void flushDue() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            LocalDateTime windowStart = LocalDateTime.now().minusMinutes(windowMinutes);
+            List<String> recipients = jdbcTemplate.queryForList(DUE_RECIPIENTS_SQL, String.class,
+                    Timestamp.valueOf(windowStart), batchSize);
+            for (String recipientEmail : recipients) {
+                flush(recipientEmail);
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Notification digest run failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Send a recipient's held notifications, up to the item cap, as one email. Returns how many were sent;
+     * 0 if another worker holds them.
+     */
+    int flush(String recipientEmail) {
+        Integer flushed = transactionTemplate.execute(status -> {
+            List<HeldRow> rows = jdbcTemplate.query(CLAIM_SQL, ROW_MAPPER, recipientEmail, maxItems);
+            if (rows.isEmpty()) {
+                return 0;
+            }
+            if (rows.size() == 1) {
+                long id = rows.get(0).id();
+                jdbcTemplate.update(RELEASE_SQL, id);
+                notificationService.publishQueuedAfterCommit(id);
+                return 1;
+            }
+            HeldRow first = rows.get(0);
+            List<NotificationService.DigestItem> items = rows.stream()
+                    .map(row -> new NotificationService.DigestItem(row.subject(), row.createdAt()))
+                    .toList();
+            notificationService.enqueueDigest(recipientEmail, first.recipientName(), first.recipientUserId(), items);
+            jdbcTemplate.batchUpdate(MARK_DIGESTED_SQL, rows, rows.size(),
+                    (statement, row) -> statement.setLong(1, row.id()));
+            digests.increment();
+            return rows.size();
+        });
+        int count = flushed != null ? flushed : 0;
+        if (count > 0) {
+            digestSizes.record(count);
+        }
+        return count;
+    }
+}
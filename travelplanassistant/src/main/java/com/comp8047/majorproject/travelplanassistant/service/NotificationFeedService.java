@@ -0,0 +1,219 @@
+package com.comp8047.majorproject.travelplanassistant.service;
+
+import com.comp8047.majorproject.travelplanassistant.dto.NotificationFeedEvent;
+import com.comp8047.majorproject.travelplanassistant.dto.NotificationFeedItem;
+import com.comp8047.majorproject.travelplanassistant.dto.NotificationFeedPageResponse;
+import com.comp8047.majorproject.travelplanassistant.entity.Notification;
+import com.comp8047.majorproject.travelplanassistant.entity.User;
+import com.comp8047.majorproject.travelplanassistant.repository.NotificationRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.Collectors;
+
+/**
+ * In-app notification feed: keyset pages of a user's notifications and their unread count, with every
+ * change pushed after commit to /topic/user/{userId}/notifications.
+ * Unread counts are loaded from the database on first read and then adjusted in memory as notifications are
+ * created and read. Counts are only kept for users subscribed to their feed topic, and are dropped when their
+ * last such STOMP session closes. They are node-local, so they are only kept with the in-process simple broker
+ * (a single node). Fetching the first feed page reloads the count.
+ */
+@Service
+@Transactional
+public class NotificationFeedService {
+
+    public static final String FEED_TOPIC = "/topic/user/%d/notifications";
+
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int CHANGE_STRIPES = 64;
+
+    private final NotificationRepository notificationRepository;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final boolean enabled;
+
+    // userId -> unread notifications
+    private final Map<Long, AtomicLong> unreadCounts = new ConcurrentHashMap<>();
+
+    // sessionId -> userId, for sessions subscribed to their user's feed topic
+    private final Map<String, Long> sessionUsers = new ConcurrentHashMap<>();
+
+    // userId -> open sessions subscribed to the feed topic
+    private final Map<Long, Set<String>> userSessions = new ConcurrentHashMap<>();
+
+    // Bumped on every change to a user's stripe; a count loaded while its stripe moved is not kept
+    private final AtomicLongArray changeStamps = new AtomicLongArray(CHANGE_STRIPES);
+
+    @Autowired
+    public NotificationFeedService(NotificationRepository notificationRepository,
+                                   SimpMessagingTemplate messagingTemplate,
+                                   @Value("#{'${app.websocket.broker.mode:SIMPLE}' == 'SIMPLE'}") boolean enabled) {
+        this.notificationRepository = notificationRepository;
+        this.messagingTemplate = messagingTemplate;
+        this.enabled = enabled;
+    }
+
+    /**
+     * A page of the user's feed, newest first, older than the before cursor when given
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public NotificationFeedPageResponse getFeed(User user, Long before, Integer limit) {
+        int pageSize = resolvePageSize(limit);
+        // Fetch one extra row to know whether another page exists
+        List<Notification> notifications = notificationRepository.findFeedBefore(user.getId(),
+                before != null ? before : Long.MAX_VALUE, PageRequest.of(0, pageSize + 1));
+        boolean hasMore = notifications.size() > pageSize;
+        List<NotificationFeedItem> items = notifications.stream()
+                .limit(pageSize)
+                .map(NotificationFeedItem::new)
+                .collect(Collectors.toList());
+        long unreadCount = before == null ? loadUnreadCount(user.getId()) : getUnreadCount(user.getId());
+        return new NotificationFeedPageResponse(items, hasMore, unreadCount);
+    }
+
+    /**
+     * The user's unread count, from memory when held
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public long getUnreadCount(Long userId) {
+        AtomicLong count = unreadCounts.get(userId);
+        return count != null ? count.get() : loadUnreadCount(userId);
+    }
+
+    /**
+     * Mark one of the user's notifications read
+     */
+    public void markRead(Long userId, Long notificationId) {
+        if (notificationRepository.markRead(notificationId, userId, LocalDateTime.now()) == 0) {
+            return;
+        }
+        TransactionCallbacks.afterCommit(() -> {
+            Long unreadCount = adjust(userId, -1);
+            push(userId, new NotificationFeedEvent(NotificationFeedEvent.Type.NOTIFICATION_READ, null, notificationId, unreadCount));
+        });
+    }
+
+    /**
+     * Mark all of the user's notifications read
+     */
+    public void markAllRead(Long userId) {
+        notificationRepository.markAllRead(userId, LocalDateTime.now());
+        TransactionCallbacks.afterCommit(() -> {
+            changeStamps.incrementAndGet(stripe(userId));
+            AtomicLong count = unreadCounts.get(userId);
+            if (count != null) {
+                count.set(0);
+            }
+            push(userId, new NotificationFeedEvent(NotificationFeedEvent.Type.ALL_READ, null, null, 0L));
+        });
+    }
+
+    /**
+     * Count and push a notification just saved for a user, once the surrounding transaction commits
+     */
+    public void notificationCreated(Notification notification) {
+        Long userId = notification.getRecipientUserId();
+        if (userId == null || notification.getNotificationType() == Notification.NotificationType.DIGEST) {
+            return;
+        }
+        NotificationFeedItem item = new NotificationFeedItem(notification);
+        TransactionCallbacks.afterCommit(() -> {
+            Long unreadCount = adjust(userId, 1);
+            push(userId, new NotificationFeedEvent(NotificationFeedEvent.Type.NOTIFICATION_CREATED, item, item.getId(), unreadCount));
+        });
+    }
+
+    @EventListener
+    public void onSessionSubscribe(SessionSubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        if (accessor.getSessionId() != null
+                && event.getUser() instanceof UsernamePasswordAuthenticationToken auth && auth.getPrincipal() instanceof User user
+                && String.format(FEED_TOPIC, user.getId()).equals(accessor.getDestination())) {
+            sessionUsers.put(accessor.getSessionId(), user.getId());
+            userSessions.computeIfAbsent(user.getId(), id -> ConcurrentHashMap.newKeySet()).add(accessor.getSessionId());
+        }
+    }
+
+    @EventListener
+    public void onSessionDisconnect(SessionDisconnectEvent event) {
+        Long userId = sessionUsers.remove(event.getSessionId());
+        if (userId == null) {
+            return;
+        }
+        userSessions.computeIfPresent(userId, (id, sessions) -> {
+            sessions.remove(event.getSessionId());
+            if (sessions.isEmpty()) {
+                unreadCounts.remove(userId);
+                return null;
+            }
+            return sessions;
+        });
+    }
+
+    /**
+     * Number of users whose unread count is held in memory
+     */
+    public int cachedCount() {
+        return unreadCounts.size();
+    }
+
+    private long loadUnreadCount(Long userId) {
+        long stamp = changeStamps.get(stripe(userId));
+        long count = notificationRepository.countUnreadByRecipientUserId(userId);
+        if (enabled && userSessions.containsKey(userId)) {
+            AtomicLong loaded = new AtomicLong(count);
+            unreadCounts.put(userId, loaded);
+            // A change that committed while counting may be missing from the count, and a session that closed
+            // meanwhile would leave the count behind; leave both to the next read
+            if (changeStamps.get(stripe(userId)) != stamp || !userSessions.containsKey(userId)) {
+                unreadCounts.remove(userId, loaded);
+            }
+        }
+        return count;
+    }
+
+    // Returns the new count, or null when the user's count is not held
+    private Long adjust(Long userId, long delta) {
+        changeStamps.incrementAndGet(stripe(userId));
+        AtomicLong count = unreadCounts.get(userId);
+        return count != null ? count.updateAndGet(current -> Math.max(0, current + delta)) : null;
+    }
+
+    private void push(Long userId, NotificationFeedEvent event) {
+        String destination = String.format(FEED_TOPIC, userId);
+        try {
+            messagingTemplate.convertAndSend(destination, event);
+        } catch (Exception e) {
+            System.err.println("Failed to publish " + event.getType() + " to " + destination + ": " + e.getMessage());
+        }
+    }
+
+    private int resolvePageSize(Integer limit) {
+        if (limit == null || limit <= 0) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        return Math.min(limit, MAX_PAGE_SIZE);
+    }
+
+    private static int stripe(Long userId) {
+        return (int) Math.floorMod(userId, (long) CHANGE_STRIPES);
+    }
+}
@@ -0,0 +1,256 @@
+package com.comp8047.majorproject.travelplanassistant.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends the notifications NotificationService queued in the notifications table (the outbox).
+ * A dispatcher thread claims PENDING rows in short transactions with SELECT ... FOR UPDATE SKIP LOCKED,
+ * marking them SENDING so concurrent workers and other nodes pass over them, and hands them in batches to a
+ * fixed pool that sends each batch over one pooled SMTP connection with no transaction open. It wakes when
+ * a notification is committed and polls otherwise. A SENDING row whose claim is older than the lease
+ * (a node died mid-send) is claimed again.
+ */
+@Component
+public class NotificationOutboxWorker {
+
+    private static final String CLAIM_SQL = "SELECT id, recipient_email, subject, content FROM notifications "
+            + "WHERE status = 'PENDING' OR (status = 'SENDING' AND claimed_at < ?) "
+            + "ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED";
+    private static final String MARK_SENDING_SQL = "UPDATE notifications SET status = 'SENDING', claimed_at = ? WHERE id = ?";
+    private static final String MARK_SENT_SQL = "UPDATE notifications SET status = 'SENT', sent_at = ?, error_message = NULL "
+            + "WHERE id = ? AND status = 'SENDING'";
+    private static final String MARK_FAILED_SQL = "UPDATE notifications SET status = 'FAILED', error_message = ? "
+            + "WHERE id = ? AND status = 'SENDING'";
+
+    record OutboxRow(long id, String recipientEmail, String subject, String content) {}
+
+    private static final RowMapper<OutboxRow> ROW_MAPPER = (rs, rowNum) -> new OutboxRow(rs.getLong("id"),
+            rs.getString("recipient_email"), rs.getString("subject"), rs.getString("content"));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final NotificationService notificationService;
+    private final boolean enabled;
+    private final int workerThreads;
+    private final int batchSize;
+    private final int sendBatchSize;
+    private final long pollIntervalMs;
+    private final long leaseSeconds;
+
+    // One permit per idle sender, so no more rows are claimed than can be sent right away
+    private final Semaphore idleSenders;
+    private final Semaphore wakeups = new Semaphore(0);
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final Counter sent;
+    private final Counter failed;
+    private final Timer sendTimer;
+
+    private volatile boolean running;
+    private Thread dispatcherThread;
+    private ExecutorService senders;
+
+    @Autowired
+    public NotificationOutboxWorker(JdbcTemplate jdbcTemplate,
+                                    PlatformTransactionManager transactionManager,
+                                    NotificationService notificationService,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${app.notification.outbox.enabled:true}") boolean enabled,
+                                    @Value("${app.notification.outbox.worker-threads:4}") int workerThreads,
+                                    @Value("${app.notification.outbox.batch-size:20}") int batchSize,
+                                    @Value("${app.notification.outbox.send-batch-size:10}") int sendBatchSize,
+                                    @Value("${app.notification.outbox.poll-interval-ms:5000}") long pollIntervalMs,
+                                    @Value("${app.notification.outbox.lease-seconds:300}") long leaseSeconds) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.notificationService = notificationService;
+        this.enabled = enabled;
+        this.workerThreads = workerThreads;
+        this.batchSize = batchSize;
+        this.sendBatchSize = sendBatchSize;
+        this.pollIntervalMs = pollIntervalMs;
+        this.leaseSeconds = leaseSeconds;
+        this.idleSenders = new Semaphore(workerThreads);
+        this.sent = Counter.builder("notification.outbox.sent").tag("result", "sent")
+                .description("Notifications sent from the outbox").register(meterRegistry);
+        this.failed = Counter.builder("notification.outbox.sent").tag("result", "failed")
+                .description("Notifications sent from the outbox").register(meterRegistry);
+        this.sendTimer = Timer.builder("notification.outbox.send")
+                .description("Time to send one batch of notifications to the mail server").register(meterRegistry);
+        Gauge.builder("notification.outbox.in_flight", inFlight, AtomicInteger::get)
+                .description("Notifications claimed and being sent").register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        AtomicInteger threadCount = new AtomicInteger();
+        senders = Executors.newFixedThreadPool(workerThreads, runnable -> {
+            Thread thread = new Thread(runnable, "notification-outbox-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        running = true;
+        dispatcherThread = new Thread(this::dispatchLoop, "notification-outbox");
+        dispatcherThread.setDaemon(true);
+        dispatcherThread.start();
+        System.out.println("Notification outbox worker started with " + workerThreads + " senders");
+    }
+
+    /**
+     * Stop claiming and let sends in progress finish; rows still PENDING are picked up after restart
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (dispatcherThread == null) {
+            return;
+        }
+        running = false;
+        dispatcherThread.interrupt();
+        dispatcherThread.join(pollIntervalMs);
+        senders.shutdown();
+        senders.awaitTermination(30, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Claim right away when a notification has been committed
+     */
+    @EventListener
+    public void onNotificationQueued(NotificationService.NotificationQueuedEvent event) {
+        wakeUp();
+    }
+
+    public void wakeUp() {
+        wakeups.release();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int inFlightCount() {
+        return inFlight.get();
+    }
+
+    private void dispatchLoop() {
+        while (running) {
+            int slots = 0;
+            try {
+                idleSenders.acquire();
+                slots = 1 + idleSenders.drainPermits();
+                // Take the pending wakeups now; one arriving after the claim triggers another pass
+                wakeups.drainPermits();
+                List<OutboxRow> rows = claim(Math.min(slots * sendBatchSize, batchSize));
+                // Spread the rows evenly over the idle senders, one SMTP connection each
+                int chunkSize = rows.isEmpty() ? 1 : (rows.size() + slots - 1) / slots;
+                for (int from = 0; from < rows.size(); from += chunkSize) {
+                    List<OutboxRow> chunk = List.copyOf(rows.subList(from, Math.min(from + chunkSize, rows.size())));
+                    inFlight.addAndGet(chunk.size());
+                    slots--;
+                    senders.execute(() -> send(chunk));
+                }
+                idleSenders.release(slots);
+                slots = 0;
+                if (rows.isEmpty()) {
+                    wakeups.tryAcquire(pollIntervalMs, TimeUnit.MILLISECONDS);
+                }
+            } catch (InterruptedException e) {
+                // stop() clears running to end the loop
+                idleSenders.release(slots);
+            } catch (RuntimeException e) {
+                idleSenders.release(slots);
+                System.err.println("Notification outbox claim failed: " + e.getMessage());
+                sleepQuietly(pollIntervalMs);
+            }
+        }
+    }
+
+    /**
+     * Lock up to limit sendable rows, skipping rows other workers hold, and mark them SENDING
+     */
+    List<OutboxRow> claim(int limit) {
+        return transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<OutboxRow> rows = jdbcTemplate.query(CLAIM_SQL, ROW_MAPPER,
+                    Timestamp.valueOf(now.minusSeconds(leaseSeconds)), limit);
+            if (!rows.isEmpty()) {
+                jdbcTemplate.batchUpdate(MARK_SENDING_SQL, rows, rows.size(), (statement, row) -> {
+                    statement.setTimestamp(1, Timestamp.valueOf(now));
+                    statement.setLong(2, row.id());
+                });
+            }
+            return rows;
+        });
+    }
+
+    void send(List<OutboxRow> rows) {
+        long start = System.nanoTime();
+        try {
+            List<Exception> results = notificationService.sendHtmlEmails(rows.stream()
+                    .map(row -> new NotificationService.HtmlEmail(row.recipientEmail(), row.subject(), row.content()))
+                    .toList());
+            Timestamp sentAt = Timestamp.valueOf(LocalDateTime.now());
+            List<Object[]> sentRows = new ArrayList<>();
+            List<Object[]> failedRows = new ArrayList<>();
+            for (int i = 0; i < rows.size(); i++) {
+                OutboxRow row = rows.get(i);
+                Exception failure = results.get(i);
+                if (failure == null) {
+                    sentRows.add(new Object[]{sentAt, row.id()});
+                } else {
+                    failedRows.add(new Object[]{failure.getMessage(), row.id()});
+                    System.err.println("Failed to send notification " + row.id() + " to " + row.recipientEmail() + ": " + failure.getMessage());
+                }
+            }
+            jdbcTemplate.batchUpdate(MARK_SENT_SQL, sentRows);
+            jdbcTemplate.batchUpdate(MARK_FAILED_SQL, failedRows);
+            sent.increment(sentRows.size());
+            failed.increment(failedRows.size());
+            System.out.println("Sent " + sentRows.size() + " of " + rows.size() + " notifications");
+        } catch (InterruptedException e) {
+            // Shutting down; the rows are claimed again once their lease expires
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            System.err.println("Failed to send notification batch: " + e.getMessage());
+        } finally {
+            sendTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            inFlight.addAndGet(-rows.size());
+            idleSenders.release();
+        }
+    }
+
+    private void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
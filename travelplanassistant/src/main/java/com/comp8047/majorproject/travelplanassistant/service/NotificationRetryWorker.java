@@ -0,0 +1,263 @@
+package com.comp8047.majorproject.travelplanassistant.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Resends FAILED notifications. Each run claims a bounded batch of due rows with SELECT ... FOR UPDATE
+ * SKIP LOCKED, marks them RETRYING and sends them on a small pool. A failed retry is rescheduled with
+ * exponential backoff and jitter, and moved to DEAD_LETTER once it has used up its retries.
+ * Sends to one recipient mail domain are capped, so a slow or throttling mail host cannot take
+ * every sender.
+ */
+@Component
+public class NotificationRetryWorker {
+
+    // Due FAILED rows, read as one range of idx_notifications_status_next_attempt (NULL sorts first, never retried)
+    private static final String CLAIM_DUE_SQL = "SELECT id, recipient_email, subject, content, retry_count, max_retries "
+            + "FROM notifications WHERE status = 'FAILED' AND (next_attempt_at IS NULL OR next_attempt_at <= ?) "
+            + "AND retry_count < max_retries "
+            + "ORDER BY next_attempt_at, id LIMIT ? FOR UPDATE SKIP LOCKED";
+    // RETRYING rows whose worker died before finishing them; few, found through idx_notifications_status_id
+    private static final String CLAIM_EXPIRED_SQL = "SELECT id, recipient_email, subject, content, retry_count, max_retries "
+            + "FROM notifications WHERE status = 'RETRYING' AND claimed_at < ? "
+            + "ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED";
+    private static final String MARK_RETRYING_SQL = "UPDATE notifications SET status = 'RETRYING', claimed_at = ? WHERE id = ?";
+    private static final String MARK_SENT_SQL = "UPDATE notifications SET status = 'SENT', sent_at = ?, error_message = NULL, "
+            + "retry_count = ?, next_attempt_at = NULL WHERE id = ? AND status = 'RETRYING'";
+    private static final String MARK_FAILED_SQL = "UPDATE notifications SET status = ?, error_message = ?, "
+            + "retry_count = ?, next_attempt_at = ? WHERE id = ? AND status = 'RETRYING'";
+    private static final String QUEUE_DEPTH_SQL = "SELECT COUNT(*) FROM notifications "
+            + "WHERE status = 'FAILED' AND retry_count < max_retries";
+
+    record RetryRow(long id, String recipientEmail, String subject, String content, int retryCount, int maxRetries) {
+        String host() {
+            int at = recipientEmail.lastIndexOf('@');
+            return at >= 0 ? recipientEmail.substring(at + 1).toLowerCase(Locale.ROOT) : "";
+        }
+    }
+
+    private static final RowMapper<RetryRow> ROW_MAPPER = (rs, rowNum) -> new RetryRow(rs.getLong("id"),
+            rs.getString("recipient_email"), rs.getString("subject"), rs.getString("content"),
+            rs.getInt("retry_count"), rs.getInt("max_retries"));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final NotificationService notificationService;
+    private final boolean enabled;
+    private final int batchSize;
+    private final int workerThreads;
+    private final int maxPerHost;
+    private final long initialBackoffSeconds;
+    private final long maxBackoffSeconds;
+    private final long leaseSeconds;
+
+    // Recipient domain -> retries in flight; only domains with a send in flight are kept
+    private final Map<String, Integer> hostInFlight = new HashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong queueDepth = new AtomicLong();
+
+    private final Counter retriedSent;
+    private final Counter retriedFailed;
+    private final Counter deadLettered;
+    private final DistributionSummary batchSizes;
+
+    private ExecutorService senders;
+
+    @Autowired
+    public NotificationRetryWorker(JdbcTemplate jdbcTemplate,
+                                   PlatformTransactionManager transactionManager,
+                                   NotificationService notificationService,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${app.notification.retry.enabled:true}") boolean enabled,
+                                   @Value("${app.notification.retry.batch-size:50}") int batchSize,
+                                   @Value("${app.notification.retry.worker-threads:4}") int workerThreads,
+                                   @Value("${app.notification.retry.max-per-host:2}") int maxPerHost,
+                                   @Value("${app.notification.retry.initial-backoff-seconds:60}") long initialBackoffSeconds,
+                                   @Value("${app.notification.retry.max-backoff-seconds:3600}") long maxBackoffSeconds,
+                                   @Value("${app.notification.outbox.lease-seconds:300}") long leaseSeconds) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.notificationService = notificationService;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.workerThreads = workerThreads;
+        this.maxPerHost = maxPerHost;
+        this.initialBackoffSeconds = initialBackoffSeconds;
+        this.maxBackoffSeconds = maxBackoffSeconds;
+        this.leaseSeconds = leaseSeconds;
+        this.retriedSent = Counter.builder("notification.retry.attempts").tag("result", "sent")
+                .description("Notification retries by outcome").register(meterRegistry);
+        this.retriedFailed = Counter.builder("notification.retry.attempts").tag("result", "failed")
+                .description("Notification retries by outcome").register(meterRegistry);
+        this.deadLettered = Counter.builder("notification.retry.attempts").tag("result", "dead_letter")
+                .description("Notification retries by outcome").register(meterRegistry);
+        this.batchSizes = DistributionSummary.builder("notification.retry.batch.size")
+                .description("Notifications claimed per retry run").register(meterRegistry);
+        Gauge.builder("notification.retry.queue.depth", queueDepth, AtomicLong::get)
+                .description("Failed notifications waiting for a retry").register(meterRegistry);
+        Gauge.builder("notification.retry.in_flight", inFlight, AtomicInteger::get)
+                .description("Notification retries being sent").register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        AtomicInteger threadCount = new AtomicInteger();
+        senders = Executors.newFixedThreadPool(workerThreads, runnable -> {
+            Thread thread = new Thread(runnable, "notification-retry-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (senders != null) {
+            senders.shutdown();
+            senders.awaitTermination(30, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Claim due failed notifications, up to the batch size less the retries still in flight, and send them
+     */
+    @Scheduled(fixedDelayString = "${app.notification.retry.interval-ms:30000}")
+    public void retryFailed() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            int capacity = batchSize - inFlight.get();
+            List<RetryRow> rows = capacity > 0 ? claim(capacity) : List.of();
+            batchSizes.record(rows.size());
+            Long depth = jdbcTemplate.queryForObject(QUEUE_DEPTH_SQL, Long.class);
+            queueDepth.set(depth != null ? depth : 0);
+            for (RetryRow row : rows) {
+                inFlight.incrementAndGet();
+                senders.execute(() -> retry(row));
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Notification retry run failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Lock up to limit rows, expired RETRYING rows first and then due FAILED rows, skipping rows other workers
+     * hold and rows whose mail domain is at its cap, and mark them RETRYING. The caller owns a host slot for
+     * each returned row.
+     */
+    List<RetryRow> claim(int limit) {
+        List<RetryRow> claimed = new ArrayList<>();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                LocalDateTime now = LocalDateTime.now();
+                List<RetryRow> rows = new ArrayList<>(jdbcTemplate.query(CLAIM_EXPIRED_SQL, ROW_MAPPER,
+                        Timestamp.valueOf(now.minusSeconds(leaseSeconds)), limit));
+                if (rows.size() < limit) {
+                    rows.addAll(jdbcTemplate.query(CLAIM_DUE_SQL, ROW_MAPPER, Timestamp.valueOf(now), limit - rows.size()));
+                }
+                for (RetryRow row : rows) {
+                    if (tryAcquireHost(row.host())) {
+                        claimed.add(row);
+                    }
+                }
+                if (!claimed.isEmpty()) {
+                    jdbcTemplate.batchUpdate(MARK_RETRYING_SQL, claimed, claimed.size(), (statement, row) -> {
+                        statement.setTimestamp(1, Timestamp.valueOf(now));
+                        statement.setLong(2, row.id());
+                    });
+                }
+            });
+        } catch (RuntimeException e) {
+            claimed.forEach(row -> releaseHost(row.host()));
+            throw e;
+        }
+        return claimed;
+    }
+
+    void retry(RetryRow row) {
+        int retries = row.retryCount() + 1;
+        try {
+            notificationService.sendHtmlEmail(row.recipientEmail(), row.subject(), row.content());
+            jdbcTemplate.update(MARK_SENT_SQL, Timestamp.valueOf(LocalDateTime.now()), retries, row.id());
+            retriedSent.increment();
+            System.out.println("Notification " + row.id() + " sent to " + row.recipientEmail() + " on retry " + retries);
+        } catch (Exception e) {
+            if (retries >= row.maxRetries()) {
+                jdbcTemplate.update(MARK_FAILED_SQL, "DEAD_LETTER", e.getMessage(), retries, null, row.id());
+                deadLettered.increment();
+                System.err.println("Notification " + row.id() + " to " + row.recipientEmail()
+                        + " moved to dead letter after " + retries + " retries: " + e.getMessage());
+            } else {
+                LocalDateTime nextAttempt = LocalDateTime.now().plusNanos(backoffMillis(retries) * 1_000_000L);
+                jdbcTemplate.update(MARK_FAILED_SQL, "FAILED", e.getMessage(), retries, Timestamp.valueOf(nextAttempt), row.id());
+                retriedFailed.increment();
+            }
+        } finally {
+            releaseHost(row.host());
+            inFlight.decrementAndGet();
+        }
+    }
+
+    /**
+     * Delay before the next retry after the given number of retries: the initial backoff doubled per retry,
+     * capped, with the upper half drawn at random so retries of one outage spread out
+     */
+    long backoffMillis(int retries) {
+        long delaySeconds = initialBackoffSeconds << Math.min(Math.max(retries - 1, 0), 30);
+        long delayMs = Math.min(delaySeconds, maxBackoffSeconds) * 1000;
+        return delayMs / 2 + ThreadLocalRandom.current().nextLong(delayMs / 2 + 1);
+    }
+
+    public int inFlightCount() {
+        return inFlight.get();
+    }
+
+    public long queueDepth() {
+        return queueDepth.get();
+    }
+
+    private synchronized boolean tryAcquireHost(String host) {
+        int current = hostInFlight.getOrDefault(host, 0);
+        if (current >= maxPerHost) {
+            return false;
+        }
+        hostInFlight.put(host, current + 1);
+        return true;
+    }
+
+    private synchronized void releaseHost(String host) {
+        hostInFlight.computeIfPresent(host, (key, current) -> current > 1 ? current - 1 : null);
+    }
+}
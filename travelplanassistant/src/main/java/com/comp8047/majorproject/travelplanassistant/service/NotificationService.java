@@ -8,6 +8,7 @@ import com.comp8047.majorproject.travelplanassistant.repository.UserPlanStatusRe
 import com.comp8047.majorproject.travelplanassistant.repository.NotificationRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Service;
@@ -18,15 +19,38 @@ import jakarta.mail.internet.MimeMessage;
 import java.io.UnsupportedEncodingException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
- * Service for sending email notifications and reminders
+ * Service for sending email notifications and reminders. Notifications are written as PENDING in the
+ * caller's transaction (a transactional outbox) and sent by NotificationOutboxWorker after commit,
+ * so no request waits on the mail server. For users with email digest on, non-urgent notifications are
+ * held as DIGEST_PENDING instead and NotificationDigestWorker sends them together. Notifications for a
+ * user also appear in their in-app feed (NotificationFeedService) as soon as they commit.
  */
 @Service
 public class NotificationService {
 
+    private static final DateTimeFormatter DATE_TIME_FORMAT = DateTimeFormatter.ofPattern("MMM dd, yyyy 'at' HH:mm");
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("MMM dd, yyyy");
+
+    // Notification types that can wait for the recipient's digest; all others are sent right away
+    static final Set<Notification.NotificationType> DIGEST_TYPES = EnumSet.of(
+            Notification.NotificationType.APPLICATION_STATUS_UPDATE,
+            Notification.NotificationType.INVITATION_NOTIFICATION);
+
+    /**
+     * In-process notice that a notification was queued, delivered after commit
+     */
+    public record NotificationQueuedEvent(Long notificationId) {}
+
     @Autowired
     private JavaMailSender mailSender;
 
@@ -37,6 +61,18 @@ public class NotificationService {
     @Autowired
     private NotificationRepository notificationRepository;
 
+    @Autowired
+    private ApplicationEventPublisher applicationEventPublisher;
+
+    @Autowired
+    private SmtpConnectionPool smtpConnectionPool;
+
+    @Autowired
+    private EmailTemplates emailTemplates;
+
+    @Autowired
+    private NotificationFeedService notificationFeedService;
+
     @Value("${spring.mail.username}")
     private String fromEmail;
 
@@ -47,7 +83,7 @@ public class NotificationService {
     private String fromName;
 
     /**
-     * Send travel plan start reminder
+     * Queue travel plan start reminders for the active members
      */
     public void sendTravelPlanStartReminder(TravelPlan travelPlan) {
         if (!emailNotificationsEnabled) {
@@ -55,10 +91,11 @@ public class NotificationService {
         }
 
         List<User> members = getActiveMembers(travelPlan);
+        String subject = "Travel Plan Starting Soon: " + travelPlan.getTitle();
+        EmailTemplate template = bindTravelPlanStartTemplate(travelPlan);
         
         for (User member : members) {
-            String subject = "Travel Plan Starting Soon: " + travelPlan.getTitle();
-            String content = buildTravelPlanStartEmailContent(travelPlan, member);
+            String content = template.render(recipientValues(member));
             
             // Create notification record
             Notification notification = new Notification(
@@ -72,21 +109,12 @@ public class NotificationService {
                 member.getId()
             );
             
-            try {
-                sendHtmlEmail(member.getEmail(), subject, content);
-                notification.markAsSent();
-                System.out.println("Start reminder sent to: " + member.getEmail());
-            } catch (Exception e) {
-                notification.markAsFailed(e.getMessage());
-                System.err.println("Failed to send start reminder to " + member.getEmail() + ": " + e.getMessage());
-            } finally {
-                notificationRepository.save(notification);
-            }
+            enqueue(notification);
         }
     }
 
     /**
-     * Send travel plan completion reminder
+     * Queue travel plan completion reminders for the active members
      */
     public void sendTravelPlanCompletionReminder(TravelPlan travelPlan) {
         if (!emailNotificationsEnabled) {
@@ -95,10 +123,11 @@ public class NotificationService {
 
         try {
             List<User> members = getActiveMembers(travelPlan);
+            String subject = "Travel Plan Completed: " + travelPlan.getTitle();
+            EmailTemplate template = bindTravelPlanCompletionTemplate(travelPlan);
             
             for (User member : members) {
-                String subject = "Travel Plan Completed: " + travelPlan.getTitle();
-                String content = buildTravelPlanCompletionEmailContent(travelPlan, member);
+                String content = template.render(recipientValues(member));
                 
                 // Create notification record
                 Notification notification = new Notification(
@@ -112,16 +141,7 @@ public class NotificationService {
                     member.getId()
                 );
                 
-                try {
-                    sendHtmlEmail(member.getEmail(), subject, content);
-                    notification.markAsSent();
-                    System.out.println("Completion reminder sent to: " + member.getEmail());
-                } catch (Exception e) {
-                    notification.markAsFailed(e.getMessage());
-                    System.err.println("Failed to send completion reminder to " + member.getEmail() + ": " + e.getMessage());
-                } finally {
-                    notificationRepository.save(notification);
-                }
+                enqueue(notification);
             }
         } catch (Exception e) {
             System.err.println("Failed to send completion reminder: " + e.getMessage());
@@ -129,7 +149,7 @@ public class NotificationService {
     }
 
     /**
-     * Send application status notification
+     * Queue application status notification
      */
     public void sendApplicationStatusNotification(User user, TravelPlan travelPlan, UserPlanStatus.Status status) {
         if (!emailNotificationsEnabled) {
@@ -151,55 +171,48 @@ public class NotificationService {
             user.getId()
         );
         
-        try {
-            sendHtmlEmail(user.getEmail(), subject, content);
-            notification.markAsSent();
-            System.out.println("Application status notification sent to: " + user.getEmail());
-        } catch (Exception e) {
-            notification.markAsFailed(e.getMessage());
-            System.err.println("Failed to send application status notification to " + user.getEmail() + ": " + e.getMessage());
-        } finally {
-            notificationRepository.save(notification);
-        }
+        enqueue(notification, user);
     }
 
     /**
-     * Send invitation notification
+     * Queue invitation notification
      */
     public void sendInvitationNotification(User user, TravelPlan travelPlan, User inviter) {
-        if (!emailNotificationsEnabled) {
+        sendInvitationNotifications(List.of(user), travelPlan, inviter);
+    }
+
+    /**
+     * Queue invitation notifications for several invitees of one plan, binding the template once
+     */
+    public void sendInvitationNotifications(List<User> invitees, TravelPlan travelPlan, User inviter) {
+        if (!emailNotificationsEnabled || invitees.isEmpty()) {
             return;
         }
 
         String subject = "You're Invited to Join: " + travelPlan.getTitle();
-        String content = buildInvitationEmailContent(user, travelPlan, inviter);
-        
-        // Create notification record
-        Notification notification = new Notification(
-            user.getEmail(),
-            user.getFirstName() + " " + user.getLastName(),
-            subject,
-            content,
-            Notification.NotificationType.INVITATION_NOTIFICATION,
-            travelPlan.getId(),
-            inviter.getId(),
-            user.getId()
-        );
+        EmailTemplate template = bindInvitationTemplate(travelPlan, inviter);
         
-        try {
-            sendHtmlEmail(user.getEmail(), subject, content);
-            notification.markAsSent();
-            System.out.println("Invitation notification sent to: " + user.getEmail());
-        } catch (Exception e) {
-            notification.markAsFailed(e.getMessage());
-            System.err.println("Failed to send invitation notification to " + user.getEmail() + ": " + e.getMessage());
-        } finally {
-            notificationRepository.save(notification);
+        for (User user : invitees) {
+            String content = template.render(recipientValues(user));
+            
+            // Create notification record
+            Notification notification = new Notification(
+                user.getEmail(),
+                user.getFirstName() + " " + user.getLastName(),
+                subject,
+                content,
+                Notification.NotificationType.INVITATION_NOTIFICATION,
+                travelPlan.getId(),
+                inviter.getId(),
+                user.getId()
+            );
+            
+            enqueue(notification, user);
         }
     }
 
     /**
-     * Send custom notification
+     * Queue custom notification
      */
     public void sendCustomNotification(String toEmail, String subject, String content) {
         if (!emailNotificationsEnabled || !StringUtils.hasText(toEmail)) {
@@ -218,32 +231,124 @@ public class NotificationService {
             null  // No recipient user ID for custom notifications
         );
         
-        try {
-            sendHtmlEmail(toEmail, subject, content);
-            notification.markAsSent();
-            System.out.println("Custom notification sent to: " + toEmail);
-        } catch (Exception e) {
-            notification.markAsFailed(e.getMessage());
-            System.err.println("Failed to send custom notification to " + toEmail + ": " + e.getMessage());
-        } finally {
-            notificationRepository.save(notification);
+        enqueue(notification);
+    }
+
+
+    /**
+     * Save a notification as PENDING and wake the outbox worker once the surrounding transaction commits
+     */
+    void enqueue(Notification notification) {
+        notification.setStatus(Notification.NotificationStatus.PENDING);
+        Notification saved = notificationRepository.save(notification);
+        notificationFeedService.notificationCreated(saved);
+        publishQueuedAfterCommit(saved.getId());
+    }
+
+    /**
+     * Queue a notification for a user, holding it for their next digest if they have digest on and it can wait
+     */
+    void enqueue(Notification notification, User recipient) {
+        if (Boolean.TRUE.equals(recipient.getEmailDigest()) && DIGEST_TYPES.contains(notification.getNotificationType())) {
+            notification.setStatus(Notification.NotificationStatus.DIGEST_PENDING);
+            notificationFeedService.notificationCreated(notificationRepository.save(notification));
+            return;
         }
+        enqueue(notification);
     }
 
+    /**
+     * Wake the outbox worker for a notification made PENDING once the surrounding transaction commits
+     */
+    void publishQueuedAfterCommit(Long notificationId) {
+        TransactionCallbacks.afterCommit(() ->
+                applicationEventPublisher.publishEvent(new NotificationQueuedEvent(notificationId)));
+    }
+
+    /**
+     * A held notification summarised in a digest email
+     */
+    record DigestItem(String subject, LocalDateTime createdAt) {}
+
+    /**
+     * Queue one digest email for a recipient covering their held notifications
+     */
+    Notification enqueueDigest(String recipientEmail, String recipientName, Long recipientUserId, List<DigestItem> items) {
+        StringBuilder renderedItems = new StringBuilder();
+        for (DigestItem item : items) {
+            Map<String, Object> itemValues = new HashMap<>();
+            itemValues.put("subject", item.subject());
+            itemValues.put("createdAt", item.createdAt().format(DATE_TIME_FORMAT));
+            renderedItems.append(emailTemplates.digestItem().render(itemValues));
+        }
+
+        Map<String, Object> values = new HashMap<>();
+        values.put("recipientName", StringUtils.hasText(recipientName) ? recipientName : recipientEmail);
+        values.put("itemCount", items.size());
+        values.put("items", renderedItems);
+        Notification digest = new Notification(
+            recipientEmail,
+            recipientName,
+            "Your Travel Plan Updates: " + items.size() + " new",
+            emailTemplates.digest().render(values),
+            Notification.NotificationType.DIGEST,
+            null, // Covers several plans
+            null, // System notification
+            recipientUserId
+        );
+
+        enqueue(digest);
+        return digest;
+    }
+
+    /**
+     * An HTML email to send
+     */
+    record HtmlEmail(String to, String subject, String htmlContent) {}
 
     /**
      * Send HTML email
      */
-    void sendHtmlEmail(String to, String subject, String htmlContent) throws MessagingException, UnsupportedEncodingException {
+    void sendHtmlEmail(String to, String subject, String htmlContent) throws Exception {
+        Exception failure = sendHtmlEmails(List.of(new HtmlEmail(to, subject, htmlContent))).get(0);
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Send HTML emails over one pooled SMTP connection. Returns one entry per email: null if it was sent,
+     * otherwise the exception it failed with.
+     */
+    List<Exception> sendHtmlEmails(List<HtmlEmail> emails) throws InterruptedException {
+        List<Exception> results = new ArrayList<>(Collections.nCopies(emails.size(), null));
+        List<MimeMessage> messages = new ArrayList<>(emails.size());
+        List<Integer> indexes = new ArrayList<>(emails.size());
+        for (int i = 0; i < emails.size(); i++) {
+            try {
+                messages.add(createHtmlEmail(emails.get(i)));
+                indexes.add(i);
+            } catch (MessagingException | UnsupportedEncodingException e) {
+                results.set(i, e);
+            }
+        }
+        List<Exception> sendResults = smtpConnectionPool.send(messages);
+        for (int i = 0; i < indexes.size(); i++) {
+            results.set(indexes.get(i), sendResults.get(i));
+        }
+        return results;
+    }
+
+    private MimeMessage createHtmlEmail(HtmlEmail email) throws MessagingException, UnsupportedEncodingException {
         MimeMessage message = mailSender.createMimeMessage();
         MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
         
         helper.setFrom(fromEmail, fromName);
-        helper.setTo(to);
-        helper.setSubject(subject);
-        helper.setText(htmlContent, true);
+        helper.setTo(email.to());
+        helper.setSubject(email.subject());
+        helper.setText(email.htmlContent(), true);
         
-        mailSender.send(message);
+        return message;
     }
 
     /**
@@ -256,119 +361,38 @@ public class NotificationService {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Start email template with the plan's fields filled, shared by every member
+     */
+    EmailTemplate bindTravelPlanStartTemplate(TravelPlan travelPlan) {
+        Map<String, Object> values = planValues(travelPlan);
+        values.put("startDate", travelPlan.getStartDate().format(DATE_TIME_FORMAT));
+        values.put("endDate", travelPlan.getEndDate().format(DATE_TIME_FORMAT));
+        values.put("description", travelPlan.getDescription());
+        return emailTemplates.travelPlanStart().bind(values);
+    }
+
+    /**
+     * Completion email template with the plan's fields filled, shared by every member
+     */
+    EmailTemplate bindTravelPlanCompletionTemplate(TravelPlan travelPlan) {
+        Map<String, Object> values = planValues(travelPlan);
+        values.put("completedAt", LocalDateTime.now().format(DATE_TIME_FORMAT));
+        return emailTemplates.travelPlanCompletion().bind(values);
+    }
+
     /**
      * Build HTML content for travel plan start email
      */
     String buildTravelPlanStartEmailContent(TravelPlan travelPlan, User user) {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MMM dd, yyyy 'at' HH:mm");
-        
-        return String.format("""
-            <!DOCTYPE html>
-            <html>
-            <head>
-                <meta charset="UTF-8">
-                <style>
-                    body { font-family: Arial, sans-serif; line-height: 1.6; color: #333; }
-                    .container { max-width: 600px; margin: 0 auto; padding: 20px; }
-                    .header { background: linear-gradient(135deg, #667eea 0%%, #764ba2 100%%); color: white; padding: 30px; text-align: center; border-radius: 10px 10px 0 0; }
-                    .content { background: #f9f9f9; padding: 30px; border-radius: 0 0 10px 10px; }
-                    .plan-details { background: white; padding: 20px; border-radius: 8px; margin: 20px 0; box-shadow: 0 2px 4px rgba(0,0,0,0.1); }
-                    .button { display: inline-block; background: #667eea; color: white; padding: 12px 24px; text-decoration: none; border-radius: 5px; margin: 10px 0; }
-                    .footer { text-align: center; margin-top: 30px; color: #666; font-size: 14px; }
-                </style>
-            </head>
-            <body>
-                <div class="container">
-                    <div class="header">
-                        <h1>🚀 Your Travel Plan is Starting!</h1>
-                    </div>
-                    <div class="content">
-                        <p>Hi %s,</p>
-                        <p>Great news! Your travel plan is about to begin. Here are the details:</p>
-                        
-                        <div class="plan-details">
-                            <h3>📋 %s</h3>
-                            <p><strong>📍 Destination:</strong> %s, %s</p>
-                            <p><strong>📅 Start Date:</strong> %s</p>
-                            <p><strong>📅 End Date:</strong> %s</p>
-                            <p><strong>👥 Members:</strong> %d</p>
-                            <p><strong>📝 Description:</strong> %s</p>
-                        </div>
-                        
-                        <p>Have a wonderful trip! Safe travels! 🌍✈️</p>
-                        
-                        <div class="footer">
-                            <p>This is an automated message from Travel Plan Assistant</p>
-                        </div>
-                    </div>
-                </div>
-            </body>
-            </html>
-            """,
-            user.getFirstName(),
-            travelPlan.getTitle(),
-            travelPlan.getDestinationCity(),
-            travelPlan.getDestinationCountry(),
-            travelPlan.getStartDate().format(formatter),
-            travelPlan.getEndDate().format(formatter),
-            userPlanStatusRepository.countActiveMembers(travelPlan),
-            travelPlan.getDescription()
-        );
+        return bindTravelPlanStartTemplate(travelPlan).render(recipientValues(user));
     }
 
     /**
      * Build HTML content for travel plan completion email
      */
     String buildTravelPlanCompletionEmailContent(TravelPlan travelPlan, User user) {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MMM dd, yyyy 'at' HH:mm");
-        
-        return String.format("""
-            <!DOCTYPE html>
-            <html>
-            <head>
-                <meta charset="UTF-8">
-                <style>
-                    body { font-family: Arial, sans-serif; line-height: 1.6; color: #333; }
-                    .container { max-width: 600px; margin: 0 auto; padding: 20px; }
-                    .header { background: linear-gradient(135deg, #4CAF50 0%%, #45a049 100%%); color: white; padding: 30px; text-align: center; border-radius: 10px 10px 0 0; }
-                    .content { background: #f9f9f9; padding: 30px; border-radius: 0 0 10px 10px; }
-                    .plan-details { background: white; padding: 20px; border-radius: 8px; margin: 20px 0; box-shadow: 0 2px 4px rgba(0,0,0,0.1); }
-                    .footer { text-align: center; margin-top: 30px; color: #666; font-size: 14px; }
-                </style>
-            </head>
-            <body>
-                <div class="container">
-                    <div class="header">
-                        <h1>🎉 Travel Plan Completed!</h1>
-                    </div>
-                    <div class="content">
-                        <p>Hi %s,</p>
-                        <p>Congratulations! Your travel plan has been completed successfully.</p>
-                        
-                        <div class="plan-details">
-                            <h3>📋 %s</h3>
-                            <p><strong>📍 Destination:</strong> %s, %s</p>
-                            <p><strong>📅 Completed:</strong> %s</p>
-                            <p><strong>👥 Members:</strong> %d</p>
-                        </div>
-                        
-                        <p>We hope you had an amazing time! Share your memories and plan your next adventure! 🌟</p>
-                        
-                        <div class="footer">
-                            <p>This is an automated message from Travel Plan Assistant</p>
-                        </div>
-                    </div>
-                </div>
-            </body>
-            </html>
-            """,
-            user.getFirstName(),
-            travelPlan.getTitle(),
-            travelPlan.getDestinationCity(),
-            travelPlan.getDestinationCountry(),
-            LocalDateTime.now().format(formatter),
-            userPlanStatusRepository.countActiveMembers(travelPlan)
-        );
+        return bindTravelPlanCompletionTemplate(travelPlan).render(recipientValues(user));
     }
 
     /**
@@ -387,109 +411,49 @@ public class NotificationService {
             default -> "#2196F3";
         };
 
-        return String.format("""
-            <!DOCTYPE html>
-            <html>
-            <head>
-                <meta charset="UTF-8">
-                <style>
-                    body { font-family: Arial, sans-serif; line-height: 1.6; color: #333; }
-                    .container { max-width: 600px; margin: 0 auto; padding: 20px; }
-                    .header { background: %s; color: white; padding: 30px; text-align: center; border-radius: 10px 10px 0 0; }
-                    .content { background: #f9f9f9; padding: 30px; border-radius: 0 0 10px 10px; }
-                    .plan-details { background: white; padding: 20px; border-radius: 8px; margin: 20px 0; box-shadow: 0 2px 4px rgba(0,0,0,0.1); }
-                    .footer { text-align: center; margin-top: 30px; color: #666; font-size: 14px; }
-                </style>
-            </head>
-            <body>
-                <div class="container">
-                    <div class="header">
-                        <h1>📧 Application Update</h1>
-                    </div>
-                    <div class="content">
-                        <p>Hi %s,</p>
-                        <p>%s</p>
-                        
-                        <div class="plan-details">
-                            <h3>📋 %s</h3>
-                            <p><strong>📍 Destination:</strong> %s, %s</p>
-                            <p><strong>📅 Start Date:</strong> %s</p>
-                        </div>
-                        
-                        <div class="footer">
-                            <p>This is an automated message from Travel Plan Assistant</p>
-                        </div>
-                    </div>
-                </div>
-            </body>
-            </html>
-            """,
-            statusColor,
-            user.getFirstName(),
-            statusMessage,
-            travelPlan.getTitle(),
-            travelPlan.getDestinationCity(),
-            travelPlan.getDestinationCountry(),
-            travelPlan.getStartDate().format(DateTimeFormatter.ofPattern("MMM dd, yyyy"))
-        );
+        Map<String, Object> values = planValues(travelPlan);
+        values.put("firstName", user.getFirstName());
+        values.put("statusColor", statusColor);
+        values.put("statusMessage", statusMessage);
+        values.put("startDate", travelPlan.getStartDate().format(DATE_FORMAT));
+        return emailTemplates.applicationStatus().render(values);
     }
 
     /**
      * Build HTML content for invitation email
      */
     String buildInvitationEmailContent(User user, TravelPlan travelPlan, User inviter) {
-        return String.format("""
-            <!DOCTYPE html>
-            <html>
-            <head>
-                <meta charset="UTF-8">
-                <style>
-                    body { font-family: Arial, sans-serif; line-height: 1.6; color: #333; }
-                    .container { max-width: 600px; margin: 0 auto; padding: 20px; }
-                    .header { background: linear-gradient(135deg, #FF9800 0%%, #F57C00 100%%); color: white; padding: 30px; text-align: center; border-radius: 10px 10px 0 0; }
-                    .content { background: #f9f9f9; padding: 30px; border-radius: 0 0 10px 10px; }
-                    .plan-details { background: white; padding: 20px; border-radius: 8px; margin: 20px 0; box-shadow: 0 2px 4px rgba(0,0,0,0.1); }
-                    .button { display: inline-block; background: #FF9800; color: white; padding: 12px 24px; text-decoration: none; border-radius: 5px; margin: 10px 0; }
-                    .footer { text-align: center; margin-top: 30px; color: #666; font-size: 14px; }
-                </style>
-            </head>
-            <body>
-                <div class="container">
-                    <div class="header">
-                        <h1>🎯 You're Invited!</h1>
-                    </div>
-                    <div class="content">
-                        <p>Hi %s,</p>
-                        <p><strong>%s</strong> has invited you to join their travel plan!</p>
-                        
-                        <div class="plan-details">
-                            <h3>📋 %s</h3>
-                            <p><strong>📍 Destination:</strong> %s, %s</p>
-                            <p><strong>📅 Start Date:</strong> %s</p>
-                            <p><strong>📅 End Date:</strong> %s</p>
-                            <p><strong>👥 Current Members:</strong> %d</p>
-                            <p><strong>📝 Description:</strong> %s</p>
-                        </div>
-                        
-                        <p><a href="http://localhost:5173">Log in</a> to your account to accept or decline this invitation.</p>
-                        
-                        <div class="footer">
-                            <p>This is an automated message from Let's Go Travel Plan Assistant</p>
-                        </div>
-                    </div>
-                </div>
-            </body>
-            </html>
-            """,
-            user.getFirstName(),
-            inviter.getFirstName() + " " + inviter.getLastName(),
-            travelPlan.getTitle(),
-            travelPlan.getDestinationCity(),
-            travelPlan.getDestinationCountry(),
-            travelPlan.getStartDate().format(DateTimeFormatter.ofPattern("MMM dd, yyyy")),
-            travelPlan.getEndDate().format(DateTimeFormatter.ofPattern("MMM dd, yyyy")),
-            userPlanStatusRepository.countActiveMembers(travelPlan),
-            travelPlan.getDescription()
-        );
+        return bindInvitationTemplate(travelPlan, inviter).render(recipientValues(user));
+    }
+
+    /**
+     * Invitation email template with the plan and inviter filled, shared by every invitee
+     */
+    EmailTemplate bindInvitationTemplate(TravelPlan travelPlan, User inviter) {
+        Map<String, Object> values = planValues(travelPlan);
+        values.put("inviterName", inviter.getFirstName() + " " + inviter.getLastName());
+        values.put("startDate", travelPlan.getStartDate().format(DATE_FORMAT));
+        values.put("endDate", travelPlan.getEndDate().format(DATE_FORMAT));
+        values.put("description", travelPlan.getDescription());
+        return emailTemplates.invitation().bind(values);
+    }
+
+    /**
+     * Template values common to the plan emails
+     */
+    private static Map<String, Object> planValues(TravelPlan travelPlan) {
+        Map<String, Object> values = new HashMap<>();
+        values.put("title", travelPlan.getTitle());
+        values.put("destinationCity", travelPlan.getDestinationCity());
+        values.put("destinationCountry", travelPlan.getDestinationCountry());
+        values.put("memberCount", travelPlan.getCurrentMemberCount());
+        return values;
+    }
+
+    /**
+     * Template values that differ per recipient
+     */
+    private static Map<String, Object> recipientValues(User user) {
+        return Collections.singletonMap("firstName", user.getFirstName());
     }
 }
@@ -0,0 +1,73 @@
+package com.comp8047.majorproject.travelplanassistant.service;
+
+import com.comp8047.majorproject.travelplanassistant.entity.TravelPlan;
+import com.comp8047.majorproject.travelplanassistant.entity.UserPlanStatus;
+import com.comp8047.majorproject.travelplanassistant.repository.UserPlanStatusRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Refuses every pending application and invitation on a travel plan when it is closed, filled or started.
+ * The pending rows are locked and read as (user id, status) pairs, then flipped with one bulk UPDATE per
+ * status instead of loading and saving each row. Runs in the caller's transaction.
+ */
+@Component
+public class PendingRequestRefusals {
+
+    /**
+     * Users whose pending application or invitation was refused
+     */
+    public record Refused(List<Long> applicantIds, List<Long> inviteeIds) {
+        public List<Long> userIds() {
+            List<Long> userIds = new ArrayList<>(applicantIds);
+            userIds.addAll(inviteeIds);
+            return userIds;
+        }
+    }
+
+    @Autowired
+    private UserPlanStatusRepository userPlanStatusRepository;
+
+    @Autowired
+    private PlanEventPublisher planEventPublisher;
+
+    /**
+     * Refuse all pending applications and invitations for a travel plan and notify each affected user
+     */
+    public Refused refuseAll(TravelPlan plan) {
+        List<Long> applicantIds = new ArrayList<>();
+        List<Long> inviteeIds = new ArrayList<>();
+        for (Object[] row : userPlanStatusRepository.findPendingForUpdate(plan.getId())) {
+            if (row[1] == UserPlanStatus.Status.APPLIED) {
+                applicantIds.add((Long) row[0]);
+            } else {
+                inviteeIds.add((Long) row[0]);
+            }
+        }
+        if (applicantIds.isEmpty() && inviteeIds.isEmpty()) {
+            return new Refused(applicantIds, inviteeIds);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        if (!applicantIds.isEmpty()) {
+            userPlanStatusRepository.updateStatusForPlan(plan.getId(),
+                    UserPlanStatus.Status.APPLIED, UserPlanStatus.Status.APPLIED_REFUSED, now);
+        }
+        if (!inviteeIds.isEmpty()) {
+            userPlanStatusRepository.updateStatusForPlan(plan.getId(),
+                    UserPlanStatus.Status.INVITED, UserPlanStatus.Status.INVITED_REFUSED, now);
+        }
+
+        for (Long userId : applicantIds) {
+            planEventPublisher.membershipChanged(userId, plan.getId(), UserPlanStatus.Status.APPLIED_REFUSED);
+        }
+        for (Long userId : inviteeIds) {
+            planEventPublisher.membershipChanged(userId, plan.getId(), UserPlanStatus.Status.INVITED_REFUSED);
+        }
+        return new Refused(applicantIds, inviteeIds);
+    }
+}
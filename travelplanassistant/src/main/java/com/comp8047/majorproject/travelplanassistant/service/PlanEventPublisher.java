@@ -0,0 +1,73 @@
+package com.comp8047.majorproject.travelplanassistant.service;
+
+import com.comp8047.majorproject.travelplanassistant.dto.PlanEvent;
+import com.comp8047.majorproject.travelplanassistant.entity.UserPlanStatus;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Pushes change events to STOMP subscribers after the surrounding transaction commits:
+ * /topic/plan/{planId}/events for plan, member, poll and expense changes,
+ * /topic/user/{userId}/events for changes to the user's own membership, and
+ * /topic/plans/events when the set of discoverable plans changes.
+ * Membership changes are also published in-process as MembershipChangedEvent.
+ */
+@Component
+public class PlanEventPublisher {
+
+    public static final String PLAN_TOPIC = "/topic/plan/%d/events";
+    public static final String USER_TOPIC = "/topic/user/%d/events";
+    public static final String DISCOVERY_TOPIC = "/topic/plans/events";
+
+    /**
+     * In-process notice that a user's status on a plan changed, delivered after commit
+     */
+    public record MembershipChangedEvent(Long userId, Long planId, UserPlanStatus.Status status) {}
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher applicationEventPublisher;
+
+    public PlanEventPublisher(SimpMessagingTemplate messagingTemplate, ApplicationEventPublisher applicationEventPublisher) {
+        this.messagingTemplate = messagingTemplate;
+        this.applicationEventPublisher = applicationEventPublisher;
+    }
+
+    /**
+     * Publish a change to everyone watching a plan
+     */
+    public void planChanged(Long planId, PlanEvent.Type type, Long entityId) {
+        send(String.format(PLAN_TOPIC, planId), new PlanEvent(type, planId, entityId, null));
+    }
+
+    /**
+     * Publish a change of the user's status on a plan to that user, and a member list change to the plan
+     */
+    public void membershipChanged(Long userId, Long planId, UserPlanStatus.Status status) {
+        TransactionCallbacks.afterCommit(() ->
+                applicationEventPublisher.publishEvent(new MembershipChangedEvent(userId, planId, status)));
+        send(String.format(USER_TOPIC, userId), new PlanEvent(PlanEvent.Type.MEMBERSHIP_CHANGED, planId, userId, status));
+        planChanged(planId, PlanEvent.Type.MEMBERS_CHANGED, userId);
+    }
+
+    /**
+     * Publish that a plan appeared in or dropped out of discovery
+     */
+    public void discoveryChanged(Long planId, PlanEvent.Type type) {
+        send(DISCOVERY_TOPIC, new PlanEvent(type, planId, null, null));
+    }
+
+    private void send(String destination, PlanEvent event) {
+        TransactionCallbacks.afterCommit(() -> {
+            try {
+                messagingTemplate.convertAndSend(destination, event);
+            } catch (Exception e) {
+                System.err.println("Failed to publish " + event.getType() + " to " + destination + ": " + e.getMessage());
+            }
+        });
+    }
+}
@@ -0,0 +1,362 @@
+package com.comp8047.majorproject.travelplanassistant.service;
+
+import com.comp8047.majorproject.travelplanassistant.entity.TravelPlan;
+import com.comp8047.majorproject.travelplanassistant.repository.TravelPlanRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory inverted index over searchable (PUBLIC, NEW, not full) travel plans.
+ * Indexes title, destination and description tokens; queries match term prefixes and are ranked with BM25.
+ * The index is node-local: updates only reach the node that made them, so in broker modes RELAY and DATABASE
+ * plans changed since the last load (by updated_at) are re-read periodically. Search hits are rechecked
+ * against the rows when loaded.
+ */
+@Component
+public class PlanSearchIndex {
+
+    private static final double BM25_K1 = 1.2;
+    private static final double BM25_B = 0.75;
+
+    // Title and destination tokens count more than description tokens
+    private static final int TITLE_WEIGHT = 3;
+    private static final int DESTINATION_WEIGHT = 2;
+    private static final int DESCRIPTION_WEIGHT = 1;
+
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+
+    // Rows are stamped with the writing node's clock before commit, so each refresh looks back this far
+    // before the previous read to cover clock skew and transactions still open at that read
+    private static final Duration REFRESH_LOOKBACK = Duration.ofMinutes(2);
+
+    @Autowired
+    private TravelPlanRepository travelPlanRepository;
+
+    // Other nodes change plans without updating this node's index
+    @Value("#{'${app.websocket.broker.mode:SIMPLE}' != 'SIMPLE'}")
+    private boolean multiNode;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // term -> (planId -> weighted term frequency), sorted so prefix lookups are a sub-map scan
+    private final TreeMap<String, Map<Long, Integer>> postings = new TreeMap<>();
+
+    // planId -> (term -> weighted term frequency), used to unindex a plan
+    private final Map<Long, Map<String, Integer>> documents = new HashMap<>();
+
+    private final Map<Long, Integer> documentLengths = new HashMap<>();
+
+    private long totalDocumentLength;
+
+    // One rebuild or refresh at a time
+    private final Object loadMonitor = new Object();
+
+    // Plans changed on this node while a load reads the database, guarded by the lock; null when no load runs
+    private Set<Long> changedDuringLoad;
+
+    // updated_at the next refresh reads from; null until the first rebuild
+    private volatile LocalDateTime refreshedSince;
+
+    /**
+     * Rebuild the index from the database at startup. Plans changed on this node while the rows were being read
+     * keep their indexed state, since the rows read for them may predate the change.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        synchronized (loadMonitor) {
+            LocalDateTime readStartedAt = LocalDateTime.now();
+            startLoad();
+            List<TravelPlan> plans;
+            try {
+                plans = travelPlanRepository.findByPlanTypeAndStatus(TravelPlan.PlanType.PUBLIC, TravelPlan.Status.NEW);
+            } catch (RuntimeException e) {
+                endLoad();
+                throw e;
+            }
+            lock.writeLock().lock();
+            try {
+                Set<Long> changed = endLoad();
+                Map<Long, Map<String, Integer>> kept = new HashMap<>();
+                for (Long planId : changed) {
+                    if (documents.containsKey(planId)) {
+                        kept.put(planId, documents.get(planId));
+                    }
+                }
+                postings.clear();
+                documents.clear();
+                documentLengths.clear();
+                totalDocumentLength = 0;
+                for (TravelPlan plan : plans) {
+                    if (!changed.contains(plan.getId()) && isSearchable(plan)) {
+                        addDocument(plan.getId(), termFrequencies(plan));
+                    }
+                }
+                kept.forEach(this::addDocument);
+            } finally {
+                lock.writeLock().unlock();
+            }
+            refreshedSince = readStartedAt.minus(REFRESH_LOOKBACK);
+        }
+        System.out.println("Plan search index rebuilt with " + size() + " plans");
+    }
+
+    /**
+     * Pick up plans created or changed on other nodes since the last load, by their updated_at;
+     * a no-op in broker mode SIMPLE
+     */
+    @Scheduled(fixedDelayString = "${app.search.index.refresh-ms:30000}",
+            initialDelayString = "${app.search.index.refresh-ms:30000}")
+    public void refresh() {
+        if (!multiNode) {
+            return;
+        }
+        synchronized (loadMonitor) {
+            if (refreshedSince == null) {
+                rebuild();
+                return;
+            }
+            LocalDateTime readStartedAt = LocalDateTime.now();
+            startLoad();
+            List<TravelPlan> plans;
+            try {
+                plans = travelPlanRepository.findByUpdatedAtAfter(refreshedSince);
+            } catch (RuntimeException e) {
+                endLoad();
+                throw e;
+            }
+            lock.writeLock().lock();
+            try {
+                Set<Long> changed = endLoad();
+                for (TravelPlan plan : plans) {
+                    if (!changed.contains(plan.getId())) {
+                        removeDocument(plan.getId());
+                        if (isSearchable(plan)) {
+                            addDocument(plan.getId(), termFrequencies(plan));
+                        }
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            refreshedSince = readStartedAt.minus(REFRESH_LOOKBACK);
+        }
+    }
+
+    /**
+     * Index or unindex a plan depending on whether it is still searchable.
+     * Inside a transaction the change is applied only after commit.
+     */
+    public void update(TravelPlan plan) {
+        Long planId = plan.getId();
+        Map<String, Integer> terms = isSearchable(plan) ? termFrequencies(plan) : null;
+        TransactionCallbacks.afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                changedLocally(planId);
+                removeDocument(planId);
+                if (terms != null) {
+                    addDocument(planId, terms);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Remove a plan from the index
+     */
+    public void remove(Long planId) {
+        TransactionCallbacks.afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                changedLocally(planId);
+                removeDocument(planId);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Search plans by keyword; every query token must match a term prefix.
+     * Returns plan ids ordered by descending BM25 score.
+     */
+    public List<Long> search(String query, int limit) {
+        List<String> queryTokens = tokenize(query).stream().distinct().collect(Collectors.toList());
+        if (queryTokens.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        lock.readLock().lock();
+        try {
+            int documentCount = documents.size();
+            if (documentCount == 0) {
+                return new ArrayList<>();
+            }
+            double averageLength = (double) totalDocumentLength / documentCount;
+
+            Map<Long, Double> scores = null;
+            for (String token : queryTokens) {
+                Map<Long, Double> tokenScores = new HashMap<>();
+                SortedMap<String, Map<Long, Integer>> matches = postings.subMap(token, token + Character.MAX_VALUE);
+                for (Map<Long, Integer> posting : matches.values()) {
+                    double idf = Math.log(1 + (documentCount - posting.size() + 0.5) / (posting.size() + 0.5));
+                    for (Map.Entry<Long, Integer> entry : posting.entrySet()) {
+                        int frequency = entry.getValue();
+                        double lengthNorm = 1 - BM25_B + BM25_B * documentLengths.get(entry.getKey()) / averageLength;
+                        double score = idf * frequency * (BM25_K1 + 1) / (frequency + BM25_K1 * lengthNorm);
+                        tokenScores.merge(entry.getKey(), score, Double::sum);
+                    }
+                }
+                if (scores == null) {
+                    scores = tokenScores;
+                } else {
+                    // AND semantics: keep only plans matching every token so far
+                    scores.keySet().retainAll(tokenScores.keySet());
+                    scores.replaceAll((planId, score) -> score + tokenScores.get(planId));
+                }
+                if (scores.isEmpty()) {
+                    return new ArrayList<>();
+                }
+            }
+
+            return scores.entrySet().stream()
+                    .sorted(Map.Entry.<Long, Double>comparingByValue().reversed()
+                            .thenComparing(Map.Entry.comparingByKey(Comparator.reverseOrder())))
+                    .limit(limit)
+                    .map(Map.Entry::getKey)
+                    .collect(Collectors.toList());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Number of indexed plans
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private boolean isSearchable(TravelPlan plan) {
+        return plan.getPlanType() == TravelPlan.PlanType.PUBLIC
+                && plan.getStatus() == TravelPlan.Status.NEW
+                && !plan.isFull();
+    }
+
+    private Map<String, Integer> termFrequencies(TravelPlan plan) {
+        Map<String, Integer> terms = new HashMap<>();
+        addTokens(terms, plan.getTitle(), TITLE_WEIGHT);
+        addTokens(terms, plan.getDestinationCity(), DESTINATION_WEIGHT);
+        addTokens(terms, plan.getDestinationCountry(), DESTINATION_WEIGHT);
+        addTokens(terms, plan.getDescription(), DESCRIPTION_WEIGHT);
+        return terms;
+    }
+
+    private void addTokens(Map<String, Integer> terms, String text, int weight) {
+        for (String token : tokenize(text)) {
+            terms.merge(token, weight, Integer::sum);
+        }
+    }
+
+    /**
+     * Lowercase, strip accents and split on anything that is not a letter or digit
+     */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isBlank()) {
+            return tokens;
+        }
+        String normalized = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("")
+                .toLowerCase(Locale.ROOT);
+        for (String token : TOKEN_SEPARATOR.split(normalized)) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private void startLoad() {
+        lock.writeLock().lock();
+        try {
+            changedDuringLoad = new HashSet<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Returns the plans changed on this node since startLoad
+    private Set<Long> endLoad() {
+        lock.writeLock().lock();
+        try {
+            Set<Long> changed = changedDuringLoad;
+            changedDuringLoad = null;
+            return changed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void changedLocally(Long planId) {
+        if (changedDuringLoad != null) {
+            changedDuringLoad.add(planId);
+        }
+    }
+
+    private void addDocument(Long planId, Map<String, Integer> terms) {
+        int length = 0;
+        for (Map.Entry<String, Integer> term : terms.entrySet()) {
+            postings.computeIfAbsent(term.getKey(), key -> new HashMap<>()).put(planId, term.getValue());
+            length += term.getValue();
+        }
+        documents.put(planId, terms);
+        documentLengths.put(planId, length);
+        totalDocumentLength += length;
+    }
+
+    private void removeDocument(Long planId) {
+        Map<String, Integer> terms = documents.remove(planId);
+        if (terms == null) {
+            return;
+        }
+        for (String term : terms.keySet()) {
+            Map<Long, Integer> posting = postings.get(term);
+            if (posting != null) {
+                posting.remove(planId);
+                if (posting.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+        totalDocumentLength -= documentLengths.remove(planId);
+    }
+}
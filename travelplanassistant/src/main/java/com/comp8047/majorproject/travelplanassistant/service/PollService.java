@@ -1,5 +1,6 @@
 package com.comp8047.majorproject.travelplanassistant.service;
 
+import com.comp8047.majorproject.travelplanassistant.dto.PlanEvent;
 import com.comp8047.majorproject.travelplanassistant.entity.Poll;
 import com.comp8047.majorproject.travelplanassistant.entity.TravelPlan;
 import com.comp8047.majorproject.travelplanassistant.entity.User;
@@ -34,6 +35,9 @@ public class PollService {
     @Autowired
     private UserPlanStatusRepository userPlanStatusRepository;
     
+    @Autowired
+    private PlanEventPublisher planEventPublisher;
+    
     /**
      * Create a new poll
      */
@@ -71,6 +75,7 @@ public class PollService {
         }
         
         Poll savedPoll = pollRepository.save(poll);
+        planEventPublisher.planChanged(plan.getId(), PlanEvent.Type.POLL_CREATED, savedPoll.getId());
         
         return convertToResponse(savedPoll, creator);
     }
@@ -162,6 +167,7 @@ public class PollService {
         Poll.PollVote vote = new Poll.PollVote(poll, selectedOption, user);
         poll.getVotes().add(vote);
         Poll savedPoll = pollRepository.save(poll);
+        planEventPublisher.planChanged(poll.getTravelPlan().getId(), PlanEvent.Type.POLL_UPDATED, poll.getId());
         
         return convertToResponse(savedPoll, user);
     }
@@ -184,6 +190,7 @@ public class PollService {
         
         poll.setStatus(Poll.PollStatus.CLOSED);
         Poll savedPoll = pollRepository.save(poll);
+        planEventPublisher.planChanged(poll.getTravelPlan().getId(), PlanEvent.Type.POLL_UPDATED, poll.getId());
         
         return convertToResponse(savedPoll, user);
     }
@@ -205,6 +212,7 @@ public class PollService {
         }
         
         pollRepository.delete(poll);
+        planEventPublisher.planChanged(poll.getTravelPlan().getId(), PlanEvent.Type.POLL_DELETED, pollId);
     }
     
     /**
@@ -0,0 +1,71 @@
+package com.comp8047.majorproject.travelplanassistant.service;
+
+import com.comp8047.majorproject.travelplanassistant.entity.SchedulerLease;
+import com.comp8047.majorproject.travelplanassistant.repository.SchedulerLeaseRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Leases in scheduler_leases that let one app node at a time run a scheduled job. Each call commits on
+ * its own, so the lease is visible to other nodes while the job runs.
+ */
+@Component
+public class SchedulerLeases {
+
+    private final SchedulerLeaseRepository schedulerLeaseRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    @Autowired
+    public SchedulerLeases(SchedulerLeaseRepository schedulerLeaseRepository, PlatformTransactionManager transactionManager) {
+        this.schedulerLeaseRepository = schedulerLeaseRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Take the named lease for the given duration, or extend it if this node already holds it.
+     * Returns false while another node holds it.
+     */
+    public boolean tryAcquire(String name, Duration duration) {
+        try {
+            return Boolean.TRUE.equals(transactionTemplate.execute(status -> acquire(name, duration)));
+        } catch (DataIntegrityViolationException e) {
+            // Another node created the lease row first and holds it
+            return false;
+        }
+    }
+
+    /**
+     * Give up the named lease if this node holds it
+     */
+    public void release(String name) {
+        transactionTemplate.executeWithoutResult(status ->
+                schedulerLeaseRepository.release(name, nodeId, LocalDateTime.now()));
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    private boolean acquire(String name, Duration duration) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime leaseUntil = now.plus(duration);
+        if (schedulerLeaseRepository.tryAcquire(name, nodeId, now, leaseUntil) > 0) {
+            return true;
+        }
+        if (schedulerLeaseRepository.existsById(name)) {
+            return false;
+        }
+        schedulerLeaseRepository.saveAndFlush(new SchedulerLease(name, nodeId, leaseUntil));
+        return true;
+    }
+}
@@ -1,5 +1,6 @@
 package com.comp8047.majorproject.travelplanassistant.service;
 
+import com.comp8047.majorproject.travelplanassistant.dto.PlanEvent;
 import com.comp8047.majorproject.travelplanassistant.dto.SharedExpenseRequest;
 import com.comp8047.majorproject.travelplanassistant.dto.SharedExpenseResponse;
 import com.comp8047.majorproject.travelplanassistant.entity.*;
@@ -28,6 +29,9 @@ public class SharedExpenseService {
     @Autowired
     private UserRepository userRepository;
     
+    @Autowired
+    private PlanEventPublisher planEventPublisher;
+    
     /**
      * Create a new shared expense
      */
@@ -70,6 +74,7 @@ public class SharedExpenseService {
             }
             savedExpense = sharedExpenseRepository.save(savedExpense);
         }
+        planEventPublisher.planChanged(planId, PlanEvent.Type.EXPENSE_CREATED, savedExpense.getId());
         
         return convertToResponse(savedExpense);
     }
@@ -144,6 +149,7 @@ public class SharedExpenseService {
         }
         
         SharedExpense savedExpense = sharedExpenseRepository.save(expense);
+        planEventPublisher.planChanged(expense.getTravelPlan().getId(), PlanEvent.Type.EXPENSE_UPDATED, expenseId);
         return convertToResponse(savedExpense);
     }
     
@@ -160,6 +166,7 @@ public class SharedExpenseService {
         }
         
         sharedExpenseRepository.delete(expense);
+        planEventPublisher.planChanged(expense.getTravelPlan().getId(), PlanEvent.Type.EXPENSE_DELETED, expenseId);
     }
     
     /**
@@ -183,6 +190,7 @@ public class SharedExpenseService {
         allocation.setPaidAt(LocalDateTime.now());
         
         SharedExpense savedExpense = sharedExpenseRepository.save(expense);
+        planEventPublisher.planChanged(expense.getTravelPlan().getId(), PlanEvent.Type.EXPENSE_UPDATED, expenseId);
         return convertToResponse(savedExpense);
     }
     
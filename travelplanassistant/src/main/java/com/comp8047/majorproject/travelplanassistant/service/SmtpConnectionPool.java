@@ -0,0 +1,211 @@
+package com.comp8047.majorproject.travelplanassistant.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.Address;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps a small pool of connected, authenticated SMTP sessions and sends batches of messages over one of them,
+ * so the TCP, STARTTLS and AUTH handshake is paid once per connection instead of once per message as with
+ * JavaMailSender.send. Connections idle longer than the timeout, or used for the per-connection message limit,
+ * are closed. Falls back to JavaMailSender.send when the sender is not a JavaMailSenderImpl.
+ */
+@Component
+public class SmtpConnectionPool {
+
+    private static final class PooledConnection {
+        private final Transport transport;
+        private int messagesSent;
+        private long lastUsed = System.currentTimeMillis();
+
+        private PooledConnection(Transport transport) {
+            this.transport = transport;
+        }
+    }
+
+    private final JavaMailSender mailSender;
+    private final int maxMessagesPerConnection;
+    private final long idleTimeoutMs;
+
+    // Most recently used first, so surplus connections age out at the tail
+    private final BlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final Semaphore permits;
+    private final AtomicInteger open = new AtomicInteger();
+
+    private final Counter connectionsCreated;
+    private final DistributionSummary batchSizes;
+
+    @Autowired
+    public SmtpConnectionPool(JavaMailSender mailSender,
+                              MeterRegistry meterRegistry,
+                              @Value("${app.notification.smtp.pool-size:3}") int poolSize,
+                              @Value("${app.notification.smtp.max-messages-per-connection:100}") int maxMessagesPerConnection,
+                              @Value("${app.notification.smtp.idle-timeout-ms:60000}") long idleTimeoutMs) {
+        this.mailSender = mailSender;
+        this.maxMessagesPerConnection = maxMessagesPerConnection;
+        this.idleTimeoutMs = idleTimeoutMs;
+        this.permits = new Semaphore(poolSize, true);
+        this.connectionsCreated = Counter.builder("mail.smtp.connections.created")
+                .description("SMTP connections opened by the pool").register(meterRegistry);
+        this.batchSizes = DistributionSummary.builder("mail.smtp.batch.size")
+                .description("Messages sent per pooled SMTP connection checkout").register(meterRegistry);
+        Gauge.builder("mail.smtp.connections.open", open, AtomicInteger::get)
+                .description("Open pooled SMTP connections").register(meterRegistry);
+    }
+
+    /**
+     * Send the messages over a pooled connection, moving to a fresh one whenever the per-connection message
+     * limit is reached. Returns one entry per message: null if it was sent,
+     * otherwise the exception it failed with. A failure only affects its own message.
+     */
+    public List<Exception> send(List<MimeMessage> messages) throws InterruptedException {
+        List<Exception> results = new ArrayList<>(messages.size());
+        if (!(mailSender instanceof JavaMailSenderImpl senderImpl)) {
+            for (MimeMessage message : messages) {
+                try {
+                    mailSender.send(message);
+                    results.add(null);
+                } catch (Exception e) {
+                    results.add(e);
+                }
+            }
+            return results;
+        }
+        permits.acquire();
+        PooledConnection connection = null;
+        try {
+            batchSizes.record(messages.size());
+            for (MimeMessage message : messages) {
+                if (connection != null && connection.messagesSent >= maxMessagesPerConnection) {
+                    // Rotate mid-batch so no connection carries more than the limit, however large the batch
+                    close(connection);
+                    connection = null;
+                }
+                if (connection == null) {
+                    try {
+                        connection = checkOut(senderImpl);
+                    } catch (MessagingException e) {
+                        // Server unreachable or login refused: the rest of the batch would fail the same way
+                        while (results.size() < messages.size()) {
+                            results.add(e);
+                        }
+                        break;
+                    }
+                }
+                try {
+                    sendMessage(connection, message);
+                    results.add(null);
+                } catch (MessagingException e) {
+                    results.add(e);
+                    if (!connection.transport.isConnected()) {
+                        close(connection);
+                        connection = null;
+                    }
+                }
+            }
+        } finally {
+            if (connection != null) {
+                checkIn(connection);
+            }
+            permits.release();
+        }
+        return results;
+    }
+
+    /**
+     * Close connections left idle past the timeout, before the server drops them
+     */
+    @Scheduled(fixedDelay = 30000)
+    public void closeIdleConnections() {
+        long now = System.currentTimeMillis();
+        PooledConnection connection;
+        while ((connection = idle.peekLast()) != null && now - connection.lastUsed > idleTimeoutMs) {
+            if (idle.removeLastOccurrence(connection)) {
+                close(connection);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void closeAll() {
+        PooledConnection connection;
+        while ((connection = idle.pollFirst()) != null) {
+            close(connection);
+        }
+    }
+
+    public int openConnections() {
+        return open.get();
+    }
+
+    private PooledConnection checkOut(JavaMailSenderImpl senderImpl) throws MessagingException {
+        PooledConnection connection;
+        while ((connection = idle.pollFirst()) != null) {
+            if (System.currentTimeMillis() - connection.lastUsed <= idleTimeoutMs && connection.transport.isConnected()) {
+                return connection;
+            }
+            close(connection);
+        }
+        // Same protocol lookup as JavaMailSenderImpl.getTransport
+        String protocol = senderImpl.getProtocol();
+        if (protocol == null) {
+            protocol = senderImpl.getSession().getProperty("mail.transport.protocol");
+        }
+        Transport transport = senderImpl.getSession().getTransport(protocol != null ? protocol : JavaMailSenderImpl.DEFAULT_PROTOCOL);
+        transport.connect(senderImpl.getHost(), senderImpl.getPort(), senderImpl.getUsername(), senderImpl.getPassword());
+        open.incrementAndGet();
+        connectionsCreated.increment();
+        return new PooledConnection(transport);
+    }
+
+    private void sendMessage(PooledConnection connection, MimeMessage message) throws MessagingException {
+        if (message.getSentDate() == null) {
+            message.setSentDate(new Date());
+        }
+        message.saveChanges();
+        Address[] recipients = message.getAllRecipients();
+        if (recipients == null || recipients.length == 0) {
+            throw new MessagingException("Message has no recipients");
+        }
+        connection.messagesSent++;
+        connection.transport.sendMessage(message, recipients);
+    }
+
+    private void checkIn(PooledConnection connection) {
+        if (connection.messagesSent >= maxMessagesPerConnection) {
+            close(connection);
+            return;
+        }
+        connection.lastUsed = System.currentTimeMillis();
+        idle.offerFirst(connection);
+    }
+
+    private void close(PooledConnection connection) {
+        open.decrementAndGet();
+        try {
+            connection.transport.close();
+        } catch (MessagingException e) {
+            // Already closed by the server
+        }
+    }
+}
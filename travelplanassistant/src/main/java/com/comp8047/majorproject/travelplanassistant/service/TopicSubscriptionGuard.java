@@ -0,0 +1,103 @@
+package com.comp8047.majorproject.travelplanassistant.service;
+
+import com.comp8047.majorproject.travelplanassistant.entity.TravelPlan;
+import com.comp8047.majorproject.travelplanassistant.entity.User;
+import com.comp8047.majorproject.travelplanassistant.repository.TravelPlanRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Decides who may SUBSCRIBE to which STOMP topic, so events are only delivered to users allowed to see them:
+ * /topic/user/{userId}/events and /topic/user/{userId}/notifications only to that user,
+ * /topic/plan/{planId}/events to users with a status on the plan or anyone for a public plan (the same plans
+ * the REST endpoints show them), /topic/chat/{planId} to users with a status on the plan, as for chat history,
+ * and /topic/plans/events to anyone. Any other destination under /topic, including wildcards, is refused.
+ */
+@Component
+public class TopicSubscriptionGuard {
+
+    private static final Pattern USER_TOPIC = Pattern.compile("/topic/user/(\\d+)/(events|notifications)");
+    private static final Pattern PLAN_TOPIC = Pattern.compile("/topic/plan/(\\d+)/events");
+    private static final Pattern CHAT_TOPIC = Pattern.compile("/topic/chat/(\\d+)");
+
+    /**
+     * A subscription the user is not allowed to make
+     */
+    public static class SubscriptionDeniedException extends IllegalStateException {
+        public SubscriptionDeniedException(String message) {
+            super(message);
+        }
+    }
+
+    @Autowired
+    private ChatService chatService;
+
+    @Autowired
+    private TravelPlanRepository travelPlanRepository;
+
+    public TopicSubscriptionGuard(ChatService chatService, TravelPlanRepository travelPlanRepository) {
+        this.chatService = chatService;
+        this.travelPlanRepository = travelPlanRepository;
+    }
+
+    /**
+     * Refuse a subscription the user may not make; user is null when the session is not authenticated
+     */
+    public void checkSubscribe(String destination, User user) {
+        if (destination == null || !destination.startsWith("/topic/")) {
+            return;
+        }
+        // Broker pattern subscriptions could match every user's or plan's topic
+        if (destination.contains("*") || destination.contains("#") || destination.contains("{")) {
+            throw new SubscriptionDeniedException("Wildcard subscriptions are not allowed");
+        }
+
+        Matcher matcher = USER_TOPIC.matcher(destination);
+        if (matcher.matches()) {
+            if (user == null || !user.getId().equals(Long.valueOf(matcher.group(1)))) {
+                throw new SubscriptionDeniedException("Cannot subscribe to another user's topics");
+            }
+            return;
+        }
+        matcher = PLAN_TOPIC.matcher(destination);
+        if (matcher.matches()) {
+            Long planId = Long.valueOf(matcher.group(1));
+            if (!hasStatusOnPlan(planId, user) && !isPublicPlan(planId)) {
+                throw new SubscriptionDeniedException("Not allowed to watch this travel plan");
+            }
+            return;
+        }
+        matcher = CHAT_TOPIC.matcher(destination);
+        if (matcher.matches()) {
+            if (!hasStatusOnPlan(Long.valueOf(matcher.group(1)), user)) {
+                throw new SubscriptionDeniedException("User is not a member of this travel plan");
+            }
+            return;
+        }
+        if (!PlanEventPublisher.DISCOVERY_TOPIC.equals(destination)) {
+            throw new SubscriptionDeniedException("Unknown topic");
+        }
+    }
+
+    // Also warms the chat membership cache for the room the member is opening
+    private boolean hasStatusOnPlan(Long planId, User user) {
+        if (user == null) {
+            return false;
+        }
+        try {
+            chatService.requireMembership(planId, user);
+            return true;
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return false;
+        }
+    }
+
+    private boolean isPublicPlan(Long planId) {
+        return travelPlanRepository.findById(planId)
+                .map(plan -> plan.getPlanType() == TravelPlan.PlanType.PUBLIC)
+                .orElse(false);
+    }
+}
@@ -1,84 +1,390 @@
 package com.comp8047.majorproject.travelplanassistant.service;
 
+import com.comp8047.majorproject.travelplanassistant.dto.PlanEvent;
 import com.comp8047.majorproject.travelplanassistant.entity.TravelPlan;
-import com.comp8047.majorproject.travelplanassistant.entity.UserPlanStatus;
 import com.comp8047.majorproject.travelplanassistant.repository.TravelPlanRepository;
-import com.comp8047.majorproject.travelplanassistant.repository.UserPlanStatusRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
 
+/**
+ * Starts plans at their start time and completes them at their end time. Start and end times falling
+ * within the horizon are loaded by range queries on (status, start_date) and (status, end_date) into a
+ * delay queue, and a lifecycle thread wakes at each one to run the due-plan queries. Every refresh reloads
+ * the horizon and also runs the due queries, which catches up after downtime and picks up plans created
+ * since the last refresh.
+ * A pass holds the plan-lifecycle lease in scheduler_leases, so with several app nodes only one runs it.
+ * Due plan ids are read in chunks and each plan is moved in its own transaction on the worker pool, so one
+ * failing plan is counted and retried on the next pass without holding back the rest.
+ */
 @Component
 public class TravelPlanScheduler {
 
+    static final String LIFECYCLE_LEASE = "plan-lifecycle";
+
+    enum Transition { START, COMPLETE }
+
+    private record RunMeters(Timer duration, Counter processed, Counter failed) {}
+
+    /**
+     * A wake-up of the lifecycle thread at a plan start or end time. Only a hint: the due queries decide
+     * which plans move, so a wake-up for a plan that was cancelled meanwhile does nothing.
+     */
+    record Wakeup(Transition transition, LocalDateTime at) implements Delayed {
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(Duration.between(LocalDateTime.now(), at));
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return at.compareTo(((Wakeup) other).at);
+        }
+    }
+
     @Autowired
     private TravelPlanRepository travelPlanRepository;
     
     @Autowired
-    private UserPlanStatusRepository userPlanStatusRepository;
+    private NotificationService notificationService;
     
     @Autowired
-    private NotificationService notificationService;
+    private PlanSearchIndex planSearchIndex;
+    
+    @Autowired
+    private DiscoveryCache discoveryCache;
+    
+    @Autowired
+    private PlanEventPublisher planEventPublisher;
+
+    @Autowired
+    private PendingRequestRefusals pendingRequestRefusals;
+
+    @Autowired
+    private CurrentPlanCache currentPlanCache;
+
+    @Autowired
+    private SchedulerLeases schedulerLeases;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
 
-    // Run twice a day at 01:00 and 13:00 server time
-    @Scheduled(cron = "0 0 1,13 * * *")
-    public void startPlansForToday() {
-        List<TravelPlan> plans = travelPlanRepository.findPlansToStartToday();
-        for (TravelPlan plan : plans) {
-            // Automatically refuse all pending applications and invitations before starting the plan
-            refuseAllPendingApplicationsAndInvitations(plan);
-            
-            // Start the plan
-            plan.setStatus(TravelPlan.Status.IN_PROGRESS);
-            travelPlanRepository.save(plan);
-            
-            // Send start reminder emails
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.plan.lifecycle.enabled:true}")
+    private boolean lifecycleEnabled;
+
+    @Value("${app.plan.lifecycle.horizon-minutes:60}")
+    private long horizonMinutes;
+
+    @Value("${app.plan.lifecycle.chunk-size:200}")
+    private int chunkSize;
+
+    @Value("${app.plan.lifecycle.worker-threads:4}")
+    private int workerThreads;
+
+    @Value("${app.plan.lifecycle.lease-seconds:300}")
+    private long leaseSeconds;
+
+    private TransactionTemplate transactionTemplate;
+    private ExecutorService planWorkers;
+    private final Map<Transition, RunMeters> runMeters = new EnumMap<>(Transition.class);
+    private Counter skippedRuns;
+
+    private final DelayQueue<Wakeup> wakeups = new DelayQueue<>();
+    // Wake-ups in the queue, so reloading the horizon does not queue the same time twice
+    private final Set<Wakeup> queued = ConcurrentHashMap.newKeySet();
+
+    private Thread lifecycleThread;
+
+    @PostConstruct
+    public void start() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        AtomicInteger workerCount = new AtomicInteger();
+        planWorkers = Executors.newFixedThreadPool(workerThreads, runnable -> {
+            Thread thread = new Thread(runnable, "plan-lifecycle-worker-" + workerCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (Transition transition : Transition.values()) {
+            String tag = transition.name().toLowerCase();
+            runMeters.put(transition, new RunMeters(
+                    Timer.builder("plan.lifecycle.run").tag("transition", tag)
+                            .description("Duration of a lifecycle pass").register(meterRegistry),
+                    Counter.builder("plan.lifecycle.plans").tag("transition", tag).tag("result", "processed")
+                            .description("Plans moved by lifecycle passes").register(meterRegistry),
+                    Counter.builder("plan.lifecycle.plans").tag("transition", tag).tag("result", "failed")
+                            .description("Plans that failed to move and are retried on the next pass").register(meterRegistry)));
+        }
+        skippedRuns = Counter.builder("plan.lifecycle.skipped")
+                .description("Lifecycle passes skipped because another node held the lease").register(meterRegistry);
+        if (!lifecycleEnabled) {
+            return;
+        }
+        lifecycleThread = new Thread(this::runLifecycle, "plan-lifecycle");
+        lifecycleThread.setDaemon(true);
+        lifecycleThread.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (lifecycleThread != null) {
+            lifecycleThread.interrupt();
+            lifecycleThread.join(TimeUnit.SECONDS.toMillis(30));
+        }
+        if (planWorkers != null) {
+            planWorkers.shutdown();
+            planWorkers.awaitTermination(30, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Run the due queries now and queue the start and end times within the horizon. Runs at startup too.
+     */
+    @Scheduled(fixedDelayString = "${app.plan.lifecycle.refresh-ms:300000}")
+    public void refresh() {
+        if (!lifecycleEnabled) {
+            return;
+        }
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            schedule(new Wakeup(Transition.START, now));
+            schedule(new Wakeup(Transition.COMPLETE, now));
+            LocalDateTime horizon = now.plusMinutes(horizonMinutes);
+            for (LocalDateTime startTime : travelPlanRepository.findStartTimesBetween(now, horizon)) {
+                schedule(new Wakeup(Transition.START, startTime));
+            }
+            for (LocalDateTime endTime : travelPlanRepository.findEndTimesBetween(now, horizon)) {
+                schedule(new Wakeup(Transition.COMPLETE, endTime));
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Plan lifecycle refresh failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Number of queued wake-ups
+     */
+    public int pendingWakeups() {
+        return wakeups.size();
+    }
+
+    void schedule(Wakeup wakeup) {
+        if (queued.add(wakeup)) {
+            wakeups.add(wakeup);
+        }
+    }
+
+    private void runLifecycle() {
+        while (!Thread.currentThread().isInterrupted()) {
             try {
-                notificationService.sendTravelPlanStartReminder(plan);
-            } catch (Exception e) {
-                System.err.println("Failed to send start reminder for plan " + plan.getId() + ": " + e.getMessage());
+                Wakeup wakeup = wakeups.take();
+                queued.remove(wakeup);
+                boolean start = wakeup.transition() == Transition.START;
+                boolean complete = wakeup.transition() == Transition.COMPLETE;
+                // Plans sharing a start or end time, and overdue wake-ups, are handled by one pass
+                for (Wakeup due = wakeups.poll(); due != null; due = wakeups.poll()) {
+                    queued.remove(due);
+                    start |= due.transition() == Transition.START;
+                    complete |= due.transition() == Transition.COMPLETE;
+                }
+                runPass(start, complete);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                System.err.println("Plan lifecycle transition failed: " + e.getMessage());
             }
         }
     }
-    
+
     /**
-     * Automatically refuse all pending applications and invitations for a travel plan
+     * Run the start and/or complete passes, then release the lease for the next node
      */
-    private void refuseAllPendingApplicationsAndInvitations(TravelPlan plan) {
-        // Get all pending applications and invitations
-        List<UserPlanStatus> pendingApplications = userPlanStatusRepository.findPendingApplications(plan);
-        List<UserPlanStatus> pendingInvitations = userPlanStatusRepository.findPendingInvitations(plan);
-        
-        // Refuse all pending applications
-        for (UserPlanStatus application : pendingApplications) {
-            application.setStatus(UserPlanStatus.Status.APPLIED_REFUSED);
-            userPlanStatusRepository.save(application);
-        }
-        
-        // Refuse all pending invitations
-        for (UserPlanStatus invitation : pendingInvitations) {
-            invitation.setStatus(UserPlanStatus.Status.INVITED_REFUSED);
-            userPlanStatusRepository.save(invitation);
+    void runPass(boolean start, boolean complete) {
+        try {
+            // Start first, so a plan overdue for both is started and then completed
+            if (start) {
+                startDuePlans();
+            }
+            if (complete) {
+                completeDuePlans();
+            }
+        } finally {
+            schedulerLeases.release(LIFECYCLE_LEASE);
         }
     }
 
-    // Run twice a day at 01:10 and 13:10 server time
-    @Scheduled(cron = "0 10 1,13 * * *")
-    public void completePlansForToday() {
-        List<TravelPlan> plans = travelPlanRepository.findPlansToCompleteToday();
-        for (TravelPlan plan : plans) {
-            plan.setStatus(TravelPlan.Status.COMPLETED);
-            travelPlanRepository.save(plan);
-            
-            // Send completion reminder emails
+    /**
+     * Start every NEW plan whose start time has passed
+     */
+    public void startDuePlans() {
+        processDuePlans(Transition.START,
+                (now, afterId) -> travelPlanRepository.findPlanIdsToStart(now, afterId, PageRequest.of(0, chunkSize)),
+                this::startPlan);
+    }
+
+    /**
+     * Complete every IN_PROGRESS plan whose end time has passed
+     */
+    public void completeDuePlans() {
+        processDuePlans(Transition.COMPLETE,
+                (now, afterId) -> travelPlanRepository.findPlanIdsToComplete(now, afterId, PageRequest.of(0, chunkSize)),
+                this::completePlan);
+    }
+
+    /**
+     * Move the due plans chunk by chunk, each plan in its own transaction on the worker pool. The lease is
+     * taken, or renewed, before every chunk; the pass is skipped or cut short when another node holds it.
+     */
+    private void processDuePlans(Transition transition, BiFunction<LocalDateTime, Long, List<Long>> nextChunk,
+                                 BiFunction<Long, LocalDateTime, Boolean> movePlan) {
+        RunMeters meters = runMeters.get(transition);
+        Duration leaseDuration = Duration.ofSeconds(leaseSeconds);
+        LocalDateTime now = LocalDateTime.now();
+        long startNanos = System.nanoTime();
+        int processed = 0;
+        int failed = 0;
+        long afterId = 0;
+        while (true) {
+            if (!schedulerLeases.tryAcquire(LIFECYCLE_LEASE, leaseDuration)) {
+                if (afterId == 0) {
+                    skippedRuns.increment();
+                    return;
+                }
+                System.err.println("Plan lifecycle lease lost during " + transition + " pass; stopping");
+                break;
+            }
+            List<Long> planIds = nextChunk.apply(now, afterId);
+            if (planIds.isEmpty()) {
+                break;
+            }
+            List<Future<Boolean>> results = new ArrayList<>(planIds.size());
+            for (Long planId : planIds) {
+                results.add(planWorkers.submit(() -> transactionTemplate.execute(status -> movePlan.apply(planId, now))));
+            }
             try {
-                notificationService.sendTravelPlanCompletionReminder(plan);
-            } catch (Exception e) {
-                System.err.println("Failed to send completion reminder for plan " + plan.getId() + ": " + e.getMessage());
+                for (int i = 0; i < results.size(); i++) {
+                    try {
+                        if (Boolean.TRUE.equals(results.get(i).get())) {
+                            processed++;
+                        }
+                    } catch (ExecutionException e) {
+                        failed++;
+                        System.err.println("Failed to " + transition.name().toLowerCase() + " plan " + planIds.get(i)
+                                + ": " + e.getCause().getMessage());
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            afterId = planIds.get(planIds.size() - 1);
+            if (planIds.size() < chunkSize) {
+                break;
             }
         }
+        meters.duration().record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        meters.processed().increment(processed);
+        meters.failed().increment(failed);
+        if (processed > 0 || failed > 0) {
+            System.out.println("Plan lifecycle " + transition + " pass: " + processed + " plans moved, " + failed + " failed");
+        }
+    }
+
+    /**
+     * Start one plan, if it is still NEW and due; runs in the plan's own transaction
+     */
+    private boolean startPlan(Long planId, LocalDateTime now) {
+        TravelPlan plan = travelPlanRepository.findById(planId).orElse(null);
+        // The plan may have been cancelled or rescheduled since its id was read
+        if (plan == null || plan.getStatus() != TravelPlan.Status.NEW || plan.getStartDate().isAfter(now)) {
+            return false;
+        }
+
+        // Automatically refuse all pending applications and invitations before starting the plan
+        pendingRequestRefusals.refuseAll(plan);
+
+        // Start the plan
+        plan.setStatus(TravelPlan.Status.IN_PROGRESS);
+        travelPlanRepository.save(plan);
+        planSearchIndex.remove(plan.getId());
+        discoveryCache.evict(plan);
+        planEventPublisher.planChanged(plan.getId(), PlanEvent.Type.PLAN_UPDATED, plan.getId());
+        planEventPublisher.discoveryChanged(plan.getId(), PlanEvent.Type.PLAN_UPDATED);
+
+        // Queue start reminder emails
+        try {
+            notificationService.sendTravelPlanStartReminder(plan);
+        } catch (Exception e) {
+            System.err.println("Failed to send start reminder for plan " + plan.getId() + ": " + e.getMessage());
+        }
+        return true;
+    }
+    
+    /**
+     * Complete one plan, if it is still IN_PROGRESS and due; runs in the plan's own transaction
+     */
+    private boolean completePlan(Long planId, LocalDateTime now) {
+        TravelPlan plan = travelPlanRepository.findById(planId).orElse(null);
+        if (plan == null || plan.getStatus() != TravelPlan.Status.IN_PROGRESS || plan.getEndDate().isAfter(now)) {
+            return false;
+        }
+        plan.setStatus(TravelPlan.Status.COMPLETED);
+        travelPlanRepository.save(plan);
+        currentPlanCache.planEnded(plan.getId());
+        planEventPublisher.planChanged(plan.getId(), PlanEvent.Type.PLAN_UPDATED, plan.getId());
+
+        // Queue completion reminder emails
+        try {
+            notificationService.sendTravelPlanCompletionReminder(plan);
+        } catch (Exception e) {
+            System.err.println("Failed to send completion reminder for plan " + plan.getId() + ": " + e.getMessage());
+        }
+        return true;
+    }
+
+    // Run every hour at minute 30 to repair drift in the denormalized active member counters
+    @Scheduled(cron = "0 30 * * * *")
+    @Transactional
+    public void reconcileActiveMemberCounts() {
+        int repaired = travelPlanRepository.reconcileActiveMemberCounts();
+        if (repaired > 0) {
+            System.out.println("Reconciled active member count for " + repaired + " travel plans");
+            // Plans may have moved across the full/not-full line
+            planSearchIndex.rebuild();
+            discoveryCache.invalidateAll();
+        }
     }
 }
 
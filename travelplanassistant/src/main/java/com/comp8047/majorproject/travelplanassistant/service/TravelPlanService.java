@@ -1,5 +1,9 @@
 package com.comp8047.majorproject.travelplanassistant.service;
 
+import com.comp8047.majorproject.travelplanassistant.dto.BulkInviteRequest;
+import com.comp8047.majorproject.travelplanassistant.dto.BulkInviteResponse;
+import com.comp8047.majorproject.travelplanassistant.dto.DiscoveryPageResponse;
+import com.comp8047.majorproject.travelplanassistant.dto.PlanEvent;
 import com.comp8047.majorproject.travelplanassistant.dto.TravelPlanRequest;
 import com.comp8047.majorproject.travelplanassistant.dto.TravelPlanResponse;
 import com.comp8047.majorproject.travelplanassistant.dto.MemberResponseDTO;
@@ -11,21 +15,53 @@ import com.comp8047.majorproject.travelplanassistant.repository.UserPlanStatusRe
 import com.comp8047.majorproject.travelplanassistant.repository.UserRepository;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validator;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
 @Transactional
 public class TravelPlanService {
     public enum Decision { ACCEPT, REFUSE }
+
+    private static final int DEFAULT_DISCOVERY_PAGE_SIZE = 20;
+    private static final int MAX_DISCOVERY_PAGE_SIZE = 100;
+    private static final int MAX_DISCOVERY_CANDIDATES = 500;
+    private static final int MAX_SEARCH_RESULTS = 50;
+    private static final String INSERT_INVITATION_SQL = "INSERT INTO user_plan_status "
+            + "(user_id, travel_plan_id, status, invited_at, created_at) VALUES (?, ?, 'INVITED', ?, ?)";
+
+    private static final List<UserPlanStatus.Status> ACTIVE_MEMBER_STATUSES = List.of(
+            UserPlanStatus.Status.OWNED,
+            UserPlanStatus.Status.APPLIED_ACCEPTED,
+            UserPlanStatus.Status.INVITED_ACCEPTED
+    );
+
+    private static final List<UserPlanStatus.Status> MEMBER_LIST_STATUSES = List.of(
+            UserPlanStatus.Status.OWNED,
+            UserPlanStatus.Status.APPLIED,
+            UserPlanStatus.Status.APPLIED_ACCEPTED,
+            UserPlanStatus.Status.INVITED,
+            UserPlanStatus.Status.INVITED_ACCEPTED
+    );
     
     @Autowired
     private TravelPlanRepository travelPlanRepository;
@@ -42,14 +78,43 @@ public class TravelPlanService {
     @Autowired
     private NotificationService notificationService;
     
+    @Autowired
+    private PlanSearchIndex planSearchIndex;
+    
+    @Autowired
+    private DiscoveryCache discoveryCache;
+    
+    @Autowired
+    private PlanEventPublisher planEventPublisher;
+
+    @Autowired
+    private PendingRequestRefusals pendingRequestRefusals;
+
+    @Autowired
+    private CurrentPlanCache currentPlanCache;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private Validator validator;
+    
     public TravelPlanService(TravelPlanRepository travelPlanRepository, 
     UserPlanStatusRepository userPlanStatusRepository,
     UserRepository userRepository,
-    ObjectMapper objectMapper) {
+    ObjectMapper objectMapper,
+    PlanSearchIndex planSearchIndex,
+    DiscoveryCache discoveryCache,
+    PlanEventPublisher planEventPublisher,
+    CurrentPlanCache currentPlanCache) {
         this.travelPlanRepository = travelPlanRepository;
         this.userPlanStatusRepository = userPlanStatusRepository;
         this.userRepository = userRepository;
         this.objectMapper = objectMapper;
+        this.planSearchIndex = planSearchIndex;
+        this.discoveryCache = discoveryCache;
+        this.planEventPublisher = planEventPublisher;
+        this.currentPlanCache = currentPlanCache;
     }
 
     /**
@@ -57,7 +122,7 @@ public class TravelPlanService {
      */
     public TravelPlanResponse createTravelPlan(TravelPlanRequest request, User owner) {
         // Check if user already has a current plan
-        if (travelPlanRepository.userHasCurrentPlan(owner.getId())) {
+        if (userHasCurrentPlan(owner.getId())) {
             throw new IllegalStateException("User already has a current travel plan");
         }
         
@@ -91,88 +156,120 @@ public class TravelPlanService {
         travelPlan.setLanguage(request.getLanguage());
         travelPlan.setStatus(TravelPlan.Status.NEW);
         travelPlan.setOwner(owner);
+        // The owner is the first active member
+        travelPlan.setActiveMemberCount(1);
         
         TravelPlan savedPlan = travelPlanRepository.save(travelPlan);
         
         // Create user plan status for owner
         UserPlanStatus ownerStatus = new UserPlanStatus(owner, savedPlan, UserPlanStatus.Status.OWNED);
         userPlanStatusRepository.save(ownerStatus);
+        currentPlanCache.userChanged(owner.getId());
         
         savedPlan.setUserPlanStatuses(new ArrayList<>(Arrays.asList(ownerStatus)));
+        onPlanChanged(savedPlan);
 
         return convertToResponse(savedPlan);
     }
     
     /**
-     * Get all new public plans (planType = PUBLIC, status = NEW) not associated with the current user
+     * Get a page of new public plans (planType = PUBLIC, status = NEW) the user is eligible for.
+     * Candidates are shared by users with the same gender and language and served from the
+     * discovery cache; the age limits and plans the user already relates to are applied per request.
+     * Pages are keyed on (createdAt, id) so the cost does not grow with the catalogue.
      */
-    public List<TravelPlanResponse> getPublicNewPlans(Long userId) {
+    public DiscoveryPageResponse getPublicNewPlans(Long userId, String cursor, Integer size) {
+        // Taken before the first read so a cached list can never predate an eviction it missed
+        long discoveryStamp = discoveryCache.stamp();
         // Get current user profile for filtering
         User currentUser = userRepository.findById(userId).orElse(null);
 
-        // Find all PUBLIC plans with status NEW
-        List<TravelPlan> plans = travelPlanRepository.findByPlanTypeAndStatus(TravelPlan.PlanType.PUBLIC, TravelPlan.Status.NEW);
+        TravelPlan.GenderPreference gender = null;
+        Integer age = null;
+        String language = null;
+        if (currentUser != null) {
+            if (currentUser.getGender() != null) {
+                gender = TravelPlan.GenderPreference.valueOf(currentUser.getGender().name());
+            }
+            age = currentUser.getAge();
+            language = currentUser.getLanguage();
+        }
 
-        return plans.stream()
-                // Exclude plans where the user already has a relationship/status
-                .filter(plan -> userPlanStatusRepository.findByUserAndTravelPlan(currentUser, plan).isEmpty())
-                // Exclude plans that have reached maxMembers
-                .filter(plan -> !isPlanFull(plan))
-                // Gender restriction: allow ANY/null or match user's gender
-                .filter(plan -> {
-                    if (plan.getGender() == null || plan.getGender() == TravelPlan.GenderPreference.ANY) return true;
-                    if (currentUser == null || currentUser.getGender() == null) return true;
-                    try {
-                        return plan.getGender().name().equalsIgnoreCase(currentUser.getGender().name());
-                    } catch (Exception e) {
-                        return false;
-                    }
-                })
-                // Age restriction: within [ageMin, ageMax] if specified
-                .filter(plan -> {
-                    Integer userAge = currentUser == null ? null : currentUser.getAge();
-                    if (userAge == null) return true;
-                    Integer min = plan.getAgeMin();
-                    Integer max = plan.getAgeMax();
-                    if (min != null && userAge < min) return false;
-                    if (max != null && userAge > max) return false;
-                    return true;
-                })
-                // Language restriction: allow null/blank or exact match (case-insensitive)
-                .filter(plan -> {
-                    String planLang = plan.getLanguage();
-                    if (planLang == null || planLang.isBlank()) return true;
-                    String userLang = currentUser == null ? null : currentUser.getLanguage();
-                    return userLang != null && planLang.equalsIgnoreCase(userLang);
-                })
-                .map(plan -> {
-                    TravelPlanResponse response = convertToResponse(plan);
-                    // Populate members (include pending applications and invitations)
-                    populateMembers(response, plan, true);
-                    return response;
-                })
-                .collect(Collectors.toList());
+        int pageSize = resolveDiscoveryPageSize(size);
+        LocalDateTime cursorCreatedAt = null;
+        Long cursorId = null;
+        if (cursor != null && !cursor.isBlank()) {
+            String[] parts = decodeDiscoveryCursor(cursor);
+            cursorCreatedAt = LocalDateTime.parse(parts[0]);
+            cursorId = Long.valueOf(parts[1]);
+        }
+
+        DiscoveryCache.Cohort cohort = DiscoveryCache.Cohort.of(gender, language);
+        DiscoveryCache.Entry entry = discoveryCache.get(cohort);
+        if (entry == null) {
+            entry = loadDiscoveryCandidates(cohort, discoveryStamp);
+        }
+
+        // The cohort's candidates after the cursor that admit the user's age and that the user does not already relate to
+        Set<Long> relatedPlanIds = new HashSet<>(userPlanStatusRepository.findPlanIdsByUserId(userId));
+        List<Long> candidateIds = new ArrayList<>();
+        for (DiscoveryCache.Candidate candidate : entry.candidates()) {
+            boolean afterCursor = cursorCreatedAt == null
+                    || candidate.createdAt().isBefore(cursorCreatedAt)
+                    || (candidate.createdAt().equals(cursorCreatedAt) && candidate.id() < cursorId);
+            if (afterCursor && candidate.admitsAge(age) && !relatedPlanIds.contains(candidate.id())) {
+                candidateIds.add(candidate.id());
+            }
+        }
+
+        // Load candidates until one more live plan than the page holds is found, to know whether another page
+        // exists. Candidates that closed or filled since they were cached are dropped on load, so keep walking.
+        List<TravelPlan> plans = new ArrayList<>();
+        int next = 0;
+        if (candidateIds.size() > pageSize || entry.complete()) {
+            while (plans.size() <= pageSize && next < candidateIds.size()) {
+                int end = Math.min(candidateIds.size(), next + pageSize + 1 - plans.size());
+                plans.addAll(findPlansInOrder(candidateIds.subList(next, end)));
+                next = end;
+            }
+        }
+        if (plans.size() <= pageSize && !entry.complete()) {
+            // The cached list was truncated before this page could be filled; ask the database directly
+            plans = travelPlanRepository.findDiscoveryPlans(
+                    userId, gender, age, language, cursorCreatedAt, cursorId, PageRequest.of(0, pageSize + 1));
+        }
+
+        boolean hasMore = plans.size() > pageSize;
+        if (hasMore) {
+            plans = plans.subList(0, pageSize);
+        }
+
+        // Populate members (include pending applications and invitations)
+        List<TravelPlanResponse> responses = convertToResponsesWithMembers(plans, true);
+
+        String nextCursor = null;
+        if (hasMore) {
+            TravelPlan last = plans.get(plans.size() - 1);
+            nextCursor = encodeDiscoveryCursor(last.getCreatedAt(), last.getId());
+        }
+        return new DiscoveryPageResponse(responses, nextCursor, hasMore);
     }
 
     /**
      * Search public plans by keyword (planType = PUBLIC, status = NEW)
      */
     public List<TravelPlanResponse> searchPublicPlans(String keyword, Long userId) {
-        List<TravelPlan> plans = travelPlanRepository.findByPlanTypeAndStatus(TravelPlan.PlanType.PUBLIC, TravelPlan.Status.NEW)
-                .stream()
-                .filter(plan -> (plan.getTitle() != null && plan.getTitle().toLowerCase().contains(keyword.toLowerCase()))
-                        || (plan.getDescription() != null && plan.getDescription().toLowerCase().contains(keyword.toLowerCase())))
-                .filter(plan -> userPlanStatusRepository.findByUserAndTravelPlan(userRepository.findById(userId).orElse(null), plan).isEmpty())
-                .filter(plan -> !isPlanFull(plan))
-                .collect(Collectors.toList());
-        return plans.stream()
-                .map(plan -> {
-                    TravelPlanResponse response = convertToResponse(plan);
-                    // Populate members (include pending applications and invitations)
-                    populateMembers(response, plan, true);
-                    return response;
-                })
+        // Ranked candidates come from the in-memory index; the database only loads the matched rows
+        List<Long> rankedIds = planSearchIndex.search(keyword, MAX_SEARCH_RESULTS);
+        if (rankedIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Set<Long> relatedPlanIds = new HashSet<>(userPlanStatusRepository.findRelatedPlanIds(userId, rankedIds));
+        List<TravelPlan> plans = findPlansInOrder(rankedIds).stream()
+                .filter(plan -> !relatedPlanIds.contains(plan.getId()))
                 .collect(Collectors.toList());
+        // Populate members (include pending applications and invitations)
+        return convertToResponsesWithMembers(plans, true);
     }
 
     /**
@@ -180,13 +277,15 @@ public class TravelPlanService {
      */
     public List<TravelPlanResponse> getCurrentPlans(Long userId) {
         List<TravelPlan> travelPlans = travelPlanRepository.getCurrentPlans(userId);
-        User user = userRepository.findById(userId).orElse(null);
+        // Populate members (include pending applications and invitations); the user's own status is among them
+        Map<Long, List<UserPlanStatus>> statusesByPlan = loadMemberStatuses(travelPlans, true);
         return travelPlans.stream().map(plan -> {
-            TravelPlanResponse response = convertToResponse(plan);
-            UserPlanStatus ups = userPlanStatusRepository.findByUserAndTravelPlan(user, plan).orElse(null);
-            
-            // Populate members (include pending applications and invitations)
-            populateMembers(response, plan, true);
+            List<UserPlanStatus> statuses = statusesByPlan.getOrDefault(plan.getId(), List.of());
+            TravelPlanResponse response = convertToResponseWithMembers(plan, statuses);
+            UserPlanStatus ups = statuses.stream()
+                    .filter(status -> status.getUser().getId().equals(userId))
+                    .findFirst()
+                    .orElse(null);
             response.setUserPlanStatus(ups == null ? null : ups.getStatus());
             return response;
         }).collect(Collectors.toList());
@@ -197,25 +296,19 @@ public class TravelPlanService {
      */
     public List<TravelPlanResponse> getHistoryPlans(Long userId) {
         User user = userRepository.findById(userId).orElse(null);
-        List<UserPlanStatus> userStatuses = userPlanStatusRepository.findByUser(user);
+        // Only COMPLETED or CANCELLED plans where the user was the owner or an accepted member
+        List<UserPlanStatus> userStatuses = userPlanStatusRepository.findHistoryMemberships(user);
+        List<TravelPlan> plans = userStatuses.stream()
+                .map(UserPlanStatus::getTravelPlan)
+                .collect(Collectors.toList());
+        // Populate members for history plans (only confirmed members)
+        Map<Long, List<UserPlanStatus>> statusesByPlan = loadMemberStatuses(plans, false);
         return userStatuses.stream()
-                .filter(ups -> {
-                    TravelPlan.Status planStatus = ups.getTravelPlan().getStatus();
-                    UserPlanStatus.Status userStatus = ups.getStatus();
-                    
-                    // Only show COMPLETED or CANCELLED plans with specific user statuses
-                    if (planStatus == TravelPlan.Status.COMPLETED || planStatus == TravelPlan.Status.CANCELLED) {
-                        return userStatus == UserPlanStatus.Status.OWNED
-                                || userStatus == UserPlanStatus.Status.APPLIED_ACCEPTED
-                                || userStatus == UserPlanStatus.Status.INVITED_ACCEPTED;
-                    }
-                    return false;
-                })
                 .map(ups -> {
-                    TravelPlanResponse response = convertToResponse(ups.getTravelPlan());
-                    response.setUserPlanStatus(ups == null ? null : ups.getStatus());
-                    // Populate members for history plans (only confirmed members)
-                    populateMembers(response, ups.getTravelPlan(), false);
+                    TravelPlan plan = ups.getTravelPlan();
+                    TravelPlanResponse response = convertToResponseWithMembers(
+                            plan, statusesByPlan.getOrDefault(plan.getId(), List.of()));
+                    response.setUserPlanStatus(ups.getStatus());
                     return response;
                 })
                 .collect(Collectors.toList());
@@ -231,17 +324,18 @@ public class TravelPlanService {
         }
         
         TravelPlan plan = planOpt.get();
-        UserPlanStatus userStatus = userPlanStatusRepository.findByUserAndTravelPlan(
-                userRepository.findById(userId).orElse(null), plan).orElse(null);
-        
-        boolean hasCurrentPlan = travelPlanRepository.userHasCurrentPlan(userId);
+        CurrentPlanCache.CurrentPlan currentPlan = currentPlanOf(userId);
+        // The user's status on their current plan is known; any other plan needs a lookup
+        UserPlanStatus.Status userStatus = planId.equals(currentPlan.planId()) ? currentPlan.status()
+                : userPlanStatusRepository.findByUserAndTravelPlan(userRepository.findById(userId).orElse(null), plan)
+                        .map(UserPlanStatus::getStatus).orElse(null);
 
         TravelPlanResponse response = convertToResponse(plan);
         
         // Populate members (include pending applications and invitations)
         populateMembers(response, plan, true);
-        response.setUserPlanStatus(userStatus == null ? null : userStatus.getStatus());
-        response.setHasCurrentPlan(hasCurrentPlan);
+        response.setUserPlanStatus(userStatus);
+        response.setHasCurrentPlan(currentPlan.exists());
         return response;
     }
     
@@ -280,6 +374,7 @@ public class TravelPlanService {
         // Create application
         UserPlanStatus application = new UserPlanStatus(user, plan, UserPlanStatus.Status.APPLIED);
         userPlanStatusRepository.save(application);
+        planEventPublisher.membershipChanged(user.getId(), plan.getId(), application.getStatus());
         
         TravelPlanResponse response = convertToResponse(plan);
         
@@ -311,6 +406,7 @@ public class TravelPlanService {
         
         userStatus.setStatus(UserPlanStatus.Status.APPLIED_CANCELLED);
         userPlanStatusRepository.save(userStatus);
+        planEventPublisher.membershipChanged(user.getId(), plan.getId(), userStatus.getStatus());
         
         return convertToResponse(plan);
     }
@@ -343,6 +439,7 @@ public class TravelPlanService {
 
         switch (decision) {
             case ACCEPT:
+                reserveMemberSlot(plan);
                 userPlanStatus.setStatus(UserPlanStatus.Status.APPLIED_ACCEPTED);
                 userPlanStatusRepository.save(userPlanStatus);
                 
@@ -354,6 +451,7 @@ public class TravelPlanService {
                 userPlanStatusRepository.save(userPlanStatus);
                 break;
         }
+        planEventPublisher.membershipChanged(applicant.getId(), plan.getId(), userPlanStatus.getStatus());
 
         TravelPlanResponse response = convertToResponse(plan);
         populateMembers(response, plan, true);
@@ -385,7 +483,7 @@ public class TravelPlanService {
                 .orElseThrow(() -> new IllegalArgumentException("User not found"));
         
         // Check if invitee already has a current plan
-        boolean hasCurrentPlan = travelPlanRepository.userHasCurrentPlan(invitee.getId());
+        boolean hasCurrentPlan = userHasCurrentPlan(invitee.getId());
         if (hasCurrentPlan) {
             throw new IllegalStateException("Invitee already has a current travel plan");
         }
@@ -393,29 +491,15 @@ public class TravelPlanService {
         // Check if invitee already has a status for this plan
         Optional<UserPlanStatus> existingStatus = userPlanStatusRepository.findByUserAndTravelPlan(invitee, plan);
         if (existingStatus.isPresent()) {
-            String errorMessage = "";
-            switch (existingStatus.get().getStatus()) {
-                case APPLIED_REFUSED:
-                    errorMessage = "User has already been refused to join the plan";
-                    break;
-                case APPLIED_CANCELLED:
-                    errorMessage = "User has already cancelled the application";
-                    break;
-                case INVITED_REFUSED:
-                    errorMessage = "User has already refused to join the plan";
-                    break;
-                default:
-                    errorMessage = "User already has a relationship with this plan";
-                    break;
-            }
-            throw new IllegalStateException(errorMessage);
+            throw new IllegalStateException(existingRelationshipMessage(existingStatus.get().getStatus()));
         }
         
         // Create invitation
         UserPlanStatus invitation = new UserPlanStatus(invitee, plan, UserPlanStatus.Status.INVITED);
         userPlanStatusRepository.save(invitation);
+        planEventPublisher.membershipChanged(invitee.getId(), plan.getId(), invitation.getStatus());
         
-        // Send invitation notification email
+        // Queue invitation notification email, sent by the outbox worker after commit
         try {
             notificationService.sendInvitationNotification(invitee, plan, owner);
         } catch (Exception e) {
@@ -430,6 +514,129 @@ public class TravelPlanService {
         return travelPlanResponse;
     }
     
+    /**
+     * Invite several users to a travel plan (owner only). Invitees are looked up, checked and inserted in
+     * batches, and each email gets its own outcome instead of failing the whole request.
+     */
+    public BulkInviteResponse inviteUsers(Long planId, List<String> inviteeEmails, User owner) {
+        Optional<TravelPlan> planOpt = travelPlanRepository.findById(planId);
+        if (planOpt.isEmpty()) {
+            throw new IllegalArgumentException("Travel plan not found");
+        }
+        
+        TravelPlan plan = planOpt.get();
+        
+        // Check if user is owner
+        if (!plan.getOwner().getId().equals(owner.getId())) {
+            throw new IllegalStateException("Only plan owner can send invitations");
+        }
+        
+        // Check if plan has reached maxMembers
+        if (isPlanFull(plan)) {
+            throw new IllegalStateException("Travel plan has reached maximum number of members");
+        }
+        
+        // One result per requested email in request order; repeats of an email are answered once
+        List<BulkInviteResponse.InviteResult> results = new ArrayList<>();
+        Map<String, BulkInviteResponse.InviteResult> pending = new LinkedHashMap<>();
+        for (String email : inviteeEmails) {
+            String trimmed = email != null ? email.trim() : "";
+            BulkInviteResponse.InviteResult result = new BulkInviteResponse.InviteResult(trimmed);
+            results.add(result);
+            // The element constraints of BulkInviteRequest.emails, the same @Email rule as User.email
+            if (!validator.validateValue(BulkInviteRequest.class, "emails", List.of(trimmed)).isEmpty()) {
+                reject(result, BulkInviteResponse.Outcome.INVALID_EMAIL, "Email is not valid");
+            } else if (pending.putIfAbsent(trimmed.toLowerCase(), result) != null) {
+                reject(result, BulkInviteResponse.Outcome.DUPLICATE, "Email appears more than once in the request");
+            }
+        }
+        
+        Map<String, User> usersByEmail = pending.isEmpty() ? Map.of() : userRepository.findByEmailIn(
+                        pending.values().stream().map(BulkInviteResponse.InviteResult::getEmail).toList())
+                .stream()
+                .collect(Collectors.toMap(user -> user.getEmail().toLowerCase(), user -> user, (first, second) -> first));
+        Set<Long> userIds = usersByEmail.values().stream().map(User::getId).collect(Collectors.toSet());
+        Set<Long> withCurrentPlan = userIds.isEmpty() ? Set.of()
+                : new HashSet<>(travelPlanRepository.findUserIdsWithCurrentPlan(userIds));
+        Map<Long, UserPlanStatus.Status> existingStatuses = new HashMap<>();
+        if (!userIds.isEmpty()) {
+            for (Object[] row : userPlanStatusRepository.findStatusesByPlanIdAndUserIds(plan.getId(), userIds)) {
+                existingStatuses.putIfAbsent((Long) row[0], (UserPlanStatus.Status) row[1]);
+            }
+        }
+        
+        // Same checks and messages as a single invitation, in the same order
+        List<User> invitees = new ArrayList<>();
+        for (Map.Entry<String, BulkInviteResponse.InviteResult> entry : pending.entrySet()) {
+            BulkInviteResponse.InviteResult result = entry.getValue();
+            User invitee = usersByEmail.get(entry.getKey());
+            if (invitee == null) {
+                reject(result, BulkInviteResponse.Outcome.USER_NOT_FOUND, "User not found");
+            } else if (withCurrentPlan.contains(invitee.getId())) {
+                reject(result, BulkInviteResponse.Outcome.CURRENT_PLAN, "Invitee already has a current travel plan");
+            } else if (existingStatuses.containsKey(invitee.getId())) {
+                reject(result, BulkInviteResponse.Outcome.ALREADY_RELATED,
+                        existingRelationshipMessage(existingStatuses.get(invitee.getId())));
+            } else {
+                result.setOutcome(BulkInviteResponse.Outcome.INVITED);
+                invitees.add(invitee);
+            }
+        }
+        
+        if (!invitees.isEmpty()) {
+            insertInvitations(plan, invitees);
+            for (User invitee : invitees) {
+                planEventPublisher.membershipChanged(invitee.getId(), plan.getId(), UserPlanStatus.Status.INVITED);
+            }
+            
+            // Queue invitation notification emails, sent by the outbox worker after commit
+            try {
+                notificationService.sendInvitationNotifications(invitees, plan, owner);
+            } catch (Exception e) {
+                System.err.println("Failed to send invitation notifications for plan " + plan.getId() + ": " + e.getMessage());
+            }
+        }
+        
+        TravelPlanResponse travelPlanResponse = convertToResponse(plan);
+        // Populate members (include pending applications and invitations)
+        populateMembers(travelPlanResponse, plan, true);
+        return new BulkInviteResponse(results, invitees.size(), travelPlanResponse);
+    }
+    
+    /**
+     * Insert INVITED statuses for the invitees in one JDBC batch; identity ids keep Hibernate from batching them
+     */
+    private void insertInvitations(TravelPlan plan, List<User> invitees) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(INSERT_INVITATION_SQL, invitees, invitees.size(), (statement, invitee) -> {
+            statement.setLong(1, invitee.getId());
+            statement.setLong(2, plan.getId());
+            statement.setTimestamp(3, now);
+            statement.setTimestamp(4, now);
+        });
+    }
+    
+    private static void reject(BulkInviteResponse.InviteResult result, BulkInviteResponse.Outcome outcome, String message) {
+        result.setOutcome(outcome);
+        result.setMessage(message);
+    }
+    
+    /**
+     * Why a user who already has a status on the plan cannot be invited
+     */
+    private static String existingRelationshipMessage(UserPlanStatus.Status status) {
+        switch (status) {
+            case APPLIED_REFUSED:
+                return "User has already been refused to join the plan";
+            case APPLIED_CANCELLED:
+                return "User has already cancelled the application";
+            case INVITED_REFUSED:
+                return "User has already refused to join the plan";
+            default:
+                return "User already has a relationship with this plan";
+        }
+    }
+    
     // Combined accept/refuse invitation handler
     public TravelPlanResponse handleInvitation(Long planId, User user, Decision decision) {
         Optional<TravelPlan> planOpt = travelPlanRepository.findById(planId);
@@ -450,6 +657,7 @@ public class TravelPlanService {
 
         switch (decision) {
             case ACCEPT:
+                reserveMemberSlot(plan);
                 userStatus.setStatus(UserPlanStatus.Status.INVITED_ACCEPTED);
                 userPlanStatusRepository.save(userStatus);
                 // Check if maxMembers is reached after accepting this invitation
@@ -460,6 +668,7 @@ public class TravelPlanService {
                 userPlanStatusRepository.save(userStatus);
                 break;
         }
+        planEventPublisher.membershipChanged(user.getId(), plan.getId(), userStatus.getStatus());
 
         TravelPlanResponse response = convertToResponse(plan);
         populateMembers(response, plan, true);
@@ -491,9 +700,11 @@ public class TravelPlanService {
         plan.setCancelledAt(LocalDateTime.now());
         plan.setCancellationReason(reason);
         travelPlanRepository.save(plan);
+        onPlanChanged(plan);
+        currentPlanCache.planEnded(plan.getId());
         
         // Automatically refuse all pending applications and invitations when plan is closed
-        refuseAllPendingApplicationsAndInvitations(plan);
+        pendingRequestRefusals.refuseAll(plan);
         
         TravelPlanResponse response = convertToResponse(plan);
         populateMembers(response, plan, true);
@@ -523,6 +734,7 @@ public class TravelPlanService {
         plan.setStatus(TravelPlan.Status.IN_PROGRESS);
         // plan.setStartedAt(LocalDateTime.now()); // Remove, no such field
         travelPlanRepository.save(plan);
+        onPlanChanged(plan);
         
         return convertToResponse(plan);
     }
@@ -550,6 +762,8 @@ public class TravelPlanService {
         plan.setStatus(TravelPlan.Status.COMPLETED);
         // plan.setCompletedAt(LocalDateTime.now()); // Remove, no such field
         travelPlanRepository.save(plan);
+        currentPlanCache.planEnded(plan.getId());
+        planEventPublisher.planChanged(plan.getId(), PlanEvent.Type.PLAN_UPDATED, plan.getId());
         
         return convertToResponse(plan);
     }
@@ -558,19 +772,33 @@ public class TravelPlanService {
      * Check if user has current plan
      */
     public boolean userHasCurrentPlan(Long userId) {
-        return travelPlanRepository.userHasCurrentPlan(userId);
+        return currentPlanOf(userId).exists();
+    }
+
+    /**
+     * The user's current plan and status, from the cache or, on a miss, the database
+     */
+    private CurrentPlanCache.CurrentPlan currentPlanOf(Long userId) {
+        CurrentPlanCache.CurrentPlan cached = currentPlanCache.get(userId);
+        if (cached != null) {
+            return cached;
+        }
+        long stamp = currentPlanCache.stamp();
+        List<Object[]> rows = travelPlanRepository.findCurrentPlanStatuses(userId);
+        CurrentPlanCache.CurrentPlan currentPlan = rows.isEmpty() ? CurrentPlanCache.CurrentPlan.NONE
+                : new CurrentPlanCache.CurrentPlan((Long) rows.get(0)[0], (UserPlanStatus.Status) rows.get(0)[1]);
+        currentPlanCache.put(userId, currentPlan, stamp);
+        return currentPlan;
     }
     
     /**
      * Check if travel plan has reached maxMembers and automatically refuse pending applications/invitations
      */
     private void checkAndHandleMaxMembersReached(TravelPlan plan) {
-        // Count current active members (OWNED, APPLIED_ACCEPTED, INVITED_ACCEPTED)
-        long activeMemberCount = userPlanStatusRepository.countActiveMembers(plan);
-        
         // If we've reached maxMembers, automatically refuse all pending applications and invitations
-        if (activeMemberCount >= plan.getMaxMembers()) {
-            refuseAllPendingApplicationsAndInvitations(plan);
+        if (plan.isFull()) {
+            pendingRequestRefusals.refuseAll(plan);
+            onPlanChanged(plan);
         }
     }
     
@@ -578,35 +806,106 @@ public class TravelPlanService {
      * Check if travel plan has reached maxMembers
      */
     public boolean isPlanFull(TravelPlan plan) {
-        long activeMemberCount = userPlanStatusRepository.countActiveMembers(plan);
-        return activeMemberCount >= plan.getMaxMembers();
+        return plan.isFull();
+    }
+    
+    /**
+     * Atomically take one member slot on the plan, failing if a concurrent accept already filled it
+     */
+    private void reserveMemberSlot(TravelPlan plan) {
+        if (travelPlanRepository.incrementActiveMemberCountIfNotFull(plan.getId()) == 0) {
+            throw new IllegalStateException("Travel plan has reached maximum number of members");
+        }
+        // Keep the loaded entity in step with the row for the rest of this request
+        plan.setActiveMemberCount(plan.getCurrentMemberCount() + 1);
+    }
+
+    
+    /**
+     * Keep the search index and discovery cache in step with a plan lifecycle change, and tell subscribers
+     */
+    private void onPlanChanged(TravelPlan plan) {
+        planSearchIndex.update(plan);
+        discoveryCache.evict(plan);
+        planEventPublisher.planChanged(plan.getId(), PlanEvent.Type.PLAN_UPDATED, plan.getId());
+        planEventPublisher.discoveryChanged(plan.getId(), PlanEvent.Type.PLAN_UPDATED);
+    }
+    
+    /**
+     * Load the newest discovery candidates for a cohort and cache them
+     */
+    private DiscoveryCache.Entry loadDiscoveryCandidates(DiscoveryCache.Cohort cohort, long stamp) {
+        List<Object[]> rows = travelPlanRepository.findDiscoveryCandidates(
+                cohort.gender(), cohort.language(), PageRequest.of(0, MAX_DISCOVERY_CANDIDATES + 1));
+        boolean complete = rows.size() <= MAX_DISCOVERY_CANDIDATES;
+        List<DiscoveryCache.Candidate> candidates = rows.stream()
+                .limit(MAX_DISCOVERY_CANDIDATES)
+                .map(row -> new DiscoveryCache.Candidate((Long) row[0], (LocalDateTime) row[1], (Integer) row[2], (Integer) row[3]))
+                .collect(Collectors.toList());
+        return discoveryCache.put(cohort, candidates, complete, stamp);
+    }
+    
+    /**
+     * Load plans (with owners) in the given id order, re-checking that each is still a public, new, not full plan
+     * in case a cache or the search index is behind
+     */
+    private List<TravelPlan> findPlansInOrder(List<Long> planIds) {
+        if (planIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, TravelPlan> plansById = travelPlanRepository.findWithOwnerByIdIn(planIds).stream()
+                .collect(Collectors.toMap(TravelPlan::getId, plan -> plan));
+        return planIds.stream()
+                .map(plansById::get)
+                .filter(plan -> plan != null
+                        && plan.getPlanType() == TravelPlan.PlanType.PUBLIC
+                        && plan.getStatus() == TravelPlan.Status.NEW
+                        && !isPlanFull(plan))
+                .collect(Collectors.toList());
     }
     
     /**
      * Populate members in TravelPlanResponse
      */
     private void populateMembers(TravelPlanResponse response, TravelPlan plan, boolean includePending) {
-        List<UserPlanStatus.Status> allowedStatuses;
-        if (includePending) {
-            // Include pending applications and invitations
-            allowedStatuses = Arrays.asList(
-                    UserPlanStatus.Status.OWNED,
-                    UserPlanStatus.Status.APPLIED,
-                    UserPlanStatus.Status.APPLIED_ACCEPTED,
-                    UserPlanStatus.Status.INVITED,
-                    UserPlanStatus.Status.INVITED_ACCEPTED
-            );
-        } else {
-            // Only include confirmed members
-            allowedStatuses = Arrays.asList(
-                    UserPlanStatus.Status.OWNED,
-                    UserPlanStatus.Status.APPLIED_ACCEPTED,
-                    UserPlanStatus.Status.INVITED_ACCEPTED
-            );
-        }
+        List<UserPlanStatus> statuses = loadMemberStatuses(List.of(plan), includePending)
+                .getOrDefault(plan.getId(), List.of());
+        response.setMembers(toMemberResponses(statuses));
+    }
+
+    /**
+     * Convert a list of plans to responses, hydrating members and owners for the whole list at once
+     * instead of walking each plan's lazy collections
+     */
+    private List<TravelPlanResponse> convertToResponsesWithMembers(List<TravelPlan> plans, boolean includePending) {
+        Map<Long, List<UserPlanStatus>> statusesByPlan = loadMemberStatuses(plans, includePending);
+        return plans.stream()
+                .map(plan -> convertToResponseWithMembers(plan, statusesByPlan.getOrDefault(plan.getId(), List.of())))
+                .collect(Collectors.toList());
+    }
+
+    private TravelPlanResponse convertToResponseWithMembers(TravelPlan plan, List<UserPlanStatus> statuses) {
+        TravelPlanResponse response = convertToResponse(plan);
+        response.setMembers(toMemberResponses(statuses));
+        return response;
+    }
+
+    /**
+     * Load member statuses (with users) for all given plans in one query, grouped by plan id
+     */
+    private Map<Long, List<UserPlanStatus>> loadMemberStatuses(List<TravelPlan> plans, boolean includePending) {
+        if (plans.isEmpty()) {
+            return Map.of();
+        }
+        List<Long> planIds = plans.stream().map(TravelPlan::getId).distinct().collect(Collectors.toList());
+        // Include pending applications and invitations, or only confirmed members
+        List<UserPlanStatus.Status> allowedStatuses = includePending ? MEMBER_LIST_STATUSES : ACTIVE_MEMBER_STATUSES;
+        return userPlanStatusRepository.findByTravelPlanIdsWithUser(planIds, allowedStatuses).stream()
+                .collect(Collectors.groupingBy(ups -> ups.getTravelPlan().getId(), LinkedHashMap::new, Collectors.toList()));
+    }
 
-        List<MemberResponseDTO> members = plan.getUserPlanStatuses().stream()
-                .filter(userPlanStatus -> allowedStatuses.contains(userPlanStatus.getStatus()))
+    private List<MemberResponseDTO> toMemberResponses(List<UserPlanStatus> statuses) {
+        return statuses.stream()
                 .map(userPlanStatus -> new MemberResponseDTO(
                         userPlanStatus.getUser().getId(),
                         userPlanStatus.getUser().getFullName(),
@@ -614,31 +913,36 @@ public class TravelPlanService {
                         userPlanStatus.getStatus()
                 ))
                 .collect(Collectors.toList());
-
-        response.setMembers(members);
     }
     
+    private int resolveDiscoveryPageSize(Integer size) {
+        if (size == null || size <= 0) {
+            return DEFAULT_DISCOVERY_PAGE_SIZE;
+        }
+        return Math.min(size, MAX_DISCOVERY_PAGE_SIZE);
+    }
+
     /**
-     * Automatically refuse all pending applications and invitations for a travel plan
+     * Discovery cursors are opaque to clients: base64url of "createdAt,id" of the last plan on the page
      */
-    private void refuseAllPendingApplicationsAndInvitations(TravelPlan plan) {
-        // Get all pending applications and invitations
-        List<UserPlanStatus> pendingApplications = userPlanStatusRepository.findPendingApplications(plan);
-        List<UserPlanStatus> pendingInvitations = userPlanStatusRepository.findPendingInvitations(plan);
-        
-        // Refuse all pending applications
-        for (UserPlanStatus application : pendingApplications) {
-            application.setStatus(UserPlanStatus.Status.APPLIED_REFUSED);
-            userPlanStatusRepository.save(application);
-        }
-        
-        // Refuse all pending invitations
-        for (UserPlanStatus invitation : pendingInvitations) {
-            invitation.setStatus(UserPlanStatus.Status.INVITED_REFUSED);
-            userPlanStatusRepository.save(invitation);
+    private String encodeDiscoveryCursor(LocalDateTime createdAt, Long id) {
+        String raw = createdAt + "," + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String[] decodeDiscoveryCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split(",");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid discovery cursor");
+            }
+            return parts;
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid discovery cursor");
         }
     }
-    
+
     /**
      * Convert TravelPlan to TravelPlanResponse
      */
@@ -84,6 +84,9 @@ public class UserService {
         existingUser.setCity(userRequest.getCity());
         existingUser.setBio(userRequest.getBio());
         existingUser.setProfilePicture(userRequest.getProfilePicture());
+        if (userRequest.getEmailDigest() != null) {
+            existingUser.setEmailDigest(userRequest.getEmailDigest());
+        }
 
         return userRepository.save(existingUser);
     }
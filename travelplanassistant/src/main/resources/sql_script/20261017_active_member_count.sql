@@ -0,0 +1,16 @@
+-- =====================================================
+-- Active Member Count Script
+-- Created: 2026-10-17
+-- Description: Denormalized active member counter on travel_plans, kept in step by
+--              conditional UPDATEs on accept and repaired hourly by TravelPlanScheduler
+-- =====================================================
+
+ALTER TABLE travel_plans ADD COLUMN active_member_count INT NOT NULL DEFAULT 0;
+
+-- Backfill from OWNED / APPLIED_ACCEPTED / INVITED_ACCEPTED statuses
+UPDATE travel_plans tp
+SET tp.active_member_count = (
+    SELECT COUNT(*) FROM user_plan_status ups
+    WHERE ups.travel_plan_id = tp.id
+      AND ups.status IN ('OWNED', 'APPLIED_ACCEPTED', 'INVITED_ACCEPTED')
+);
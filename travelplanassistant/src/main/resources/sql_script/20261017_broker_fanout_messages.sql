@@ -0,0 +1,15 @@
+-- =====================================================
+-- Broker Fanout Messages Script
+-- Created: 2026-10-17
+-- Description: Short-lived broker messages relayed between app nodes when app.websocket.broker.mode=DATABASE
+-- =====================================================
+
+CREATE TABLE IF NOT EXISTS broker_fanout_messages (
+    id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    origin VARCHAR(64) NOT NULL,
+    destination VARCHAR(255) NOT NULL,
+    content_type VARCHAR(100),
+    payload TEXT NOT NULL,
+    created_at DATETIME(6) NOT NULL,
+    INDEX idx_broker_fanout_created_at (created_at)
+);
@@ -0,0 +1,7 @@
+-- =====================================================
+-- Chat History Index Script
+-- Created: 2026-10-17
+-- Description: Composite index backing keyset-paginated chat history (before/after message id cursors)
+-- =====================================================
+
+CREATE INDEX idx_chat_messages_plan_id ON chat_messages (travel_plan_id, id);
@@ -0,0 +1,15 @@
+-- =====================================================
+-- Chat Message Id Blocks Script
+-- Created: 2026-10-17
+-- Description: High-water mark for chat message ids reserved ahead of insert by the write-behind writer
+-- =====================================================
+
+CREATE TABLE IF NOT EXISTS chat_message_id_blocks (
+    id INT NOT NULL PRIMARY KEY,
+    next_id BIGINT NOT NULL
+);
+
+-- Seed above existing messages; the allocator also never hands out ids at or below MAX(chat_messages.id)
+INSERT INTO chat_message_id_blocks (id, next_id)
+SELECT 1, COALESCE(MAX(id), 0) + 1 FROM chat_messages
+WHERE NOT EXISTS (SELECT 1 FROM chat_message_id_blocks WHERE id = 1);
@@ -0,0 +1,12 @@
+-- =====================================================
+-- Discovery Index Script
+-- Created: 2026-10-17
+-- Description: Indexes backing the single-query, keyset-paginated discovery page
+-- =====================================================
+
+-- Public NEW plans ordered by (created_at, id) for keyset pagination
+CREATE INDEX idx_travel_plans_discovery ON travel_plans (plan_type, status, created_at, id);
+
+-- "Already related to this plan" and active member count subqueries
+CREATE INDEX idx_ups_plan_user ON user_plan_status (travel_plan_id, user_id);
+CREATE INDEX idx_ups_plan_status ON user_plan_status (travel_plan_id, status);
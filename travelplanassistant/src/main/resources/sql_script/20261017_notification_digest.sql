@@ -0,0 +1,34 @@
+-- =====================================================
+-- Notification Digest Script
+-- Created: 2026-10-17
+-- Description: Per-user digest preference. For users who opt in, application status and invitation
+--              notifications are held as DIGEST_PENDING and NotificationDigestWorker sends them as one
+--              DIGEST email per recipient per window, marking the originals DIGESTED
+-- =====================================================
+
+ALTER TABLE users ADD COLUMN email_digest BOOLEAN NOT NULL DEFAULT FALSE COMMENT 'Batch non-urgent notification emails into a digest';
+
+ALTER TABLE notifications MODIFY COLUMN notification_type ENUM(
+    'TRAVEL_PLAN_START_REMINDER',
+    'TRAVEL_PLAN_COMPLETION',
+    'APPLICATION_STATUS_UPDATE',
+    'INVITATION_NOTIFICATION',
+    'CUSTOM_NOTIFICATION',
+    'SYSTEM_NOTIFICATION',
+    'DIGEST'
+) NOT NULL COMMENT 'Type of notification being sent';
+
+ALTER TABLE notifications MODIFY COLUMN status ENUM(
+    'PENDING',
+    'SENDING',
+    'SENT',
+    'FAILED',
+    'RETRYING',
+    'CANCELLED',
+    'DEAD_LETTER',
+    'DIGEST_PENDING',
+    'DIGESTED'
+) NOT NULL DEFAULT 'PENDING' COMMENT 'Current status of the notification';
+
+-- Due digests are found from the held rows' oldest created_at (idx_status_created) and claimed per
+-- recipient (idx_recipient_status), so no new index is needed
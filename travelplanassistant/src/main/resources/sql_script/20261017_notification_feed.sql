@@ -0,0 +1,11 @@
+-- =====================================================
+-- Notification Feed Script
+-- Created: 2026-10-17
+-- Description: In-app notification feed. read_at records when the recipient read a notification, and the
+--              composite index backs the keyset-paginated feed (before notification id cursor) and the
+--              per-user unread count
+-- =====================================================
+
+ALTER TABLE notifications ADD COLUMN read_at DATETIME COMMENT 'When the recipient read the notification in the app';
+
+CREATE INDEX idx_notifications_recipient_user_id ON notifications (recipient_user_id, id);
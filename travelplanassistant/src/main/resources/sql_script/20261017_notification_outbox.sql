@@ -0,0 +1,20 @@
+-- =====================================================
+-- Notification Outbox Script
+-- Created: 2026-10-17
+-- Description: SENDING status and claim time for the notification outbox; PENDING rows are claimed
+--              with SELECT ... FOR UPDATE SKIP LOCKED by NotificationOutboxWorker
+-- =====================================================
+
+ALTER TABLE notifications MODIFY COLUMN status ENUM(
+    'PENDING',
+    'SENDING',
+    'SENT',
+    'FAILED',
+    'RETRYING',
+    'CANCELLED'
+) NOT NULL DEFAULT 'PENDING' COMMENT 'Current status of the notification';
+
+ALTER TABLE notifications ADD COLUMN claimed_at DATETIME COMMENT 'When an outbox worker claimed the notification for sending';
+
+-- Claims scan PENDING (and expired SENDING) rows in id order
+CREATE INDEX idx_notifications_status_id ON notifications (status, id);
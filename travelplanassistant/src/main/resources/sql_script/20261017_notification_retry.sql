@@ -0,0 +1,25 @@
+-- =====================================================
+-- Notification Retry Script
+-- Created: 2026-10-17
+-- Description: DEAD_LETTER status and backoff schedule for NotificationRetryWorker, which resends
+--              FAILED notifications once next_attempt_at has passed
+-- =====================================================
+
+ALTER TABLE notifications MODIFY COLUMN status ENUM(
+    'PENDING',
+    'SENDING',
+    'SENT',
+    'FAILED',
+    'RETRYING',
+    'CANCELLED',
+    'DEAD_LETTER'
+) NOT NULL DEFAULT 'PENDING' COMMENT 'Current status of the notification';
+
+ALTER TABLE notifications ADD COLUMN next_attempt_at DATETIME COMMENT 'Earliest time a failed notification is retried';
+
+-- Retry claims read due FAILED rows as one range in next_attempt_at order (never retried NULL rows first).
+-- Expired RETRYING rows are claimed by a separate query through idx_notifications_status_id.
+CREATE INDEX idx_notifications_status_next_attempt ON notifications (status, next_attempt_at);
+
+-- Notifications already out of retries
+UPDATE notifications SET status = 'DEAD_LETTER' WHERE status = 'FAILED' AND retry_count >= max_retries;
@@ -0,0 +1,10 @@
+-- =====================================================
+-- Plan Lifecycle Indexes Script
+-- Created: 2026-10-17
+-- Description: Composite indexes for TravelPlanScheduler, which finds due plans (status = ? AND start_date <= ?)
+--              and upcoming start/end times (status = ? AND start_date BETWEEN ...) with range scans instead
+--              of DATE(start_date) = CURRENT_DATE full scans
+-- =====================================================
+
+CREATE INDEX idx_travel_plans_status_start ON travel_plans (status, start_date);
+CREATE INDEX idx_travel_plans_status_end ON travel_plans (status, end_date);
@@ -0,0 +1,8 @@
+-- =====================================================
+-- Plan Search Refresh Script
+-- Created: 2026-10-17
+-- Description: Lets each node's keyword search index re-read only plans changed since its last refresh
+-- =====================================================
+
+-- Plans created or changed after a time (updated_at is now also set on insert)
+CREATE INDEX idx_travel_plans_updated_at ON travel_plans (updated_at);
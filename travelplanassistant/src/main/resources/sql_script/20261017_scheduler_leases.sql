@@ -0,0 +1,12 @@
+-- =====================================================
+-- Scheduler Leases Script
+-- Created: 2026-10-17
+-- Description: One row per scheduled job naming the node that holds it and until when, so that with
+--              several app nodes only one runs the plan lifecycle pass at a time
+-- =====================================================
+
+CREATE TABLE IF NOT EXISTS scheduler_leases (
+    name VARCHAR(64) NOT NULL PRIMARY KEY,
+    owner VARCHAR(64) NOT NULL,
+    lease_until DATETIME(6) NOT NULL
+);
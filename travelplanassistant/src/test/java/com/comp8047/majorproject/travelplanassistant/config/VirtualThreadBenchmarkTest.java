@@ -0,0 +1,86 @@
+package com.comp8047.majorproject.travelplanassistant.config;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Throughput benchmark for the virtual-threads profile. Runs request-shaped tasks that mostly block
+ * (a simulated JDBC or SMTP round trip) at high concurrency on a platform pool the size of Tomcat's default
+ * against one virtual thread per task, plus a pinned variant that blocks inside synchronized code.
+ * Run with: mvn test -Dtest=VirtualThreadBenchmarkTest -Dbenchmark=true (virtual runs need Java 21)
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class VirtualThreadBenchmarkTest {
+
+    private static final int TASKS = 5000;
+    private static final int TOMCAT_MAX_THREADS = 200;
+    private static final long BLOCKING_MS = 20;
+
+    @Test
+    void testThroughput_PlatformPoolVersusVirtualThreads() throws Exception {
+        double platform = run("platform pool (" + TOMCAT_MAX_THREADS + ")",
+                Executors.newFixedThreadPool(TOMCAT_MAX_THREADS), false);
+
+        ExecutorService virtualExecutor = newVirtualThreadPerTaskExecutor();
+        assumeTrue(virtualExecutor != null, "Virtual threads need Java 21");
+        double virtual = run("virtual threads", virtualExecutor, false);
+        double pinned = run("virtual threads, pinned", newVirtualThreadPerTaskExecutor(), true);
+
+        System.out.printf("virtual/platform speedup: %.1fx, pinned/platform: %.1fx%n", virtual / platform, pinned / platform);
+        assertTrue(virtual > platform, "Virtual threads should beat a bounded pool on blocking work");
+    }
+
+    private double run(String name, ExecutorService executor, boolean pinned) throws Exception {
+        long start = System.nanoTime();
+        List<Future<?>> futures = new ArrayList<>(TASKS);
+        for (int i = 0; i < TASKS; i++) {
+            futures.add(executor.submit(() -> {
+                if (pinned) {
+                    // One lock per task, so there is no contention: only the carrier is held while blocking
+                    synchronized (new Object()) {
+                        sleep();
+                    }
+                } else {
+                    sleep();
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        double throughput = TASKS / seconds;
+        System.out.printf("%-28s %6d tasks in %6.2f s = %8.0f tasks/s%n", name, TASKS, seconds, throughput);
+        return throughput;
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(BLOCKING_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Looked up reflectively so the test compiles for Java 17
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+}
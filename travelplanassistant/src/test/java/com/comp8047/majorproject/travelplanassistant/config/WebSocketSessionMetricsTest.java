@@ -0,0 +1,103 @@
+package com.comp8047.majorproject.travelplanassistant.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for WebSocketSessionMetrics
+ * Tests session tracking, send timing and the send buffer of a slow client
+ */
+@ExtendWith(MockitoExtension.class)
+class WebSocketSessionMetricsTest {
+
+    @Mock
+    private WebSocketHandler handler;
+
+    @Mock
+    private WebSocketSession session;
+
+    private SimpleMeterRegistry meterRegistry;
+    private WebSocketSessionMetrics metrics;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        metrics = new WebSocketSessionMetrics(meterRegistry, 100);
+        when(session.getId()).thenReturn("s1");
+    }
+
+    @Test
+    void testSessionLifecycle_TracksOpenSessionsAndTimesSends() throws Exception {
+        WebSocketHandler decorated = metrics.decorate(handler);
+
+        decorated.afterConnectionEstablished(session);
+        assertEquals(1, metrics.sessionCount());
+
+        // The handler gets a metered wrapper that still writes to the real session
+        ArgumentCaptor<WebSocketSession> passedOn = ArgumentCaptor.forClass(WebSocketSession.class);
+        verify(handler).afterConnectionEstablished(passedOn.capture());
+        passedOn.getValue().sendMessage(new TextMessage("hello"));
+        verify(session).sendMessage(any(TextMessage.class));
+        assertEquals(1, meterRegistry.get("websocket.session.send").timer().count());
+
+        decorated.afterConnectionClosed(session, CloseStatus.NORMAL);
+        assertEquals(0, metrics.sessionCount());
+    }
+
+    @Test
+    void testSlowClient_ReportedAsBufferedAndStalled() throws Exception {
+        CountDownLatch sending = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            sending.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(session).sendMessage(any());
+        metrics.decorate(handler).afterConnectionEstablished(session);
+        ArgumentCaptor<WebSocketSession> passedOn = ArgumentCaptor.forClass(WebSocketSession.class);
+        verify(handler).afterConnectionEstablished(passedOn.capture());
+        // The send buffer the sub-protocol handler wraps around the metered session
+        ConcurrentWebSocketSessionDecorator sendBuffer = new ConcurrentWebSocketSessionDecorator(passedOn.getValue(), 10000, 1024);
+        assertSame(sendBuffer, metrics.trackSendBuffer(sendBuffer));
+
+        Thread writer = new Thread(() -> {
+            try {
+                sendBuffer.sendMessage(new TextMessage("12345"));
+            } catch (Exception e) {
+                fail(e);
+            }
+        });
+        writer.start();
+        assertTrue(sending.await(5, TimeUnit.SECONDS));
+        // Waits in the buffer behind the write in progress
+        sendBuffer.sendMessage(new TextMessage("678"));
+        Thread.sleep(80);
+
+        assertEquals(3, metrics.sendBufferBytes());
+        assertEquals(3, metrics.maxSendBufferBytes());
+        assertEquals(1, metrics.stalledSessions());
+
+        release.countDown();
+        writer.join(5000);
+        assertEquals(0, metrics.sendBufferBytes());
+        assertEquals(0, metrics.maxSendBufferBytes());
+        assertEquals(0, metrics.stalledSessions());
+    }
+}
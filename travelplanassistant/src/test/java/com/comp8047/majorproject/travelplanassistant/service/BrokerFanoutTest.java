@@ -0,0 +1,133 @@
+package com.comp8047.majorproject.travelplanassistant.service;
+
+import com.comp8047.majorproject.travelplanassistant.config.WebSocketConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.MimeTypeUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Multi-node tests for BrokerFanout
+ * Runs two fanout nodes against the same embedded database, each with its own broker channel standing in
+ * for a node's simple broker, and checks that messages cross between nodes exactly once
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class BrokerFanoutTest {
+
+    private static final long TIMEOUT_MS = 5000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Node nodeA;
+    private Node nodeB;
+
+    /**
+     * One app node: a broker channel, the messages its local broker received, and its fanout
+     */
+    private static final class Node {
+        private final ExecutorSubscribableChannel brokerChannel = new ExecutorSubscribableChannel();
+        private final List<Message<?>> delivered = new CopyOnWriteArrayList<>();
+        private final BrokerFanout fanout;
+
+        private Node(JdbcTemplate jdbcTemplate) {
+            brokerChannel.subscribe(delivered::add);
+            fanout = new BrokerFanout(jdbcTemplate, brokerChannel, new SimpleMeterRegistry(),
+                    WebSocketConfig.BrokerMode.DATABASE, 20, 60, 100, 50);
+            fanout.start();
+        }
+
+        private void publish(String destination, String json) {
+            SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+            accessor.setDestination(destination);
+            accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+            brokerChannel.send(MessageBuilder.createMessage(json.getBytes(StandardCharsets.UTF_8), accessor.getMessageHeaders()));
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM broker_fanout_messages");
+        nodeA = new Node(jdbcTemplate);
+        nodeB = new Node(jdbcTemplate);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        nodeA.fanout.stop();
+        nodeB.fanout.stop();
+    }
+
+    @Test
+    void testPublish_DeliveredOnOtherNodeOnce() throws InterruptedException {
+        nodeA.publish("/topic/chat/1", "{\"content\":\"hello\"}");
+
+        awaitDelivered(nodeB, 1);
+        Message<?> received = nodeB.delivered.get(0);
+        assertEquals("/topic/chat/1", SimpMessageHeaderAccessor.getDestination(received.getHeaders()));
+        assertEquals("{\"content\":\"hello\"}", new String((byte[]) received.getPayload(), StandardCharsets.UTF_8));
+        assertEquals(nodeA.fanout.getNodeId(), received.getHeaders().get(BrokerFanout.ORIGIN_HEADER));
+
+        // Give a relay loop a chance to show up before checking nothing was echoed
+        Thread.sleep(200);
+        assertEquals(1, nodeA.delivered.size());
+        assertEquals(1, nodeB.delivered.size());
+    }
+
+    @Test
+    void testPublish_BothDirectionsKeepOrder() throws InterruptedException {
+        for (int i = 0; i < 5; i++) {
+            nodeA.publish("/topic/plan/1/events", "{\"seq\":" + i + "}");
+        }
+        nodeB.publish("/topic/plan/1/events", "{\"seq\":\"b\"}");
+
+        awaitDelivered(nodeB, 6);
+        awaitDelivered(nodeA, 6);
+        // Node B's own message can land before or among the relayed ones, so check the relayed order alone
+        List<String> relayed = nodeB.delivered.stream()
+                .filter(message -> message.getHeaders().containsKey(BrokerFanout.ORIGIN_HEADER))
+                .map(message -> new String((byte[]) message.getPayload(), StandardCharsets.UTF_8))
+                .toList();
+        assertEquals(5, relayed.size());
+        for (int i = 0; i < 5; i++) {
+            assertEquals("{\"seq\":" + i + "}", relayed.get(i));
+        }
+    }
+
+    @Test
+    void testNonTopicMessages_AreNotRelayed() throws InterruptedException {
+        nodeA.publish("/queue/private", "{}");
+
+        Thread.sleep(200);
+        assertTrue(nodeB.delivered.isEmpty());
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM broker_fanout_messages", Integer.class));
+    }
+
+    private void awaitDelivered(Node node, int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (node.delivered.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, node.delivered.size());
+    }
+}
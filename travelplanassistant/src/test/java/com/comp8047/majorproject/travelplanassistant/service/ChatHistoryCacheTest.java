@@ -0,0 +1,134 @@
+package com.comp8047.majorproject.travelplanassistant.service;
+
+import com.comp8047.majorproject.travelplanassistant.dto.ChatMessageResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ChatHistoryCache
+ * Tests ring buffer reads, appends, load races, deletion and the global LRU cap
+ */
+class ChatHistoryCacheTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private ChatHistoryCache chatHistoryCache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        chatHistoryCache = new ChatHistoryCache(meterRegistry, 3, 5, true);
+    }
+
+    @Test
+    void testGetLatest_MissUntilLoaded() {
+        assertTrue(chatHistoryCache.getLatest(1L, null, 2).isEmpty());
+
+        chatHistoryCache.load(1L, newestFirst(1L, 3, 2, 1), false, chatHistoryCache.loadStamp(1L));
+
+        assertEquals(List.of(3L, 2L), ids(chatHistoryCache.getLatest(1L, null, 2).orElseThrow()));
+        assertEquals(1.0, meterRegistry.get("chat.history.cache.requests").tag("result", "hit").counter().count());
+        assertEquals(1.0, meterRegistry.get("chat.history.cache.requests").tag("result", "miss").counter().count());
+    }
+
+    @Test
+    void testGetLatest_IncompleteRoom_CannotAnswerBeyondBuffer() {
+        chatHistoryCache.load(1L, newestFirst(1L, 5, 4, 3, 2), false, chatHistoryCache.loadStamp(1L));
+
+        // Only the newest three are kept, so older pages must go to the database
+        assertEquals(List.of(5L, 4L, 3L), ids(chatHistoryCache.getLatest(1L, null, 3).orElseThrow()));
+        assertEquals(List.of(3L), ids(chatHistoryCache.getLatest(1L, 4L, 1).orElseThrow()));
+        assertTrue(chatHistoryCache.getLatest(1L, 4L, 2).isEmpty());
+    }
+
+    @Test
+    void testGetLatest_CompleteRoom_AnswersShortPages() {
+        chatHistoryCache.load(1L, newestFirst(1L, 2, 1), true, chatHistoryCache.loadStamp(1L));
+
+        assertEquals(List.of(2L, 1L), ids(chatHistoryCache.getLatest(1L, null, 10).orElseThrow()));
+        assertEquals(List.of(), ids(chatHistoryCache.getLatest(1L, 1L, 10).orElseThrow()));
+    }
+
+    @Test
+    void testAppend_KeepsIdOrderDropsOldestAndSkipsDuplicates() {
+        chatHistoryCache.load(1L, newestFirst(1L, 4, 2), true, chatHistoryCache.loadStamp(1L));
+
+        chatHistoryCache.append(message(1L, 3));
+        chatHistoryCache.append(message(1L, 4));
+        chatHistoryCache.append(message(1L, 5));
+
+        assertEquals(List.of(5L, 4L, 3L), ids(chatHistoryCache.getLatest(1L, null, 3).orElseThrow()));
+        assertTrue(chatHistoryCache.getLatest(1L, null, 4).isEmpty());
+        assertEquals(3, chatHistoryCache.messageCount());
+    }
+
+    @Test
+    void testLoad_SkippedWhenWriteRacedWithRead() {
+        long stamp = chatHistoryCache.loadStamp(1L);
+        chatHistoryCache.append(message(1L, 2));
+
+        chatHistoryCache.load(1L, newestFirst(1L, 1), true, stamp);
+
+        assertEquals(0, chatHistoryCache.size());
+    }
+
+    @Test
+    void testRemove_DropsDeletedMessage() {
+        chatHistoryCache.load(1L, newestFirst(1L, 2, 1), true, chatHistoryCache.loadStamp(1L));
+
+        chatHistoryCache.remove(1L, 2L);
+
+        assertEquals(List.of(1L), ids(chatHistoryCache.getLatest(1L, null, 10).orElseThrow()));
+        assertEquals(1, chatHistoryCache.messageCount());
+    }
+
+    @Test
+    void testLoad_EvictsLeastRecentlyUsedRoomsOverGlobalCap() {
+        chatHistoryCache.load(1L, newestFirst(1L, 3, 2, 1), true, chatHistoryCache.loadStamp(1L));
+        chatHistoryCache.load(2L, newestFirst(2L, 6, 5), true, chatHistoryCache.loadStamp(2L));
+        chatHistoryCache.getLatest(1L, null, 1);
+
+        chatHistoryCache.load(3L, newestFirst(3L, 8, 7), true, chatHistoryCache.loadStamp(3L));
+
+        assertEquals(2, chatHistoryCache.size());
+        assertEquals(5, chatHistoryCache.messageCount());
+        assertTrue(chatHistoryCache.getLatest(2L, null, 1).isEmpty());
+        assertTrue(chatHistoryCache.getLatest(1L, null, 1).isPresent());
+    }
+
+    @Test
+    void testLoad_Disabled_NeverServesFromBuffer() {
+        ChatHistoryCache disabled = new ChatHistoryCache(meterRegistry, 3, 5, false);
+
+        disabled.load(1L, newestFirst(1L, 2, 1), true, disabled.loadStamp(1L));
+
+        assertTrue(disabled.getLatest(1L, null, 2).isEmpty());
+        assertEquals(0, disabled.size());
+    }
+
+    private List<ChatMessageResponse> newestFirst(Long planId, long... ids) {
+        List<ChatMessageResponse> messages = new ArrayList<>();
+        for (long id : ids) {
+            messages.add(message(planId, id));
+        }
+        return messages;
+    }
+
+    private ChatMessageResponse message(Long planId, long id) {
+        ChatMessageResponse message = new ChatMessageResponse();
+        message.setId(id);
+        message.setTravelPlanId(planId);
+        message.setContent("Message " + id);
+        return message;
+    }
+
+    private List<Long> ids(List<ChatMessageResponse> messages) {
+        return messages.stream().map(ChatMessageResponse::getId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,89 @@
+package com.comp8047.majorproject.travelplanassistant.service;
+
+import com.comp8047.majorproject.travelplanassistant.entity.UserPlanStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ChatMembershipCache
+ * Tests session tracking, invalidation and the stamp check against racing loads
+ */
+class ChatMembershipCacheTest {
+
+    private static final ChatMembershipCache.Membership ACCEPTED =
+            new ChatMembershipCache.Membership(UserPlanStatus.Status.APPLIED_ACCEPTED);
+
+    private ChatMembershipCache chatMembershipCache;
+
+    @BeforeEach
+    void setUp() {
+        chatMembershipCache = new ChatMembershipCache(true);
+    }
+
+    @Test
+    void testPut_WithoutOpenSession_IsNotCached() {
+        chatMembershipCache.put(1L, 5L, ACCEPTED, chatMembershipCache.stamp(1L));
+
+        assertNull(chatMembershipCache.get(1L, 5L));
+    }
+
+    @Test
+    void testPut_WithOpenSession_IsCached() {
+        chatMembershipCache.sessionOpened("s1", 1L);
+
+        chatMembershipCache.put(1L, 5L, ACCEPTED, chatMembershipCache.stamp(1L));
+
+        assertEquals(ACCEPTED, chatMembershipCache.get(1L, 5L));
+    }
+
+    @Test
+    void testPut_Disabled_IsNotCached() {
+        ChatMembershipCache disabled = new ChatMembershipCache(false);
+        disabled.sessionOpened("s1", 1L);
+
+        disabled.put(1L, 5L, ACCEPTED, disabled.stamp(1L));
+
+        assertNull(disabled.get(1L, 5L));
+    }
+
+    @Test
+    void testPut_AfterInvalidation_IsDropped() {
+        chatMembershipCache.sessionOpened("s1", 1L);
+        long stamp = chatMembershipCache.stamp(1L);
+
+        // Membership changes while the caller is still reading the old status
+        chatMembershipCache.invalidate(1L, 5L);
+        chatMembershipCache.put(1L, 5L, ACCEPTED, stamp);
+
+        assertNull(chatMembershipCache.get(1L, 5L));
+    }
+
+    @Test
+    void testMembershipChangedEvent_InvalidatesEntry() {
+        chatMembershipCache.sessionOpened("s1", 1L);
+        chatMembershipCache.put(1L, 5L, ACCEPTED, chatMembershipCache.stamp(1L));
+        chatMembershipCache.put(1L, 6L, ACCEPTED, chatMembershipCache.stamp(1L));
+
+        chatMembershipCache.onMembershipChanged(new PlanEventPublisher.MembershipChangedEvent(1L, 5L, UserPlanStatus.Status.APPLIED_CANCELLED));
+
+        assertNull(chatMembershipCache.get(1L, 5L));
+        assertEquals(ACCEPTED, chatMembershipCache.get(1L, 6L));
+    }
+
+    @Test
+    void testSessionClosed_DropsMembershipsOnlyAfterLastSession() {
+        chatMembershipCache.sessionOpened("s1", 1L);
+        chatMembershipCache.sessionOpened("s2", 1L);
+        chatMembershipCache.put(1L, 5L, ACCEPTED, chatMembershipCache.stamp(1L));
+
+        chatMembershipCache.sessionClosed("s1");
+        assertEquals(ACCEPTED, chatMembershipCache.get(1L, 5L));
+        assertEquals(1, chatMembershipCache.sessionCount());
+
+        chatMembershipCache.sessionClosed("s2");
+        assertNull(chatMembershipCache.get(1L, 5L));
+        assertEquals(0, chatMembershipCache.sessionCount());
+    }
+}
@@ -0,0 +1,73 @@
+package com.comp8047.majorproject.travelplanassistant.service;
+
+import com.comp8047.majorproject.travelplanassistant.entity.ChatMessageIdBlock;
+import com.comp8047.majorproject.travelplanassistant.repository.ChatMessageIdBlockRepository;
+import com.comp8047.majorproject.travelplanassistant.repository.ChatMessageRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for ChatMessageIdAllocator
+ * Tests block reservation above existing message ids
+ */
+@ExtendWith(MockitoExtension.class)
+class ChatMessageIdAllocatorTest {
+
+    @Mock
+    private ChatMessageIdBlockRepository chatMessageIdBlockRepository;
+
+    @Mock
+    private ChatMessageRepository chatMessageRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private ChatMessageIdAllocator allocator;
+
+    @BeforeEach
+    void setUp() {
+        allocator = new ChatMessageIdAllocator(chatMessageIdBlockRepository, chatMessageRepository, transactionManager, 3);
+    }
+
+    @Test
+    void testNextId_FirstBlockStartsAboveMaxMessageId() {
+        when(chatMessageRepository.findMaxId()).thenReturn(41L);
+        when(chatMessageIdBlockRepository.findByIdForUpdate(ChatMessageIdBlock.CHAT_MESSAGES)).thenReturn(Optional.empty());
+
+        assertEquals(42L, allocator.nextId());
+        assertEquals(43L, allocator.nextId());
+        assertEquals(44L, allocator.nextId());
+
+        ArgumentCaptor<ChatMessageIdBlock> block = ArgumentCaptor.forClass(ChatMessageIdBlock.class);
+        verify(chatMessageIdBlockRepository).saveAndFlush(block.capture());
+        assertEquals(45L, block.getValue().getNextId());
+    }
+
+    @Test
+    void testNextId_ReservesNextBlockFromHighWaterMark() {
+        ChatMessageIdBlock existing = new ChatMessageIdBlock(ChatMessageIdBlock.CHAT_MESSAGES, 100L);
+        when(chatMessageRepository.findMaxId()).thenReturn(50L);
+        when(chatMessageIdBlockRepository.findByIdForUpdate(ChatMessageIdBlock.CHAT_MESSAGES)).thenReturn(Optional.of(existing));
+
+        for (int i = 0; i < 3; i++) {
+            allocator.nextId();
+        }
+        // Another instance took 103..105 meanwhile
+        existing.setNextId(106L);
+
+        assertEquals(106L, allocator.nextId());
+        verify(chatMessageIdBlockRepository, times(2)).saveAndFlush(any(ChatMessageIdBlock.class));
+        assertEquals(109L, existing.getNextId());
+    }
+}
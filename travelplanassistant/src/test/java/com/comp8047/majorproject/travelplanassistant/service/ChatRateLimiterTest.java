@@ -0,0 +1,126 @@
+package com.comp8047.majorproject.travelplanassistant.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ChatRateLimiter
+ * Tests session and room buckets, refill, rejection counters and concurrent token taking
+ */
+class ChatRateLimiterTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    private SimpleMeterRegistry meterRegistry;
+    private ChatRateLimiter chatRateLimiter;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        // Sessions: burst 3, 1 per second; rooms: burst 5, 2 per second
+        chatRateLimiter = new ChatRateLimiter(meterRegistry, true, 3, 1, 5, 2);
+    }
+
+    @Test
+    void testSessionBurst_ThenRejectedUntilRefill() {
+        for (int i = 0; i < 3; i++) {
+            chatRateLimiter.checkSend("s1", "/app/chat/1", 0);
+        }
+
+        ChatRateLimiter.RateLimitExceededException exception = assertThrows(ChatRateLimiter.RateLimitExceededException.class,
+                () -> chatRateLimiter.checkSend("s1", "/app/chat/1", 0));
+        assertEquals("Too many messages, please slow down", exception.getMessage());
+        assertEquals(1.0, meterRegistry.get("chat.rate_limit.rejected").tag("scope", "session").counter().count());
+
+        // One token back after a second, not two
+        assertDoesNotThrow(() -> chatRateLimiter.checkSend("s1", "/app/chat/1", SECOND));
+        assertThrows(ChatRateLimiter.RateLimitExceededException.class, () -> chatRateLimiter.checkSend("s1", "/app/chat/1", SECOND));
+    }
+
+    @Test
+    void testRoomLimit_SharedAcrossSessions() {
+        for (int i = 0; i < 5; i++) {
+            chatRateLimiter.checkSend("s" + i, "/app/chat/7", 0);
+        }
+
+        ChatRateLimiter.RateLimitExceededException exception = assertThrows(ChatRateLimiter.RateLimitExceededException.class,
+                () -> chatRateLimiter.checkSend("s9", "/app/chat/7", 0));
+        assertEquals("This chat room is busy, please try again shortly", exception.getMessage());
+        assertEquals(1.0, meterRegistry.get("chat.rate_limit.rejected").tag("scope", "room").counter().count());
+
+        // Other rooms are unaffected
+        assertDoesNotThrow(() -> chatRateLimiter.checkSend("s9", "/app/chat/8", 0));
+    }
+
+    @Test
+    void testNonChatDestination_OnlySessionLimited() {
+        for (int i = 0; i < 3; i++) {
+            chatRateLimiter.checkSend("s1", "/app/other", 0);
+        }
+
+        assertThrows(ChatRateLimiter.RateLimitExceededException.class, () -> chatRateLimiter.checkSend("s1", "/app/other", 0));
+        assertEquals(1, chatRateLimiter.bucketCount());
+    }
+
+    @Test
+    void testDisabled_NeverRejects() {
+        ChatRateLimiter disabled = new ChatRateLimiter(meterRegistry, false, 1, 1, 1, 1);
+
+        for (int i = 0; i < 10; i++) {
+            disabled.checkSend("s1", "/app/chat/1", 0);
+        }
+        assertEquals(0, disabled.bucketCount());
+    }
+
+    @Test
+    void testEvictIdleBuckets_DropsRefilledBuckets() {
+        chatRateLimiter.checkSend("s1", "/app/chat/1", System.nanoTime() - 10 * SECOND);
+        chatRateLimiter.checkSend("s2", "/app/chat/2", System.nanoTime() + 10 * SECOND);
+        assertEquals(4, chatRateLimiter.bucketCount());
+
+        chatRateLimiter.evictIdleBuckets();
+
+        assertEquals(2, chatRateLimiter.bucketCount());
+    }
+
+    @Test
+    void testConcurrentSends_GrantExactlyTheBurst() throws InterruptedException {
+        ChatRateLimiter limiter = new ChatRateLimiter(meterRegistry, true, 50, 0.001, 1000, 0.001);
+        AtomicInteger granted = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < 100; i++) {
+                    try {
+                        limiter.checkSend("s1", "/app/chat/1", 0);
+                        granted.incrementAndGet();
+                    } catch (ChatRateLimiter.RateLimitExceededException e) {
+                        // expected once the burst is used up
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(50, granted.get());
+    }
+}
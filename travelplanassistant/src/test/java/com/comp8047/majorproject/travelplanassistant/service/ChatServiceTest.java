@@ -1,5 +1,6 @@
 package com.comp8047.majorproject.travelplanassistant.service;
 
+import com.comp8047.majorproject.travelplanassistant.dto.ChatHistoryPageResponse;
 import com.comp8047.majorproject.travelplanassistant.dto.ChatMessageRequest;
 import com.comp8047.majorproject.travelplanassistant.dto.ChatMessageResponse;
 import com.comp8047.majorproject.travelplanassistant.entity.ChatMessage;
@@ -15,11 +16,15 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
 
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -41,6 +46,21 @@ class ChatServiceTest {
     @Mock
     private UserPlanStatusRepository userPlanStatusRepository;
 
+    @Mock
+    private ChatHistoryCache chatHistoryCache;
+
+    @Mock
+    private ChatWriteBehindWriter chatWriteBehindWriter;
+
+    @Mock
+    private ChatMessageIdAllocator chatMessageIdAllocator;
+
+    @Mock
+    private ChatMembershipCache chatMembershipCache;
+
+    @Mock
+    private SimpMessagingTemplate messagingTemplate;
+
     @InjectMocks
     private ChatService chatService;
 
@@ -102,6 +122,125 @@ class ChatServiceTest {
         verify(chatMessageRepository).save(any(ChatMessage.class));
     }
 
+    @Test
+    void testSendMessage_WriteBehind_AssignsIdAndQueuesInsert() {
+        // Given
+        when(travelPlanRepository.findById(1L)).thenReturn(Optional.of(testPlan));
+        when(userPlanStatusRepository.findByUserAndTravelPlan(testUser, testPlan)).thenReturn(Optional.of(userPlanStatus));
+        when(chatWriteBehindWriter.isEnabled()).thenReturn(true);
+        when(chatMessageIdAllocator.nextId()).thenReturn(42L);
+        when(chatWriteBehindWriter.submit(any())).thenReturn(new CompletableFuture<>());
+
+        // When
+        ChatMessageResponse result = chatService.sendMessage(1L, messageRequest, testUser);
+
+        // Then
+        assertEquals(42L, result.getId());
+        assertEquals("Hello everyone!", result.getContent());
+        assertEquals(1L, result.getTravelPlanId());
+        assertEquals("John Doe", result.getUserName());
+        verify(chatWriteBehindWriter).submit(argThat(pending -> pending.id() == 42L
+                && pending.senderId().equals(1L) && pending.travelPlanId().equals(1L)));
+        verify(chatHistoryCache).append(result);
+        verify(chatMessageRepository, never()).save(any(ChatMessage.class));
+    }
+
+    @Test
+    void testSendMessage_WriteBehindFailure_RemovesMessageAndNotifiesRoom() {
+        // Given
+        CompletableFuture<Void> persisted = new CompletableFuture<>();
+        when(chatMembershipCache.get(1L, 1L)).thenReturn(new ChatMembershipCache.Membership(UserPlanStatus.Status.APPLIED_ACCEPTED));
+        when(chatWriteBehindWriter.isEnabled()).thenReturn(true);
+        when(chatMessageIdAllocator.nextId()).thenReturn(42L);
+        when(chatWriteBehindWriter.submit(any())).thenReturn(persisted);
+        chatService.sendMessage(1L, messageRequest, testUser);
+
+        // When
+        persisted.completeExceptionally(new IllegalStateException("insert failed"));
+
+        // Then
+        verify(chatHistoryCache).remove(1L, 42L);
+        verify(messagingTemplate).convertAndSend(eq("/topic/chat/1"), argThat((ChatMessageResponse notice) ->
+                notice.getMessageType() == ChatMessage.MessageType.SYSTEM && notice.getId() == null
+                        && notice.getContent().contains("John Doe")));
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> chatService.deleteMessage(42L, testUser));
+        assertEquals("Message not found", exception.getMessage());
+    }
+
+    @Test
+    void testDeleteMessage_Unflushed_WaitsForInsert() {
+        // Given
+        CompletableFuture<Void> persisted = new CompletableFuture<>();
+        when(chatMembershipCache.get(1L, 1L)).thenReturn(new ChatMembershipCache.Membership(UserPlanStatus.Status.APPLIED_ACCEPTED));
+        when(chatWriteBehindWriter.isEnabled()).thenReturn(true);
+        when(chatWriteBehindWriter.getFlushTimeoutMs()).thenReturn(5000L);
+        when(chatMessageIdAllocator.nextId()).thenReturn(42L);
+        when(chatWriteBehindWriter.submit(any())).thenReturn(persisted);
+        chatService.sendMessage(1L, messageRequest, testUser);
+        ChatMessage committed = createMessage(42L, "Hello everyone!");
+        when(chatMessageRepository.findById(42L)).thenAnswer(invocation ->
+                persisted.isDone() ? Optional.of(committed) : Optional.empty());
+        User otherUser = new User();
+        otherUser.setId(2L);
+
+        // When
+        assertThrows(IllegalStateException.class, () -> chatService.deleteMessage(42L, otherUser));
+        CompletableFuture.delayedExecutor(50, TimeUnit.MILLISECONDS).execute(() -> persisted.complete(null));
+        chatService.deleteMessage(42L, testUser);
+
+        // Then
+        verify(chatMessageRepository).delete(committed);
+        verify(chatHistoryCache).remove(1L, 42L);
+    }
+
+    @Test
+    void testGetMessages_After_IncludesUnflushedMessages() {
+        // Given
+        when(chatMembershipCache.get(1L, 1L)).thenReturn(new ChatMembershipCache.Membership(UserPlanStatus.Status.APPLIED_ACCEPTED));
+        when(chatWriteBehindWriter.isEnabled()).thenReturn(true);
+        when(chatMessageIdAllocator.nextId()).thenReturn(42L);
+        when(chatWriteBehindWriter.submit(any())).thenReturn(new CompletableFuture<>());
+        chatService.sendMessage(1L, messageRequest, testUser);
+        ChatMessage message2 = createMessage(2L, "How is everyone?");
+        when(chatMessageRepository.findByTravelPlanIdAfter(1L, 1L, PageRequest.of(0, 51))).thenReturn(List.of(message2));
+
+        // When
+        ChatHistoryPageResponse result = chatService.getMessages(1L, null, 1L, null, testUser);
+
+        // Then
+        assertFalse(result.isHasMore());
+        assertEquals(List.of(2L, 42L), result.getMessages().stream().map(ChatMessageResponse::getId).toList());
+        assertTrue(chatService.getMessages(1L, null, 42L, null, testUser).getMessages().isEmpty());
+    }
+
+    @Test
+    void testSendMessage_CachedMembership_SkipsMembershipQueries() {
+        // Given
+        when(chatMembershipCache.get(1L, 1L)).thenReturn(new ChatMembershipCache.Membership(UserPlanStatus.Status.APPLIED_ACCEPTED));
+        when(chatMessageRepository.save(any(ChatMessage.class))).thenReturn(testMessage);
+
+        // When
+        ChatMessageResponse result = chatService.sendMessage(1L, messageRequest, testUser);
+
+        // Then
+        assertEquals(testMessage.getContent(), result.getContent());
+        verify(travelPlanRepository, never()).findById(any());
+        verify(userPlanStatusRepository, never()).findByUserAndTravelPlan(any(), any());
+    }
+
+    @Test
+    void testSendMessage_MembershipMiss_CachesLoadedStatus() {
+        // Given
+        when(chatMembershipCache.stamp(1L)).thenReturn(7L);
+        when(travelPlanRepository.findById(1L)).thenReturn(Optional.of(testPlan));
+        when(userPlanStatusRepository.findByUserAndTravelPlan(testUser, testPlan)).thenReturn(Optional.empty());
+
+        // When & Then
+        assertThrows(IllegalStateException.class, () -> chatService.sendMessage(1L, messageRequest, testUser));
+        verify(chatMembershipCache).put(1L, 1L, new ChatMembershipCache.Membership(null), 7L);
+    }
+
     @Test
     void testSendMessage_PlanNotFound() {
         // Given
@@ -136,33 +275,144 @@ class ChatServiceTest {
     }
 
     @Test
-    void testGetMessages_Success() {
+    void testGetMessages_Latest_ReturnsOldestFirstWithHasMore() {
+        // Given
+        ChatMessage message2 = createMessage(2L, "How is everyone?");
+        ChatMessage message3 = createMessage(3L, "Ready to go!");
+        when(travelPlanRepository.findById(1L)).thenReturn(Optional.of(testPlan));
+        when(userPlanStatusRepository.findByUserAndTravelPlan(testUser, testPlan)).thenReturn(Optional.of(userPlanStatus));
+        when(chatMessageRepository.findLatestByTravelPlanId(1L, PageRequest.of(0, 3)))
+                .thenReturn(Arrays.asList(message3, message2, testMessage));
+
+        // When
+        ChatHistoryPageResponse result = chatService.getMessages(1L, null, null, 2, testUser);
+
+        // Then
+        assertTrue(result.isHasMore());
+        assertEquals(2, result.getMessages().size());
+        assertEquals(2L, result.getMessages().get(0).getId());
+        assertEquals(3L, result.getMessages().get(1).getId());
+    }
+
+    @Test
+    void testGetMessages_Before_PagesOlderMessages() {
+        // Given
+        ChatMessage message2 = createMessage(2L, "How is everyone?");
+        when(travelPlanRepository.findById(1L)).thenReturn(Optional.of(testPlan));
+        when(userPlanStatusRepository.findByUserAndTravelPlan(testUser, testPlan)).thenReturn(Optional.of(userPlanStatus));
+        when(chatMessageRepository.findByTravelPlanIdBefore(1L, 3L, PageRequest.of(0, 51)))
+                .thenReturn(Arrays.asList(message2, testMessage));
+
+        // When
+        ChatHistoryPageResponse result = chatService.getMessages(1L, 3L, null, null, testUser);
+
+        // Then
+        assertFalse(result.isHasMore());
+        assertEquals(List.of(1L, 2L), result.getMessages().stream().map(ChatMessageResponse::getId).toList());
+    }
+
+    @Test
+    void testGetMessages_After_FetchesNewerMessagesWithCappedPageSize() {
         // Given
-        ChatMessage message2 = new ChatMessage();
-        message2.setId(2L);
-        message2.setContent("How is everyone?");
-        message2.setMessageType(ChatMessage.MessageType.TEXT);
-        message2.setTravelPlan(testPlan);
-        message2.setSender(testUser);
-        message2.setCreatedAt(LocalDateTime.now().plusMinutes(5));
+        ChatMessage message2 = createMessage(2L, "How is everyone?");
+        when(travelPlanRepository.findById(1L)).thenReturn(Optional.of(testPlan));
+        when(userPlanStatusRepository.findByUserAndTravelPlan(testUser, testPlan)).thenReturn(Optional.of(userPlanStatus));
+        when(chatMessageRepository.findByTravelPlanIdAfter(1L, 1L, PageRequest.of(0, 101)))
+                .thenReturn(List.of(message2));
+
+        // When
+        ChatHistoryPageResponse result = chatService.getMessages(1L, null, 1L, 10000, testUser);
 
-        List<ChatMessage> messages = Arrays.asList(testMessage, message2);
+        // Then
+        assertFalse(result.isHasMore());
+        assertEquals(1, result.getMessages().size());
+        assertEquals("How is everyone?", result.getMessages().get(0).getContent());
+    }
+
+    @Test
+    void testGetMessages_Latest_LoadsRingBufferOnMiss() {
+        // Given
+        when(chatHistoryCache.loadStamp(1L)).thenReturn(7L);
+        when(chatHistoryCache.getMessagesPerRoom()).thenReturn(200);
         when(travelPlanRepository.findById(1L)).thenReturn(Optional.of(testPlan));
         when(userPlanStatusRepository.findByUserAndTravelPlan(testUser, testPlan)).thenReturn(Optional.of(userPlanStatus));
-        when(chatMessageRepository.findByTravelPlanOrderByCreatedAtAsc(testPlan)).thenReturn(messages);
+        when(chatMessageRepository.findLatestByTravelPlanId(1L, PageRequest.of(0, 200))).thenReturn(List.of(testMessage));
 
         // When
-        List<ChatMessageResponse> result = chatService.getMessages(1L, testUser);
+        ChatHistoryPageResponse result = chatService.getMessages(1L, null, null, null, testUser);
 
         // Then
-        assertNotNull(result);
-        assertEquals(2, result.size());
-        assertEquals("Hello everyone!", result.get(0).getContent());
-        assertEquals("How is everyone?", result.get(1).getContent());
+        assertFalse(result.isHasMore());
+        assertEquals(1, result.getMessages().size());
+        verify(chatHistoryCache).load(eq(1L), argThat(messages -> messages.size() == 1), eq(true), eq(7L));
+    }
 
-        verify(travelPlanRepository).findById(1L);
-        verify(userPlanStatusRepository).findByUserAndTravelPlan(testUser, testPlan);
-        verify(chatMessageRepository).findByTravelPlanOrderByCreatedAtAsc(testPlan);
+    @Test
+    void testGetMessages_Latest_UnflushedMessageMergedIntoLoad() {
+        // Given
+        CompletableFuture<Void> persisted = new CompletableFuture<>();
+        when(chatMembershipCache.get(1L, 1L)).thenReturn(new ChatMembershipCache.Membership(UserPlanStatus.Status.APPLIED_ACCEPTED));
+        when(chatWriteBehindWriter.isEnabled()).thenReturn(true);
+        when(chatMessageIdAllocator.nextId()).thenReturn(42L);
+        when(chatWriteBehindWriter.submit(any())).thenReturn(persisted);
+        chatService.sendMessage(1L, messageRequest, testUser);
+        when(chatHistoryCache.loadStamp(1L)).thenReturn(7L);
+        when(chatHistoryCache.getMessagesPerRoom()).thenReturn(200);
+        when(chatMessageRepository.findLatestByTravelPlanId(1L, PageRequest.of(0, 200))).thenReturn(List.of(testMessage));
+
+        // When
+        ChatHistoryPageResponse result = chatService.getMessages(1L, null, null, null, testUser);
+
+        // Then
+        assertEquals(List.of(1L, 42L), result.getMessages().stream().map(ChatMessageResponse::getId).toList());
+        verify(chatHistoryCache).load(eq(1L), argThat(messages -> messages.size() == 2 && messages.get(0).getId() == 42L), eq(true), eq(7L));
+
+        // Once committed the table has it and the queued copy is dropped
+        persisted.complete(null);
+        assertEquals(List.of(1L), chatService.getMessages(1L, null, null, null, testUser).getMessages().stream()
+                .map(ChatMessageResponse::getId).toList());
+    }
+
+    @Test
+    void testGetRecentMessages_RingBufferHit_SkipsHistoryQuery() {
+        // Given
+        ChatMessageResponse cached = new ChatMessageResponse();
+        cached.setId(5L);
+        when(travelPlanRepository.findById(1L)).thenReturn(Optional.of(testPlan));
+        when(userPlanStatusRepository.findByUserAndTravelPlan(testUser, testPlan)).thenReturn(Optional.of(userPlanStatus));
+        when(chatHistoryCache.getLatest(1L, null, 20)).thenReturn(Optional.of(List.of(cached)));
+
+        // When
+        List<ChatMessageResponse> result = chatService.getRecentMessages(1L, 20, testUser);
+
+        // Then
+        assertEquals(List.of(cached), result);
+        verifyNoInteractions(chatMessageRepository);
+    }
+
+    @Test
+    void testGetMessages_BothCursors_Rejected() {
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> {
+            chatService.getMessages(1L, 5L, 1L, null, testUser);
+        });
+
+        assertEquals("Only one of before or after can be given", exception.getMessage());
+        verifyNoInteractions(chatMessageRepository);
+    }
+
+    @Test
+    void testGetRecentMessages_LimitPushedToQuery() {
+        // Given
+        when(travelPlanRepository.findById(1L)).thenReturn(Optional.of(testPlan));
+        when(userPlanStatusRepository.findByUserAndTravelPlan(testUser, testPlan)).thenReturn(Optional.of(userPlanStatus));
+        when(chatMessageRepository.findLatestByTravelPlanId(1L, PageRequest.of(0, 20))).thenReturn(List.of(testMessage));
+
+        // When
+        List<ChatMessageResponse> result = chatService.getRecentMessages(1L, 20, testUser);
+
+        // Then
+        assertEquals(1, result.size());
+        assertEquals("Hello everyone!", result.get(0).getContent());
     }
 
     @Test
@@ -172,13 +422,13 @@ class ChatServiceTest {
 
         // When & Then
         IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> {
-            chatService.getMessages(999L, testUser);
+            chatService.getMessages(999L, null, null, null, testUser);
         });
 
         assertEquals("Travel plan not found", exception.getMessage());
         verify(travelPlanRepository).findById(999L);
         verify(userPlanStatusRepository, never()).findByUserAndTravelPlan(any(), any());
-        verify(chatMessageRepository, never()).findByTravelPlanOrderByCreatedAtAsc(any());
+        verify(chatMessageRepository, never()).findLatestByTravelPlanId(any(), any());
     }
 
     @Test
@@ -189,12 +439,22 @@ class ChatServiceTest {
 
         // When & Then
         IllegalStateException exception = assertThrows(IllegalStateException.class, () -> {
-            chatService.getMessages(1L, testUser);
+            chatService.getMessages(1L, null, null, null, testUser);
         });
 
         assertEquals("User is not a member of this travel plan", exception.getMessage());
         verify(travelPlanRepository).findById(1L);
         verify(userPlanStatusRepository).findByUserAndTravelPlan(testUser, testPlan);
-        verify(chatMessageRepository, never()).findByTravelPlanOrderByCreatedAtAsc(any());
+        verify(chatMessageRepository, never()).findLatestByTravelPlanId(any(), any());
+    }
+
+    private ChatMessage createMessage(Long id, String content) {
+        ChatMessage message = new ChatMessage();
+        message.setId(id);
+        message.setContent(content);
+        message.setMessageType(ChatMessage.MessageType.TEXT);
+        message.setTravelPlan(testPlan);
+        message.setSender(testUser);
+        return message;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,119 @@
+package com.comp8047.majorproject.travelplanassistant.service;
+
+import com.comp8047.majorproject.travelplanassistant.entity.ChatMessage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for ChatWriteBehindWriter
+ * Tests batching, flush durability, failure reporting and flush on shutdown
+ */
+@ExtendWith(MockitoExtension.class)
+class ChatWriteBehindWriterTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private ChatWriteBehindWriter writer;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (writer != null) {
+            writer.stop();
+        }
+    }
+
+    @Test
+    void testSubmit_Disabled_Rejected() {
+        writer = createWriter(false, ChatWriteBehindWriter.Durability.ENQUEUE);
+        writer.start();
+
+        assertFalse(writer.isEnabled());
+        assertThrows(IllegalStateException.class, () -> writer.submit(message(1L)));
+    }
+
+    @Test
+    void testSubmit_NotSingleNode_StaysDisabled() {
+        writer = new ChatWriteBehindWriter(jdbcTemplate, transactionManager, new SimpleMeterRegistry(),
+                true, false, ChatWriteBehindWriter.Durability.ENQUEUE, 100, 10, 2000);
+        writer.start();
+
+        assertFalse(writer.isEnabled());
+        assertThrows(IllegalStateException.class, () -> writer.submit(message(1L)));
+    }
+
+    @Test
+    void testSubmit_FlushDurability_ReturnsAfterBatchInsert() {
+        writer = createWriter(true, ChatWriteBehindWriter.Durability.FLUSH);
+        writer.start();
+
+        writer.submit(message(1L));
+
+        verify(jdbcTemplate).batchUpdate(contains("INSERT INTO chat_messages"), anyCollection(), eq(1), any(ParameterizedPreparedStatementSetter.class));
+        verify(transactionManager).commit(any());
+    }
+
+    @Test
+    void testSubmit_FlushDurability_ReportsFailedInsert() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+                .thenThrow(new DataAccessResourceFailureException("database down"));
+        writer = createWriter(true, ChatWriteBehindWriter.Durability.FLUSH);
+        writer.start();
+
+        IllegalStateException exception = assertThrows(IllegalStateException.class, () -> writer.submit(message(1L)));
+
+        assertEquals("Failed to save chat message", exception.getMessage());
+        verify(jdbcTemplate, times(3)).batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testStop_FlushesEveryQueuedMessage() throws InterruptedException {
+        List<Integer> batchSizes = new ArrayList<>();
+        when(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+                .thenAnswer(invocation -> {
+                    batchSizes.add(((Collection<Object>) invocation.getArgument(1)).size());
+                    return new int[0][];
+                });
+        writer = createWriter(true, ChatWriteBehindWriter.Durability.ENQUEUE);
+        writer.start();
+
+        for (long id = 1; id <= 25; id++) {
+            writer.submit(message(id));
+        }
+        writer.stop();
+        writer = null;
+
+        assertEquals(25, batchSizes.stream().mapToInt(Integer::intValue).sum());
+        assertTrue(batchSizes.stream().allMatch(size -> size <= 10));
+    }
+
+    private ChatWriteBehindWriter createWriter(boolean enabled, ChatWriteBehindWriter.Durability durability) {
+        return new ChatWriteBehindWriter(jdbcTemplate, transactionManager, new SimpleMeterRegistry(),
+                enabled, true, durability, 100, 10, 2000);
+    }
+
+    private ChatWriteBehindWriter.PendingChatMessage message(Long id) {
+        return new ChatWriteBehindWriter.PendingChatMessage(id, "Message " + id, ChatMessage.MessageType.TEXT, 1L, 1L, LocalDateTime.now());
+    }
+}
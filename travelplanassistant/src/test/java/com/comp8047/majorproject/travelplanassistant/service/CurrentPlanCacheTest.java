@@ -0,0 +1,131 @@
+package com.comp8047.majorproject.travelplanassistant.service;
+
+import com.comp8047.majorproject.travelplanassistant.entity.UserPlanStatus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for CurrentPlanCache
+ * Tests the size bound, invalidation by membership and plan changes, and the stamp check against racing loads,
+ * including loads whose transaction began before the invalidation
+ */
+class CurrentPlanCacheTest {
+
+    private static final CurrentPlanCache.CurrentPlan OWNER_OF_5 =
+            new CurrentPlanCache.CurrentPlan(5L, UserPlanStatus.Status.OWNED);
+    private static final CurrentPlanCache.CurrentPlan MEMBER_OF_5 =
+            new CurrentPlanCache.CurrentPlan(5L, UserPlanStatus.Status.APPLIED_ACCEPTED);
+
+    private CurrentPlanCache currentPlanCache;
+
+    @BeforeEach
+    void setUp() {
+        currentPlanCache = new CurrentPlanCache(new SimpleMeterRegistry(), 2, true);
+    }
+
+    @Test
+    void testPut_IsCached() {
+        currentPlanCache.put(1L, OWNER_OF_5, currentPlanCache.stamp());
+        currentPlanCache.put(2L, CurrentPlanCache.CurrentPlan.NONE, currentPlanCache.stamp());
+
+        assertEquals(OWNER_OF_5, currentPlanCache.get(1L));
+        assertFalse(currentPlanCache.get(2L).exists());
+        assertNull(currentPlanCache.get(3L));
+    }
+
+    @Test
+    void testPut_Disabled_IsNotCached() {
+        CurrentPlanCache disabled = new CurrentPlanCache(new SimpleMeterRegistry(), 2, false);
+
+        disabled.put(1L, OWNER_OF_5, disabled.stamp());
+
+        assertNull(disabled.get(1L));
+    }
+
+    @Test
+    void testPut_LeastRecentlyUsedUserDropped() {
+        currentPlanCache.put(1L, OWNER_OF_5, currentPlanCache.stamp());
+        currentPlanCache.put(2L, MEMBER_OF_5, currentPlanCache.stamp());
+        currentPlanCache.get(1L);
+
+        currentPlanCache.put(3L, CurrentPlanCache.CurrentPlan.NONE, currentPlanCache.stamp());
+
+        assertEquals(2, currentPlanCache.size());
+        assertNotNull(currentPlanCache.get(1L));
+        assertNull(currentPlanCache.get(2L));
+    }
+
+    @Test
+    void testPut_AfterMembershipChange_IsDropped() {
+        long stamp = currentPlanCache.stamp();
+
+        // The user applies while the caller is still reading the old state
+        currentPlanCache.onMembershipChanged(new PlanEventPublisher.MembershipChangedEvent(1L, 5L, UserPlanStatus.Status.APPLIED));
+        currentPlanCache.put(1L, CurrentPlanCache.CurrentPlan.NONE, stamp);
+
+        assertNull(currentPlanCache.get(1L));
+    }
+
+    @Test
+    void testPut_InTransactionBegunBeforeMembershipChange_IsDropped() {
+        AbstractPlatformTransactionManager transactionManager = new AbstractPlatformTransactionManager() {
+            @Override
+            protected Object doGetTransaction() {
+                return new Object();
+            }
+
+            @Override
+            protected void doBegin(Object transaction, TransactionDefinition definition) {
+            }
+
+            @Override
+            protected void doCommit(DefaultTransactionStatus status) {
+            }
+
+            @Override
+            protected void doRollback(DefaultTransactionStatus status) {
+            }
+        };
+        transactionManager.addListener(currentPlanCache);
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            // The transaction's snapshot may already predate a change committed before the load takes its stamp
+            currentPlanCache.onMembershipChanged(new PlanEventPublisher.MembershipChangedEvent(1L, 5L, UserPlanStatus.Status.APPLIED));
+            currentPlanCache.put(1L, CurrentPlanCache.CurrentPlan.NONE, currentPlanCache.stamp());
+        });
+        assertNull(currentPlanCache.get(1L));
+
+        // Once the transaction ended, stamps are current again
+        currentPlanCache.put(1L, CurrentPlanCache.CurrentPlan.NONE, currentPlanCache.stamp());
+        assertNotNull(currentPlanCache.get(1L));
+    }
+
+    @Test
+    void testOnMembershipChanged_DropsOnlyThatUser() {
+        currentPlanCache.put(1L, OWNER_OF_5, currentPlanCache.stamp());
+        currentPlanCache.put(2L, MEMBER_OF_5, currentPlanCache.stamp());
+
+        currentPlanCache.onMembershipChanged(new PlanEventPublisher.MembershipChangedEvent(2L, 5L, UserPlanStatus.Status.APPLIED_REFUSED));
+
+        assertEquals(OWNER_OF_5, currentPlanCache.get(1L));
+        assertNull(currentPlanCache.get(2L));
+    }
+
+    @Test
+    void testPlanEnded_DropsEveryMemberOfThePlan() {
+        currentPlanCache.put(1L, OWNER_OF_5, currentPlanCache.stamp());
+        currentPlanCache.put(2L, new CurrentPlanCache.CurrentPlan(6L, UserPlanStatus.Status.OWNED), currentPlanCache.stamp());
+
+        currentPlanCache.planEnded(5L);
+
+        assertNull(currentPlanCache.get(1L));
+        assertNotNull(currentPlanCache.get(2L));
+    }
+}
@@ -0,0 +1,112 @@
+package com.comp8047.majorproject.travelplanassistant.service;
+
+import com.comp8047.majorproject.travelplanassistant.entity.TravelPlan;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for DiscoveryCache
+ * Tests cohort lookups, size bound, expiry, lifecycle invalidation and hit/miss metrics
+ */
+class DiscoveryCacheTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private DiscoveryCache discoveryCache;
+
+    private final DiscoveryCache.Cohort englishMale = DiscoveryCache.Cohort.of(TravelPlan.GenderPreference.MALE, "English");
+    private final DiscoveryCache.Cohort frenchFemale = DiscoveryCache.Cohort.of(TravelPlan.GenderPreference.FEMALE, "French");
+    private final List<DiscoveryCache.Candidate> candidates = List.of(new DiscoveryCache.Candidate(1L, LocalDateTime.now(), null, null));
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        discoveryCache = new DiscoveryCache(meterRegistry, 2, 60);
+    }
+
+    @Test
+    void testGet_CountsHitsAndMisses() {
+        assertNull(discoveryCache.get(englishMale));
+        discoveryCache.put(englishMale, candidates, true, discoveryCache.stamp());
+
+        // Language is part of the key case-insensitively
+        DiscoveryCache.Entry entry = discoveryCache.get(DiscoveryCache.Cohort.of(TravelPlan.GenderPreference.MALE, "english"));
+
+        assertNotNull(entry);
+        assertEquals(candidates, entry.candidates());
+        assertEquals(1.0, meterRegistry.get("discovery.cache.requests").tag("result", "hit").counter().count());
+        assertEquals(1.0, meterRegistry.get("discovery.cache.requests").tag("result", "miss").counter().count());
+    }
+
+    @Test
+    void testPut_DropsLeastRecentlyUsedCohortWhenFull() {
+        DiscoveryCache.Cohort spanishAny = DiscoveryCache.Cohort.of(null, "Spanish");
+        discoveryCache.put(englishMale, candidates, true, discoveryCache.stamp());
+        discoveryCache.put(frenchFemale, candidates, true, discoveryCache.stamp());
+        discoveryCache.get(englishMale);
+
+        discoveryCache.put(spanishAny, candidates, true, discoveryCache.stamp());
+
+        assertEquals(2, discoveryCache.size());
+        assertNull(discoveryCache.get(frenchFemale));
+        assertNotNull(discoveryCache.get(englishMale));
+    }
+
+    @Test
+    void testGet_ExpiredEntryIsAMiss() {
+        DiscoveryCache expiring = new DiscoveryCache(new SimpleMeterRegistry(), 10, 0);
+        expiring.put(englishMale, candidates, true, expiring.stamp());
+
+        assertNull(expiring.get(englishMale));
+        assertEquals(0, expiring.size());
+    }
+
+    @Test
+    void testEvict_DropsOnlyCohortsThePlanIsVisibleTo() {
+        discoveryCache.put(englishMale, candidates, true, discoveryCache.stamp());
+        discoveryCache.put(frenchFemale, candidates, true, discoveryCache.stamp());
+        TravelPlan plan = new TravelPlan();
+        plan.setGender(TravelPlan.GenderPreference.ANY);
+        plan.setAgeMin(18);
+        plan.setAgeMax(40);
+        plan.setLanguage("English");
+
+        discoveryCache.evict(plan);
+
+        assertNull(discoveryCache.get(englishMale));
+        assertNotNull(discoveryCache.get(frenchFemale));
+        assertEquals(1.0, meterRegistry.get("discovery.cache.evictions").counter().count());
+    }
+
+    @Test
+    void testPut_LoadRacingEvictIsNotCached() {
+        long stamp = discoveryCache.stamp();
+        TravelPlan plan = new TravelPlan();
+        plan.setLanguage("English");
+        discoveryCache.evict(plan);
+
+        DiscoveryCache.Entry entry = discoveryCache.put(englishMale, candidates, true, stamp);
+
+        // The caller still gets its list, but the next request reloads
+        assertEquals(candidates, entry.candidates());
+        assertNull(discoveryCache.get(englishMale));
+        discoveryCache.put(englishMale, candidates, true, discoveryCache.stamp());
+        assertNotNull(discoveryCache.get(englishMale));
+    }
+
+    @Test
+    void testCandidate_AdmitsAgeWithinPlanLimits() {
+        DiscoveryCache.Candidate adultsOnly = new DiscoveryCache.Candidate(1L, LocalDateTime.now(), 18, 40);
+
+        assertTrue(adultsOnly.admitsAge(30));
+        assertTrue(adultsOnly.admitsAge(null));
+        assertFalse(adultsOnly.admitsAge(17));
+        assertFalse(adultsOnly.admitsAge(41));
+        assertTrue(new DiscoveryCache.Candidate(2L, LocalDateTime.now(), null, null).admitsAge(90));
+    }
+}
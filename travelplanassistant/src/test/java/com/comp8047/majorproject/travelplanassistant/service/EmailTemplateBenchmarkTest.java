@@ -0,0 +1,100 @@
+package com.comp8047.majorproject.travelplanassistant.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Render time and allocation per email for a start reminder to every member of a plan: the previous
+ * String.format over the whole HTML with a new DateTimeFormatter per recipient, against the compiled template
+ * bound once per plan and rendered per member. Allocation is read from the thread's allocated-bytes counter.
+ * Run with: mvn test -Dtest=EmailTemplateBenchmarkTest -Dbenchmark=true
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class EmailTemplateBenchmarkTest {
+
+    private static final int MEMBERS = 20;
+    private static final int WARMUP_PLANS = 20_000;
+    private static final int MEASURED_PLANS = 50_000;
+
+    private static final String[] FIRST_NAMES = {"Ann", "Bob", "Chen", "Dana", "Eli", "Fatima", "Gus", "Hana", "Ivan", "Jo"};
+
+    private final LocalDateTime startDate = LocalDateTime.of(2026, 11, 3, 9, 30);
+    private final LocalDateTime endDate = LocalDateTime.of(2026, 11, 9, 18, 0);
+
+    @Test
+    void testRender_FormatPerRecipientVersusCompiledTemplate() {
+        EmailTemplate template = new EmailTemplates().travelPlanStart();
+        // The same HTML as a format string, as the build methods used before
+        String format = template.render(slotNames(template)).replace("%", "%%").replaceAll("\\{\\{\\w+}}", "%s");
+
+        IntFunction<Integer> formatPerRecipient = plan -> {
+            int length = 0;
+            for (int member = 0; member < MEMBERS; member++) {
+                DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MMM dd, yyyy 'at' HH:mm");
+                length += String.format(format, FIRST_NAMES[member % FIRST_NAMES.length], "Plan " + plan, "Paris", "France",
+                        startDate.format(formatter), endDate.format(formatter), MEMBERS, "A week in Paris").length();
+            }
+            return length;
+        };
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MMM dd, yyyy 'at' HH:mm");
+        IntFunction<Integer> compiled = plan -> {
+            Map<String, Object> values = new HashMap<>();
+            values.put("title", "Plan " + plan);
+            values.put("destinationCity", "Paris");
+            values.put("destinationCountry", "France");
+            values.put("startDate", startDate.format(formatter));
+            values.put("endDate", endDate.format(formatter));
+            values.put("memberCount", MEMBERS);
+            values.put("description", "A week in Paris");
+            EmailTemplate bound = template.bind(values);
+            int length = 0;
+            for (int member = 0; member < MEMBERS; member++) {
+                length += bound.render(Collections.singletonMap("firstName", FIRST_NAMES[member % FIRST_NAMES.length])).length();
+            }
+            return length;
+        };
+
+        assertEquals(formatPerRecipient.apply(1), compiled.apply(1));
+        double[] before = run("String.format per recipient", formatPerRecipient);
+        double[] after = run("compiled template", compiled);
+        System.out.printf("speedup: %.1fx, allocation: %.1fx less%n", before[0] / after[0], before[1] / after[1]);
+        assertTrue(after[0] < before[0], "Compiled template should render faster");
+    }
+
+    private double[] run(String name, IntFunction<Integer> renderPlan) {
+        long sink = 0;
+        for (int plan = 0; plan < WARMUP_PLANS; plan++) {
+            sink += renderPlan.apply(plan);
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long bytesBefore = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int plan = 0; plan < MEASURED_PLANS; plan++) {
+            sink += renderPlan.apply(plan);
+        }
+        long emails = (long) MEASURED_PLANS * MEMBERS;
+        double nanosPerEmail = (double) (System.nanoTime() - start) / emails;
+        double bytesPerEmail = (double) (threads.getThreadAllocatedBytes(threadId) - bytesBefore) / emails;
+        System.out.printf("%-28s %8.0f ns/email %8.0f bytes/email (%d)%n", name, nanosPerEmail, bytesPerEmail, sink % 10);
+        return new double[]{nanosPerEmail, bytesPerEmail};
+    }
+
+    private static Map<String, Object> slotNames(EmailTemplate template) {
+        Map<String, Object> values = new HashMap<>();
+        for (String slot : template.getSlots()) {
+            values.put(slot, "{{" + slot + "}}");
+        }
+        return values;
+    }
+}
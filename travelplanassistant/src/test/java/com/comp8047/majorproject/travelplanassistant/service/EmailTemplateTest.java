@@ -0,0 +1,66 @@
+package com.comp8047.majorproject.travelplanassistant.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for EmailTemplate and the compiled EmailTemplates
+ */
+class EmailTemplateTest {
+
+    @Test
+    void testRender_FillsSlotsBetweenSegments() {
+        EmailTemplate template = EmailTemplate.compile("<p>Hi {{firstName}},</p><h3>{{ title }}</h3>{{count}}");
+
+        assertEquals(List.of("firstName", "title", "count"), template.getSlots());
+        assertEquals("<p>Hi Ann,</p><h3>Paris</h3>4", template.render(Map.of("firstName", "Ann", "title", "Paris", "count", 4)));
+    }
+
+    @Test
+    void testBind_LeavesOnlyRecipientSlots() {
+        EmailTemplate template = EmailTemplate.compile("<p>Hi {{firstName}},</p><h3>{{title}}</h3><p>{{description}}</p>");
+        Map<String, Object> planValues = new HashMap<>();
+        planValues.put("title", "Paris");
+        planValues.put("description", null);
+
+        EmailTemplate bound = template.bind(planValues);
+
+        assertEquals(List.of("firstName"), bound.getSlots());
+        assertEquals("<p>Hi Ann,</p><h3>Paris</h3><p>null</p>", bound.render(Map.of("firstName", "Ann")));
+        assertEquals("<p>Hi Bob,</p><h3>Paris</h3><p>null</p>", bound.render(Map.of("firstName", "Bob")));
+    }
+
+    @Test
+    void testRender_MissingValueRejected() {
+        EmailTemplate template = EmailTemplate.compile("Hi {{firstName}}");
+
+        assertThrows(IllegalArgumentException.class, () -> template.render(Map.of()));
+    }
+
+    @Test
+    void testCompile_UnclosedSlotRejected() {
+        assertThrows(IllegalArgumentException.class, () -> EmailTemplate.compile("Hi {{firstName"));
+        assertThrows(IllegalArgumentException.class, () -> EmailTemplate.compile("Hi {{ }}"));
+    }
+
+    @Test
+    void testEmailTemplates_CompiledWithExpectedSlots() {
+        EmailTemplates templates = new EmailTemplates();
+
+        assertEquals(List.of("firstName", "title", "destinationCity", "destinationCountry", "startDate", "endDate",
+                "memberCount", "description"), templates.travelPlanStart().getSlots());
+        assertEquals(List.of("firstName", "title", "destinationCity", "destinationCountry", "completedAt", "memberCount"),
+                templates.travelPlanCompletion().getSlots());
+        assertEquals(List.of("statusColor", "firstName", "statusMessage", "title", "destinationCity", "destinationCountry",
+                "startDate"), templates.applicationStatus().getSlots());
+        assertEquals(List.of("firstName", "inviterName", "title", "destinationCity", "destinationCountry", "startDate",
+                "endDate", "memberCount", "description"), templates.invitation().getSlots());
+        assertEquals(List.of("recipientName", "itemCount", "items"), templates.digest().getSlots());
+        assertEquals(List.of("subject", "createdAt"), templates.digestItem().getSlots());
+    }
+}
@@ -0,0 +1,145 @@
+package com.comp8047.majorproject.travelplanassistant.service;
+
+import com.comp8047.majorproject.travelplanassistant.entity.Notification;
+import com.comp8047.majorproject.travelplanassistant.repository.NotificationRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for NotificationDigestWorker against the embedded database
+ * Covers coalescing held notifications, the window, single-notification release and skipping locked rows
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class NotificationDigestWorkerTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    private ApplicationEventPublisher applicationEventPublisher;
+    private NotificationDigestWorker worker;
+
+    @BeforeEach
+    void setUp() {
+        notificationRepository.deleteAll();
+        applicationEventPublisher = mock(ApplicationEventPublisher.class);
+        NotificationService notificationService = new NotificationService();
+        ReflectionTestUtils.setField(notificationService, "notificationRepository", notificationRepository);
+        ReflectionTestUtils.setField(notificationService, "emailTemplates", new EmailTemplates());
+        ReflectionTestUtils.setField(notificationService, "applicationEventPublisher", applicationEventPublisher);
+        ReflectionTestUtils.setField(notificationService, "notificationFeedService", mock(NotificationFeedService.class));
+        // 60 minute window, 10 recipients per run, 3 notifications per digest
+        worker = new NotificationDigestWorker(jdbcTemplate, transactionManager, notificationService,
+                new SimpleMeterRegistry(), true, 60, 10, 3);
+    }
+
+    @Test
+    void testFlushDue_HeldNotificationsCoalescedIntoOneDigest() {
+        Notification first = held("owner@example.com", "Application Update: Paris", 90);
+        Notification second = held("owner@example.com", "You're Invited to Join: Rome", 30);
+        Notification recent = held("other@example.com", "Application Update: Oslo", 5);
+
+        worker.flushDue();
+
+        List<Notification> digests = notificationRepository.findAll().stream()
+                .filter(notification -> notification.getNotificationType() == Notification.NotificationType.DIGEST)
+                .toList();
+        assertEquals(1, digests.size());
+        Notification digest = digests.get(0);
+        assertEquals("owner@example.com", digest.getRecipientEmail());
+        assertEquals(Notification.NotificationStatus.PENDING, digest.getStatus());
+        assertEquals(42L, digest.getRecipientUserId());
+        assertTrue(digest.getContent().contains("Hi Olive Owner,"));
+        assertTrue(digest.getContent().contains("Application Update: Paris"));
+        assertTrue(digest.getContent().contains("You're Invited to Join: Rome"));
+        assertEquals(Notification.NotificationStatus.DIGESTED, statusOf(first));
+        assertEquals(Notification.NotificationStatus.DIGESTED, statusOf(second));
+        // Still inside its window
+        assertEquals(Notification.NotificationStatus.DIGEST_PENDING, statusOf(recent));
+        verify(applicationEventPublisher).publishEvent(new NotificationService.NotificationQueuedEvent(digest.getId()));
+    }
+
+    @Test
+    void testFlush_SingleNotificationReleasedAsIs() {
+        Notification only = held("owner@example.com", "Application Update: Paris", 90);
+
+        assertEquals(1, worker.flush("owner@example.com"));
+
+        assertEquals(Notification.NotificationStatus.PENDING, statusOf(only));
+        assertEquals(1, notificationRepository.count());
+        verify(applicationEventPublisher).publishEvent(new NotificationService.NotificationQueuedEvent(only.getId()));
+    }
+
+    @Test
+    void testFlush_ItemCapLeavesRestForNextDigest() {
+        for (int i = 0; i < 5; i++) {
+            held("owner@example.com", "Application Update: Plan " + i, 90 - i);
+        }
+
+        assertEquals(3, worker.flush("owner@example.com"));
+        // The remaining two are still due and go out in the next run
+        worker.flushDue();
+
+        assertEquals(2, notificationRepository.findAll().stream()
+                .filter(notification -> notification.getNotificationType() == Notification.NotificationType.DIGEST)
+                .count());
+        assertEquals(5, notificationRepository.findAll().stream()
+                .filter(notification -> notification.getStatus() == Notification.NotificationStatus.DIGESTED)
+                .count());
+    }
+
+    @Test
+    void testFlush_RowsLockedByAnotherWorkerSkipped() {
+        Notification held = held("owner@example.com", "Application Update: Paris", 90);
+        held("owner@example.com", "Application Update: Rome", 80);
+
+        TransactionTemplate other = new TransactionTemplate(transactionManager);
+        other.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        other.executeWithoutResult(status -> {
+            jdbcTemplate.queryForList("SELECT id FROM notifications WHERE recipient_email = ? FOR UPDATE",
+                    "owner@example.com");
+            assertEquals(0, worker.flush("owner@example.com"));
+        });
+
+        assertEquals(Notification.NotificationStatus.DIGEST_PENDING, statusOf(held));
+        verify(applicationEventPublisher, never()).publishEvent(any());
+    }
+
+    private Notification held(String email, String subject, long minutesAgo) {
+        Notification notification = new Notification(email, "Olive Owner", subject, "<p>" + subject + "</p>",
+                Notification.NotificationType.APPLICATION_STATUS_UPDATE, 1L, null, 42L);
+        notification.setStatus(Notification.NotificationStatus.DIGEST_PENDING);
+        notification.setCreatedAt(LocalDateTime.now().minusMinutes(minutesAgo));
+        return notificationRepository.save(notification);
+    }
+
+    private Notification.NotificationStatus statusOf(Notification notification) {
+        return notificationRepository.findById(notification.getId()).orElseThrow().getStatus();
+    }
+}
@@ -0,0 +1,205 @@
+package com.comp8047.majorproject.travelplanassistant.service;
+
+import com.comp8047.majorproject.travelplanassistant.dto.NotificationFeedEvent;
+import com.comp8047.majorproject.travelplanassistant.dto.NotificationFeedItem;
+import com.comp8047.majorproject.travelplanassistant.dto.NotificationFeedPageResponse;
+import com.comp8047.majorproject.travelplanassistant.entity.Notification;
+import com.comp8047.majorproject.travelplanassistant.entity.User;
+import com.comp8047.majorproject.travelplanassistant.repository.NotificationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for NotificationFeedService against the embedded database
+ * Covers keyset paging, the in-memory unread count, its lifetime with the feed session and the events pushed on create and read
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class NotificationFeedServiceTest {
+
+    private static final long USER_ID = 42L;
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private SimpMessagingTemplate messagingTemplate;
+    private NotificationFeedService feedService;
+    private TransactionTemplate transactionTemplate;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        notificationRepository.deleteAll();
+        messagingTemplate = mock(SimpMessagingTemplate.class);
+        feedService = new NotificationFeedService(notificationRepository, messagingTemplate, true);
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        user = new User();
+        user.setId(USER_ID);
+        subscribe(feedService, "s1", user, "/topic/user/42/notifications");
+    }
+
+    @Test
+    void testGetFeed_KeysetPagesNewestFirstWithoutDigests() {
+        Notification first = save(USER_ID, "Invited: Paris", Notification.NotificationType.INVITATION_NOTIFICATION);
+        Notification second = save(USER_ID, "Application Update: Rome", Notification.NotificationType.APPLICATION_STATUS_UPDATE);
+        save(USER_ID, "Your Travel Plan Updates: 2 new", Notification.NotificationType.DIGEST);
+        Notification third = save(USER_ID, "Travel Plan Starting Soon: Oslo", Notification.NotificationType.TRAVEL_PLAN_START_REMINDER);
+        save(7L, "Invited: Lima", Notification.NotificationType.INVITATION_NOTIFICATION);
+
+        NotificationFeedPageResponse page = feedService.getFeed(user, null, 2);
+
+        assertEquals(List.of(third.getId(), second.getId()), ids(page));
+        assertTrue(page.isHasMore());
+        assertEquals(3, page.getUnreadCount());
+
+        NotificationFeedPageResponse next = feedService.getFeed(user, second.getId(), 2);
+
+        assertEquals(List.of(first.getId()), ids(next));
+        assertFalse(next.isHasMore());
+    }
+
+    @Test
+    void testNotificationCreated_CountedInMemoryAndPushed() {
+        save(USER_ID, "Invited: Paris", Notification.NotificationType.INVITATION_NOTIFICATION);
+        assertEquals(1, feedService.getUnreadCount(USER_ID));
+
+        Notification created = save(USER_ID, "Application Update: Rome", Notification.NotificationType.APPLICATION_STATUS_UPDATE);
+        feedService.notificationCreated(created);
+
+        assertEquals(2, feedService.getUnreadCount(USER_ID));
+        assertEquals(1, feedService.cachedCount());
+        ArgumentCaptor<NotificationFeedEvent> event = ArgumentCaptor.forClass(NotificationFeedEvent.class);
+        verify(messagingTemplate).convertAndSend(eq("/topic/user/42/notifications"), event.capture());
+        assertEquals(NotificationFeedEvent.Type.NOTIFICATION_CREATED, event.getValue().getType());
+        assertEquals(created.getId(), event.getValue().getNotification().getId());
+        assertEquals(2L, event.getValue().getUnreadCount());
+    }
+
+    @Test
+    void testNotificationCreated_UncountedUserPushedWithoutCount() {
+        Notification created = save(USER_ID, "Invited: Paris", Notification.NotificationType.INVITATION_NOTIFICATION);
+
+        feedService.notificationCreated(created);
+
+        ArgumentCaptor<NotificationFeedEvent> event = ArgumentCaptor.forClass(NotificationFeedEvent.class);
+        verify(messagingTemplate).convertAndSend(eq("/topic/user/42/notifications"), event.capture());
+        assertNull(event.getValue().getUnreadCount());
+        assertEquals(0, feedService.cachedCount());
+    }
+
+    @Test
+    void testMarkRead_OnlyOwnUnreadNotificationCounted() {
+        Notification mine = save(USER_ID, "Invited: Paris", Notification.NotificationType.INVITATION_NOTIFICATION);
+        save(USER_ID, "Application Update: Rome", Notification.NotificationType.APPLICATION_STATUS_UPDATE);
+        Notification other = save(7L, "Invited: Lima", Notification.NotificationType.INVITATION_NOTIFICATION);
+        assertEquals(2, feedService.getUnreadCount(USER_ID));
+
+        transactionTemplate.executeWithoutResult(status -> feedService.markRead(USER_ID, other.getId()));
+        transactionTemplate.executeWithoutResult(status -> feedService.markRead(USER_ID, mine.getId()));
+        transactionTemplate.executeWithoutResult(status -> feedService.markRead(USER_ID, mine.getId()));
+
+        assertEquals(1, feedService.getUnreadCount(USER_ID));
+        assertNotNull(notificationRepository.findById(mine.getId()).orElseThrow().getReadAt());
+        assertNull(notificationRepository.findById(other.getId()).orElseThrow().getReadAt());
+        ArgumentCaptor<NotificationFeedEvent> event = ArgumentCaptor.forClass(NotificationFeedEvent.class);
+        verify(messagingTemplate, times(1)).convertAndSend(eq("/topic/user/42/notifications"), event.capture());
+        assertEquals(NotificationFeedEvent.Type.NOTIFICATION_READ, event.getValue().getType());
+        assertEquals(mine.getId(), event.getValue().getNotificationId());
+        assertEquals(1L, event.getValue().getUnreadCount());
+    }
+
+    @Test
+    void testMarkAllRead_ClearsCount() {
+        save(USER_ID, "Invited: Paris", Notification.NotificationType.INVITATION_NOTIFICATION);
+        save(USER_ID, "Application Update: Rome", Notification.NotificationType.APPLICATION_STATUS_UPDATE);
+        assertEquals(2, feedService.getUnreadCount(USER_ID));
+
+        transactionTemplate.executeWithoutResult(status -> feedService.markAllRead(USER_ID));
+
+        assertEquals(0, feedService.getUnreadCount(USER_ID));
+        assertEquals(0, notificationRepository.countUnreadByRecipientUserId(USER_ID));
+        assertTrue(feedService.getFeed(user, null, null).getNotifications().stream().allMatch(NotificationFeedItem::isRead));
+    }
+
+    @Test
+    void testCountsOnlyKeptWhileFeedSessionOpen() {
+        User other = new User();
+        other.setId(7L);
+        // Subscribed to something other than their own feed
+        subscribe(feedService, "s2", other, "/topic/user/7/events");
+        save(7L, "Invited: Lima", Notification.NotificationType.INVITATION_NOTIFICATION);
+        save(USER_ID, "Invited: Paris", Notification.NotificationType.INVITATION_NOTIFICATION);
+
+        assertEquals(1, feedService.getUnreadCount(7L));
+        assertEquals(1, feedService.getUnreadCount(USER_ID));
+        assertEquals(1, feedService.cachedCount());
+
+        subscribe(feedService, "s3", user, "/topic/user/42/notifications");
+        feedService.onSessionDisconnect(disconnect("s1"));
+        assertEquals(1, feedService.cachedCount());
+        feedService.onSessionDisconnect(disconnect("s3"));
+        assertEquals(0, feedService.cachedCount());
+        assertEquals(1, feedService.getUnreadCount(USER_ID));
+        assertEquals(0, feedService.cachedCount());
+    }
+
+    @Test
+    void testCountsNotKeptWhenDisabled() {
+        NotificationFeedService uncached = new NotificationFeedService(notificationRepository, messagingTemplate, false);
+        subscribe(uncached, "s1", user, "/topic/user/42/notifications");
+        save(USER_ID, "Invited: Paris", Notification.NotificationType.INVITATION_NOTIFICATION);
+
+        assertEquals(1, uncached.getUnreadCount(USER_ID));
+        assertEquals(0, uncached.cachedCount());
+    }
+
+    private Notification save(Long userId, String subject, Notification.NotificationType type) {
+        return notificationRepository.save(new Notification("user" + userId + "@example.com", "Olive Owner",
+                subject, "<p>" + subject + "</p>", type, 1L, null, userId));
+    }
+
+    private static void subscribe(NotificationFeedService service, String sessionId, User subscriber, String destination) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.SUBSCRIBE);
+        accessor.setSessionId(sessionId);
+        accessor.setDestination(destination);
+        service.onSessionSubscribe(new SessionSubscribeEvent(service, MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders()),
+                new UsernamePasswordAuthenticationToken(subscriber, null, List.of())));
+    }
+
+    private static SessionDisconnectEvent disconnect(String sessionId) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.DISCONNECT);
+        accessor.setSessionId(sessionId);
+        return new SessionDisconnectEvent(NotificationFeedServiceTest.class,
+                MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders()), sessionId, CloseStatus.NORMAL);
+    }
+
+    private static List<Long> ids(NotificationFeedPageResponse page) {
+        return page.getNotifications().stream().map(NotificationFeedItem::getId).toList();
+    }
+}
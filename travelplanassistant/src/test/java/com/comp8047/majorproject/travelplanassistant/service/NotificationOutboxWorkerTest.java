@@ -0,0 +1,159 @@
+package com.comp8047.majorproject.travelplanassistant.service;
+
+import com.comp8047.majorproject.travelplanassistant.entity.Notification;
+import com.comp8047.majorproject.travelplanassistant.repository.NotificationRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.MessagingException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for NotificationOutboxWorker against the embedded database
+ * Checks that committed PENDING notifications are claimed, sent once and marked, and that
+ * claims skip rows locked by another worker
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class NotificationOutboxWorkerTest {
+
+    private static final long TIMEOUT_MS = 5000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    private NotificationService notificationService;
+    private NotificationOutboxWorker worker;
+
+    @BeforeEach
+    void setUp() {
+        notificationRepository.deleteAll();
+        notificationService = mock(NotificationService.class);
+        worker = new NotificationOutboxWorker(jdbcTemplate, transactionManager, notificationService,
+                new SimpleMeterRegistry(), true, 2, 20, 3, 50, 300);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        worker.stop();
+    }
+
+    @Test
+    void testPendingNotifications_SentOnceAndMarked() throws Exception {
+        List<NotificationService.HtmlEmail> sent = new CopyOnWriteArrayList<>();
+        when(notificationService.sendHtmlEmails(anyList())).thenAnswer(invocation -> {
+            List<NotificationService.HtmlEmail> emails = invocation.getArgument(0);
+            sent.addAll(emails);
+            return emails.stream()
+                    .map(email -> email.to().equals("bad@example.com") ? new MessagingException("Mailbox unavailable") : null)
+                    .toList();
+        });
+        for (int i = 0; i < 5; i++) {
+            queue("user" + i + "@example.com");
+        }
+        Notification bad = queue("bad@example.com");
+
+        worker.start();
+        worker.wakeUp();
+
+        awaitNoneLeft();
+        assertEquals(6, sent.size());
+        assertEquals(6, sent.stream().map(NotificationService.HtmlEmail::to).distinct().count());
+        // Batches of at most three messages, one pooled connection each
+        verify(notificationService, atLeast(2)).sendHtmlEmails(argThat(emails -> emails.size() <= 3));
+        List<Notification> notifications = notificationRepository.findAll();
+        for (Notification notification : notifications) {
+            if (notification.getId().equals(bad.getId())) {
+                assertEquals(Notification.NotificationStatus.FAILED, notification.getStatus());
+                assertEquals("Mailbox unavailable", notification.getErrorMessage());
+            } else {
+                assertEquals(Notification.NotificationStatus.SENT, notification.getStatus());
+                assertNotNull(notification.getSentAt());
+            }
+        }
+    }
+
+    @Test
+    void testClaim_SkipsRowsLockedByAnotherWorker() throws Exception {
+        Notification locked = queue("locked@example.com");
+        Notification free = queue("free@example.com");
+        CountDownLatch lockHeld = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Thread otherWorker = new Thread(() -> new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            jdbcTemplate.queryForList("SELECT id FROM notifications WHERE id = ? FOR UPDATE", locked.getId());
+            lockHeld.countDown();
+            try {
+                release.await(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        otherWorker.start();
+        assertTrue(lockHeld.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+
+        List<NotificationOutboxWorker.OutboxRow> claimed = worker.claim(10);
+        release.countDown();
+        otherWorker.join(TIMEOUT_MS);
+
+        assertEquals(List.of(free.getId()), claimed.stream().map(NotificationOutboxWorker.OutboxRow::id).toList());
+        assertEquals(Notification.NotificationStatus.SENDING,
+                notificationRepository.findById(free.getId()).orElseThrow().getStatus());
+        assertEquals(Notification.NotificationStatus.PENDING,
+                notificationRepository.findById(locked.getId()).orElseThrow().getStatus());
+    }
+
+    @Test
+    void testClaim_TakesOverExpiredLeaseOnly() {
+        Notification expired = queue("expired@example.com");
+        Notification current = queue("current@example.com");
+        jdbcTemplate.update("UPDATE notifications SET status = 'SENDING', claimed_at = ? WHERE id = ?",
+                LocalDateTime.now().minusHours(1), expired.getId());
+        jdbcTemplate.update("UPDATE notifications SET status = 'SENDING', claimed_at = ? WHERE id = ?",
+                LocalDateTime.now(), current.getId());
+
+        List<NotificationOutboxWorker.OutboxRow> claimed = worker.claim(10);
+
+        assertEquals(List.of(expired.getId()), claimed.stream().map(NotificationOutboxWorker.OutboxRow::id).toList());
+    }
+
+    private Notification queue(String email) {
+        return notificationRepository.save(new Notification(email, "Subject", "<p>Hello</p>",
+                Notification.NotificationType.CUSTOM_NOTIFICATION));
+    }
+
+    private void awaitNoneLeft() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (System.currentTimeMillis() < deadline && jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM notifications WHERE status IN ('PENDING', 'SENDING')", Integer.class) > 0) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM notifications WHERE status IN ('PENDING', 'SENDING')", Integer.class));
+    }
+}
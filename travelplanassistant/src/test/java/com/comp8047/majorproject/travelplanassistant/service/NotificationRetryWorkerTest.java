@@ -0,0 +1,185 @@
+package com.comp8047.majorproject.travelplanassistant.service;
+
+import com.comp8047.majorproject.travelplanassistant.entity.Notification;
+import com.comp8047.majorproject.travelplanassistant.repository.NotificationRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.MessagingException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for NotificationRetryWorker against the embedded database
+ * Covers backoff bounds, rescheduling, dead-lettering, due-time filtering and the per-domain cap
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class NotificationRetryWorkerTest {
+
+    private static final long TIMEOUT_MS = 5000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    private NotificationService notificationService;
+    private NotificationRetryWorker worker;
+
+    @BeforeEach
+    void setUp() {
+        notificationRepository.deleteAll();
+        notificationService = mock(NotificationService.class);
+        // batch 10, 2 senders, 1 send per domain, backoff 60 s doubling up to 600 s
+        worker = new NotificationRetryWorker(jdbcTemplate, transactionManager, notificationService,
+                new SimpleMeterRegistry(), true, 10, 2, 1, 60, 600, 300);
+        worker.start();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        worker.stop();
+    }
+
+    @Test
+    void testBackoff_DoublesWithJitterAndIsCapped() {
+        for (int i = 0; i < 100; i++) {
+            long first = worker.backoffMillis(1);
+            long third = worker.backoffMillis(3);
+            long capped = worker.backoffMillis(10);
+            assertTrue(first >= 30_000 && first <= 60_000, "first retry " + first);
+            assertTrue(third >= 120_000 && third <= 240_000, "third retry " + third);
+            assertTrue(capped >= 300_000 && capped <= 600_000, "capped retry " + capped);
+        }
+    }
+
+    @Test
+    void testRetryFailed_SentNotificationMarked() throws Exception {
+        Notification failed = failed("user@example.com", 0, null);
+        failed("later@example.org", 1, LocalDateTime.now().plusMinutes(5));
+
+        worker.retryFailed();
+
+        awaitStatus(failed, Notification.NotificationStatus.SENT);
+        verify(notificationService).sendHtmlEmail("user@example.com", "Subject", "<p>Hello</p>");
+        Notification sent = notificationRepository.findById(failed.getId()).orElseThrow();
+        assertEquals(1, sent.getRetryCount());
+        assertNull(sent.getErrorMessage());
+        assertEquals(1, worker.queueDepth());
+    }
+
+    @Test
+    void testRetry_FailureRescheduledWithBackoff() throws Exception {
+        doThrow(new MessagingException("Connection refused")).when(notificationService).sendHtmlEmail(anyString(), anyString(), anyString());
+        Notification failed = failed("user@example.com", 0, null);
+
+        List<NotificationRetryWorker.RetryRow> claimed = worker.claim(10);
+        assertEquals(1, claimed.size());
+        worker.retry(claimed.get(0));
+
+        Notification rescheduled = notificationRepository.findById(failed.getId()).orElseThrow();
+        assertEquals(Notification.NotificationStatus.FAILED, rescheduled.getStatus());
+        assertEquals(1, rescheduled.getRetryCount());
+        assertEquals("Connection refused", rescheduled.getErrorMessage());
+        assertTrue(rescheduled.getNextAttemptAt().isAfter(LocalDateTime.now().plusSeconds(20)));
+        // Not due again until the backoff has passed
+        assertTrue(worker.claim(10).isEmpty());
+    }
+
+    @Test
+    void testRetry_LastFailureMovesToDeadLetter() throws Exception {
+        doThrow(new MessagingException("Mailbox unavailable")).when(notificationService).sendHtmlEmail(anyString(), anyString(), anyString());
+        Notification failed = failed("user@example.com", 2, LocalDateTime.now().minusMinutes(1));
+
+        worker.retry(worker.claim(10).get(0));
+
+        Notification dead = notificationRepository.findById(failed.getId()).orElseThrow();
+        assertEquals(Notification.NotificationStatus.DEAD_LETTER, dead.getStatus());
+        assertEquals(3, dead.getRetryCount());
+        assertNull(dead.getNextAttemptAt());
+    }
+
+    @Test
+    void testClaim_SkipsRowsNotDueOrOutOfRetries() {
+        Notification due = failed("due@example.com", 1, LocalDateTime.now().minusSeconds(1));
+        failed("later@example.org", 1, LocalDateTime.now().plusMinutes(5));
+        failed("spent@example.net", 3, null);
+
+        List<NotificationRetryWorker.RetryRow> claimed = worker.claim(10);
+
+        assertEquals(List.of(due.getId()), claimed.stream().map(NotificationRetryWorker.RetryRow::id).toList());
+        assertEquals(Notification.NotificationStatus.RETRYING,
+                notificationRepository.findById(due.getId()).orElseThrow().getStatus());
+    }
+
+    @Test
+    void testClaim_ExpiredClaimsFirstThenDueRowsByNextAttempt() {
+        Notification recent = failed("recent@example.com", 1, LocalDateTime.now().minusSeconds(1));
+        Notification overdue = failed("overdue@example.org", 1, LocalDateTime.now().minusMinutes(10));
+        Notification abandoned = failed("abandoned@example.net", 1, null);
+        jdbcTemplate.update("UPDATE notifications SET status = 'RETRYING', claimed_at = ? WHERE id = ?",
+                LocalDateTime.now().minusMinutes(10), abandoned.getId());
+
+        List<NotificationRetryWorker.RetryRow> claimed = worker.claim(2);
+
+        assertEquals(List.of(abandoned.getId(), overdue.getId()),
+                claimed.stream().map(NotificationRetryWorker.RetryRow::id).toList());
+        assertEquals(Notification.NotificationStatus.FAILED,
+                notificationRepository.findById(recent.getId()).orElseThrow().getStatus());
+    }
+
+    @Test
+    void testClaim_CapsSendsPerRecipientDomain() throws Exception {
+        Notification first = failed("a@example.com", 0, null);
+        Notification second = failed("b@EXAMPLE.com", 0, null);
+        Notification other = failed("c@example.org", 0, null);
+
+        List<NotificationRetryWorker.RetryRow> claimed = worker.claim(10);
+        assertEquals(List.of(first.getId(), other.getId()),
+                claimed.stream().map(NotificationRetryWorker.RetryRow::id).toList());
+        assertEquals(Notification.NotificationStatus.FAILED,
+                notificationRepository.findById(second.getId()).orElseThrow().getStatus());
+
+        // Finishing the first send frees the domain for the second
+        worker.retry(claimed.get(0));
+        assertEquals(List.of(second.getId()),
+                worker.claim(10).stream().map(NotificationRetryWorker.RetryRow::id).toList());
+    }
+
+    private Notification failed(String email, int retryCount, LocalDateTime nextAttemptAt) {
+        Notification notification = new Notification(email, "Subject", "<p>Hello</p>",
+                Notification.NotificationType.CUSTOM_NOTIFICATION);
+        notification.markAsFailed("Initial failure");
+        notification.setRetryCount(retryCount);
+        notification.setNextAttemptAt(nextAttemptAt);
+        return notificationRepository.save(notification);
+    }
+
+    private void awaitStatus(Notification notification, Notification.NotificationStatus status) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (System.currentTimeMillis() < deadline
+                && notificationRepository.findById(notification.getId()).orElseThrow().getStatus() != status) {
+            Thread.sleep(10);
+        }
+        assertEquals(status, notificationRepository.findById(notification.getId()).orElseThrow().getStatus());
+    }
+}
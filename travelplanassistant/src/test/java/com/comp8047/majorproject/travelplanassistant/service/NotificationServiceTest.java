@@ -3,17 +3,22 @@ package com.comp8047.majorproject.travelplanassistant.service;
 import com.comp8047.majorproject.travelplanassistant.entity.Notification;
 import com.comp8047.majorproject.travelplanassistant.entity.TravelPlan;
 import com.comp8047.majorproject.travelplanassistant.entity.User;
+import com.comp8047.majorproject.travelplanassistant.entity.UserPlanStatus;
 import com.comp8047.majorproject.travelplanassistant.repository.NotificationRepository;
+import com.comp8047.majorproject.travelplanassistant.repository.UserPlanStatusRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.mail.SimpleMailMessage;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -32,6 +37,18 @@ class NotificationServiceTest {
     @Mock
     private JavaMailSender mailSender;
 
+    @Mock
+    private ApplicationEventPublisher applicationEventPublisher;
+
+    @Mock
+    private UserPlanStatusRepository userPlanStatusRepository;
+
+    @Mock
+    private NotificationFeedService notificationFeedService;
+
+    @Spy
+    private EmailTemplates emailTemplates = new EmailTemplates();
+
     @InjectMocks
     private NotificationService notificationService;
 
@@ -74,4 +91,126 @@ class NotificationServiceTest {
         });
     }
 
-}
\ No newline at end of file
+    @Test
+    void testSendInvitationNotification_QueuedAsPendingWithoutSending() {
+        // Given
+        ReflectionTestUtils.setField(notificationService, "emailNotificationsEnabled", true);
+        testPlan.setStartDate(LocalDateTime.now().plusDays(10));
+        testPlan.setEndDate(LocalDateTime.now().plusDays(15));
+        when(notificationRepository.save(any(Notification.class))).thenAnswer(invocation -> {
+            Notification saved = invocation.getArgument(0);
+            saved.setId(7L);
+            return saved;
+        });
+
+        // When
+        notificationService.sendInvitationNotification(testUser, testPlan, testUser2);
+
+        // Then
+        verify(notificationRepository).save(argThat(notification ->
+                notification.getStatus() == Notification.NotificationStatus.PENDING
+                        && notification.getNotificationType() == Notification.NotificationType.INVITATION_NOTIFICATION
+                        && "test@example.com".equals(notification.getRecipientEmail())
+                        && notification.getSenderUserId().equals(2L)));
+        verifyNoInteractions(mailSender);
+        verify(applicationEventPublisher).publishEvent(new NotificationService.NotificationQueuedEvent(7L));
+    }
+
+    @Test
+    void testSendInvitationNotification_DigestUserHeldForDigest() {
+        // Given
+        ReflectionTestUtils.setField(notificationService, "emailNotificationsEnabled", true);
+        testUser.setEmailDigest(true);
+        testPlan.setStartDate(LocalDateTime.now().plusDays(10));
+        testPlan.setEndDate(LocalDateTime.now().plusDays(15));
+
+        // When
+        notificationService.sendInvitationNotification(testUser, testPlan, testUser2);
+
+        // Then
+        verify(notificationRepository).save(argThat(notification ->
+                notification.getStatus() == Notification.NotificationStatus.DIGEST_PENDING
+                        && notification.getNotificationType() == Notification.NotificationType.INVITATION_NOTIFICATION));
+        verifyNoInteractions(applicationEventPublisher);
+    }
+
+    @Test
+    void testSendInvitationNotifications_TemplateBoundOncePerPlan() {
+        // Given
+        ReflectionTestUtils.setField(notificationService, "emailNotificationsEnabled", true);
+        testPlan.setStartDate(LocalDateTime.now().plusDays(10));
+        testPlan.setEndDate(LocalDateTime.now().plusDays(15));
+        User inviter = new User();
+        inviter.setId(3L);
+        inviter.setFirstName("Olive");
+        inviter.setLastName("Owner");
+        when(notificationRepository.save(any(Notification.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // When
+        notificationService.sendInvitationNotifications(List.of(testUser, testUser2), testPlan, inviter);
+
+        // Then
+        verify(emailTemplates, times(1)).invitation();
+        verify(notificationRepository).save(argThat(notification ->
+                "test@example.com".equals(notification.getRecipientEmail()) && notification.getContent().contains("John")));
+        verify(notificationRepository).save(argThat(notification ->
+                "user2@example.com".equals(notification.getRecipientEmail()) && notification.getContent().contains("Jane")
+                        && notification.getContent().contains("Olive Owner")));
+    }
+
+    @Test
+    void testEnqueue_DigestUserUrgentTypeQueuedAsPending() {
+        // Given
+        testUser.setEmailDigest(true);
+        Notification reminder = new Notification("test@example.com", "Travel Plan Starting Soon", "<p>Soon</p>",
+                Notification.NotificationType.TRAVEL_PLAN_START_REMINDER);
+        when(notificationRepository.save(any(Notification.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // When
+        notificationService.enqueue(reminder, testUser);
+
+        // Then
+        assertEquals(Notification.NotificationStatus.PENDING, reminder.getStatus());
+        verify(applicationEventPublisher).publishEvent(any(NotificationService.NotificationQueuedEvent.class));
+    }
+
+    @Test
+    void testSendCustomNotification_Disabled_NothingQueued() {
+        // Given
+        ReflectionTestUtils.setField(notificationService, "emailNotificationsEnabled", false);
+
+        // When
+        notificationService.sendCustomNotification("test@example.com", "Subject", "Content");
+
+        // Then
+        verifyNoInteractions(notificationRepository, mailSender, applicationEventPublisher);
+    }
+
+    @Test
+    void testSendTravelPlanStartReminder_PlanRenderedOncePerMemberGreeting() {
+        // Given
+        ReflectionTestUtils.setField(notificationService, "emailNotificationsEnabled", true);
+        testPlan.setDestinationCity("Paris");
+        testPlan.setDestinationCountry("France");
+        testPlan.setStartDate(LocalDateTime.of(2026, 11, 3, 9, 30));
+        testPlan.setEndDate(LocalDateTime.of(2026, 11, 9, 18, 0));
+        when(userPlanStatusRepository.findActiveMembers(testPlan)).thenReturn(List.of(
+                new UserPlanStatus(testUser, testPlan, UserPlanStatus.Status.OWNED),
+                new UserPlanStatus(testUser2, testPlan, UserPlanStatus.Status.APPLIED_ACCEPTED)));
+        when(notificationRepository.save(any(Notification.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // When
+        notificationService.sendTravelPlanStartReminder(testPlan);
+
+        // Then
+        verify(emailTemplates, times(1)).travelPlanStart();
+        verify(notificationRepository).save(argThat(notification -> "test@example.com".equals(notification.getRecipientEmail())
+                && notification.getContent().contains("<p>Hi John,</p>")
+                && notification.getContent().contains("Paris, France")
+                && notification.getContent().contains("Nov 03, 2026 at 09:30")));
+        verify(notificationRepository).save(argThat(notification -> "user2@example.com".equals(notification.getRecipientEmail())
+                && notification.getContent().contains("<p>Hi Jane,</p>")
+                && notification.getContent().contains("Test Travel Plan")));
+        verifyNoInteractions(mailSender);
+    }
+}
@@ -0,0 +1,162 @@
+package com.comp8047.majorproject.travelplanassistant.service;
+
+import com.comp8047.majorproject.travelplanassistant.entity.TravelPlan;
+import com.comp8047.majorproject.travelplanassistant.entity.User;
+import com.comp8047.majorproject.travelplanassistant.entity.UserPlanStatus;
+import com.comp8047.majorproject.travelplanassistant.repository.TravelPlanRepository;
+import com.comp8047.majorproject.travelplanassistant.repository.UserPlanStatusRepository;
+import com.comp8047.majorproject.travelplanassistant.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for PendingRequestRefusals against the embedded database
+ * Verifies that pending rows are refused in bulk with a fixed number of statements
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("test")
+class PendingRequestRefusalsTest {
+
+    @Autowired
+    private TravelPlanRepository travelPlanRepository;
+
+    @Autowired
+    private UserPlanStatusRepository userPlanStatusRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private PendingRequestRefusals pendingRequestRefusals;
+    private PlanEventPublisher planEventPublisher;
+    private Statistics statistics;
+    private int userSequence;
+
+    @BeforeEach
+    void setUp() {
+        planEventPublisher = mock(PlanEventPublisher.class);
+        pendingRequestRefusals = new PendingRequestRefusals();
+        ReflectionTestUtils.setField(pendingRequestRefusals, "userPlanStatusRepository", userPlanStatusRepository);
+        ReflectionTestUtils.setField(pendingRequestRefusals, "planEventPublisher", planEventPublisher);
+        statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void testRefuseAll_RefusesPendingRowsOnly() {
+        // Given
+        TravelPlan plan = createPlan();
+        User accepted = addMember(plan, UserPlanStatus.Status.APPLIED_ACCEPTED);
+        List<User> applicants = List.of(addMember(plan, UserPlanStatus.Status.APPLIED), addMember(plan, UserPlanStatus.Status.APPLIED));
+        User invitee = addMember(plan, UserPlanStatus.Status.INVITED);
+        TravelPlan otherPlan = createPlan();
+        User otherApplicant = addMember(otherPlan, UserPlanStatus.Status.APPLIED);
+        entityManager.flush();
+        entityManager.clear();
+
+        // When
+        PendingRequestRefusals.Refused refused = pendingRequestRefusals.refuseAll(plan);
+
+        // Then
+        assertEquals(applicants.stream().map(User::getId).toList(), refused.applicantIds().stream().sorted().toList());
+        assertEquals(List.of(invitee.getId()), refused.inviteeIds());
+        assertEquals(3, refused.userIds().size());
+        entityManager.clear();
+        assertEquals(UserPlanStatus.Status.APPLIED_REFUSED, statusOf(applicants.get(0), plan));
+        assertEquals(UserPlanStatus.Status.APPLIED_REFUSED, statusOf(applicants.get(1), plan));
+        assertEquals(UserPlanStatus.Status.INVITED_REFUSED, statusOf(invitee, plan));
+        assertEquals(UserPlanStatus.Status.APPLIED_ACCEPTED, statusOf(accepted, plan));
+        assertEquals(UserPlanStatus.Status.APPLIED, statusOf(otherApplicant, otherPlan));
+        verify(planEventPublisher).membershipChanged(invitee.getId(), plan.getId(), UserPlanStatus.Status.INVITED_REFUSED);
+        verify(planEventPublisher, times(2)).membershipChanged(anyLong(), eq(plan.getId()), eq(UserPlanStatus.Status.APPLIED_REFUSED));
+    }
+
+    @Test
+    void testRefuseAll_StatementCountIndependentOfPendingCount() {
+        // Given
+        TravelPlan smallPlan = createPlan();
+        addMember(smallPlan, UserPlanStatus.Status.APPLIED);
+        addMember(smallPlan, UserPlanStatus.Status.INVITED);
+        TravelPlan largePlan = createPlan();
+        for (int i = 0; i < 20; i++) {
+            addMember(largePlan, i % 2 == 0 ? UserPlanStatus.Status.APPLIED : UserPlanStatus.Status.INVITED);
+        }
+
+        // When
+        long small = countStatements(smallPlan);
+        long large = countStatements(largePlan);
+
+        // Then: one locking read and one update per pending status
+        assertEquals(3, small);
+        assertEquals(small, large);
+    }
+
+    @Test
+    void testRefuseAll_NothingPending() {
+        TravelPlan plan = createPlan();
+        addMember(plan, UserPlanStatus.Status.APPLIED_ACCEPTED);
+
+        PendingRequestRefusals.Refused refused = pendingRequestRefusals.refuseAll(plan);
+
+        assertTrue(refused.userIds().isEmpty());
+        verifyNoInteractions(planEventPublisher);
+    }
+
+    private long countStatements(TravelPlan plan) {
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+        pendingRequestRefusals.refuseAll(plan);
+        return statistics.getPrepareStatementCount();
+    }
+
+    private UserPlanStatus.Status statusOf(User user, TravelPlan plan) {
+        return userPlanStatusRepository.findByUserAndTravelPlan(user, plan).orElseThrow().getStatus();
+    }
+
+    private User createUser() {
+        userSequence++;
+        User user = new User("user" + userSequence + "@example.com", "password", "First", "Last",
+                User.Gender.MALE, 1990, 1, "English", "Canada", "Vancouver");
+        return userRepository.save(user);
+    }
+
+    private TravelPlan createPlan() {
+        User owner = createUser();
+        TravelPlan plan = new TravelPlan();
+        plan.setTitle("Plan " + userSequence);
+        plan.setPlanType(TravelPlan.PlanType.PUBLIC);
+        plan.setCategory(TravelPlan.Category.TRIP);
+        plan.setStartDate(LocalDateTime.now().plusDays(30));
+        plan.setEndDate(LocalDateTime.now().plusDays(37));
+        plan.setMaxMembers(30);
+        plan.setDescription("A test travel plan");
+        plan.setGender(TravelPlan.GenderPreference.ANY);
+        plan.setOwner(owner);
+        plan.setActiveMemberCount(1);
+        plan = travelPlanRepository.save(plan);
+        userPlanStatusRepository.save(new UserPlanStatus(owner, plan, UserPlanStatus.Status.OWNED));
+        return plan;
+    }
+
+    private User addMember(TravelPlan plan, UserPlanStatus.Status status) {
+        User user = createUser();
+        userPlanStatusRepository.save(new UserPlanStatus(user, plan, status));
+        return user;
+    }
+}
@@ -0,0 +1,110 @@
+package com.comp8047.majorproject.travelplanassistant.service;
+
+import com.comp8047.majorproject.travelplanassistant.dto.PlanEvent;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Background request rate of open pages: fixed-interval polling at the intervals the pages used before
+ * (plan details 10 s, my plans 12 s, poll 8 s, expenses 10 s, discovery 15 s) against refetching only when a
+ * pushed event arrives. Events are published through PlanEventPublisher into a real simple broker with one
+ * subscription per open page, and every delivered event counts as one refetch.
+ * Run with: mvn test -Dtest=PlanEventLoadBenchmarkTest -Dbenchmark=true
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class PlanEventLoadBenchmarkTest {
+
+    private static final int PLANS = 500;
+    private static final int PAGES_PER_PLAN = 4;
+    private static final int DISCOVERY_PAGES = 1000;
+    private static final int SIMULATED_SECONDS = 3600;
+    // On average each plan changes once every 5 minutes, and a plan enters or leaves discovery every 30 seconds
+    private static final double PLAN_CHANGES_PER_SECOND = 1.0 / 300;
+    private static final double DISCOVERY_CHANGES_PER_SECOND = 1.0 / 30;
+    private static final int[] PLAN_PAGE_INTERVALS = {10, 12, 8, 10};
+    private static final int DISCOVERY_INTERVAL = 15;
+
+    @Test
+    void testRequestRate_PollingVersusPushedEvents() {
+        AtomicLong deliveries = new AtomicLong();
+        ExecutorSubscribableChannel clientInbound = new ExecutorSubscribableChannel();
+        ExecutorSubscribableChannel clientOutbound = new ExecutorSubscribableChannel();
+        ExecutorSubscribableChannel brokerChannel = new ExecutorSubscribableChannel();
+        clientOutbound.subscribe(message -> {
+            if (SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) == SimpMessageType.MESSAGE) {
+                deliveries.incrementAndGet();
+            }
+        });
+        SimpleBrokerMessageHandler broker = new SimpleBrokerMessageHandler(clientInbound, clientOutbound, brokerChannel, List.of("/topic"));
+        broker.start();
+        PlanEventPublisher publisher = new PlanEventPublisher(new SimpMessagingTemplate(brokerChannel), mock(ApplicationEventPublisher.class));
+
+        long polledRequests = 0;
+        int session = 0;
+        for (long planId = 1; planId <= PLANS; planId++) {
+            for (int page = 0; page < PAGES_PER_PLAN; page++) {
+                subscribe(broker, "s" + session++, String.format(PlanEventPublisher.PLAN_TOPIC, planId));
+                polledRequests += SIMULATED_SECONDS / PLAN_PAGE_INTERVALS[page];
+            }
+        }
+        for (int page = 0; page < DISCOVERY_PAGES; page++) {
+            subscribe(broker, "s" + session++, PlanEventPublisher.DISCOVERY_TOPIC);
+            polledRequests += SIMULATED_SECONDS / DISCOVERY_INTERVAL;
+        }
+
+        Random random = new Random(42);
+        long events = 0;
+        long start = System.nanoTime();
+        for (int second = 0; second < SIMULATED_SECONDS; second++) {
+            for (long planId = 1; planId <= PLANS; planId++) {
+                if (random.nextDouble() < PLAN_CHANGES_PER_SECOND) {
+                    publisher.planChanged(planId, PlanEvent.Type.PLAN_UPDATED, planId);
+                    events++;
+                }
+            }
+            if (random.nextDouble() < DISCOVERY_CHANGES_PER_SECOND) {
+                publisher.discoveryChanged(1L + random.nextInt(PLANS), PlanEvent.Type.PLAN_UPDATED);
+                events++;
+            }
+        }
+        double publishSeconds = (System.nanoTime() - start) / 1e9;
+        broker.stop();
+
+        double minutes = SIMULATED_SECONDS / 60.0;
+        int pages = session;
+        System.out.printf("%d open pages, %d events over %.0f simulated minutes (published in %.2f s)%n",
+                pages, events, minutes, publishSeconds);
+        System.out.printf("%-16s %10d requests %10.0f requests/min %6.2f per page/min%n",
+                "polling", polledRequests, polledRequests / minutes, polledRequests / minutes / pages);
+        System.out.printf("%-16s %10d requests %10.0f requests/min %6.2f per page/min%n",
+                "pushed events", deliveries.get(), deliveries.get() / minutes, deliveries.get() / minutes / pages);
+        System.out.printf("reduction: %.1fx%n", (double) polledRequests / deliveries.get());
+        assertTrue(deliveries.get() < polledRequests, "Pushed events should cause fewer requests than polling");
+    }
+
+    // The broker only delivers to sessions it has seen CONNECT
+    private static void subscribe(SimpleBrokerMessageHandler broker, String sessionId, String destination) {
+        SimpMessageHeaderAccessor connect = SimpMessageHeaderAccessor.create(SimpMessageType.CONNECT);
+        connect.setSessionId(sessionId);
+        broker.handleMessage(MessageBuilder.createMessage(new byte[0], connect.getMessageHeaders()));
+        SimpMessageHeaderAccessor subscribe = SimpMessageHeaderAccessor.create(SimpMessageType.SUBSCRIBE);
+        subscribe.setSessionId(sessionId);
+        subscribe.setSubscriptionId("sub-0");
+        subscribe.setDestination(destination);
+        broker.handleMessage(MessageBuilder.createMessage(new byte[0], subscribe.getMessageHeaders()));
+    }
+}
@@ -0,0 +1,98 @@
+package com.comp8047.majorproject.travelplanassistant.service;
+
+import com.comp8047.majorproject.travelplanassistant.dto.PlanEvent;
+import com.comp8047.majorproject.travelplanassistant.entity.UserPlanStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for PlanEventPublisher
+ * Tests topic routing, deferral until commit and that send failures are swallowed
+ */
+@ExtendWith(MockitoExtension.class)
+class PlanEventPublisherTest {
+
+    @Mock
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Mock
+    private ApplicationEventPublisher applicationEventPublisher;
+
+    @InjectMocks
+    private PlanEventPublisher planEventPublisher;
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void testPlanChanged_SendsToPlanTopic() {
+        planEventPublisher.planChanged(5L, PlanEvent.Type.POLL_CREATED, 9L);
+
+        ArgumentCaptor<PlanEvent> event = ArgumentCaptor.forClass(PlanEvent.class);
+        verify(messagingTemplate).convertAndSend(eq("/topic/plan/5/events"), event.capture());
+        assertEquals(PlanEvent.Type.POLL_CREATED, event.getValue().getType());
+        assertEquals(5L, event.getValue().getPlanId());
+        assertEquals(9L, event.getValue().getEntityId());
+        assertNotNull(event.getValue().getOccurredAt());
+    }
+
+    @Test
+    void testMembershipChanged_SendsToUserAndPlanTopics() {
+        planEventPublisher.membershipChanged(3L, 5L, UserPlanStatus.Status.APPLIED_ACCEPTED);
+
+        ArgumentCaptor<PlanEvent> userEvent = ArgumentCaptor.forClass(PlanEvent.class);
+        verify(messagingTemplate).convertAndSend(eq("/topic/user/3/events"), userEvent.capture());
+        assertEquals(PlanEvent.Type.MEMBERSHIP_CHANGED, userEvent.getValue().getType());
+        assertEquals(UserPlanStatus.Status.APPLIED_ACCEPTED, userEvent.getValue().getUserPlanStatus());
+        verify(messagingTemplate).convertAndSend(eq("/topic/plan/5/events"), any(PlanEvent.class));
+    }
+
+    @Test
+    void testMembershipChanged_PublishesApplicationEventAfterCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        planEventPublisher.membershipChanged(3L, 5L, UserPlanStatus.Status.OWNED);
+        verifyNoInteractions(applicationEventPublisher);
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        verify(applicationEventPublisher).publishEvent(new PlanEventPublisher.MembershipChangedEvent(3L, 5L, UserPlanStatus.Status.OWNED));
+    }
+
+    @Test
+    void testPlanChanged_InsideTransaction_SendsOnlyAfterCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        planEventPublisher.discoveryChanged(5L, PlanEvent.Type.PLAN_UPDATED);
+        verifyNoInteractions(messagingTemplate);
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        verify(messagingTemplate).convertAndSend(eq("/topic/plans/events"), any(PlanEvent.class));
+    }
+
+    @Test
+    void testPlanChanged_SendFailure_IsSwallowed() {
+        doThrow(new MessagingException("broker down")).when(messagingTemplate).convertAndSend(anyString(), any(PlanEvent.class));
+
+        assertDoesNotThrow(() -> planEventPublisher.planChanged(5L, PlanEvent.Type.PLAN_UPDATED, 5L));
+    }
+}
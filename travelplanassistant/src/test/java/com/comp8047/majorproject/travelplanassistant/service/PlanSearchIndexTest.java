@@ -0,0 +1,134 @@
+package com.comp8047.majorproject.travelplanassistant.service;
+
+import com.comp8047.majorproject.travelplanassistant.entity.TravelPlan;
+import com.comp8047.majorproject.travelplanassistant.repository.TravelPlanRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for PlanSearchIndex
+ * Tests tokenization, prefix matching, ranking, incremental updates, rebuilds racing updates and the multi-node refresh
+ */
+class PlanSearchIndexTest {
+
+    private PlanSearchIndex planSearchIndex;
+
+    @BeforeEach
+    void setUp() {
+        planSearchIndex = new PlanSearchIndex();
+        planSearchIndex.update(plan(1L, "Paris Art Weekend", "Paris", "France", "Museums and galleries"));
+        planSearchIndex.update(plan(2L, "Alpine Hiking", "Zermatt", "Switzerland", "Day hikes with a stop in Paris on the way back"));
+        planSearchIndex.update(plan(3L, "Madrid Football Match", "Madrid", "Spain", "Real Madrid at the Bernabéu"));
+    }
+
+    @Test
+    void testSearch_RanksTitleMatchesFirst() {
+        List<Long> result = planSearchIndex.search("paris", 10);
+
+        assertEquals(Arrays.asList(1L, 2L), result);
+    }
+
+    @Test
+    void testSearch_MatchesPrefixesAndIgnoresAccents() {
+        assertEquals(Arrays.asList(2L), planSearchIndex.search("hik", 10));
+        assertEquals(Arrays.asList(3L), planSearchIndex.search("BERNABEU", 10));
+    }
+
+    @Test
+    void testSearch_RequiresEveryToken() {
+        assertEquals(Arrays.asList(1L), planSearchIndex.search("paris museums", 10));
+        assertTrue(planSearchIndex.search("paris football", 10).isEmpty());
+        assertTrue(planSearchIndex.search("  ", 10).isEmpty());
+    }
+
+    @Test
+    void testUpdate_RemovesPlansThatAreNoLongerSearchable() {
+        TravelPlan closed = plan(1L, "Paris Art Weekend", "Paris", "France", "Museums and galleries");
+        closed.setStatus(TravelPlan.Status.CANCELLED);
+
+        planSearchIndex.update(closed);
+        planSearchIndex.remove(2L);
+
+        assertTrue(planSearchIndex.search("paris", 10).isEmpty());
+        assertEquals(1, planSearchIndex.size());
+    }
+
+    @Test
+    void testUpdate_ReindexesChangedText() {
+        planSearchIndex.update(plan(3L, "Barcelona Derby", "Barcelona", "Spain", "Camp Nou"));
+
+        assertTrue(planSearchIndex.search("madrid", 10).isEmpty());
+        assertEquals(Arrays.asList(3L), planSearchIndex.search("barc", 10));
+    }
+
+    @Test
+    void testRebuild_KeepsChangesMadeWhileReading() {
+        TravelPlanRepository travelPlanRepository = mock(TravelPlanRepository.class);
+        ReflectionTestUtils.setField(planSearchIndex, "travelPlanRepository", travelPlanRepository);
+        when(travelPlanRepository.findByPlanTypeAndStatus(TravelPlan.PlanType.PUBLIC, TravelPlan.Status.NEW)).thenAnswer(invocation -> {
+            // Plan 1 closes and plan 4 is created after the rows below were read
+            TravelPlan closed = plan(1L, "Paris Art Weekend", "Paris", "France", "Museums and galleries");
+            closed.setStatus(TravelPlan.Status.CANCELLED);
+            planSearchIndex.update(closed);
+            planSearchIndex.update(plan(4L, "Lisbon Food Tour", "Lisbon", "Portugal", "Pasteis de nata"));
+            return Arrays.asList(plan(1L, "Paris Art Weekend", "Paris", "France", "Museums and galleries"),
+                    plan(3L, "Madrid Football Match", "Madrid", "Spain", "Real Madrid at the Bernabéu"));
+        });
+
+        planSearchIndex.rebuild();
+
+        assertEquals(Arrays.asList(4L), planSearchIndex.search("lisbon", 10));
+        assertEquals(Arrays.asList(3L), planSearchIndex.search("madrid", 10));
+        assertTrue(planSearchIndex.search("museums", 10).isEmpty());
+        assertEquals(2, planSearchIndex.size());
+    }
+
+    @Test
+    void testRefresh_MultiNode_ReadsOnlyChangedPlans() {
+        TravelPlanRepository travelPlanRepository = mock(TravelPlanRepository.class);
+        when(travelPlanRepository.findByPlanTypeAndStatus(TravelPlan.PlanType.PUBLIC, TravelPlan.Status.NEW))
+                .thenReturn(Arrays.asList(plan(3L, "Madrid Football Match", "Madrid", "Spain", "Real Madrid at the Bernabéu")));
+        TravelPlan closed = plan(3L, "Madrid Football Match", "Madrid", "Spain", "Real Madrid at the Bernabéu");
+        closed.setStatus(TravelPlan.Status.CANCELLED);
+        when(travelPlanRepository.findByUpdatedAtAfter(any()))
+                .thenReturn(Arrays.asList(plan(4L, "Lisbon Food Tour", "Lisbon", "Portugal", "Pasteis de nata"), closed));
+        ReflectionTestUtils.setField(planSearchIndex, "travelPlanRepository", travelPlanRepository);
+
+        // Single node: nothing to pick up
+        planSearchIndex.refresh();
+        verifyNoInteractions(travelPlanRepository);
+
+        // The first refresh loads everything, later ones only rows changed since the previous read
+        ReflectionTestUtils.setField(planSearchIndex, "multiNode", true);
+        planSearchIndex.refresh();
+        assertEquals(Arrays.asList(3L), planSearchIndex.search("madrid", 10));
+        planSearchIndex.refresh();
+
+        verify(travelPlanRepository, times(1)).findByPlanTypeAndStatus(any(), any());
+        verify(travelPlanRepository, times(1)).findByUpdatedAtAfter(any());
+        assertEquals(Arrays.asList(4L), planSearchIndex.search("lisbon", 10));
+        assertTrue(planSearchIndex.search("madrid", 10).isEmpty());
+    }
+
+    private TravelPlan plan(Long id, String title, String city, String country, String description) {
+        TravelPlan plan = new TravelPlan();
+        plan.setId(id);
+        plan.setTitle(title);
+        plan.setDestinationCity(city);
+        plan.setDestinationCountry(country);
+        plan.setDescription(description);
+        plan.setPlanType(TravelPlan.PlanType.PUBLIC);
+        plan.setStatus(TravelPlan.Status.NEW);
+        plan.setMaxMembers(4);
+        plan.setActiveMemberCount(1);
+        return plan;
+    }
+}
@@ -40,6 +40,9 @@ class PollServiceTest {
     @Mock
     private UserPlanStatusRepository userPlanStatusRepository;
 
+    @Mock
+    private PlanEventPublisher planEventPublisher;
+
     @InjectMocks
     private PollService pollService;
 
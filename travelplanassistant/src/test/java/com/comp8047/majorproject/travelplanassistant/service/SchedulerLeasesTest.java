@@ -0,0 +1,73 @@
+package com.comp8047.majorproject.travelplanassistant.service;
+
+import com.comp8047.majorproject.travelplanassistant.entity.SchedulerLease;
+import com.comp8047.majorproject.travelplanassistant.repository.SchedulerLeaseRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for SchedulerLeases against the embedded database, with two instances standing in for two nodes
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SchedulerLeasesTest {
+
+    private static final String LEASE = "plan-lifecycle";
+
+    @Autowired
+    private SchedulerLeaseRepository schedulerLeaseRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private SchedulerLeases nodeA;
+    private SchedulerLeases nodeB;
+
+    @BeforeEach
+    void setUp() {
+        schedulerLeaseRepository.deleteAll();
+        nodeA = new SchedulerLeases(schedulerLeaseRepository, transactionManager);
+        nodeB = new SchedulerLeases(schedulerLeaseRepository, transactionManager);
+    }
+
+    @Test
+    void testTryAcquire_HeldLeaseExcludesOtherNode() {
+        assertTrue(nodeA.tryAcquire(LEASE, Duration.ofMinutes(5)));
+        assertFalse(nodeB.tryAcquire(LEASE, Duration.ofMinutes(5)));
+        // Renewing our own lease succeeds
+        assertTrue(nodeA.tryAcquire(LEASE, Duration.ofMinutes(5)));
+        assertEquals(nodeA.getNodeId(), schedulerLeaseRepository.findById(LEASE).orElseThrow().getOwner());
+    }
+
+    @Test
+    void testTryAcquire_ExpiredLeaseTakenOver() {
+        schedulerLeaseRepository.save(new SchedulerLease(LEASE, nodeA.getNodeId(), LocalDateTime.now().minusSeconds(1)));
+
+        assertTrue(nodeB.tryAcquire(LEASE, Duration.ofMinutes(5)));
+        assertFalse(nodeA.tryAcquire(LEASE, Duration.ofMinutes(5)));
+        assertEquals(nodeB.getNodeId(), schedulerLeaseRepository.findById(LEASE).orElseThrow().getOwner());
+    }
+
+    @Test
+    void testRelease_OnlyOwnerReleases() {
+        assertTrue(nodeA.tryAcquire(LEASE, Duration.ofMinutes(5)));
+
+        nodeB.release(LEASE);
+        assertFalse(nodeB.tryAcquire(LEASE, Duration.ofMinutes(5)));
+
+        nodeA.release(LEASE);
+        assertTrue(nodeB.tryAcquire(LEASE, Duration.ofMinutes(5)));
+    }
+}
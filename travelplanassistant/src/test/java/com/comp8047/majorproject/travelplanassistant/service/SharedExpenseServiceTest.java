@@ -40,6 +40,9 @@ class SharedExpenseServiceTest {
     @Mock
     private UserPlanStatusRepository userPlanStatusRepository;
 
+    @Mock
+    private PlanEventPublisher planEventPublisher;
+
     @InjectMocks
     private SharedExpenseService sharedExpenseService;
 
@@ -0,0 +1,96 @@
+package com.comp8047.majorproject.travelplanassistant.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.mail.javamail.MimeMessageHelper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Throughput benchmark for bulk reminder mail: one JavaMailSender.send per message (a new connection each)
+ * against batches over SmtpConnectionPool, both with the outbox's four senders, against a local fake SMTP
+ * server that charges a fixed delay per connection for the TLS and AUTH handshake.
+ * Run with: mvn test -Dtest=SmtpConnectionPoolBenchmarkTest -Dbenchmark=true
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class SmtpConnectionPoolBenchmarkTest {
+
+    private static final int MESSAGES = 2000;
+    private static final int SENDERS = 4;
+    private static final int BATCH_SIZE = 10;
+    private static final long HANDSHAKE_MS = 30;
+
+    @Test
+    void testThroughput_PerMessageConnectionVersusPooledBatches() throws Exception {
+        try (FakeSmtpServer server = new FakeSmtpServer(HANDSHAKE_MS)) {
+            JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+            mailSender.setHost("localhost");
+            mailSender.setPort(server.getPort());
+            List<MimeMessage> messages = messages(mailSender);
+
+            double perMessage = run("connection per message", server, messages, 1, batch -> {
+                mailSender.send(batch.get(0));
+                return 1;
+            });
+
+            SmtpConnectionPool pool = new SmtpConnectionPool(mailSender, new SimpleMeterRegistry(), SENDERS, 100, 60000);
+            double pooled = run("pooled, batches of " + BATCH_SIZE, server, messages, BATCH_SIZE,
+                    batch -> (int) pool.send(batch).stream().filter(result -> result == null).count());
+            pool.closeAll();
+
+            System.out.printf("pooled/per-message speedup: %.1fx%n", pooled / perMessage);
+            assertTrue(pooled > perMessage, "Pooled batches should beat a connection per message");
+        }
+    }
+
+    private interface BatchSender {
+        int send(List<MimeMessage> batch) throws Exception;
+    }
+
+    private double run(String name, FakeSmtpServer server, List<MimeMessage> messages, int batchSize,
+                       BatchSender sender) throws Exception {
+        int connectionsBefore = server.getConnections();
+        ExecutorService executor = Executors.newFixedThreadPool(SENDERS);
+        long start = System.nanoTime();
+        List<Future<Integer>> futures = new ArrayList<>();
+        for (int from = 0; from < messages.size(); from += batchSize) {
+            List<MimeMessage> batch = messages.subList(from, Math.min(from + batchSize, messages.size()));
+            futures.add(executor.submit(() -> sender.send(batch)));
+        }
+        int sent = 0;
+        for (Future<Integer> future : futures) {
+            sent += future.get();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        executor.shutdown();
+        assertEquals(messages.size(), sent);
+        double throughput = sent / seconds;
+        System.out.printf("%-26s %5d messages in %6.2f s = %7.0f messages/s over %d connections%n",
+                name, sent, seconds, throughput, server.getConnections() - connectionsBefore);
+        return throughput;
+    }
+
+    private List<MimeMessage> messages(JavaMailSenderImpl mailSender) throws MessagingException {
+        List<MimeMessage> messages = new ArrayList<>(MESSAGES);
+        for (int i = 0; i < MESSAGES; i++) {
+            MimeMessage message = mailSender.createMimeMessage();
+            MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
+            helper.setFrom("noreply@example.com");
+            helper.setTo("member" + i + "@example.com");
+            helper.setSubject("Travel Plan Starting Soon: Plan " + (i / 10));
+            helper.setText("<p>Your travel plan is about to begin. Have a wonderful trip!</p>", true);
+            messages.add(message);
+        }
+        return messages;
+    }
+}
@@ -0,0 +1,126 @@
+package com.comp8047.majorproject.travelplanassistant.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.mail.javamail.MimeMessageHelper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for SmtpConnectionPool against a local fake SMTP server
+ * Checks that a batch shares one connection, connections are reused and capped, and failures stay per message
+ */
+class SmtpConnectionPoolTest {
+
+    private FakeSmtpServer server;
+    private JavaMailSenderImpl mailSender;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = new FakeSmtpServer(0);
+        mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("localhost");
+        mailSender.setPort(server.getPort());
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        server.close();
+    }
+
+    @Test
+    void testSend_BatchSharesOneConnectionAndIsReused() throws Exception {
+        SmtpConnectionPool pool = new SmtpConnectionPool(mailSender, new SimpleMeterRegistry(), 2, 100, 60000);
+
+        List<Exception> first = pool.send(messages("user", 5));
+        List<Exception> second = pool.send(messages("user", 5));
+
+        assertEquals(5, first.stream().filter(result -> result == null).count());
+        assertEquals(5, second.stream().filter(result -> result == null).count());
+        assertEquals(10, server.getMessages());
+        assertEquals(1, server.getConnections());
+        assertEquals(1, pool.openConnections());
+        pool.closeAll();
+        assertEquals(0, pool.openConnections());
+    }
+
+    @Test
+    void testSend_RejectedRecipientFailsOnlyItsMessage() throws Exception {
+        SmtpConnectionPool pool = new SmtpConnectionPool(mailSender, new SimpleMeterRegistry(), 2, 100, 60000);
+        List<MimeMessage> batch = messages("user", 3);
+        batch.add(1, message("reject@example.com"));
+
+        List<Exception> results = pool.send(batch);
+
+        assertNull(results.get(0));
+        assertInstanceOf(MessagingException.class, results.get(1));
+        assertNull(results.get(2));
+        assertNull(results.get(3));
+        assertEquals(3, server.getMessages());
+        assertEquals(1, server.getConnections());
+        pool.closeAll();
+    }
+
+    @Test
+    void testSend_ConnectionRetiredAfterMessageLimit() throws Exception {
+        SmtpConnectionPool pool = new SmtpConnectionPool(mailSender, new SimpleMeterRegistry(), 2, 3, 60000);
+
+        pool.send(messages("user", 3));
+        pool.send(messages("user", 2));
+
+        assertEquals(5, server.getMessages());
+        assertEquals(2, server.getConnections());
+        pool.closeAll();
+    }
+
+    @Test
+    void testSend_LargeBatchRotatesConnectionsAtMessageLimit() throws Exception {
+        SmtpConnectionPool pool = new SmtpConnectionPool(mailSender, new SimpleMeterRegistry(), 2, 3, 60000);
+
+        List<Exception> results = pool.send(messages("user", 7));
+
+        assertEquals(7, results.stream().filter(result -> result == null).count());
+        assertEquals(7, server.getMessages());
+        assertEquals(3, server.getConnections());
+        assertEquals(1, pool.openConnections());
+        pool.closeAll();
+    }
+
+    @Test
+    void testSend_UnreachableServerFailsWholeBatch() throws Exception {
+        server.close();
+        SmtpConnectionPool pool = new SmtpConnectionPool(mailSender, new SimpleMeterRegistry(), 2, 100, 60000);
+
+        List<Exception> results = pool.send(messages("user", 3));
+
+        assertEquals(3, results.size());
+        assertTrue(results.stream().allMatch(result -> result instanceof MessagingException));
+        assertEquals(0, pool.openConnections());
+    }
+
+    private List<MimeMessage> messages(String prefix, int count) throws MessagingException {
+        List<MimeMessage> messages = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            messages.add(message(prefix + i + "@example.com"));
+        }
+        return messages;
+    }
+
+    private MimeMessage message(String to) throws MessagingException {
+        MimeMessage message = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
+        helper.setFrom("noreply@example.com");
+        helper.setTo(to);
+        helper.setSubject("Travel Plan Starting Soon");
+        helper.setText("<p>Have a wonderful trip!</p>", true);
+        return message;
+    }
+}
@@ -0,0 +1,124 @@
+package com.comp8047.majorproject.travelplanassistant.service;
+
+import com.comp8047.majorproject.travelplanassistant.entity.TravelPlan;
+import com.comp8047.majorproject.travelplanassistant.entity.User;
+import com.comp8047.majorproject.travelplanassistant.entity.UserPlanStatus;
+import com.comp8047.majorproject.travelplanassistant.repository.TravelPlanRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for TopicSubscriptionGuard
+ * Tests that per-user topics are limited to their user, plan and chat topics to plan members, and other topics are refused
+ */
+@ExtendWith(MockitoExtension.class)
+class TopicSubscriptionGuardTest {
+
+    @Mock
+    private ChatService chatService;
+
+    @Mock
+    private TravelPlanRepository travelPlanRepository;
+
+    @InjectMocks
+    private TopicSubscriptionGuard topicSubscriptionGuard;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        user = new User();
+        user.setId(3L);
+    }
+
+    @Test
+    void testUserTopic_OnlyOwnUser() {
+        assertDoesNotThrow(() -> topicSubscriptionGuard.checkSubscribe("/topic/user/3/events", user));
+
+        assertThrows(TopicSubscriptionGuard.SubscriptionDeniedException.class,
+                () -> topicSubscriptionGuard.checkSubscribe("/topic/user/4/events", user));
+        assertThrows(TopicSubscriptionGuard.SubscriptionDeniedException.class,
+                () -> topicSubscriptionGuard.checkSubscribe("/topic/user/3/events", null));
+    }
+
+    @Test
+    void testNotificationTopic_ForeignOrUnauthenticatedRefused() {
+        assertDoesNotThrow(() -> topicSubscriptionGuard.checkSubscribe("/topic/user/3/notifications", user));
+
+        TopicSubscriptionGuard.SubscriptionDeniedException exception = assertThrows(TopicSubscriptionGuard.SubscriptionDeniedException.class,
+                () -> topicSubscriptionGuard.checkSubscribe("/topic/user/4/notifications", user));
+        assertEquals("Cannot subscribe to another user's topics", exception.getMessage());
+        assertThrows(TopicSubscriptionGuard.SubscriptionDeniedException.class,
+                () -> topicSubscriptionGuard.checkSubscribe("/topic/user/3/notifications", null));
+    }
+
+    @Test
+    void testOtherTopics_OnlyDiscoveryOpen() {
+        assertDoesNotThrow(() -> topicSubscriptionGuard.checkSubscribe("/topic/plans/events", null));
+
+        assertThrows(TopicSubscriptionGuard.SubscriptionDeniedException.class,
+                () -> topicSubscriptionGuard.checkSubscribe("/topic/user/4/notifications/extra", user));
+        assertThrows(TopicSubscriptionGuard.SubscriptionDeniedException.class,
+                () -> topicSubscriptionGuard.checkSubscribe("/topic/user/4", user));
+    }
+
+    @Test
+    void testPlanTopic_MemberAllowed() {
+        when(chatService.requireMembership(5L, user)).thenReturn(UserPlanStatus.Status.INVITED);
+
+        assertDoesNotThrow(() -> topicSubscriptionGuard.checkSubscribe("/topic/plan/5/events", user));
+        verifyNoInteractions(travelPlanRepository);
+    }
+
+    @Test
+    void testPlanTopic_PrivatePlanRefusedToNonMember() {
+        when(chatService.requireMembership(5L, user)).thenThrow(new IllegalStateException("User is not a member of this travel plan"));
+        when(travelPlanRepository.findById(5L)).thenReturn(Optional.of(plan(TravelPlan.PlanType.PRIVATE)));
+
+        assertThrows(TopicSubscriptionGuard.SubscriptionDeniedException.class,
+                () -> topicSubscriptionGuard.checkSubscribe("/topic/plan/5/events", user));
+    }
+
+    @Test
+    void testPlanTopic_PublicPlanOpenToViewers() {
+        when(travelPlanRepository.findById(5L)).thenReturn(Optional.of(plan(TravelPlan.PlanType.PUBLIC)));
+
+        assertDoesNotThrow(() -> topicSubscriptionGuard.checkSubscribe("/topic/plan/5/events", null));
+        verify(chatService, never()).requireMembership(any(), any());
+    }
+
+    @Test
+    void testChatTopic_NonMemberRefused() {
+        when(chatService.requireMembership(5L, user)).thenThrow(new IllegalStateException("User is not a member of this travel plan"));
+
+        assertThrows(TopicSubscriptionGuard.SubscriptionDeniedException.class,
+                () -> topicSubscriptionGuard.checkSubscribe("/topic/chat/5", user));
+        assertThrows(TopicSubscriptionGuard.SubscriptionDeniedException.class,
+                () -> topicSubscriptionGuard.checkSubscribe("/topic/chat/5", null));
+    }
+
+    @Test
+    void testWildcardSubscriptionRefused() {
+        assertThrows(TopicSubscriptionGuard.SubscriptionDeniedException.class,
+                () -> topicSubscriptionGuard.checkSubscribe("/topic/user/*/events", user));
+        assertThrows(TopicSubscriptionGuard.SubscriptionDeniedException.class,
+                () -> topicSubscriptionGuard.checkSubscribe("/topic/**", user));
+    }
+
+    private static TravelPlan plan(TravelPlan.PlanType planType) {
+        TravelPlan plan = new TravelPlan();
+        plan.setId(5L);
+        plan.setPlanType(planType);
+        return plan;
+    }
+}
@@ -4,24 +4,32 @@ import com.comp8047.majorproject.travelplanassistant.entity.TravelPlan;
 import com.comp8047.majorproject.travelplanassistant.entity.User;
 import com.comp8047.majorproject.travelplanassistant.entity.UserPlanStatus;
 import com.comp8047.majorproject.travelplanassistant.repository.TravelPlanRepository;
-import com.comp8047.majorproject.travelplanassistant.repository.UserPlanStatusRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
 
+import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
 /**
  * Unit tests for TravelPlanScheduler
- * Tests CRON job functionality for automatic plan start and completion
+ * Tests automatic plan start and completion, the lifecycle wake-ups that trigger them, chunked
+ * processing with per-plan failures and the lease that keeps other nodes out
  */
 @ExtendWith(MockitoExtension.class)
 class TravelPlanSchedulerTest {
@@ -30,10 +38,28 @@ class TravelPlanSchedulerTest {
     private TravelPlanRepository travelPlanRepository;
 
     @Mock
-    private UserPlanStatusRepository userPlanStatusRepository;
+    private NotificationService notificationService;
 
     @Mock
-    private NotificationService notificationService;
+    private PlanSearchIndex planSearchIndex;
+
+    @Mock
+    private DiscoveryCache discoveryCache;
+
+    @Mock
+    private PlanEventPublisher planEventPublisher;
+
+    @Mock
+    private PendingRequestRefusals pendingRequestRefusals;
+
+    @Mock
+    private CurrentPlanCache currentPlanCache;
+
+    @Mock
+    private SchedulerLeases schedulerLeases;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
 
     @InjectMocks
     private TravelPlanScheduler travelPlanScheduler;
@@ -41,9 +67,18 @@ class TravelPlanSchedulerTest {
     private TravelPlan testPlan;
     private User testUser;
     private UserPlanStatus userPlanStatus;
+    private MeterRegistry meterRegistry;
 
     @BeforeEach
     void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        ReflectionTestUtils.setField(travelPlanScheduler, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(travelPlanScheduler, "chunkSize", 2);
+        ReflectionTestUtils.setField(travelPlanScheduler, "workerThreads", 2);
+        ReflectionTestUtils.setField(travelPlanScheduler, "leaseSeconds", 300L);
+        travelPlanScheduler.start();
+        lenient().when(schedulerLeases.tryAcquire(eq(TravelPlanScheduler.LIFECYCLE_LEASE), any(Duration.class))).thenReturn(true);
+
         testUser = new User();
         testUser.setId(1L);
         testUser.setEmail("test@example.com");
@@ -67,37 +102,97 @@ class TravelPlanSchedulerTest {
         userPlanStatus.setCreatedAt(LocalDateTime.now());
     }
 
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        travelPlanScheduler.stop();
+    }
+
     @Test
     void testStartPlans_Success() {
         // Given
-        List<TravelPlan> plansToStart = Arrays.asList(testPlan);
-        List<UserPlanStatus> pendingStatuses = Arrays.asList(userPlanStatus);
+        testPlan.setStartDate(LocalDateTime.now().minusMinutes(1));
 
-        when(travelPlanRepository.findPlansToStartToday()).thenReturn(plansToStart);
-        when(userPlanStatusRepository.findPendingApplications(any(TravelPlan.class))).thenReturn(Arrays.asList());
-        when(userPlanStatusRepository.findPendingInvitations(any(TravelPlan.class))).thenReturn(Arrays.asList());
+        when(travelPlanRepository.findPlanIdsToStart(any(LocalDateTime.class), eq(0L), any(Pageable.class))).thenReturn(List.of(1L));
+        when(travelPlanRepository.findById(1L)).thenReturn(Optional.of(testPlan));
         when(travelPlanRepository.save(any(TravelPlan.class))).thenReturn(testPlan);
 
         // When
-        travelPlanScheduler.startPlansForToday();
+        travelPlanScheduler.startDuePlans();
 
         // Then
-        verify(travelPlanRepository).findPlansToStartToday();
-        verify(travelPlanRepository).save(any(TravelPlan.class));
+        assertEquals(TravelPlan.Status.IN_PROGRESS, testPlan.getStatus());
+        verify(pendingRequestRefusals).refuseAll(testPlan);
+        verify(travelPlanRepository).save(testPlan);
+        verify(notificationService).sendTravelPlanStartReminder(testPlan);
+        assertEquals(1.0, plansCounter("start", "processed"));
     }
 
     @Test
     void testStartPlans_NoPlansToStart() {
         // Given
-        List<TravelPlan> emptyPlans = Arrays.asList();
-        when(travelPlanRepository.findPlansToStartToday()).thenReturn(emptyPlans);
+        when(travelPlanRepository.findPlanIdsToStart(any(LocalDateTime.class), eq(0L), any(Pageable.class))).thenReturn(List.of());
 
         // When
-        travelPlanScheduler.startPlansForToday();
+        travelPlanScheduler.startDuePlans();
 
         // Then
-        verify(travelPlanRepository).findPlansToStartToday();
+        verify(travelPlanRepository).findPlanIdsToStart(any(LocalDateTime.class), eq(0L), any(Pageable.class));
         verify(travelPlanRepository, never()).save(any(TravelPlan.class));
+        assertEquals(1L, meterRegistry.get("plan.lifecycle.run").tag("transition", "start").timer().count());
+    }
+
+    @Test
+    void testStartPlans_PlanNoLongerDueSkipped() {
+        // Given: cancelled after its id was read
+        testPlan.setStatus(TravelPlan.Status.CANCELLED);
+        when(travelPlanRepository.findPlanIdsToStart(any(LocalDateTime.class), eq(0L), any(Pageable.class))).thenReturn(List.of(1L));
+        when(travelPlanRepository.findById(1L)).thenReturn(Optional.of(testPlan));
+
+        // When
+        travelPlanScheduler.startDuePlans();
+
+        // Then
+        verify(travelPlanRepository, never()).save(any(TravelPlan.class));
+        assertEquals(0.0, plansCounter("start", "processed"));
+    }
+
+    @Test
+    void testStartPlans_ChunksProcessedAndFailuresCounted() {
+        // Given: two full chunks and a partial one; plan 2 fails
+        when(travelPlanRepository.findPlanIdsToStart(any(LocalDateTime.class), eq(0L), any(Pageable.class))).thenReturn(List.of(1L, 2L));
+        when(travelPlanRepository.findPlanIdsToStart(any(LocalDateTime.class), eq(2L), any(Pageable.class))).thenReturn(List.of(3L, 4L));
+        when(travelPlanRepository.findPlanIdsToStart(any(LocalDateTime.class), eq(4L), any(Pageable.class))).thenReturn(List.of(5L));
+        for (long id = 1; id <= 5; id++) {
+            if (id == 2) {
+                when(travelPlanRepository.findById(2L)).thenThrow(new IllegalStateException("Database unavailable"));
+            } else {
+                when(travelPlanRepository.findById(id)).thenReturn(Optional.of(duePlan(id)));
+            }
+        }
+
+        // When
+        travelPlanScheduler.startDuePlans();
+
+        // Then
+        verify(travelPlanRepository, times(4)).save(any(TravelPlan.class));
+        verify(schedulerLeases, times(3)).tryAcquire(eq(TravelPlanScheduler.LIFECYCLE_LEASE), any(Duration.class));
+        assertEquals(4.0, plansCounter("start", "processed"));
+        assertEquals(1.0, plansCounter("start", "failed"));
+    }
+
+    @Test
+    void testRunPass_SkippedWhileAnotherNodeHoldsLease() {
+        // Given
+        when(schedulerLeases.tryAcquire(eq(TravelPlanScheduler.LIFECYCLE_LEASE), any(Duration.class))).thenReturn(false);
+
+        // When
+        travelPlanScheduler.runPass(true, true);
+
+        // Then
+        verify(travelPlanRepository, never()).findPlanIdsToStart(any(), any(), any());
+        verify(travelPlanRepository, never()).findPlanIdsToComplete(any(), any(), any());
+        assertEquals(2.0, meterRegistry.get("plan.lifecycle.skipped").counter().count());
+        verify(schedulerLeases).release(TravelPlanScheduler.LIFECYCLE_LEASE);
     }
 
     @Test
@@ -105,31 +200,103 @@ class TravelPlanSchedulerTest {
         // Given
         testPlan.setStatus(TravelPlan.Status.IN_PROGRESS);
         testPlan.setEndDate(LocalDateTime.now().minusDays(1)); // Plan ended yesterday
-        List<TravelPlan> plansToComplete = Arrays.asList(testPlan);
 
-        when(travelPlanRepository.findPlansToCompleteToday()).thenReturn(plansToComplete);
+        when(travelPlanRepository.findPlanIdsToComplete(any(LocalDateTime.class), eq(0L), any(Pageable.class))).thenReturn(List.of(1L));
+        when(travelPlanRepository.findById(1L)).thenReturn(Optional.of(testPlan));
         when(travelPlanRepository.save(any(TravelPlan.class))).thenReturn(testPlan);
 
         // When
-        travelPlanScheduler.completePlansForToday();
+        travelPlanScheduler.completeDuePlans();
 
         // Then
-        verify(travelPlanRepository).findPlansToCompleteToday();
-        verify(travelPlanRepository).save(any(TravelPlan.class));
+        assertEquals(TravelPlan.Status.COMPLETED, testPlan.getStatus());
+        verify(travelPlanRepository).save(testPlan);
+        verify(notificationService).sendTravelPlanCompletionReminder(testPlan);
+        verify(currentPlanCache).planEnded(1L);
+        assertEquals(1.0, plansCounter("complete", "processed"));
     }
 
     @Test
     void testCompletePlans_NoPlansToComplete() {
         // Given
-        List<TravelPlan> emptyPlans = Arrays.asList();
-
-        when(travelPlanRepository.findPlansToCompleteToday()).thenReturn(emptyPlans);
+        when(travelPlanRepository.findPlanIdsToComplete(any(LocalDateTime.class), eq(0L), any(Pageable.class))).thenReturn(List.of());
 
         // When
-        travelPlanScheduler.completePlansForToday();
+        travelPlanScheduler.completeDuePlans();
 
         // Then
-        verify(travelPlanRepository).findPlansToCompleteToday();
+        verify(travelPlanRepository).findPlanIdsToComplete(any(LocalDateTime.class), eq(0L), any(Pageable.class));
         verify(travelPlanRepository, never()).save(any(TravelPlan.class));
     }
-}
\ No newline at end of file
+
+    @Test
+    void testReconcileActiveMemberCounts() {
+        // Given
+        when(travelPlanRepository.reconcileActiveMemberCounts()).thenReturn(2);
+
+        // When
+        travelPlanScheduler.reconcileActiveMemberCounts();
+
+        // Then
+        verify(travelPlanRepository).reconcileActiveMemberCounts();
+        verify(planSearchIndex).rebuild();
+        verify(discoveryCache).invalidateAll();
+    }
+
+    @Test
+    void testRefresh_QueuesDueAndUpcomingTimesOnce() {
+        // Given
+        ReflectionTestUtils.setField(travelPlanScheduler, "lifecycleEnabled", true);
+        ReflectionTestUtils.setField(travelPlanScheduler, "horizonMinutes", 60L);
+        LocalDateTime startTime = LocalDateTime.now().plusMinutes(20);
+        LocalDateTime endTime = LocalDateTime.now().plusMinutes(40);
+        when(travelPlanRepository.findStartTimesBetween(any(LocalDateTime.class), any(LocalDateTime.class)))
+                .thenReturn(List.of(startTime));
+        when(travelPlanRepository.findEndTimesBetween(any(LocalDateTime.class), any(LocalDateTime.class)))
+                .thenReturn(List.of(endTime));
+
+        // When
+        travelPlanScheduler.refresh();
+        travelPlanScheduler.refresh();
+
+        // Then: an immediate start and complete pass per refresh, and each upcoming time once
+        assertEquals(6, travelPlanScheduler.pendingWakeups());
+    }
+
+    @Test
+    void testLifecycle_StartsPlansAtTheirStartTime() throws InterruptedException {
+        // Given
+        ReflectionTestUtils.setField(travelPlanScheduler, "lifecycleEnabled", true);
+        when(travelPlanRepository.findPlanIdsToStart(any(LocalDateTime.class), eq(0L), any(Pageable.class))).thenReturn(List.of());
+        travelPlanScheduler.start();
+
+        try {
+            // When
+            LocalDateTime startTime = LocalDateTime.now().plusNanos(200_000_000L);
+            travelPlanScheduler.schedule(new TravelPlanScheduler.Wakeup(TravelPlanScheduler.Transition.START, startTime));
+
+            // Then
+            verify(travelPlanRepository, timeout(2000)).findPlanIdsToStart(argThat(now -> !now.isBefore(startTime)), eq(0L), any(Pageable.class));
+            verify(travelPlanRepository, never()).findPlanIdsToComplete(any(), any(), any());
+            verify(schedulerLeases, timeout(2000)).release(TravelPlanScheduler.LIFECYCLE_LEASE);
+            assertEquals(0, travelPlanScheduler.pendingWakeups());
+        } finally {
+            travelPlanScheduler.stop();
+        }
+    }
+
+    private TravelPlan duePlan(Long id) {
+        TravelPlan plan = new TravelPlan();
+        plan.setId(id);
+        plan.setTitle("Plan " + id);
+        plan.setStartDate(LocalDateTime.now().minusMinutes(5));
+        plan.setEndDate(LocalDateTime.now().plusDays(3));
+        plan.setStatus(TravelPlan.Status.NEW);
+        plan.setOwner(testUser);
+        return plan;
+    }
+
+    private double plansCounter(String transition, String result) {
+        return meterRegistry.get("plan.lifecycle.plans").tag("transition", transition).tag("result", result).counter().count();
+    }
+}
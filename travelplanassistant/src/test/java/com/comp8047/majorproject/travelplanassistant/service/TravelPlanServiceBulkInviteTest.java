@@ -0,0 +1,196 @@
+package com.comp8047.majorproject.travelplanassistant.service;
+
+import com.comp8047.majorproject.travelplanassistant.dto.BulkInviteRequest;
+import com.comp8047.majorproject.travelplanassistant.dto.BulkInviteResponse;
+import com.comp8047.majorproject.travelplanassistant.entity.TravelPlan;
+import com.comp8047.majorproject.travelplanassistant.entity.User;
+import com.comp8047.majorproject.travelplanassistant.entity.UserPlanStatus;
+import com.comp8047.majorproject.travelplanassistant.repository.TravelPlanRepository;
+import com.comp8047.majorproject.travelplanassistant.repository.UserPlanStatusRepository;
+import com.comp8047.majorproject.travelplanassistant.repository.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.Validation;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for TravelPlanService.inviteUsers against the embedded database
+ * Covers the per-email outcomes, the batch insert and that lookups do not grow with the number of invitees
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("test")
+class TravelPlanServiceBulkInviteTest {
+
+    @Autowired
+    private TravelPlanRepository travelPlanRepository;
+
+    @Autowired
+    private UserPlanStatusRepository userPlanStatusRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private TravelPlanService travelPlanService;
+    private NotificationService notificationService;
+    private Statistics statistics;
+    private int userSequence;
+
+    @BeforeEach
+    void setUp() {
+        travelPlanService = new TravelPlanService(travelPlanRepository, userPlanStatusRepository, userRepository, new ObjectMapper(),
+                new PlanSearchIndex(), new DiscoveryCache(new SimpleMeterRegistry(), 100, 0), new PlanEventPublisher(mock(SimpMessagingTemplate.class), mock(ApplicationEventPublisher.class)),
+                new CurrentPlanCache(new SimpleMeterRegistry(), 100, true));
+        notificationService = mock(NotificationService.class);
+        ReflectionTestUtils.setField(travelPlanService, "notificationService", notificationService);
+        ReflectionTestUtils.setField(travelPlanService, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(travelPlanService, "validator", Validation.buildDefaultValidatorFactory().getValidator());
+        statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void testInviteUsers_OutcomePerEmailInRequestOrder() {
+        // Given
+        User owner = createUser();
+        TravelPlan plan = createPlan(owner);
+        User free = createUser();
+        User busy = createUser();
+        createPlan(busy);
+        User refused = createUser();
+        userPlanStatusRepository.save(new UserPlanStatus(refused, plan, UserPlanStatus.Status.INVITED_REFUSED));
+
+        // When
+        BulkInviteResponse response = travelPlanService.inviteUsers(plan.getId(), List.of(
+                " " + free.getEmail() + " ", "nobody@example.com", busy.getEmail(), refused.getEmail(),
+                free.getEmail().toUpperCase(), "not-an-email"), owner);
+
+        // Then
+        assertEquals(List.of(BulkInviteResponse.Outcome.INVITED, BulkInviteResponse.Outcome.USER_NOT_FOUND,
+                        BulkInviteResponse.Outcome.CURRENT_PLAN, BulkInviteResponse.Outcome.ALREADY_RELATED,
+                        BulkInviteResponse.Outcome.DUPLICATE, BulkInviteResponse.Outcome.INVALID_EMAIL),
+                response.getResults().stream().map(BulkInviteResponse.InviteResult::getOutcome).toList());
+        assertEquals(free.getEmail(), response.getResults().get(0).getEmail());
+        assertEquals("Invitee already has a current travel plan", response.getResults().get(2).getMessage());
+        assertEquals("User has already refused to join the plan", response.getResults().get(3).getMessage());
+        assertEquals(1, response.getInvitedCount());
+        assertTrue(response.getPlan().getMembers().stream()
+                .anyMatch(member -> member.getUserId().equals(free.getId()) && member.getUserPlanStatus() == UserPlanStatus.Status.INVITED));
+        verify(notificationService).sendInvitationNotifications(eq(List.of(free)), any(TravelPlan.class), eq(owner));
+    }
+
+    @Test
+    void testInviteUsers_MalformedEmailsInvalid() {
+        User owner = createUser();
+        TravelPlan plan = createPlan(owner);
+
+        BulkInviteResponse response = travelPlanService.inviteUsers(plan.getId(),
+                List.of("a@", "a@b@c", "@example.com", " ", "first last@example.com"), owner);
+
+        assertTrue(response.getResults().stream()
+                .allMatch(result -> result.getOutcome() == BulkInviteResponse.Outcome.INVALID_EMAIL));
+        assertEquals(0, response.getInvitedCount());
+        // The request body is rejected by the same element constraints
+        assertEquals(2, Validation.buildDefaultValidatorFactory().getValidator()
+                .validate(new BulkInviteRequest(List.of("a@", "a@b@c", owner.getEmail()))).size());
+    }
+
+    @Test
+    void testInviteUsers_RowsInsertedAndLookupsIndependentOfInviteeCount() {
+        // Given
+        User owner = createUser();
+        TravelPlan plan = createPlan(owner);
+        List<String> few = emailsOfNewUsers(2);
+        List<String> many = emailsOfNewUsers(10);
+
+        // When
+        long fewInvitees = countStatements(() -> travelPlanService.inviteUsers(plan.getId(), few, owner));
+        long manyInvitees = countStatements(() -> travelPlanService.inviteUsers(plan.getId(), many, owner));
+
+        // Then
+        assertEquals(fewInvitees, manyInvitees);
+        assertEquals(12, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM user_plan_status WHERE travel_plan_id = ? AND status = 'INVITED' AND invited_at IS NOT NULL",
+                Integer.class, plan.getId()));
+        ArgumentCaptor<List<User>> invitees = ArgumentCaptor.forClass(List.class);
+        verify(notificationService, times(2)).sendInvitationNotifications(invitees.capture(), any(TravelPlan.class), eq(owner));
+        assertEquals(10, invitees.getValue().size());
+    }
+
+    @Test
+    void testInviteUsers_NotOwnerRejected() {
+        User owner = createUser();
+        TravelPlan plan = createPlan(owner);
+        User other = createUser();
+
+        IllegalStateException exception = assertThrows(IllegalStateException.class,
+                () -> travelPlanService.inviteUsers(plan.getId(), List.of(createUser().getEmail()), other));
+
+        assertEquals("Only plan owner can send invitations", exception.getMessage());
+        verifyNoInteractions(notificationService);
+    }
+
+    private long countStatements(Runnable call) {
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+        call.run();
+        return statistics.getPrepareStatementCount();
+    }
+
+    private List<String> emailsOfNewUsers(int count) {
+        List<String> emails = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            emails.add(createUser().getEmail());
+        }
+        return emails;
+    }
+
+    private User createUser() {
+        userSequence++;
+        User user = new User("user" + userSequence + "@example.com", "password", "First", "Last",
+                User.Gender.MALE, 1990, 1, "English", "Canada", "Vancouver");
+        return userRepository.save(user);
+    }
+
+    private TravelPlan createPlan(User owner) {
+        TravelPlan plan = new TravelPlan();
+        plan.setTitle("Plan " + userSequence);
+        plan.setPlanType(TravelPlan.PlanType.PUBLIC);
+        plan.setCategory(TravelPlan.Category.TRIP);
+        plan.setStartDate(LocalDateTime.now().plusDays(30));
+        plan.setEndDate(LocalDateTime.now().plusDays(37));
+        plan.setMaxMembers(20);
+        plan.setDescription("A test travel plan");
+        plan.setGender(TravelPlan.GenderPreference.ANY);
+        plan.setOwner(owner);
+        plan.setActiveMemberCount(1);
+        plan = travelPlanRepository.save(plan);
+        userPlanStatusRepository.save(new UserPlanStatus(owner, plan, UserPlanStatus.Status.OWNED));
+        return plan;
+    }
+}
@@ -0,0 +1,145 @@
+package com.comp8047.majorproject.travelplanassistant.service;
+
+import com.comp8047.majorproject.travelplanassistant.dto.DiscoveryPageResponse;
+import com.comp8047.majorproject.travelplanassistant.dto.TravelPlanResponse;
+import com.comp8047.majorproject.travelplanassistant.entity.TravelPlan;
+import com.comp8047.majorproject.travelplanassistant.entity.User;
+import com.comp8047.majorproject.travelplanassistant.entity.UserPlanStatus;
+import com.comp8047.majorproject.travelplanassistant.repository.TravelPlanRepository;
+import com.comp8047.majorproject.travelplanassistant.repository.UserPlanStatusRepository;
+import com.comp8047.majorproject.travelplanassistant.repository.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Query count regression tests for TravelPlanService list endpoints
+ * Verifies that member hydration does not issue one query per plan
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("test")
+class TravelPlanServiceQueryCountTest {
+
+    @Autowired
+    private TravelPlanRepository travelPlanRepository;
+
+    @Autowired
+    private UserPlanStatusRepository userPlanStatusRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private TravelPlanService travelPlanService;
+
+    private Statistics statistics;
+
+    private int userSequence;
+
+    @BeforeEach
+    void setUp() {
+        travelPlanService = new TravelPlanService(travelPlanRepository, userPlanStatusRepository, userRepository, new ObjectMapper(),
+                new PlanSearchIndex(), new DiscoveryCache(new SimpleMeterRegistry(), 100, 0), new PlanEventPublisher(mock(SimpMessagingTemplate.class), mock(ApplicationEventPublisher.class)),
+                new CurrentPlanCache(new SimpleMeterRegistry(), 100, true));
+        statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void testGetPublicNewPlans_QueryCountIndependentOfPageSize() {
+        // Given
+        User viewer = createUser();
+        for (int i = 0; i < 10; i++) {
+            createPlanWithMembers(createUser(), 2);
+        }
+
+        // When
+        long smallPage = countStatements(() -> travelPlanService.getPublicNewPlans(viewer.getId(), null, 2));
+        long largePage = countStatements(() -> travelPlanService.getPublicNewPlans(viewer.getId(), null, 10));
+
+        // Then
+        // Viewer, candidate plan ids, viewer's plan ids, the page's plans, one member batch
+        assertTrue(smallPage <= 5, "Statements for one discovery page: " + smallPage);
+        assertEquals(smallPage, largePage);
+        DiscoveryPageResponse page = travelPlanService.getPublicNewPlans(viewer.getId(), null, 10);
+        assertEquals(10, page.getPlans().size());
+        page.getPlans().forEach(plan -> {
+            assertEquals(3, plan.getMembers().size());
+            assertEquals(3, plan.getCurrentMemberCount());
+        });
+    }
+
+    @Test
+    void testGetCurrentPlans_QueryCountIndependentOfPlanCount() {
+        // Given
+        User fewPlansUser = createUser();
+        User manyPlansUser = createUser();
+        createPlanWithMembers(fewPlansUser, 2);
+        for (int i = 0; i < 8; i++) {
+            createPlanWithMembers(manyPlansUser, 2);
+        }
+
+        // When
+        long fewPlans = countStatements(() -> travelPlanService.getCurrentPlans(fewPlansUser.getId()));
+        long manyPlans = countStatements(() -> travelPlanService.getCurrentPlans(manyPlansUser.getId()));
+
+        // Then
+        // The user's plans, one member batch
+        assertTrue(fewPlans <= 2, "Statements for current plans: " + fewPlans);
+        assertEquals(fewPlans, manyPlans);
+        List<TravelPlanResponse> plans = travelPlanService.getCurrentPlans(manyPlansUser.getId());
+        assertEquals(8, plans.size());
+        plans.forEach(plan -> assertEquals(UserPlanStatus.Status.OWNED, plan.getUserPlanStatus()));
+    }
+
+    private long countStatements(Supplier<?> call) {
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+        call.get();
+        return statistics.getPrepareStatementCount();
+    }
+
+    private User createUser() {
+        userSequence++;
+        User user = new User("user" + userSequence + "@example.com", "password", "First", "Last",
+                User.Gender.MALE, 1990, 1, "English", "Canada", "Vancouver");
+        return userRepository.save(user);
+    }
+
+    private void createPlanWithMembers(User owner, int acceptedMembers) {
+        TravelPlan plan = new TravelPlan();
+        plan.setTitle("Plan " + userSequence);
+        plan.setPlanType(TravelPlan.PlanType.PUBLIC);
+        plan.setCategory(TravelPlan.Category.TRIP);
+        plan.setStartDate(LocalDateTime.now().plusDays(30));
+        plan.setEndDate(LocalDateTime.now().plusDays(37));
+        plan.setMaxMembers(10);
+        plan.setDescription("A test travel plan");
+        plan.setGender(TravelPlan.GenderPreference.ANY);
+        plan.setOwner(owner);
+        plan.setActiveMemberCount(1 + acceptedMembers);
+        plan = travelPlanRepository.save(plan);
+        userPlanStatusRepository.save(new UserPlanStatus(owner, plan, UserPlanStatus.Status.OWNED));
+        for (int i = 0; i < acceptedMembers; i++) {
+            userPlanStatusRepository.save(new UserPlanStatus(createUser(), plan, UserPlanStatus.Status.APPLIED_ACCEPTED));
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.comp8047.majorproject.travelplanassistant.service;
 
+import com.comp8047.majorproject.travelplanassistant.dto.DiscoveryPageResponse;
 import com.comp8047.majorproject.travelplanassistant.dto.TravelPlanRequest;
 import com.comp8047.majorproject.travelplanassistant.dto.TravelPlanResponse;
 import com.comp8047.majorproject.travelplanassistant.entity.TravelPlan;
@@ -18,9 +19,11 @@ import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -48,6 +51,18 @@ class TravelPlanServiceTest {
     @Mock
     private NotificationService notificationService;
 
+    @Mock
+    private PlanSearchIndex planSearchIndex;
+
+    @Mock
+    private DiscoveryCache discoveryCache;
+
+    @Mock
+    private PlanEventPublisher planEventPublisher;
+
+    @Mock
+    private CurrentPlanCache currentPlanCache;
+
     @InjectMocks
     private TravelPlanService travelPlanService;
 
@@ -132,7 +147,7 @@ class TravelPlanServiceTest {
         // Given
         planRequest.setStartDate(LocalDate.now().plusDays(10));
         planRequest.setEndDate(LocalDate.now().plusDays(5)); // End date before start date
-        when(travelPlanRepository.userHasCurrentPlan(any())).thenReturn(false);
+        when(travelPlanRepository.findCurrentPlanStatuses(any())).thenReturn(List.of());
         when(travelPlanRepository.save(any(TravelPlan.class))).thenReturn(null); // Simulate save failure
 
         // When & Then
@@ -147,7 +162,7 @@ class TravelPlanServiceTest {
     void testCreateTravelPlan_InvalidMaxMembers() {
         // Given
         planRequest.setMaxMembers(0); // Invalid max members
-        when(travelPlanRepository.userHasCurrentPlan(any())).thenReturn(false);
+        when(travelPlanRepository.findCurrentPlanStatuses(any())).thenReturn(List.of());
         when(travelPlanRepository.save(any(TravelPlan.class))).thenReturn(null); // Simulate save failure
 
         // When & Then
@@ -164,36 +179,189 @@ class TravelPlanServiceTest {
         TravelPlan publicPlan = new TravelPlan();
         publicPlan.setId(2L);
         publicPlan.setTitle("Public Plan");
+        publicPlan.setPlanType(TravelPlan.PlanType.PUBLIC);
         publicPlan.setStatus(TravelPlan.Status.NEW);
         publicPlan.setMaxMembers(4);
         publicPlan.setOwner(testUser2);
 
-        List<TravelPlan> plans = Arrays.asList(publicPlan);
-        when(travelPlanRepository.findByPlanTypeAndStatus(TravelPlan.PlanType.PUBLIC, TravelPlan.Status.NEW)).thenReturn(plans);
+        List<Object[]> candidateRows = new ArrayList<>();
+        candidateRows.add(new Object[]{2L, publicPlan.getCreatedAt(), null, null});
+        DiscoveryCache.Cohort cohort = DiscoveryCache.Cohort.of(TravelPlan.GenderPreference.MALE, "English");
         when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
-        when(userPlanStatusRepository.findByUserAndTravelPlan(any(), any())).thenReturn(Optional.empty());
+        when(discoveryCache.get(cohort)).thenReturn(null);
+        when(travelPlanRepository.findDiscoveryCandidates(eq(TravelPlan.GenderPreference.MALE), eq("english"), any()))
+                .thenReturn(candidateRows);
+        when(discoveryCache.put(eq(cohort), anyList(), eq(true), anyLong()))
+                .thenAnswer(invocation -> new DiscoveryCache.Entry(invocation.getArgument(1), true, Long.MAX_VALUE));
+        when(userPlanStatusRepository.findPlanIdsByUserId(1L)).thenReturn(Arrays.asList());
+        when(travelPlanRepository.findWithOwnerByIdIn(Arrays.asList(2L))).thenReturn(Arrays.asList(publicPlan));
 
         // When
-        List<TravelPlanResponse> result = travelPlanService.getPublicNewPlans(1L);
+        DiscoveryPageResponse result = travelPlanService.getPublicNewPlans(1L, null, null);
 
         // Then
         assertNotNull(result);
-        verify(travelPlanRepository).findByPlanTypeAndStatus(TravelPlan.PlanType.PUBLIC, TravelPlan.Status.NEW);
+        assertEquals(1, result.getPlans().size());
+        assertFalse(result.isHasMore());
+        assertNull(result.getNextCursor());
+        verify(travelPlanRepository, never()).findDiscoveryPlans(any(), any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void testGetPublicNewPlans_ReturnsCursorWhenMorePlansExist() {
+        // Given
+        TravelPlan first = discoverablePlan(3L, LocalDateTime.of(2025, 7, 22, 5, 0));
+        TravelPlan second = discoverablePlan(2L, LocalDateTime.of(2025, 7, 21, 5, 0));
+        cacheCandidates(true, first, second);
+        when(userPlanStatusRepository.findPlanIdsByUserId(1L)).thenReturn(Arrays.asList());
+        when(travelPlanRepository.findWithOwnerByIdIn(Arrays.asList(3L, 2L))).thenReturn(Arrays.asList(first, second));
+
+        // When
+        DiscoveryPageResponse page = travelPlanService.getPublicNewPlans(1L, null, 1);
+
+        // Then
+        assertEquals(1, page.getPlans().size());
+        assertTrue(page.isHasMore());
+        assertNotNull(page.getNextCursor());
+
+        // The cursor resumes strictly after the last plan of the previous page
+        when(travelPlanRepository.findWithOwnerByIdIn(Arrays.asList(2L))).thenReturn(Arrays.asList(second));
+        DiscoveryPageResponse next = travelPlanService.getPublicNewPlans(1L, page.getNextCursor(), 1);
+        assertEquals(2L, next.getPlans().get(0).getId());
+        assertFalse(next.isHasMore());
+    }
+
+    @Test
+    void testGetPublicNewPlans_WalksPastStaleCandidatesForHasMore() {
+        // Given: plan 3 closed after the candidates were cached
+        TravelPlan newest = discoverablePlan(4L, LocalDateTime.of(2025, 7, 23, 5, 0));
+        TravelPlan closed = discoverablePlan(3L, LocalDateTime.of(2025, 7, 22, 5, 0));
+        TravelPlan oldest = discoverablePlan(2L, LocalDateTime.of(2025, 7, 21, 5, 0));
+        cacheCandidates(true, newest, closed, oldest);
+        when(userPlanStatusRepository.findPlanIdsByUserId(1L)).thenReturn(Arrays.asList());
+        when(travelPlanRepository.findWithOwnerByIdIn(Arrays.asList(4L, 3L))).thenReturn(Arrays.asList(newest));
+        when(travelPlanRepository.findWithOwnerByIdIn(Arrays.asList(2L))).thenReturn(Arrays.asList(oldest));
+
+        // When
+        DiscoveryPageResponse page = travelPlanService.getPublicNewPlans(1L, null, 1);
+
+        // Then
+        assertEquals(4L, page.getPlans().get(0).getId());
+        assertTrue(page.isHasMore());
+        assertNotNull(page.getNextCursor());
+    }
+
+    @Test
+    void testGetPublicNewPlans_ExcludesPlansUserRelatesTo() {
+        // Given
+        TravelPlan applied = discoverablePlan(3L, LocalDateTime.of(2025, 7, 22, 5, 0));
+        TravelPlan open = discoverablePlan(2L, LocalDateTime.of(2025, 7, 21, 5, 0));
+        cacheCandidates(true, applied, open);
+        when(userPlanStatusRepository.findPlanIdsByUserId(1L)).thenReturn(Arrays.asList(3L));
+        when(travelPlanRepository.findWithOwnerByIdIn(Arrays.asList(2L))).thenReturn(Arrays.asList(open));
+
+        // When
+        DiscoveryPageResponse page = travelPlanService.getPublicNewPlans(1L, null, 10);
+
+        // Then
+        assertEquals(1, page.getPlans().size());
+        assertEquals(2L, page.getPlans().get(0).getId());
+        verify(travelPlanRepository, never()).findDiscoveryCandidates(any(), any(), any());
+    }
+
+    @Test
+    void testGetPublicNewPlans_AppliesAgeLimitsToSharedCandidates() {
+        // Given: the cohort's list is shared by every age, so the user's age is checked per request
+        testUser.setBirthMonth(1);
+        TravelPlan youthOnly = discoverablePlan(3L, LocalDateTime.of(2025, 7, 22, 5, 0));
+        youthOnly.setAgeMax(25);
+        TravelPlan open = discoverablePlan(2L, LocalDateTime.of(2025, 7, 21, 5, 0));
+        open.setAgeMin(18);
+        cacheCandidates(true, youthOnly, open);
+        when(userPlanStatusRepository.findPlanIdsByUserId(1L)).thenReturn(Arrays.asList());
+        when(travelPlanRepository.findWithOwnerByIdIn(Arrays.asList(2L))).thenReturn(Arrays.asList(open));
+
+        // When
+        DiscoveryPageResponse page = travelPlanService.getPublicNewPlans(1L, null, 10);
+
+        // Then
+        assertEquals(1, page.getPlans().size());
+        assertEquals(2L, page.getPlans().get(0).getId());
+        verify(discoveryCache).get(DiscoveryCache.Cohort.of(TravelPlan.GenderPreference.MALE, "English"));
+    }
+
+    @Test
+    void testGetPublicNewPlans_FallsBackToQueryWhenCachedListIsTruncated() {
+        // Given
+        TravelPlan cached = discoverablePlan(3L, LocalDateTime.of(2025, 7, 22, 5, 0));
+        TravelPlan older = discoverablePlan(2L, LocalDateTime.of(2025, 7, 21, 5, 0));
+        cacheCandidates(false, cached);
+        when(userPlanStatusRepository.findPlanIdsByUserId(1L)).thenReturn(Arrays.asList());
+        when(travelPlanRepository.findDiscoveryPlans(eq(1L), any(), any(), any(), isNull(), isNull(), any()))
+                .thenReturn(Arrays.asList(cached, older));
+
+        // When
+        DiscoveryPageResponse page = travelPlanService.getPublicNewPlans(1L, null, 10);
+
+        // Then
+        assertEquals(2, page.getPlans().size());
+        verify(travelPlanRepository, never()).findWithOwnerByIdIn(any());
+    }
+
+    private TravelPlan discoverablePlan(Long id, LocalDateTime createdAt) {
+        TravelPlan plan = new TravelPlan();
+        plan.setId(id);
+        plan.setPlanType(TravelPlan.PlanType.PUBLIC);
+        plan.setStatus(TravelPlan.Status.NEW);
+        plan.setMaxMembers(4);
+        plan.setOwner(testUser2);
+        plan.setCreatedAt(createdAt);
+        return plan;
+    }
+
+    private void cacheCandidates(boolean complete, TravelPlan... plans) {
+        List<DiscoveryCache.Candidate> candidates = Arrays.stream(plans)
+                .map(plan -> new DiscoveryCache.Candidate(plan.getId(), plan.getCreatedAt(), plan.getAgeMin(), plan.getAgeMax()))
+                .collect(Collectors.toList());
+        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+        when(discoveryCache.get(any())).thenReturn(new DiscoveryCache.Entry(candidates, complete, Long.MAX_VALUE));
     }
 
     @Test
     void testSearchPublicPlans_Success() {
         // Given
         String keyword = "Paris";
-        List<TravelPlan> plans = Arrays.asList(testPlan);
-        when(travelPlanRepository.findByPlanTypeAndStatus(TravelPlan.PlanType.PUBLIC, TravelPlan.Status.NEW)).thenReturn(plans);
+        TravelPlan relatedPlan = new TravelPlan();
+        relatedPlan.setId(2L);
+        relatedPlan.setOwner(testUser2);
+        relatedPlan.setMaxMembers(4);
+        relatedPlan.setStatus(TravelPlan.Status.NEW);
+        relatedPlan.setPlanType(TravelPlan.PlanType.PUBLIC);
+        when(planSearchIndex.search(eq(keyword), anyInt())).thenReturn(Arrays.asList(2L, 1L));
+        when(travelPlanRepository.findWithOwnerByIdIn(Arrays.asList(2L, 1L))).thenReturn(Arrays.asList(testPlan, relatedPlan));
+        when(userPlanStatusRepository.findRelatedPlanIds(1L, Arrays.asList(2L, 1L))).thenReturn(Arrays.asList(2L));
 
         // When
         List<TravelPlanResponse> result = travelPlanService.searchPublicPlans(keyword, 1L);
 
         // Then
         assertNotNull(result);
-        verify(travelPlanRepository).findByPlanTypeAndStatus(TravelPlan.PlanType.PUBLIC, TravelPlan.Status.NEW);
+        assertEquals(1, result.size());
+        assertEquals(1L, result.get(0).getId());
+        verify(travelPlanRepository, never()).findByPlanTypeAndStatus(any(), any());
+    }
+
+    @Test
+    void testSearchPublicPlans_NoIndexHits() {
+        // Given
+        when(planSearchIndex.search(eq("Atlantis"), anyInt())).thenReturn(Arrays.asList());
+
+        // When
+        List<TravelPlanResponse> result = travelPlanService.searchPublicPlans("Atlantis", 1L);
+
+        // Then
+        assertTrue(result.isEmpty());
+        verify(travelPlanRepository, never()).findWithOwnerByIdIn(any());
     }
 
     @Test
@@ -201,30 +369,42 @@ class TravelPlanServiceTest {
         // Given
         List<TravelPlan> plans = Arrays.asList(testPlan);
         when(travelPlanRepository.getCurrentPlans(1L)).thenReturn(plans);
-        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
-        when(userPlanStatusRepository.findByUserAndTravelPlan(any(), any())).thenReturn(Optional.of(userPlanStatus));
+        when(userPlanStatusRepository.findByTravelPlanIdsWithUser(eq(List.of(1L)), anyList()))
+                .thenReturn(Arrays.asList(userPlanStatus));
 
         // When
         List<TravelPlanResponse> result = travelPlanService.getCurrentPlans(1L);
 
         // Then
         assertNotNull(result);
+        assertEquals(1, result.size());
+        assertEquals(UserPlanStatus.Status.APPLIED, result.get(0).getUserPlanStatus());
+        assertEquals(1, result.get(0).getMembers().size());
         verify(travelPlanRepository).getCurrentPlans(1L);
+        // Members for the whole list are loaded in one batch, not per plan
+        verify(userPlanStatusRepository, times(1)).findByTravelPlanIdsWithUser(anyList(), anyList());
+        verify(userPlanStatusRepository, never()).findByUserAndTravelPlan(any(), any());
     }
 
     @Test
     void testGetHistoryPlans_Success() {
         // Given
         testPlan.setStatus(TravelPlan.Status.COMPLETED);
+        testPlan.setActiveMemberCount(1);
         when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
-        when(userPlanStatusRepository.findByUser(testUser)).thenReturn(Arrays.asList(userPlanStatus));
+        userPlanStatus.setStatus(UserPlanStatus.Status.OWNED);
+        when(userPlanStatusRepository.findHistoryMemberships(testUser)).thenReturn(Arrays.asList(userPlanStatus));
+        when(userPlanStatusRepository.findByTravelPlanIdsWithUser(eq(List.of(1L)), anyList()))
+                .thenReturn(Arrays.asList(userPlanStatus));
 
         // When
         List<TravelPlanResponse> result = travelPlanService.getHistoryPlans(1L);
 
         // Then
         assertNotNull(result);
-        verify(userPlanStatusRepository).findByUser(testUser);
+        assertEquals(1, result.size());
+        assertEquals(1, result.get(0).getCurrentMemberCount());
+        verify(userPlanStatusRepository).findHistoryMemberships(testUser);
     }
 
     @Test
@@ -316,6 +496,7 @@ class TravelPlanServiceTest {
         when(travelPlanRepository.findById(1L)).thenReturn(Optional.of(testPlan));
         when(userRepository.findById(2L)).thenReturn(Optional.of(testUser2));
         when(userPlanStatusRepository.findByUserAndTravelPlan(testUser2, testPlan)).thenReturn(Optional.of(userPlanStatus));
+        when(travelPlanRepository.incrementActiveMemberCountIfNotFull(1L)).thenReturn(1);
         when(userPlanStatusRepository.save(any(UserPlanStatus.class))).thenReturn(userPlanStatus);
 
         // When
@@ -324,12 +505,33 @@ class TravelPlanServiceTest {
         // Then
         assertNotNull(result);
         assertEquals(UserPlanStatus.Status.APPLIED_ACCEPTED, userPlanStatus.getStatus());
+        assertEquals(1, result.getCurrentMemberCount());
         verify(travelPlanRepository).findById(1L);
+        verify(travelPlanRepository).incrementActiveMemberCountIfNotFull(1L);
         verify(userRepository).findById(2L);
         verify(userPlanStatusRepository).findByUserAndTravelPlan(testUser2, testPlan);
         verify(userPlanStatusRepository).save(userPlanStatus);
     }
 
+    @Test
+    void testAcceptApplication_PlanAlreadyFull() {
+        // Given
+        userPlanStatus.setStatus(UserPlanStatus.Status.APPLIED);
+        when(travelPlanRepository.findById(1L)).thenReturn(Optional.of(testPlan));
+        when(userRepository.findById(2L)).thenReturn(Optional.of(testUser2));
+        when(userPlanStatusRepository.findByUserAndTravelPlan(testUser2, testPlan)).thenReturn(Optional.of(userPlanStatus));
+        when(travelPlanRepository.incrementActiveMemberCountIfNotFull(1L)).thenReturn(0);
+
+        // When & Then
+        IllegalStateException exception = assertThrows(IllegalStateException.class, () -> {
+            travelPlanService.handleApplication(1L, 2L, testUser, TravelPlanService.Decision.ACCEPT);
+        });
+
+        assertEquals("Travel plan has reached maximum number of members", exception.getMessage());
+        assertEquals(UserPlanStatus.Status.APPLIED, userPlanStatus.getStatus());
+        verify(userPlanStatusRepository, never()).save(any(UserPlanStatus.class));
+    }
+
     @Test
     void testRefuseApplication_Success() {
         // Given
@@ -357,6 +559,7 @@ class TravelPlanServiceTest {
         userPlanStatus.setStatus(UserPlanStatus.Status.INVITED);
         when(travelPlanRepository.findById(1L)).thenReturn(Optional.of(testPlan));
         when(userPlanStatusRepository.findByUserAndTravelPlan(testUser2, testPlan)).thenReturn(Optional.of(userPlanStatus));
+        when(travelPlanRepository.incrementActiveMemberCountIfNotFull(1L)).thenReturn(1);
         when(userPlanStatusRepository.save(any(UserPlanStatus.class))).thenReturn(userPlanStatus);
 
         // When
@@ -388,4 +591,43 @@ class TravelPlanServiceTest {
         verify(userPlanStatusRepository).findByUserAndTravelPlan(testUser2, testPlan);
         verify(userPlanStatusRepository).save(userPlanStatus);
     }
-}
\ No newline at end of file
+
+    @Test
+    void testUserHasCurrentPlan_CachedAnswerSkipsQuery() {
+        // Given
+        when(currentPlanCache.get(1L)).thenReturn(new CurrentPlanCache.CurrentPlan(1L, UserPlanStatus.Status.OWNED));
+
+        // When & Then
+        assertTrue(travelPlanService.userHasCurrentPlan(1L));
+        verify(travelPlanRepository, never()).findCurrentPlanStatuses(any());
+    }
+
+    @Test
+    void testUserHasCurrentPlan_MissLoadsAndCaches() {
+        // Given
+        when(currentPlanCache.stamp()).thenReturn(7L);
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[]{3L, UserPlanStatus.Status.APPLIED});
+        when(travelPlanRepository.findCurrentPlanStatuses(2L)).thenReturn(rows);
+
+        // When & Then
+        assertTrue(travelPlanService.userHasCurrentPlan(2L));
+        verify(currentPlanCache).put(2L, new CurrentPlanCache.CurrentPlan(3L, UserPlanStatus.Status.APPLIED), 7L);
+    }
+
+    @Test
+    void testGetTravelPlanById_StatusOnCurrentPlanFromCache() {
+        // Given
+        when(travelPlanRepository.findById(1L)).thenReturn(Optional.of(testPlan));
+        when(currentPlanCache.get(2L)).thenReturn(new CurrentPlanCache.CurrentPlan(1L, UserPlanStatus.Status.APPLIED));
+
+        // When
+        TravelPlanResponse result = travelPlanService.getTravelPlanById(1L, 2L);
+
+        // Then
+        assertEquals(UserPlanStatus.Status.APPLIED, result.getUserPlanStatus());
+        assertTrue(result.isHasCurrentPlan());
+        verify(userPlanStatusRepository, never()).findByUserAndTravelPlan(any(), any());
+        verify(travelPlanRepository, never()).findCurrentPlanStatuses(any());
+    }
+}